@@ -11,6 +11,7 @@ import java.net.Inet6Address;
 import java.net.UnknownHostException;
 
 import org.apache.log4j.Logger;
+import org.dspace.statistics.util.IPTable;
 
 /**
  * <p>
@@ -50,6 +51,15 @@ public class IPMatcher {
      */
     private byte[] netmask;
 
+    /**
+     * Upper and lower 64 bits of the masked network and of the mask, in the form
+     * {@link IPTable#highBits(String)} and {@link IPTable#lowBits(String)} use
+     */
+    private long networkHigh;
+    private long networkLow;
+    private long netmaskHigh;
+    private long netmaskLow;
+
     /**
      * Construct an IPMatcher that will test for the given IP specification
      *
@@ -185,6 +195,23 @@ public class IPMatcher {
                 }
             }
         }
+
+        if (network.length == 4) {
+            // an IPv4-mapped IPv6 specification is returned as an IPv4 address
+            network = ip4ToIp6(network);
+        }
+        netmaskHigh = toLong(netmask, 0);
+        netmaskLow = toLong(netmask, 8);
+        networkHigh = toLong(network, 0) & netmaskHigh;
+        networkLow = toLong(network, 8) & netmaskLow;
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = value << 8 | (bytes[i] & 0xff);
+        }
+        return value;
     }
 
     /**
@@ -241,34 +268,16 @@ public class IPMatcher {
      */
     public boolean match(String ipIn) throws IPMatcherException {
         log.debug("ipIn: " + ipIn);
-        byte[] candidate;
-
-        if (ipIn.indexOf(':') < 0) {
-            candidate = new byte[4];
-            ipToBytes(ipIn, candidate, true);
-            candidate = ip4ToIp6(candidate);
-        } else {
-            try {
-                candidate = Inet6Address.getByName(ipIn).getAddress();
-            } catch (UnknownHostException e) {
-                throw new IPMatcherException("Malformed IPv6 address ", e);
-            }
-        }
-
-        for (int i = 0; i < netmask.length; i++) {
-            if ((candidate[i] & netmask[i]) != (network[i] & netmask[i])) {
-                if (log.isDebugEnabled()) {
-                    log.debug("candidate[i]: " + candidate[i]);
-                    log.debug("netmask[i]: " + netmask[i]);
-                    log.debug("candidate[i] & netmask[i]: " + (candidate[i] & netmask[i]));
-                    log.debug("network[i]: " + network[i]);
-                    log.debug("network[i] & netmask[i]: " + (network[i] & netmask[i]));
-                }
-                return false;
-            }
+        long candidateHigh;
+        long candidateLow;
+        try {
+            candidateHigh = IPTable.highBits(ipIn);
+            candidateLow = IPTable.lowBits(ipIn);
+        } catch (IPTable.IPFormatException e) {
+            throw new IPMatcherException("Malformed IP address " + ipIn, e);
         }
 
-        return true;
+        return (candidateHigh & netmaskHigh) == networkHigh && (candidateLow & netmaskLow) == networkLow;
     }
 
     /**
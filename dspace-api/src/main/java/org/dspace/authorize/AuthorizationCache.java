@@ -0,0 +1,194 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authorize;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.log4j.Logger;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.Context;
+import org.dspace.eperson.EPerson;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Authorization decisions shared by all Contexts of this node, unlike the decisions cached by a READ_ONLY
+ * Context which only live as long as that Context. A decision is keyed by the object, the action, the EPerson
+ * (null for anonymous), the special groups of the Context and whether inheritance was used.
+ * <p>
+ * The cache is bounded in size and every decision expires after a fixed time. It is cleared by
+ * {@link AuthorizationCacheConsumer} whenever a committed change may affect a decision: policy changes (which
+ * fire a MODIFY event on their object), group membership and group hierarchy changes, and changes to the
+ * structure of the repository. Changes committed on other nodes are only picked up once the decisions expire,
+ * so the time-to-live bounds how long such a node may use an outdated decision.
+ * <p>
+ * Disabled unless <code>core.authorization.cache.enabled</code> is set.
+ */
+public class AuthorizationCache implements InitializingBean {
+
+    private static final Logger log = Logger.getLogger(AuthorizationCache.class);
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    protected boolean enabled;
+    protected Cache<String, Boolean> decisions;
+
+    /**
+     * Incremented by every invalidation, so a decision computed before an invalidation is never stored after it.
+     */
+    protected long generation = 0;
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    protected AuthorizationCache() {
+
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        enabled = configurationService.getBooleanProperty("core.authorization.cache.enabled", false);
+        long size = configurationService.getLongProperty("core.authorization.cache.size", 10000);
+        long ttl = configurationService.getLongProperty("core.authorization.cache.ttl", 300);
+        decisions = CacheBuilder.newBuilder()
+                                .maximumSize(size)
+                                .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                                .recordStats()
+                                .build();
+        if (enabled) {
+            log.info("Authorization cache enabled, size " + size + ", time-to-live " + ttl + " seconds");
+        }
+    }
+
+    /**
+     * Whether decisions for the given Context can be taken from and stored in this cache. The Context must not
+     * have uncommitted changes: those are not visible to other Contexts, and they have not been announced to
+     * the cache yet.
+     *
+     * @param context The relevant DSpace Context.
+     * @return true if the cache is enabled and the Context has no pending events
+     */
+    public boolean isUsable(Context context) {
+        return enabled && !context.hasEvents();
+    }
+
+    /**
+     * Build the key of a decision.
+     *
+     * @param context        The relevant DSpace Context.
+     * @param dso            the object
+     * @param action         the action, from <code>org.dspace.core.Constants</code>
+     * @param eperson        the EPerson, or null for anonymous
+     * @param useInheritance whether ADMIN rights on parent objects count
+     * @return the key
+     */
+    public String getKey(Context context, DSpaceObject dso, int action, EPerson eperson, boolean useInheritance) {
+        StringBuilder key = new StringBuilder(128);
+        key.append(dso.getID()).append(':').append(action).append(':').append(useInheritance).append(':');
+        if (eperson != null) {
+            key.append(eperson.getID());
+        }
+        List<UUID> specialGroups = context.getSpecialGroupIds();
+        if (!specialGroups.isEmpty()) {
+            if (specialGroups.size() > 1) {
+                specialGroups = new ArrayList<>(specialGroups);
+                Collections.sort(specialGroups);
+            }
+            for (UUID group : specialGroups) {
+                key.append(':').append(group);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param key the key of the decision
+     * @return the cached decision, or null if there is none
+     */
+    public Boolean get(String key) {
+        return decisions.getIfPresent(key);
+    }
+
+    /**
+     * The generation to pass to {@link #put(String, boolean, long)}, read it before computing a decision.
+     *
+     * @return the current generation
+     */
+    public long getGeneration() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store a decision, unless the cache was invalidated while it was being computed.
+     *
+     * @param key        the key of the decision
+     * @param authorized the decision
+     * @param generation the generation read before the decision was computed
+     */
+    public void put(String key, boolean authorized, long generation) {
+        lock.readLock().lock();
+        try {
+            if (this.generation == generation) {
+                decisions.put(key, authorized);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Discard all decisions. Call it once the changes are committed, see {@link Context#afterCommit(Runnable)}:
+     * a decision computed before that may still be stored afterwards.
+     */
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            generation++;
+            decisions.invalidateAll();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getSize() {
+        return decisions.size();
+    }
+
+    public long getHitCount() {
+        return decisions.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return decisions.stats().missCount();
+    }
+
+    /**
+     * @return hit and miss counts, evictions and hit rate since startup
+     */
+    public CacheStats getStats() {
+        return decisions.stats();
+    }
+}
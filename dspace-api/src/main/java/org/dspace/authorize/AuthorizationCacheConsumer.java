@@ -0,0 +1,60 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authorize;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * Clears the shared {@link AuthorizationCache} when committed changes may affect authorization decisions:
+ * policy changes, group membership and group hierarchy changes, and objects being added, removed, installed,
+ * modified or deleted. Metadata changes and creation of new objects never affect existing decisions.
+ */
+public class AuthorizationCacheConsumer implements Consumer {
+
+    private static final Logger log = Logger.getLogger(AuthorizationCacheConsumer.class);
+
+    protected AuthorizationCache authorizationCache;
+
+    protected boolean invalidate = false;
+
+    @Override
+    public void initialize() throws Exception {
+        authorizationCache = DSpaceServicesFactory.getInstance().getServiceManager()
+                                                  .getServiceByName(AuthorizationCache.class.getName(),
+                                                                    AuthorizationCache.class);
+    }
+
+    @Override
+    public void consume(Context ctx, Event event) throws Exception {
+        int et = event.getEventType();
+        if (et != Event.CREATE && et != Event.MODIFY_METADATA) {
+            invalidate = true;
+        }
+    }
+
+    @Override
+    public void end(Context ctx) throws Exception {
+        if (invalidate && authorizationCache != null && authorizationCache.isEnabled()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Clearing the authorization cache, hits: " + authorizationCache.getHitCount()
+                              + ", misses: " + authorizationCache.getMissCount());
+            }
+            ctx.afterCommit(authorizationCache::invalidateAll);
+        }
+        invalidate = false;
+    }
+
+    @Override
+    public void finish(Context ctx) throws Exception {
+        // nothing to do
+    }
+}
@@ -64,6 +64,8 @@ public class AuthorizeServiceImpl implements AuthorizeService {
     protected WorkspaceItemService workspaceItemService;
     @Autowired(required = true)
     protected WorkflowItemService workflowItemService;
+    @Autowired(required = true)
+    protected AuthorizationCache authorizationCache;
 
     protected AuthorizeServiceImpl() {
 
@@ -231,6 +233,41 @@ public class AuthorizeServiceImpl implements AuthorizeService {
             return cachedResult.booleanValue();
         }
 
+        // If another Context of this node made the same decision before
+        if (authorizationCache.isUsable(c)) {
+            String key = authorizationCache.getKey(c, o, action, e, useInheritance);
+            Boolean sharedResult = authorizationCache.get(key);
+            if (sharedResult != null) {
+                c.cacheAuthorizedAction(o, action, e, sharedResult, null);
+                return sharedResult.booleanValue();
+            }
+
+            long generation = authorizationCache.getGeneration();
+            boolean authorized = authorizeUncached(c, o, action, e, useInheritance);
+            authorizationCache.put(key, authorized, generation);
+            return authorized;
+        }
+
+        return authorizeUncached(c, o, action, e, useInheritance);
+    }
+
+    /**
+     * Check to see if the given user can perform the given action on the given
+     * object, without looking at the cached decisions.
+     *
+     * @param c              current context
+     * @param o              object action is being attempted on
+     * @param action         ID of action being attempted, from
+     *                       <code>org.dspace.core.Constants</code>
+     * @param e              user attempting action
+     * @param useInheritance flag to say if ADMIN action on the current object or parent
+     *                       object can be used
+     * @return <code>true</code> if user is authorized to perform the given
+     * action, <code>false</code> otherwise
+     * @throws SQLException if database error
+     */
+    protected boolean authorizeUncached(Context c, DSpaceObject o, int action, EPerson e, boolean useInheritance)
+        throws SQLException {
         // is eperson set? if not, userToCheck = null (anonymous)
         EPerson userToCheck = null;
         if (e != null) {
@@ -0,0 +1,338 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.discovery.DiscoverFacetField;
+import org.dspace.discovery.DiscoverQuery;
+import org.dspace.discovery.DiscoverResult;
+import org.dspace.discovery.DiscoverResult.FacetResult;
+import org.dspace.discovery.SearchService;
+import org.dspace.discovery.SearchServiceException;
+import org.dspace.discovery.configuration.DiscoveryConfigurationParameters;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Holds the number of items in every community and collection, shared by all requests of this node, so
+ * {@link ItemCountDAOSolr} does not have to query Solr for every community list it renders.
+ * <p>
+ * The counts are those an anonymous user sees: discoverable items readable by anonymous. They are read from Solr
+ * when first needed. {@link ItemCountConsumer} marks the collections and communities of installed, withdrawn,
+ * reinstated, moved or mapped items once the changes are committed; only those are counted again, with a single
+ * query restricted to them, once the changes are visible in Solr. Deleted items and changes to the community
+ * structure cause all counts to be read again. Whatever the events miss, such as changed item policies or changes
+ * committed on other nodes, is corrected when all counts are read again after
+ * <code>itemcounter.cache.reconcile</code> seconds.
+ * <p>
+ * Counts are updated by whichever request needs them first, while the other requests keep using the previous
+ * counts meanwhile.
+ * <p>
+ * Enabled unless <code>itemcounter.cache.enabled</code> is set to false.
+ */
+public class ItemCountCache implements InitializingBean {
+
+    private static final Logger log = Logger.getLogger(ItemCountCache.class);
+
+    /**
+     * Above this number of changed containers all counts are read again.
+     */
+    protected static final int MAX_RECOUNT = 500;
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    @Autowired(required = true)
+    protected SearchService searchService;
+
+    protected boolean enabled;
+    protected long reconcileMillis;
+    protected long delayMillis;
+
+    /**
+     * The current counts, null until first read
+     */
+    protected volatile Counts counts;
+
+    /**
+     * Containers changed since the counts were read, and whether all counts must be read again
+     */
+    protected Set<UUID> changedCollections = new HashSet<>();
+    protected Set<UUID> changedCommunities = new HashSet<>();
+    protected boolean reload = false;
+    protected long lastChange = 0;
+
+    /**
+     * Held while counting, other threads use the previous counts meanwhile.
+     */
+    protected final ReentrantLock loadLock = new ReentrantLock();
+
+    protected ItemCountCache() {
+
+    }
+
+    /**
+     * Immutable item counts.
+     */
+    protected static class Counts {
+        private final Map<String, Integer> communities;
+        private final Map<String, Integer> collections;
+        private final long created;
+
+        protected Counts(Map<String, Integer> communities, Map<String, Integer> collections, long created) {
+            this.communities = Collections.unmodifiableMap(communities);
+            this.collections = Collections.unmodifiableMap(collections);
+            this.created = created;
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        enabled = configurationService.getBooleanProperty("itemcounter.cache.enabled", true);
+        reconcileMillis = configurationService.getLongProperty("itemcounter.cache.reconcile", 3600) * 1000;
+        if (configurationService.getBooleanProperty("discovery.index.async.enabled", false)) {
+            // the consumer only reports the changes once the queue indexed them and Solr committed them
+            delayMillis = 0;
+        } else {
+            // the documents are sent to Solr before the commit, and only visible after its next commit
+            delayMillis = configurationService.getLongProperty("itemcounter.cache.index-delay", 10000);
+        }
+        if (enabled) {
+            log.info("Item count cache enabled, counts read again every " + reconcileMillis / 1000 + " seconds");
+        }
+    }
+
+    /**
+     * Get the number of items in a community.
+     *
+     * @param communityId ID of the community
+     * @return the count
+     * @throws ItemCountException if count error
+     */
+    public int getCommunityCount(UUID communityId) throws ItemCountException {
+        return getCounts().communities.getOrDefault(communityId.toString(), 0);
+    }
+
+    /**
+     * Get the number of items in a collection.
+     *
+     * @param collectionId ID of the collection
+     * @return the count
+     * @throws ItemCountException if count error
+     */
+    public int getCollectionCount(UUID collectionId) throws ItemCountException {
+        return getCounts().collections.getOrDefault(collectionId.toString(), 0);
+    }
+
+    /**
+     * Mark collections and communities whose items changed, they are counted again once the changes are
+     * visible in Solr. Called once the changes are committed.
+     *
+     * @param collections IDs of the collections
+     * @param communities IDs of the communities
+     */
+    public synchronized void update(Collection<UUID> collections, Collection<UUID> communities) {
+        changedCollections.addAll(collections);
+        changedCommunities.addAll(communities);
+        if (changedCollections.size() + changedCommunities.size() > MAX_RECOUNT) {
+            reload = true;
+        }
+        lastChange = System.currentTimeMillis();
+    }
+
+    /**
+     * Read all counts again once the changes are visible in Solr. Called once the changes are committed.
+     */
+    public synchronized void invalidate() {
+        reload = true;
+        lastChange = System.currentTimeMillis();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the current counts, bringing them up to date first if needed and no other thread is doing so.
+     *
+     * @return the counts
+     * @throws ItemCountException if count error
+     */
+    protected Counts getCounts() throws ItemCountException {
+        Counts current = counts;
+        if (current != null && !isOutdated(current)) {
+            return current;
+        }
+        if (current == null) {
+            loadLock.lock();
+        } else if (!loadLock.tryLock()) {
+            return current;
+        }
+        try {
+            current = counts;
+            boolean full;
+            Set<UUID> collections;
+            Set<UUID> communities;
+            synchronized (this) {
+                boolean settled = System.currentTimeMillis() - lastChange >= delayMillis;
+                full = current == null || System.currentTimeMillis() - current.created >= reconcileMillis
+                    || reload && settled;
+                if (!full && !settled) {
+                    return current;
+                }
+                if (settled) {
+                    // changes which did not reach Solr yet are kept for the next time
+                    collections = changedCollections;
+                    communities = changedCommunities;
+                    changedCollections = new HashSet<>();
+                    changedCommunities = new HashSet<>();
+                    reload = false;
+                } else {
+                    collections = Collections.emptySet();
+                    communities = Collections.emptySet();
+                }
+            }
+            try {
+                if (full) {
+                    counts = readCounts();
+                } else if (!collections.isEmpty() || !communities.isEmpty()) {
+                    counts = recount(current, collections, communities);
+                }
+            } catch (SearchServiceException e) {
+                // count them again next time
+                synchronized (this) {
+                    changedCollections.addAll(collections);
+                    changedCommunities.addAll(communities);
+                }
+                log.error("caught exception: ", e);
+                if (current == null) {
+                    throw new ItemCountException(e);
+                }
+            }
+            return counts;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    protected synchronized boolean isOutdated(Counts current) {
+        return System.currentTimeMillis() - current.created >= reconcileMillis
+            || (reload || !changedCollections.isEmpty() || !changedCommunities.isEmpty())
+            && System.currentTimeMillis() - lastChange >= delayMillis;
+    }
+
+    /**
+     * Read the counts of all communities and collections.
+     *
+     * @return the counts
+     * @throws SearchServiceException if Solr could not be queried
+     */
+    protected Counts readCounts() throws SearchServiceException {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> communities = new HashMap<>();
+        Map<String, Integer> collections = new HashMap<>();
+        count(null, communities, collections);
+        if (log.isDebugEnabled()) {
+            log.debug("Counted the items of " + communities.size() + " communities and " + collections.size()
+                          + " collections in " + (System.currentTimeMillis() - start) + " ms");
+        }
+        return new Counts(communities, collections, start);
+    }
+
+    /**
+     * Count the items of some containers again.
+     *
+     * @param current     the current counts
+     * @param collections IDs of the collections to count
+     * @param communities IDs of the communities to count
+     * @return the counts with those of the given containers replaced
+     * @throws SearchServiceException if Solr could not be queried
+     */
+    protected Counts recount(Counts current, Set<UUID> collections, Set<UUID> communities)
+        throws SearchServiceException {
+        StringBuilder filter = new StringBuilder();
+        if (!collections.isEmpty()) {
+            filter.append("location.coll:(").append(StringUtils.join(collections, " OR ")).append(")");
+        }
+        if (!communities.isEmpty()) {
+            if (filter.length() > 0) {
+                filter.append(" OR ");
+            }
+            filter.append("location.comm:(").append(StringUtils.join(communities, " OR ")).append(")");
+        }
+        // every item in one of the containers matches the filter, so their counts are complete
+        Map<String, Integer> communityCounts = new HashMap<>();
+        Map<String, Integer> collectionCounts = new HashMap<>();
+        count(filter.toString(), communityCounts, collectionCounts);
+
+        Map<String, Integer> updatedCommunities = new HashMap<>(current.communities);
+        for (UUID community : communities) {
+            updatedCommunities.put(community.toString(), communityCounts.getOrDefault(community.toString(), 0));
+        }
+        Map<String, Integer> updatedCollections = new HashMap<>(current.collections);
+        for (UUID collection : collections) {
+            updatedCollections.put(collection.toString(), collectionCounts.getOrDefault(collection.toString(), 0));
+        }
+        return new Counts(updatedCommunities, updatedCollections, current.created);
+    }
+
+    /**
+     * Count the items per community and collection as seen by an anonymous user.
+     *
+     * @param filter      restrict to the items matching this filter query, may be null
+     * @param communities receives the counts per community ID
+     * @param collections receives the counts per collection ID
+     * @throws SearchServiceException if Solr could not be queried
+     */
+    protected void count(String filter, Map<String, Integer> communities, Map<String, Integer> collections)
+        throws SearchServiceException {
+        DiscoverQuery query = new DiscoverQuery();
+        query.setFacetMinCount(1);
+        query.addFacetField(new DiscoverFacetField("location.comm",
+                                                   DiscoveryConfigurationParameters.TYPE_STANDARD, -1,
+                                                   DiscoveryConfigurationParameters.SORT.COUNT));
+        query.addFacetField(new DiscoverFacetField("location.coll",
+                                                   DiscoveryConfigurationParameters.TYPE_STANDARD, -1,
+                                                   DiscoveryConfigurationParameters.SORT.COUNT));
+        query.addFilterQueries("search.resourcetype:2");    // count only items
+        query.addFilterQueries("NOT(discoverable:false)");  // only discoverable
+        if (filter != null) {
+            query.addFilterQueries(filter);
+        }
+        query.setMaxResults(0);
+
+        // a Context without user, the counts are shared by all users
+        Context context = new Context(Context.Mode.READ_ONLY);
+        try {
+            DiscoverResult response = searchService.search(context, query, false);
+            put(response.getFacetResult("location.comm"), communities);
+            put(response.getFacetResult("location.coll"), collections);
+        } finally {
+            context.abort();
+        }
+    }
+
+    private void put(List<FacetResult> facets, Map<String, Integer> counts) {
+        for (FacetResult c : facets) {
+            counts.put(c.getAsFilterQuery(), (int) c.getCount());
+        }
+    }
+}
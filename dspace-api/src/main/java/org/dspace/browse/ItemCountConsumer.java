@@ -0,0 +1,130 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CommunityService;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.discovery.AsyncIndexingQueue;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * Tells the shared {@link ItemCountCache} which collections and communities have to be counted again: those of
+ * installed, modified (withdrawn, reinstated, moved) archived items and of items mapped into or removed from
+ * a collection. Deleted items, collections and communities, and changes to the community structure make it count
+ * all of them again.
+ * <p>
+ * The cache is only told after the commit, and with asynchronous indexing only once the queued items have been
+ * indexed, so it never counts changes which are rolled back or not in Solr yet.
+ */
+public class ItemCountConsumer implements Consumer {
+
+    protected ItemCountCache itemCountCache;
+
+    protected CommunityService communityService;
+
+    // queue of the background indexer when asynchronous indexing is enabled
+    protected AsyncIndexingQueue queue = null;
+
+    protected final Set<UUID> collections = new HashSet<>();
+    protected final Set<UUID> communities = new HashSet<>();
+    protected boolean invalidate = false;
+
+    @Override
+    public void initialize() throws Exception {
+        itemCountCache = DSpaceServicesFactory.getInstance().getServiceManager()
+                                              .getServiceByName(ItemCountCache.class.getName(), ItemCountCache.class);
+        communityService = ContentServiceFactory.getInstance().getCommunityService();
+        ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+        if (configurationService.getBooleanProperty("discovery.index.async.enabled", false)) {
+            queue = DSpaceServicesFactory.getInstance().getServiceManager()
+                                         .getServiceByName(AsyncIndexingQueue.class.getName(),
+                                                           AsyncIndexingQueue.class);
+        }
+    }
+
+    @Override
+    public void consume(Context ctx, Event event) throws Exception {
+        if (itemCountCache == null || !itemCountCache.isEnabled() || invalidate) {
+            return;
+        }
+        int st = event.getSubjectType();
+        int et = event.getEventType();
+        if (et == Event.DELETE || st == Constants.COMMUNITY && (et == Event.ADD || et == Event.REMOVE)) {
+            // the containers of deleted items are not known anymore
+            invalidate = true;
+        } else if (st == Constants.COLLECTION && (et == Event.ADD || et == Event.REMOVE)
+            && event.getObjectType() == Constants.ITEM) {
+            DSpaceObject subject = event.getSubject(ctx);
+            if (subject != null) {
+                addCollection(ctx, (Collection) subject);
+            }
+        } else if (st == Constants.ITEM && (et == Event.INSTALL || et == Event.MODIFY)) {
+            DSpaceObject subject = event.getSubject(ctx);
+            if (subject != null) {
+                Item item = (Item) subject;
+                if (item.isArchived() || item.isWithdrawn()) {
+                    for (Collection collection : item.getCollections()) {
+                        addCollection(ctx, collection);
+                    }
+                }
+            }
+        }
+    }
+
+    protected void addCollection(Context ctx, Collection collection) throws SQLException {
+        if (collections.add(collection.getID())) {
+            for (Community community : communityService.getAllParents(ctx, collection)) {
+                communities.add(community.getID());
+            }
+        }
+    }
+
+    @Override
+    public void end(Context ctx) throws Exception {
+        if (itemCountCache != null && (invalidate || !collections.isEmpty() || !communities.isEmpty())) {
+            final ItemCountCache cache = itemCountCache;
+            Runnable change;
+            if (invalidate) {
+                change = cache::invalidate;
+            } else {
+                final Set<UUID> changedCollections = new HashSet<>(collections);
+                final Set<UUID> changedCommunities = new HashSet<>(communities);
+                change = () -> cache.update(changedCollections, changedCommunities);
+            }
+            if (queue != null) {
+                // the discovery consumer queued the changed items before this one ran
+                final AsyncIndexingQueue indexingQueue = queue;
+                ctx.afterCommit(() -> indexingQueue.afterIndexed(change));
+            } else {
+                ctx.afterCommit(change);
+            }
+        }
+        collections.clear();
+        communities.clear();
+        invalidate = false;
+    }
+
+    @Override
+    public void finish(Context ctx) throws Exception {
+        // nothing to do
+    }
+}
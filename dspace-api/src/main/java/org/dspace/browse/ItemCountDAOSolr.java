@@ -27,8 +27,8 @@ import org.dspace.services.factory.DSpaceServicesFactory;
 
 /**
  * Discovery (Solr) driver implementing ItemCountDAO interface to look up item
- * count information in communities and collections. Caching operations are
- * intentionally not implemented because Solr already is our cache.
+ * count information in communities and collections. The counts are taken from
+ * the {@link ItemCountCache} shared by all requests unless it is disabled.
  *
  * @author Ivan Masár, Andrea Bollini
  */
@@ -63,6 +63,13 @@ public class ItemCountDAOSolr implements ItemCountDAO {
     SearchService searcher = DSpaceServicesFactory.getInstance().getServiceManager()
                                                   .getServiceByName(SearchService.class.getName(), SearchService.class);
 
+    /**
+     * Counts shared by all requests, used instead of querying Solr when enabled
+     */
+    ItemCountCache itemCountCache = DSpaceServicesFactory.getInstance().getServiceManager()
+                                                         .getServiceByName(ItemCountCache.class.getName(),
+                                                                           ItemCountCache.class);
+
     /**
      * Set the dspace context to use
      *
@@ -83,6 +90,15 @@ public class ItemCountDAOSolr implements ItemCountDAO {
      */
     @Override
     public int getCount(DSpaceObject dso) throws ItemCountException {
+        if (itemCountCache != null && itemCountCache.isEnabled()) {
+            if (dso instanceof Collection) {
+                return itemCountCache.getCollectionCount(dso.getID());
+            } else if (dso instanceof Community) {
+                return itemCountCache.getCommunityCount(dso.getID());
+            }
+            throw new ItemCountException("We can only count items in Communities or Collections");
+        }
+
         loadCount();
         Integer val;
         if (dso instanceof Collection) {
@@ -7,14 +7,13 @@
  */
 package org.dspace.browse;
 
-import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.factory.AuthorizeServiceFactory;
 import org.dspace.authorize.service.AuthorizeService;
@@ -31,6 +30,10 @@ import org.dspace.discovery.DiscoverResult.SearchDocument;
 import org.dspace.discovery.SearchService;
 import org.dspace.discovery.SearchServiceException;
 import org.dspace.discovery.configuration.DiscoveryConfigurationParameters;
+import org.dspace.eperson.EPerson;
+import org.dspace.eperson.Group;
+import org.dspace.eperson.factory.EPersonServiceFactory;
+import org.dspace.eperson.service.GroupService;
 import org.dspace.services.factory.DSpaceServicesFactory;
 
 /**
@@ -44,26 +47,6 @@ public class SolrBrowseDAO implements BrowseDAO {
         this.context = context;
     }
 
-    static private class FacetValueComparator
-        implements Comparator, Serializable {
-        @Override
-        public int compare(Object o1, Object o2) {
-            String s1 = "";
-            String s2 = "";
-            if (o1 instanceof FacetResult && o2 instanceof String) {
-                FacetResult c = (FacetResult) o1;
-                s1 = c.getSortValue();
-                s2 = (String) o2;
-            } else if (o2 instanceof FacetResult && o1 instanceof String) {
-                FacetResult c = (FacetResult) o2;
-                s1 = (String) o1;
-                s2 = c.getSortValue();
-            }
-            // both object are FacetResult so they are already sorted
-            return s1.compareTo(s2);
-        }
-    }
-
     /**
      * Log4j log
      */
@@ -158,14 +141,31 @@ public class SolrBrowseDAO implements BrowseDAO {
 
     protected AuthorizeService authorizeService = AuthorizeServiceFactory.getInstance().getAuthorizeService();
 
+    protected GroupService groupService = EPersonServiceFactory.getInstance().getGroupService();
+
+    /**
+     * Sample interval of the distinct values when there is no {@link SolrBrowseValueCache}
+     */
+    private static final int DEFAULT_SAMPLE_INTERVAL = 100;
+
     // administrative attributes for this class
 
 
     SearchService searcher = DSpaceServicesFactory.getInstance().getServiceManager().getServiceByName(
         SearchService.class.getName(), SearchService.class);
 
+    SolrBrowseValueCache valueCache = DSpaceServicesFactory.getInstance().getServiceManager().getServiceByName(
+        SolrBrowseValueCache.class.getName(), SolrBrowseValueCache.class);
+
     private DiscoverResult sResponse = null;
 
+    private SolrBrowseValueCache.DistinctValues distinctValues = null;
+
+    /**
+     * All distinct values, when they were read from Solr by this browse
+     */
+    private List<FacetResult> allValues = null;
+
     private boolean itemsWithdrawn = false;
     private boolean itemsDiscoverable = true;
 
@@ -176,35 +176,26 @@ public class SolrBrowseDAO implements BrowseDAO {
             DiscoverQuery query = new DiscoverQuery();
             addLocationScopeFilter(query);
             addStatusFilter(query);
-            if (distinct) {
-                DiscoverFacetField dff = new DiscoverFacetField(facetField,
-                                                                DiscoveryConfigurationParameters.TYPE_TEXT, -1,
-                                                                DiscoveryConfigurationParameters.SORT.VALUE);
-                query.addFacetField(dff);
-                query.setFacetMinCount(1);
-                query.setMaxResults(0);
-            } else {
-                query.setMaxResults(limit/* > 0 ? limit : 20*/);
-                if (offset > 0) {
-                    query.setStart(offset);
-                }
+            query.setMaxResults(limit/* > 0 ? limit : 20*/);
+            if (offset > 0) {
+                query.setStart(offset);
+            }
 
-                // caution check first authority, value is always present!
-                if (authority != null) {
-                    query.addFilterQueries("{!field f=" + facetField + "_authority_filter}"
-                                               + authority);
-                } else if (value != null && !valuePartial) {
-                    query.addFilterQueries("{!field f=" + facetField + "_value_filter}" + value);
-                } else if (valuePartial) {
-                    query.addFilterQueries("{!field f=" + facetField + "_partial}" + value);
-                }
-                // filter on item to be sure to don't include any other object
-                // indexed in the Discovery Search core
-                query.addFilterQueries("search.resourcetype:" + Constants.ITEM);
-                if (orderField != null) {
-                    query.setSortField("bi_" + orderField + "_sort",
-                                       ascending ? SORT_ORDER.asc : SORT_ORDER.desc);
-                }
+            // caution check first authority, value is always present!
+            if (authority != null) {
+                query.addFilterQueries("{!field f=" + facetField + "_authority_filter}"
+                                           + authority);
+            } else if (value != null && !valuePartial) {
+                query.addFilterQueries("{!field f=" + facetField + "_value_filter}" + value);
+            } else if (valuePartial) {
+                query.addFilterQueries("{!field f=" + facetField + "_partial}" + value);
+            }
+            // filter on item to be sure to don't include any other object
+            // indexed in the Discovery Search core
+            query.addFilterQueries("search.resourcetype:" + Constants.ITEM);
+            if (orderField != null) {
+                query.setSortField("bi_" + orderField + "_sort",
+                                   ascending ? SORT_ORDER.asc : SORT_ORDER.desc);
             }
             try {
                 sResponse = searcher.search(context, query, itemsWithdrawn
@@ -216,6 +207,103 @@ public class SolrBrowseDAO implements BrowseDAO {
         return sResponse;
     }
 
+    /**
+     * Get part of the distinct values of the browse index, in ascending order of their sort value. When all values
+     * were just read to count them, the part is taken from those instead of asking Solr again.
+     *
+     * @param facetOffset position of the first value
+     * @param facetLimit  maximum number of values, -1 for all of them
+     * @return the values
+     * @throws BrowseException if browse error
+     */
+    private List<FacetResult> getDistinctValues(int facetOffset, int facetLimit) throws BrowseException {
+        if (allValues != null) {
+            int end = facetLimit < 0 ? allValues.size() : Math.min(allValues.size(), facetOffset + facetLimit);
+            return facetOffset < end ? allValues.subList(facetOffset, end) : Collections.<FacetResult>emptyList();
+        }
+        DiscoverQuery query = new DiscoverQuery();
+        addLocationScopeFilter(query);
+        addStatusFilter(query);
+        DiscoverFacetField dff = new DiscoverFacetField(facetField,
+                                                        DiscoveryConfigurationParameters.TYPE_TEXT, facetLimit,
+                                                        DiscoveryConfigurationParameters.SORT.VALUE);
+        if (facetOffset > 0) {
+            dff.setOffset(facetOffset);
+        }
+        query.addFacetField(dff);
+        query.setFacetMinCount(1);
+        query.setMaxResults(0);
+        try {
+            return searcher.search(context, query, itemsWithdrawn || !itemsDiscoverable).getFacetResult(facetField);
+        } catch (SearchServiceException e) {
+            throw new BrowseException(e);
+        }
+    }
+
+    /**
+     * Get the number of distinct values of the browse index and some of their sort values, from the
+     * {@link SolrBrowseValueCache} if possible. The values visible to a user depend on the groups of that user, so
+     * they are cached per set of groups, as Discovery restricts the search to them.
+     *
+     * @return the count and the sort values
+     * @throws BrowseException if browse error
+     */
+    private SolrBrowseValueCache.DistinctValues getDistinctCount() throws BrowseException {
+        if (distinctValues == null) {
+            String key = null;
+            if (valueCache != null && valueCache.isEnabled()) {
+                DiscoverQuery query = new DiscoverQuery();
+                addLocationScopeFilter(query);
+                addStatusFilter(query);
+                key = getReadKey() + ":" + facetField + ":" + (itemsWithdrawn || !itemsDiscoverable) + ":"
+                    + query.getFilterQueries();
+                distinctValues = valueCache.get(key);
+            }
+            if (distinctValues == null) {
+                long generation = key != null ? valueCache.getGeneration() : 0;
+                allValues = getDistinctValues(0, -1);
+                List<String> sortValues = new ArrayList<>(allValues.size());
+                for (FacetResult facet : allValues) {
+                    sortValues.add(facet.getSortValue());
+                }
+                distinctValues = new SolrBrowseValueCache.DistinctValues(
+                    sortValues, valueCache != null ? valueCache.getSampleInterval() : DEFAULT_SAMPLE_INTERVAL);
+                if (key != null) {
+                    valueCache.put(key, distinctValues, generation);
+                }
+            }
+        }
+        return distinctValues;
+    }
+
+    /**
+     * Identify which items the current user may see, the same way
+     * {@link org.dspace.discovery.SolrServiceResourceRestrictionPlugin} restricts the search: administrators see
+     * everything, others what their EPerson and groups can read.
+     *
+     * @return the key
+     * @throws BrowseException if browse error
+     */
+    private String getReadKey() throws BrowseException {
+        try {
+            if (authorizeService.isAdmin(context)) {
+                return "admin";
+            }
+            List<String> readers = new ArrayList<>();
+            EPerson currentUser = context.getCurrentUser();
+            if (currentUser != null) {
+                readers.add("e" + currentUser.getID());
+            }
+            for (Group group : groupService.allMemberGroupsSet(context, currentUser)) {
+                readers.add("g" + group.getID());
+            }
+            Collections.sort(readers);
+            return StringUtils.join(readers, ",");
+        } catch (SQLException e) {
+            throw new BrowseException(e);
+        }
+    }
+
     private void addStatusFilter(DiscoverQuery query) {
         if (itemsWithdrawn) {
             query.addFilterQueries("withdrawn:true");
@@ -247,12 +335,11 @@ public class SolrBrowseDAO implements BrowseDAO {
 
     @Override
     public int doCountQuery() throws BrowseException {
-        DiscoverResult resp = getSolrResponse();
         int count = 0;
         if (distinct) {
-            List<FacetResult> facetResults = resp.getFacetResult(facetField);
-            count = facetResults.size();
+            count = getDistinctCount().getCount();
         } else {
+            DiscoverResult resp = getSolrResponse();
             // we need to cast to int to respect the BrowseDAO contract...
             count = (int) resp.getTotalSearchResults();
             // FIXME null the response cache
@@ -265,29 +352,28 @@ public class SolrBrowseDAO implements BrowseDAO {
 
     @Override
     public List doValueQuery() throws BrowseException {
-        DiscoverResult resp = getSolrResponse();
-        List<FacetResult> facet = resp.getFacetResult(facetField);
         int count = doCountQuery();
         int start = offset > 0 ? offset : 0;
         int max = limit > 0 ? limit : count; //if negative, return everything
+        // only ask Solr for the requested page, counted from the other end when descending
+        int facetOffset = ascending ? start : count - start - max;
+        int facetLimit = max;
+        if (facetOffset < 0) {
+            facetLimit += facetOffset;
+            facetOffset = 0;
+        }
         List<String[]> result = new ArrayList<>();
-        if (ascending) {
-            for (int i = start; i < (start + max) && i < count; i++) {
-                FacetResult c = facet.get(i);
-                String freq = showFrequencies ? String.valueOf(c.getCount())
-                    : "";
-                result.add(new String[] {c.getDisplayedValue(),
-                    c.getAuthorityKey(), freq});
-            }
-        } else {
-            for (int i = count - start - 1; i >= count - (start + max)
-                && i >= 0; i--) {
-                FacetResult c = facet.get(i);
-                String freq = showFrequencies ? String.valueOf(c.getCount())
-                    : "";
-                result.add(new String[] {c.getDisplayedValue(),
-                    c.getAuthorityKey(), freq});
-            }
+        if (facetLimit <= 0 || facetOffset >= count) {
+            return result;
+        }
+        for (FacetResult c : getDistinctValues(facetOffset, facetLimit)) {
+            String freq = showFrequencies ? String.valueOf(c.getCount())
+                : "";
+            result.add(new String[] {c.getDisplayedValue(),
+                c.getAuthorityKey(), freq});
+        }
+        if (!ascending) {
+            Collections.reverse(result);
         }
 
         return result;
@@ -366,16 +452,23 @@ public class SolrBrowseDAO implements BrowseDAO {
     @Override
     public int doDistinctOffsetQuery(String column, String value,
                                      boolean isAscending) throws BrowseException {
-        DiscoverResult resp = getSolrResponse();
-        List<FacetResult> facets = resp.getFacetResult(facetField);
-        Comparator comparator = new SolrBrowseDAO.FacetValueComparator();
-        Collections.sort(facets, comparator);
-        int x = Collections.binarySearch(facets, value, comparator);
-        int ascValue = (x >= 0) ? x : -(x + 1);
+        SolrBrowseValueCache.DistinctValues distinctCount = getDistinctCount();
+        // only the values between the two kept sort values around the given one are read from Solr
+        int blockStart = distinctCount.getBlockStart(value);
+        int ascValue = 0;
+        if (blockStart >= 0) {
+            ascValue = blockStart;
+            for (FacetResult facet : getDistinctValues(blockStart, distinctCount.getInterval() + 1)) {
+                if (facet.getSortValue().compareTo(value) >= 0) {
+                    break;
+                }
+                ascValue++;
+            }
+        }
         if (isAscending) {
             return ascValue;
         } else {
-            return doCountQuery() - ascValue;
+            return distinctCount.getCount() - ascValue;
         }
     }
 
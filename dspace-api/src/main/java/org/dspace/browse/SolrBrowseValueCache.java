@@ -0,0 +1,178 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.log4j.Logger;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps, per browse index and scope, the number of distinct values and every n-th of their sort values, so
+ * {@link SolrBrowseDAO} only has to ask Solr for the values on the requested page. Without it every distinct
+ * value browse requests all values of the index from Solr, only to count them or to show a single page.
+ * <p>
+ * {@link org.dspace.discovery.IndexEventConsumer} clears the cache whenever items are (un)indexed on this node.
+ * Changes indexed by other nodes, by the command line tools or in the background (with
+ * <code>discovery.index.async.enabled</code>) are only picked up once the entries expire.
+ * <p>
+ * Enabled unless <code>browse.solr.value-cache.enabled</code> is set to false.
+ */
+public class SolrBrowseValueCache implements InitializingBean {
+
+    private static final Logger log = Logger.getLogger(SolrBrowseValueCache.class);
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    protected boolean enabled;
+    protected int sampleInterval;
+    protected Cache<String, DistinctValues> values;
+
+    /**
+     * Incremented by every invalidation, so values read before an invalidation are never stored after it.
+     */
+    protected long generation = 0;
+
+    protected SolrBrowseValueCache() {
+
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        enabled = configurationService.getBooleanProperty("browse.solr.value-cache.enabled", true);
+        long size = configurationService.getLongProperty("browse.solr.value-cache.size", 1000);
+        long ttl = configurationService.getLongProperty("browse.solr.value-cache.ttl", 300);
+        sampleInterval = Math.max(1, configurationService.getIntProperty("browse.solr.value-cache.sample", 100));
+        values = CacheBuilder.newBuilder()
+                             .maximumSize(size)
+                             .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                             .build();
+        if (enabled) {
+            log.info("Browse value cache enabled, size " + size + ", time-to-live " + ttl + " seconds");
+        }
+    }
+
+    /**
+     * @param key the browse index and scope, see {@link SolrBrowseDAO}
+     * @return the cached values, or null if there are none
+     */
+    public DistinctValues get(String key) {
+        return enabled ? values.getIfPresent(key) : null;
+    }
+
+    /**
+     * The generation to pass to {@link #put(String, DistinctValues, long)}, read it before querying Solr.
+     *
+     * @return the current generation
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Store values, unless the cache was cleared since they were read.
+     *
+     * @param key        the browse index and scope
+     * @param distinct   the values
+     * @param generation the generation read before querying Solr
+     */
+    public synchronized void put(String key, DistinctValues distinct, long generation) {
+        if (enabled && generation == this.generation) {
+            values.put(key, distinct);
+        }
+    }
+
+    /**
+     * Clear the cache.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        values.invalidateAll();
+    }
+
+    /**
+     * @return the number of values between two kept sort values
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The number of distinct values of a browse index in some scope and the sort value at every n-th position,
+     * in ascending order.
+     */
+    public static class DistinctValues {
+        private final int count;
+        private final int interval;
+        private final List<String> samples;
+
+        /**
+         * @param sortValues all sort values in ascending order
+         * @param interval   keep every interval-th sort value
+         */
+        public DistinctValues(List<String> sortValues, int interval) {
+            this.count = sortValues.size();
+            this.interval = interval;
+            List<String> kept = new ArrayList<>(count / interval + 1);
+            for (int i = 0; i < count; i += interval) {
+                kept.add(sortValues.get(i));
+            }
+            this.samples = Collections.unmodifiableList(kept);
+        }
+
+        /**
+         * @return the number of distinct values
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the number of values between two kept sort values
+         */
+        public int getInterval() {
+            return interval;
+        }
+
+        /**
+         * Find where to look for the first value not sorting before the given one. That value is at most
+         * {@link #getInterval()} positions after the returned one.
+         *
+         * @param sortValue the sort value looked for
+         * @return the position of the last kept value sorting before sortValue, or -1 if the first value does not
+         * sort before it
+         */
+        public int getBlockStart(String sortValue) {
+            int low = 0;
+            int high = samples.size() - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (samples.get(mid).compareTo(sortValue) < 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found < 0 ? -1 : found * interval;
+        }
+    }
+}
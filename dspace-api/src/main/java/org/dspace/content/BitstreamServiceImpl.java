@@ -281,6 +281,14 @@ public class BitstreamServiceImpl extends DSpaceObjectServiceImpl<Bitstream> imp
         return bitstreamStorageService.retrieve(context, bitstream);
     }
 
+    @Override
+    public InputStream retrieve(Context context, Bitstream bitstream, long offset, long length)
+        throws IOException, SQLException, AuthorizeException {
+        authorizeService.authorizeAction(context, bitstream, Constants.READ);
+
+        return bitstreamStorageService.retrieve(context, bitstream, offset, length);
+    }
+
     @Override
     public boolean isRegisteredBitstream(Bitstream bitstream) {
         return bitstreamStorageService.isRegisteredBitstream(bitstream.getInternalId());
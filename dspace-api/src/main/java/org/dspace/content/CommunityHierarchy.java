@@ -0,0 +1,284 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.log4j.Logger;
+import org.dspace.content.CommunityHierarchySnapshot.Node;
+import org.dspace.content.dao.CollectionDAO;
+import org.dspace.content.dao.CommunityDAO;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.MetadataFieldService;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Holds the {@link CommunityHierarchySnapshot} shared by all Contexts of this node, so the community tree and the
+ * parent paths of communities and collections are served without walking them through the database.
+ * <p>
+ * The snapshot is read from the database when first needed, with a handful of queries. {@link
+ * CommunityHierarchyConsumer} then reads the communities and collections that were created, changed, moved or
+ * deleted and patches them into the snapshot once the changes are committed. Changes committed on other nodes are
+ * only picked up once the snapshot expires.
+ * <p>
+ * Disabled unless <code>core.hierarchy.cache.enabled</code> is set.
+ */
+public class CommunityHierarchy implements InitializingBean {
+
+    private static final Logger log = Logger.getLogger(CommunityHierarchy.class);
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    @Autowired(required = true)
+    protected CommunityDAO communityDAO;
+
+    @Autowired(required = true)
+    protected CollectionDAO collectionDAO;
+
+    @Autowired(required = true)
+    protected CommunityService communityService;
+
+    @Autowired(required = true)
+    protected CollectionService collectionService;
+
+    @Autowired(required = true)
+    protected MetadataFieldService metadataFieldService;
+
+    protected boolean enabled;
+    protected long ttlMillis;
+
+    protected volatile CommunityHierarchySnapshot snapshot;
+
+    /**
+     * Incremented by every change, so a snapshot read before a change is never used after it.
+     */
+    protected long generation = 0;
+
+    /**
+     * Held while reading a snapshot, other threads walk the database meanwhile.
+     */
+    protected final ReentrantLock loadLock = new ReentrantLock();
+
+    protected CommunityHierarchy() {
+
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        enabled = configurationService.getBooleanProperty("core.hierarchy.cache.enabled", false);
+        ttlMillis = configurationService.getLongProperty("core.hierarchy.cache.ttl", 600) * 1000;
+        if (enabled) {
+            log.info("Community hierarchy cache enabled, time-to-live " + ttlMillis / 1000 + " seconds");
+        }
+    }
+
+    /**
+     * Get the current snapshot, reading it if there is none. The Context must not have uncommitted changes: those
+     * are not in the snapshot.
+     *
+     * @param context The relevant DSpace Context.
+     * @return the snapshot, or null if the hierarchy must be walked in the database
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public CommunityHierarchySnapshot getSnapshot(Context context) throws SQLException {
+        if (!enabled || context.hasEvents()) {
+            return null;
+        }
+        CommunityHierarchySnapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - current.getCreated() < ttlMillis) {
+            return current;
+        }
+        if (!loadLock.tryLock()) {
+            return null;
+        }
+        try {
+            long loadGeneration;
+            synchronized (this) {
+                loadGeneration = generation;
+            }
+
+            long start = System.currentTimeMillis();
+            CommunityHierarchySnapshot loaded = new CommunityHierarchySnapshot(readNodes(context), start);
+            if (log.isDebugEnabled()) {
+                log.debug("Read hierarchy of " + loaded.getSize() + " communities and collections in "
+                              + (System.currentTimeMillis() - start) + " ms");
+            }
+
+            synchronized (this) {
+                if (generation != loadGeneration) {
+                    return null;
+                }
+                snapshot = loaded;
+            }
+            return loaded;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    protected List<Node> readNodes(Context context) throws SQLException {
+        MetadataField title = metadataFieldService.findByElement(context, MetadataSchema.DC_SCHEMA, "title", null);
+
+        Map<UUID, List<UUID>> parents = new HashMap<>();
+        for (Pair<UUID, UUID> relation : communityDAO.getSubcommunityResults(context)) {
+            addParent(parents, relation);
+        }
+        for (Pair<UUID, UUID> relation : communityDAO.getCollectionResults(context)) {
+            addParent(parents, relation);
+        }
+
+        List<Node> nodes = new ArrayList<>();
+        addNodes(nodes, Constants.COMMUNITY, communityDAO.getHandleResults(context),
+                 communityDAO.getMetadataResults(context, title), parents);
+        addNodes(nodes, Constants.COLLECTION, collectionDAO.getHandleResults(context),
+                 collectionDAO.getMetadataResults(context, title), parents);
+        return nodes;
+    }
+
+    private void addParent(Map<UUID, List<UUID>> parents, Pair<UUID, UUID> relation) {
+        List<UUID> parentIds = parents.get(relation.getRight());
+        if (parentIds == null) {
+            parentIds = new ArrayList<>();
+            parents.put(relation.getRight(), parentIds);
+        }
+        parentIds.add(relation.getLeft());
+    }
+
+    private void addNodes(List<Node> nodes, int type, List<Pair<UUID, String>> handleResults,
+                          List<Pair<UUID, String>> nameResults, Map<UUID, List<UUID>> parents) {
+        // the first handle and the first name are the ones getHandle() and getName() give
+        Map<UUID, String> handles = new LinkedHashMap<>();
+        for (Pair<UUID, String> handle : handleResults) {
+            if (!handles.containsKey(handle.getLeft())) {
+                handles.put(handle.getLeft(), handle.getRight());
+            }
+        }
+        Map<UUID, String> names = new HashMap<>();
+        for (Pair<UUID, String> name : nameResults) {
+            if (!names.containsKey(name.getLeft())) {
+                names.put(name.getLeft(), name.getRight());
+            }
+        }
+        for (Map.Entry<UUID, String> handle : handles.entrySet()) {
+            List<UUID> parentIds = parents.get(handle.getKey());
+            nodes.add(new Node(handle.getKey(), type, handle.getValue(), names.get(handle.getKey()),
+                               parentIds == null ? new ArrayList<UUID>() : parentIds));
+        }
+    }
+
+    /**
+     * Apply committed changes of communities and collections to the current snapshot. Called once the changes are
+     * committed.
+     *
+     * @param changed the communities and collections created, changed or moved, as read in the Context which
+     *                committed them
+     * @param deleted IDs of the deleted communities and collections
+     */
+    public synchronized void update(List<Node> changed, List<UUID> deleted) {
+        generation++;
+        // a snapshot read before the commit misses the changes, one read since already has them
+        if (snapshot != null) {
+            snapshot = snapshot.with(changed, deleted);
+        }
+    }
+
+    /**
+     * Read a community or collection as a node of the snapshot.
+     *
+     * @param context The relevant DSpace Context.
+     * @param id      ID of the community or collection
+     * @return the node, null if there is no such community or collection
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public Node readNode(Context context, UUID id) throws SQLException {
+        Community community = communityService.find(context, id);
+        if (community != null) {
+            List<UUID> parentIds = new ArrayList<>();
+            for (Community parent : community.getParentCommunities()) {
+                parentIds.add(parent.getID());
+            }
+            return new Node(id, Constants.COMMUNITY, community.getHandle(), community.getName(), parentIds);
+        }
+        Collection collection = collectionService.find(context, id);
+        if (collection != null) {
+            List<UUID> parentIds = new ArrayList<>();
+            for (Community parent : collection.getCommunities()) {
+                parentIds.add(parent.getID());
+            }
+            return new Node(id, Constants.COLLECTION, collection.getHandle(), collection.getName(), parentIds);
+        }
+        return null;
+    }
+
+    /**
+     * Discard the current snapshot.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+    }
+
+    /**
+     * Get the communities containing a community or collection, the top community first, as shown in breadcrumbs.
+     * Where there are several parents, the one {@link org.dspace.content.service.DSpaceObjectService#getParentObject}
+     * returns (the first by name) is followed, whether the path comes from the snapshot or from the database.
+     *
+     * @param context The relevant DSpace Context.
+     * @param id      ID of the community or collection
+     * @return the communities, the top community first, or null if there is no such community or collection
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public List<Community> getParentPath(Context context, UUID id) throws SQLException {
+        List<Community> path = new ArrayList<>();
+        CommunityHierarchySnapshot current = getSnapshot(context);
+        if (current != null && current.getNode(id) != null) {
+            for (Node node : current.getPath(id)) {
+                Community community = communityService.find(context, node.getID());
+                if (community != null) {
+                    path.add(community);
+                }
+            }
+            return path;
+        }
+
+        DSpaceObject parent;
+        Community community = communityService.find(context, id);
+        if (community != null) {
+            parent = communityService.getParentObject(context, community);
+        } else {
+            Collection collection = collectionService.find(context, id);
+            if (collection == null) {
+                return null;
+            }
+            parent = collectionService.getParentObject(context, collection);
+        }
+        while (parent != null && !path.contains(parent)) {
+            path.add(0, (Community) parent);
+            parent = communityService.getParentObject(context, (Community) parent);
+        }
+        return path;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.dspace.content.CommunityHierarchySnapshot.Node;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * Keeps the shared {@link CommunityHierarchy} up to date: the communities and collections created, modified,
+ * deleted, or added to or removed from a community are read again and patched into its snapshot.
+ * <p>
+ * They are read in the committing Context, but only patched in once the commit succeeded, so the shared snapshot
+ * never shows changes that are rolled back.
+ */
+public class CommunityHierarchyConsumer implements Consumer {
+
+    protected CommunityHierarchy communityHierarchy;
+
+    /**
+     * IDs of the changed communities and collections
+     */
+    protected final Set<UUID> changed = new LinkedHashSet<>();
+
+    @Override
+    public void initialize() throws Exception {
+        communityHierarchy = DSpaceServicesFactory.getInstance().getServiceManager()
+                                                  .getServiceByName(CommunityHierarchy.class.getName(),
+                                                                    CommunityHierarchy.class);
+    }
+
+    @Override
+    public void consume(Context ctx, Event event) throws Exception {
+        int st = event.getSubjectType();
+        if (st != Constants.COMMUNITY && st != Constants.COLLECTION) {
+            return;
+        }
+        int et = event.getEventType();
+        if (et == Event.ADD || et == Event.REMOVE) {
+            // the parents of the added or removed child change, the parent itself does not
+            int ot = event.getObjectType();
+            if (ot == Constants.COMMUNITY || ot == Constants.COLLECTION) {
+                changed.add(event.getObjectID());
+            }
+        } else {
+            changed.add(event.getSubjectID());
+        }
+    }
+
+    @Override
+    public void end(Context ctx) throws Exception {
+        if (communityHierarchy != null && communityHierarchy.isEnabled() && !changed.isEmpty()) {
+            final List<Node> nodes = new ArrayList<>();
+            final List<UUID> deleted = new ArrayList<>();
+            for (UUID id : changed) {
+                Node node = communityHierarchy.readNode(ctx, id);
+                if (node != null) {
+                    nodes.add(node);
+                } else {
+                    deleted.add(id);
+                }
+            }
+            ctx.afterCommit(() -> communityHierarchy.update(nodes, deleted));
+        }
+        changed.clear();
+    }
+
+    @Override
+    public void finish(Context ctx) throws Exception {
+        // nothing to do
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.dspace.core.Constants;
+
+/**
+ * An immutable copy of the community hierarchy: the ID, handle, name and parents of every community and
+ * collection. Subcommunities and collections are sorted by name, as {@link Community#getSubcommunities()} and
+ * {@link Community#getCollections()} sort them, so the tree and the parent path of an object are answered without
+ * any database access. A snapshot can be shared by any number of threads.
+ *
+ * @see CommunityHierarchy
+ */
+public class CommunityHierarchySnapshot {
+
+    /**
+     * A community or collection of the hierarchy.
+     */
+    public static class Node {
+        private final UUID id;
+        private final int type;
+        private final String handle;
+        private final String name;
+        private final List<UUID> parentIds;
+
+        /**
+         * @param id        the ID of the community or collection
+         * @param type      {@link Constants#COMMUNITY} or {@link Constants#COLLECTION}
+         * @param handle    the handle, or null
+         * @param name      the name, or null
+         * @param parentIds the IDs of the communities containing it, empty for top communities
+         */
+        public Node(UUID id, int type, String handle, String name, List<UUID> parentIds) {
+            this.id = id;
+            this.type = type;
+            this.handle = handle;
+            this.name = name;
+            this.parentIds = Collections.unmodifiableList(new ArrayList<>(parentIds));
+        }
+
+        public UUID getID() {
+            return id;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public String getHandle() {
+            return handle;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<UUID> getParentIDs() {
+            return parentIds;
+        }
+    }
+
+    /**
+     * The order of {@link org.dspace.content.comparator.NameAscendingComparator}
+     */
+    private static final Comparator<Node> NAME_ASCENDING = new Comparator<Node>() {
+        @Override
+        public int compare(Node node1, Node node2) {
+            String name1 = StringUtils.trimToEmpty(node1.getName());
+            String name2 = StringUtils.trimToEmpty(node2.getName());
+            if (name1.equals(name2)) {
+                return ObjectUtils.compare(node1.getID(), node2.getID());
+            }
+            return name1.compareToIgnoreCase(name2);
+        }
+    };
+
+    private final Map<UUID, Node> nodes;
+
+    /**
+     * Per community ID, its subcommunities and its collections sorted by name
+     */
+    private final Map<UUID, List<Node>> subcommunities = new HashMap<>();
+    private final Map<UUID, List<Node>> collections = new HashMap<>();
+
+    private final List<Node> topCommunities;
+
+    /**
+     * When the hierarchy was read from the database
+     */
+    private final long created;
+
+    /**
+     * Build a snapshot. Objects whose parents are all missing, because they were deleted together with their
+     * parents, are left out.
+     *
+     * @param nodes   all communities and collections
+     * @param created when the hierarchy was read
+     */
+    public CommunityHierarchySnapshot(Collection<Node> nodes, long created) {
+        this.created = created;
+        Map<UUID, Node> present = new LinkedHashMap<>();
+        for (Node node : nodes) {
+            present.put(node.getID(), node);
+        }
+        boolean removed = true;
+        while (removed) {
+            removed = false;
+            for (Node node : new ArrayList<>(present.values())) {
+                if (!node.getParentIDs().isEmpty() && !hasParent(present, node)) {
+                    present.remove(node.getID());
+                    removed = true;
+                }
+            }
+        }
+        this.nodes = present;
+
+        List<Node> tops = new ArrayList<>();
+        for (Node node : present.values()) {
+            if (node.getType() == Constants.COMMUNITY && node.getParentIDs().isEmpty()) {
+                tops.add(node);
+            }
+            Map<UUID, List<Node>> children = node.getType() == Constants.COMMUNITY ? subcommunities : collections;
+            for (UUID parentId : node.getParentIDs()) {
+                if (present.containsKey(parentId)) {
+                    List<Node> siblings = children.get(parentId);
+                    if (siblings == null) {
+                        siblings = new ArrayList<>();
+                        children.put(parentId, siblings);
+                    }
+                    siblings.add(node);
+                }
+            }
+        }
+        Collections.sort(tops, NAME_ASCENDING);
+        topCommunities = Collections.unmodifiableList(tops);
+        sortChildren(subcommunities);
+        sortChildren(collections);
+    }
+
+    private static boolean hasParent(Map<UUID, Node> present, Node node) {
+        for (UUID parentId : node.getParentIDs()) {
+            if (present.containsKey(parentId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sortChildren(Map<UUID, List<Node>> children) {
+        for (Map.Entry<UUID, List<Node>> entry : children.entrySet()) {
+            Collections.sort(entry.getValue(), NAME_ASCENDING);
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+    }
+
+    /**
+     * Get a copy of this snapshot with some communities and collections changed. The copy keeps the creation time
+     * of this snapshot, as it still holds the rest of the hierarchy as it was read then.
+     *
+     * @param changed the new or changed communities and collections
+     * @param deleted the IDs of the deleted communities and collections
+     * @return the changed snapshot
+     */
+    public CommunityHierarchySnapshot with(Collection<Node> changed, Collection<UUID> deleted) {
+        Map<UUID, Node> changedNodes = new LinkedHashMap<>(nodes);
+        for (UUID id : deleted) {
+            changedNodes.remove(id);
+        }
+        for (Node node : changed) {
+            changedNodes.put(node.getID(), node);
+        }
+        return new CommunityHierarchySnapshot(changedNodes.values(), created);
+    }
+
+    /**
+     * @param id the ID of a community or collection
+     * @return the community or collection, or null if it is not in the hierarchy
+     */
+    public Node getNode(UUID id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * @return the communities without parent, sorted by name
+     */
+    public List<Node> getTopCommunities() {
+        return topCommunities;
+    }
+
+    /**
+     * @param id the ID of a community
+     * @return its subcommunities, sorted by name
+     */
+    public List<Node> getSubcommunities(UUID id) {
+        List<Node> children = subcommunities.get(id);
+        return children == null ? Collections.<Node>emptyList() : children;
+    }
+
+    /**
+     * @param id the ID of a community
+     * @return its collections, sorted by name
+     */
+    public List<Node> getCollections(UUID id) {
+        List<Node> children = collections.get(id);
+        return children == null ? Collections.<Node>emptyList() : children;
+    }
+
+    /**
+     * @param id the ID of a community or collection
+     * @return the communities containing it, sorted by name
+     */
+    public List<Node> getParents(UUID id) {
+        Node node = nodes.get(id);
+        List<Node> parents = new ArrayList<>();
+        if (node != null) {
+            for (UUID parentId : node.getParentIDs()) {
+                Node parent = nodes.get(parentId);
+                if (parent != null) {
+                    parents.add(parent);
+                }
+            }
+            Collections.sort(parents, NAME_ASCENDING);
+        }
+        return parents;
+    }
+
+    /**
+     * Get the path from a top community down to a community or collection, following the first parent (by name)
+     * at every level, as {@link org.dspace.content.service.DSpaceObjectService#getParentObject} does.
+     *
+     * @param id the ID of a community or collection
+     * @return the communities containing it, the top community first, not including the object itself
+     */
+    public List<Node> getPath(UUID id) {
+        List<Node> path = new ArrayList<>();
+        Set<UUID> seen = new HashSet<>();
+        List<Node> parents = getParents(id);
+        while (!parents.isEmpty() && seen.add(parents.get(0).getID())) {
+            path.add(0, parents.get(0));
+            parents = getParents(parents.get(0).getID());
+        }
+        return path;
+    }
+
+    public int getSize() {
+        return nodes.size();
+    }
+
+    public long getCreated() {
+        return created;
+    }
+}
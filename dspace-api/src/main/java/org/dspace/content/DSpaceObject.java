@@ -28,6 +28,7 @@ import org.apache.commons.collections.CollectionUtils;
 import org.dspace.authorize.ResourcePolicy;
 import org.dspace.core.ReloadableEntity;
 import org.dspace.handle.Handle;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.GenericGenerator;
 
 /**
@@ -48,8 +49,10 @@ public abstract class DSpaceObject implements Serializable, ReloadableEntity<jav
     @Transient
     private StringBuffer eventDetails = null;
 
+    // The metadata of up to 100 objects loaded in the session is fetched together, see ScrollableResultsIterator
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "dSpaceObject", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("metadataField, place")
+    @BatchSize(size = 100)
     private List<MetadataValue> metadata = new ArrayList<>();
 
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "dso")
@@ -70,6 +73,18 @@ public abstract class DSpaceObject implements Serializable, ReloadableEntity<jav
     @Transient
     private boolean modifiedMetadata = false;
 
+    /**
+     * Lookup structure over the metadata, built when first needed and rebuilt once the metadata changed
+     */
+    @Transient
+    private transient MetadataIndex metadataIndex = null;
+
+    /**
+     * Number of changes made to the metadata, the index is only valid for the count it was built with
+     */
+    @Transient
+    private transient int metadataModCount = 0;
+
     /**
      * Flag set when data is modified, for events
      */
@@ -150,28 +165,47 @@ public abstract class DSpaceObject implements Serializable, ReloadableEntity<jav
         return handles;
     }
 
+    /**
+     * Get the metadata values of this object. Change them through the DSpaceObjectService of the object:
+     * field lookups use an index which is only rebuilt when the change goes through this object.
+     *
+     * @return the metadata values, in the order of their field and place
+     */
     public List<MetadataValue> getMetadata() {
         return metadata;
     }
 
     public void setMetadata(List<MetadataValue> metadata) {
         this.metadata = metadata;
+        metadataChanged();
+    }
+
+    /**
+     * Get the lookup structure over the metadata of this object, (re)building it if needed.
+     *
+     * @return index of the current metadata values
+     */
+    protected MetadataIndex getMetadataIndex() {
+        if (metadataIndex == null || !metadataIndex.isValidFor(getMetadata(), metadataModCount)) {
+            metadataIndex = new MetadataIndex(getMetadata(), metadataModCount);
+        }
+        return metadataIndex;
     }
 
     protected void removeMetadata(MetadataValue metadataValue) {
-        setMetadataModified();
         getMetadata().remove(metadataValue);
+        setMetadataModified();
     }
 
     protected void removeMetadata(List<MetadataValue> metadataValues) {
-        setMetadataModified();
         getMetadata().removeAll(metadataValues);
+        setMetadataModified();
     }
 
 
     protected void addMetadata(MetadataValue metadataValue) {
-        setMetadataModified();
         getMetadata().add(metadataValue);
+        setMetadataModified();
         addDetails(metadataValue.getMetadataField().toString());
     }
 
@@ -185,6 +219,15 @@ public abstract class DSpaceObject implements Serializable, ReloadableEntity<jav
 
     protected void setMetadataModified() {
         this.modifiedMetadata = true;
+        metadataChanged();
+    }
+
+    /**
+     * Count a change to the metadata of this object, such as a value added or moved to another field, so the
+     * next lookup rebuilds the metadata index.
+     */
+    void metadataChanged() {
+        metadataModCount++;
     }
 
     public boolean isModified() {
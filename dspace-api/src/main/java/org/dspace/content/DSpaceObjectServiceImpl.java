@@ -125,9 +125,18 @@ public abstract class DSpaceObjectServiceImpl<T extends DSpaceObject> implements
 
     @Override
     public List<MetadataValue> getMetadata(T dso, String schema, String element, String qualifier, String lang) {
+        // Only look at the values of the requested field, unless the schema or element is a wildcard
+        List<MetadataValue> candidates;
+        if (Item.ANY.equals(schema) || Item.ANY.equals(element)) {
+            candidates = dso.getMetadata();
+        } else {
+            candidates = dso.getMetadataIndex()
+                            .getValues(schema, element, StringUtils.isBlank(qualifier) ? null : qualifier);
+        }
+
         // Build up list of matching values
         List<MetadataValue> values = new ArrayList<MetadataValue>();
-        for (MetadataValue dcv : dso.getMetadata()) {
+        for (MetadataValue dcv : candidates) {
             if (match(schema, element, qualifier, lang, dcv)) {
                 values.add(dcv);
             }
@@ -0,0 +1,230 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Criteria on the numbers of bitstreams of an item, counted by bundle, MIME type and size, which the database can
+ * evaluate for many items at once, see
+ * {@link org.dspace.content.service.ItemService#findIdsMatching(org.dspace.core.Context, List,
+ * ItemBitstreamCriteria)}.
+ * <p>
+ * The criteria are comparisons of a count with a number or with the sum of other counts, all of which must hold:
+ * <pre>
+ * ItemBitstreamCriteria.where(new Count("ORIGINAL").withMimeTypes(pdf), Operator.GREATER,
+ *                             new Count("TEXT"))
+ * </pre>
+ */
+public class ItemBitstreamCriteria {
+
+    /**
+     * Comparison operators.
+     */
+    public enum Operator {
+        LESS("<"), EQUAL("="), GREATER(">");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    /**
+     * The bitstreams of an item in a bundle, possibly only those with some MIME types or sizes, counted.
+     */
+    public static class Count {
+        private final String bundleName;
+        private List<String> mimeTypes = null;
+        private String mimeTypePrefix = null;
+        private Long smallerThan = null;
+        private Long largerThan = null;
+
+        /**
+         * @param bundleName name of the bundle to count the bitstreams of
+         */
+        public Count(String bundleName) {
+            this.bundleName = bundleName;
+        }
+
+        /**
+         * Only count the bitstreams with one of the given MIME types.
+         *
+         * @param types the MIME types, none counts no bitstream
+         * @return this count
+         */
+        public Count withMimeTypes(Collection<String> types) {
+            mimeTypes = new ArrayList<>(types);
+            return this;
+        }
+
+        /**
+         * Only count the bitstreams with a MIME type starting with the given prefix.
+         *
+         * @param prefix the prefix, such as "image/"
+         * @return this count
+         */
+        public Count withMimeTypePrefix(String prefix) {
+            mimeTypePrefix = prefix;
+            return this;
+        }
+
+        /**
+         * Only count the bitstreams smaller than the given size.
+         *
+         * @param bytes the size in bytes
+         * @return this count
+         */
+        public Count smallerThan(long bytes) {
+            smallerThan = bytes;
+            return this;
+        }
+
+        /**
+         * Only count the bitstreams larger than the given size.
+         *
+         * @param bytes the size in bytes
+         * @return this count
+         */
+        public Count largerThan(long bytes) {
+            largerThan = bytes;
+            return this;
+        }
+
+        public String getBundleName() {
+            return bundleName;
+        }
+
+        /**
+         * @return the MIME types of the bitstreams counted, or null for any
+         */
+        public List<String> getMimeTypes() {
+            return mimeTypes == null ? null : Collections.unmodifiableList(mimeTypes);
+        }
+
+        /**
+         * @return the prefix of the MIME types of the bitstreams counted, or null for any
+         */
+        public String getMimeTypePrefix() {
+            return mimeTypePrefix;
+        }
+
+        /**
+         * @return the size in bytes the bitstreams counted are smaller than, or null for any
+         */
+        public Long getSmallerThan() {
+            return smallerThan;
+        }
+
+        /**
+         * @return the size in bytes the bitstreams counted are larger than, or null for any
+         */
+        public Long getLargerThan() {
+            return largerThan;
+        }
+    }
+
+    /**
+     * A count compared with a number, or with the sum of other counts.
+     */
+    public static class Comparison {
+        private final Count count;
+        private final Operator operator;
+        private final long value;
+        private final List<Count> others;
+
+        private Comparison(Count count, Operator operator, long value, List<Count> others) {
+            this.count = count;
+            this.operator = operator;
+            this.value = value;
+            this.others = others;
+        }
+
+        public Count getCount() {
+            return count;
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        /**
+         * @return the number the count is compared with, when it is not compared with other counts
+         */
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * @return the counts the count is compared with the sum of, or null when it is compared with a number
+         */
+        public List<Count> getOthers() {
+            return others;
+        }
+    }
+
+    private final List<Comparison> comparisons = new ArrayList<>();
+
+    private ItemBitstreamCriteria() {
+    }
+
+    /**
+     * @param count    the count to compare
+     * @param operator how to compare it
+     * @param value    the number to compare it with
+     * @return criteria with this comparison
+     */
+    public static ItemBitstreamCriteria where(Count count, Operator operator, long value) {
+        return new ItemBitstreamCriteria().and(count, operator, value);
+    }
+
+    /**
+     * @param count    the count to compare
+     * @param operator how to compare it
+     * @param others   the counts to compare it with the sum of
+     * @return criteria with this comparison
+     */
+    public static ItemBitstreamCriteria where(Count count, Operator operator, Count... others) {
+        return new ItemBitstreamCriteria().and(count, operator, others);
+    }
+
+    /**
+     * @param count    the count to compare
+     * @param operator how to compare it
+     * @param value    the number to compare it with
+     * @return these criteria, also requiring this comparison
+     */
+    public ItemBitstreamCriteria and(Count count, Operator operator, long value) {
+        comparisons.add(new Comparison(count, operator, value, null));
+        return this;
+    }
+
+    /**
+     * @param count    the count to compare
+     * @param operator how to compare it
+     * @param others   the counts to compare it with the sum of
+     * @return these criteria, also requiring this comparison
+     */
+    public ItemBitstreamCriteria and(Count count, Operator operator, Count... others) {
+        comparisons.add(new Comparison(count, operator, 0, Arrays.asList(others)));
+        return this;
+    }
+
+    public List<Comparison> getComparisons() {
+        return Collections.unmodifiableList(comparisons);
+    }
+}
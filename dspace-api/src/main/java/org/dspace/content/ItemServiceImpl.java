@@ -204,11 +204,27 @@ public class ItemServiceImpl extends DSpaceObjectServiceImpl<Item> implements It
         return itemDAO.findAll(context, true, limit, offset);
     }
 
+    @Override
+    public Iterator<Item> findAll(Context context, UUID after, int limit) throws SQLException {
+        return itemDAO.findAll(context, true, after, limit);
+    }
+
     @Override
     public Iterator<Item> findAllUnfiltered(Context context) throws SQLException {
         return itemDAO.findAll(context, true, true);
     }
 
+    @Override
+    public List<UUID> findAllUnfilteredIds(Context context, UUID after, int limit) throws SQLException {
+        return itemDAO.findIdsAfter(context, true, true, after, limit);
+    }
+
+    @Override
+    public Iterator<Item> findAllUnfiltered(Context context, UUID after, Integer limit, Integer offset)
+        throws SQLException {
+        return itemDAO.findAll(context, true, true, after, limit, offset);
+    }
+
     @Override
     public Iterator<Item> findBySubmitter(Context context, EPerson eperson) throws SQLException {
         return itemDAO.findBySubmitter(context, eperson);
@@ -239,6 +255,12 @@ public class ItemServiceImpl extends DSpaceObjectServiceImpl<Item> implements It
         return itemDAO.findArchivedByCollection(context, collection, limit, offset);
     }
 
+    @Override
+    public Iterator<Item> findByCollection(Context context, Collection collection, UUID after, Integer limit,
+                                           Integer offset) throws SQLException {
+        return itemDAO.findArchivedByCollection(context, collection, after, limit, offset);
+    }
+
     @Override
     public Iterator<Item> findAllByCollection(Context context, Collection collection) throws SQLException {
         return itemDAO.findAllByCollection(context, collection);
@@ -1021,6 +1043,15 @@ prevent the generation of resource policy entry values with null dspace_object a
                                  limit);
     }
 
+    @Override
+    public List<UUID> findIdsMatching(Context context, List<UUID> ids, ItemBitstreamCriteria criteria)
+        throws SQLException {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return itemDAO.findIdsMatching(context, ids, criteria);
+    }
+
     @Override
     public DSpaceObject getAdminObject(Context context, Item item, int action) throws SQLException {
         DSpaceObject adminObject = null;
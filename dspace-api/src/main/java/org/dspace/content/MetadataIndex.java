@@ -0,0 +1,103 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup structure over the metadata values of a {@link DSpaceObject}, grouping them by field so finding the
+ * values of a field does not require a scan over all values of the object.
+ * <p>
+ * Values are grouped by "schema.element.qualifier" ("schema.element" for unqualified fields) and by
+ * "schema.element" regardless of qualifier. Each group keeps the order of the metadata list of the object.
+ * Values whose field has no schema match any schema, lookups in an object having such values return all values.
+ * An index is only valid as long as the metadata of the object does not change; the object counts its changes
+ * and rebuilds the index after one, see {@link DSpaceObject#getMetadataIndex()}.
+ */
+class MetadataIndex {
+
+    private final List<MetadataValue> source;
+    private final int size;
+    private final int modCount;
+    private boolean withoutSchema = false;
+
+    private final Map<String, List<MetadataValue>> byField = new HashMap<>();
+    private final Map<String, List<MetadataValue>> byElement = new HashMap<>();
+
+    /**
+     * @param source   the metadata list of the object
+     * @param modCount number of changes made to the metadata of the object so far
+     */
+    MetadataIndex(List<MetadataValue> source, int modCount) {
+        this.source = source;
+        this.size = source.size();
+        this.modCount = modCount;
+        for (MetadataValue value : source) {
+            MetadataField field = value.getMetadataField();
+            if (field == null) {
+                continue;
+            }
+            if (field.getMetadataSchema() == null) {
+                withoutSchema = true;
+                continue;
+            }
+            String element = field.getMetadataSchema().getName() + "." + field.getElement();
+            add(byElement, element, value);
+            add(byField, field.getQualifier() == null ? element : element + "." + field.getQualifier(), value);
+        }
+    }
+
+    private static void add(Map<String, List<MetadataValue>> map, String key, MetadataValue value) {
+        List<MetadataValue> values = map.get(key);
+        if (values == null) {
+            values = new ArrayList<>(1);
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * Whether this index still reflects the metadata of the object. The size is checked as well, in case values
+     * were added to or removed from the list directly instead of through the object.
+     *
+     * @param metadata the current metadata list of the object
+     * @param modCount the current number of changes made to the metadata of the object
+     * @return true if the index was built from this list, and neither the object nor the size of the list
+     * changed since
+     */
+    boolean isValidFor(List<MetadataValue> metadata, int modCount) {
+        return this.modCount == modCount && source == metadata && size == metadata.size();
+    }
+
+    /**
+     * Find the values of a field.
+     *
+     * @param schema    schema name, not a wildcard
+     * @param element   element, not a wildcard
+     * @param qualifier qualifier, <code>Item.ANY</code> for all qualifiers or null for unqualified values only
+     * @return the values of the field in metadata order, or all values if some have no schema, never null
+     */
+    List<MetadataValue> getValues(String schema, String element, String qualifier) {
+        if (withoutSchema) {
+            return source;
+        }
+        List<MetadataValue> values;
+        if (Item.ANY.equals(qualifier)) {
+            values = byElement.get(schema + "." + element);
+        } else if (qualifier == null) {
+            values = byField.get(schema + "." + element);
+        } else {
+            values = byField.get(schema + "." + element + "." + qualifier);
+        }
+        return values == null ? Collections.<MetadataValue>emptyList() : values;
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.content.dao.MetadataFieldDAO;
+import org.dspace.content.dao.MetadataSchemaDAO;
+import org.dspace.core.Context;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Process wide copy of the metadata registry: the IDs of all metadata fields by "schema.element.qualifier"
+ * ("schema.element" for unqualified fields) and of all schemas by name, and the other way around.
+ * <p>
+ * The registry is read in one go when first needed and replaced as a whole, so lookups never lock and need no
+ * Context. {@link MetadataFieldServiceImpl} and {@link MetadataSchemaServiceImpl} resolve names to IDs here and
+ * load the entity by ID, which the Hibernate caches answer without a database query. The services discard the
+ * copy whenever they change the registry, and read it again when a field or schema is found in the database but
+ * not here, which picks up changes committed by other Contexts or nodes.
+ * <p>
+ * Lookups without a Context may therefore briefly return an outdated answer after the registry changed.
+ */
+public class MetadataRegistryCache {
+
+    private static final Logger log = Logger.getLogger(MetadataRegistryCache.class);
+
+    @Autowired(required = true)
+    protected MetadataFieldDAO metadataFieldDAO;
+
+    @Autowired(required = true)
+    protected MetadataSchemaDAO metadataSchemaDAO;
+
+    /**
+     * The current copy, null when it has to be read (again)
+     */
+    protected volatile Registry registry;
+
+    /**
+     * Incremented whenever the copy is discarded, so a copy read before that is not used.
+     */
+    protected long generation = 0;
+
+    protected MetadataRegistryCache() {
+
+    }
+
+    /**
+     * An immutable copy of the registry.
+     */
+    protected static class Registry {
+        private final Map<String, Integer> fieldIds;
+        private final Map<Integer, String> fieldNames;
+        private final Map<String, Integer> schemaIds;
+        private final Map<Integer, String> schemaNames;
+
+        protected Registry(Iterable<MetadataSchema> schemas, Iterable<MetadataField> fields) {
+            Map<String, Integer> schemaIds = new HashMap<>();
+            Map<Integer, String> schemaNames = new HashMap<>();
+            for (MetadataSchema schema : schemas) {
+                schemaIds.put(schema.getName(), schema.getID());
+                schemaNames.put(schema.getID(), schema.getName());
+            }
+            Map<String, Integer> fieldIds = new HashMap<>();
+            Map<Integer, String> fieldNames = new HashMap<>();
+            for (MetadataField field : fields) {
+                String name = getName(field.getMetadataSchema().getName(), field.getElement(), field.getQualifier());
+                fieldIds.put(name, field.getID());
+                fieldNames.put(field.getID(), name);
+            }
+            this.fieldIds = Collections.unmodifiableMap(fieldIds);
+            this.fieldNames = Collections.unmodifiableMap(fieldNames);
+            this.schemaIds = Collections.unmodifiableMap(schemaIds);
+            this.schemaNames = Collections.unmodifiableMap(schemaNames);
+        }
+    }
+
+    /**
+     * The name of a field as used by this cache.
+     *
+     * @param schema    schema name
+     * @param element   element
+     * @param qualifier qualifier, blank for an unqualified field
+     * @return "schema.element.qualifier", or "schema.element" if there is no qualifier
+     */
+    public static String getName(String schema, String element, String qualifier) {
+        StringBuilder name = new StringBuilder(schema).append('.').append(element);
+        if (StringUtils.isNotBlank(qualifier)) {
+            name.append('.').append(qualifier);
+        }
+        return name.toString();
+    }
+
+    /**
+     * Read the registry if it is not present.
+     *
+     * @param context The relevant DSpace Context.
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public void load(Context context) throws SQLException {
+        if (registry != null) {
+            return;
+        }
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        Registry loaded = new Registry(metadataSchemaDAO.findAll(context, MetadataSchema.class),
+                                       metadataFieldDAO.findAll(context, MetadataField.class));
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                registry = loaded;
+                if (log.isDebugEnabled()) {
+                    log.debug("Read " + loaded.fieldIds.size() + " metadata fields in " + loaded.schemaIds.size()
+                                  + " schemas");
+                }
+            }
+        }
+    }
+
+    /**
+     * Discard the copy, it is read again when next needed.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        registry = null;
+    }
+
+    /**
+     * @return whether a copy of the registry is present
+     */
+    public boolean isLoaded() {
+        return registry != null;
+    }
+
+    /**
+     * Find the ID of a field.
+     *
+     * @param schema    schema name
+     * @param element   element
+     * @param qualifier qualifier, blank for an unqualified field
+     * @return the ID, or null if the field is not known or the registry is not present
+     */
+    public Integer getFieldId(String schema, String element, String qualifier) {
+        return getFieldId(getName(schema, element, qualifier));
+    }
+
+    /**
+     * Find the ID of a field.
+     *
+     * @param name "schema.element.qualifier" or "schema.element"
+     * @return the ID, or null if the field is not known or the registry is not present
+     */
+    public Integer getFieldId(String name) {
+        Registry current = registry;
+        return current == null ? null : current.fieldIds.get(name);
+    }
+
+    /**
+     * Find the name of a field.
+     *
+     * @param fieldId ID of the field
+     * @return "schema.element.qualifier" or "schema.element", or null if the field is not known or the registry is
+     * not present
+     */
+    public String getFieldName(int fieldId) {
+        Registry current = registry;
+        return current == null ? null : current.fieldNames.get(fieldId);
+    }
+
+    /**
+     * Find the ID of a schema.
+     *
+     * @param name schema name
+     * @return the ID, or null if the schema is not known or the registry is not present
+     */
+    public Integer getSchemaId(String name) {
+        Registry current = registry;
+        return current == null ? null : current.schemaIds.get(name);
+    }
+
+    /**
+     * Find the name of a schema.
+     *
+     * @param schemaId ID of the schema
+     * @return the name, or null if the schema is not known or the registry is not present
+     */
+    public String getSchemaName(int schemaId) {
+        Registry current = registry;
+        return current == null ? null : current.schemaNames.get(schemaId);
+    }
+}
@@ -39,6 +39,9 @@ public class MetadataSchemaServiceImpl implements MetadataSchemaService {
     @Autowired(required = true)
     protected MetadataSchemaDAO metadataSchemaDAO;
 
+    @Autowired(required = true)
+    protected MetadataRegistryCache metadataRegistryCache;
+
     protected MetadataSchemaServiceImpl() {
 
     }
@@ -70,6 +73,7 @@ public class MetadataSchemaServiceImpl implements MetadataSchemaService {
         metadataSchema.setNamespace(namespace);
         metadataSchema.setName(name);
         metadataSchemaDAO.save(context, metadataSchema);
+        metadataRegistryCache.invalidate();
         log.info(LogManager.getHeader(context, "create_metadata_schema",
                                       "metadata_schema_id="
                                           + metadataSchema.getID()));
@@ -102,6 +106,7 @@ public class MetadataSchemaServiceImpl implements MetadataSchemaService {
                                                      + " unique");
         }
         metadataSchemaDAO.save(context, metadataSchema);
+        metadataRegistryCache.invalidate();
         log.info(LogManager.getHeader(context, "update_metadata_schema",
                                       "metadata_schema_id=" + metadataSchema.getID() + "namespace="
                                           + metadataSchema.getNamespace() + "name=" + metadataSchema.getName()));
@@ -119,6 +124,7 @@ public class MetadataSchemaServiceImpl implements MetadataSchemaService {
                                       "metadata_schema_id=" + metadataSchema.getID()));
 
         metadataSchemaDAO.delete(context, metadataSchema);
+        metadataRegistryCache.invalidate();
     }
 
     @Override
@@ -137,7 +143,23 @@ public class MetadataSchemaServiceImpl implements MetadataSchemaService {
         if (shortName == null) {
             return null;
         }
-        return metadataSchemaDAO.find(context, shortName);
+
+        // resolve the name in the registry cache, the schema itself then comes from the Hibernate caches
+        metadataRegistryCache.load(context);
+        Integer id = metadataRegistryCache.getSchemaId(shortName);
+        if (id != null) {
+            MetadataSchema metadataSchema = find(context, id);
+            if (metadataSchema != null && shortName.equals(metadataSchema.getName())) {
+                return metadataSchema;
+            }
+        }
+
+        MetadataSchema metadataSchema = metadataSchemaDAO.find(context, shortName);
+        if (metadataSchema != null) {
+            // registered or renamed after the registry cache was read
+            metadataRegistryCache.invalidate();
+        }
+        return metadataSchema;
     }
 
 
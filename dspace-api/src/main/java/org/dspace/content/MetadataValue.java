@@ -168,6 +168,10 @@ public class MetadataValue implements ReloadableEntity<Integer> {
 
     public void setMetadataField(MetadataField metadataField) {
         this.metadataField = metadataField;
+        if (dSpaceObject != null) {
+            // the value is now found under another field
+            dSpaceObject.metadataChanged();
+        }
     }
 
     /**
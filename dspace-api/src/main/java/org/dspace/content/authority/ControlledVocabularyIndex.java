@@ -0,0 +1,238 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.authority;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.lang.StringUtils;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * An immutable, in-memory index of one controlled vocabulary file as used by {@link DSpaceControlledVocabulary}.
+ * Every <code>node</code> element becomes a {@link Term}, kept in document order, with its hierarchy already
+ * built. Terms are found by ID through a hash map, and by a case-insensitive part of their label through the
+ * trigrams (three character sequences) of the lower-cased labels: only terms containing the least common trigram
+ * of the searched text are compared with it.
+ */
+public class ControlledVocabularyIndex {
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * A term of the vocabulary.
+     */
+    public static class Term {
+        private final String id;
+        private final String label;
+        private final String hierarchy;
+        private final String parentId;
+        private final String note;
+
+        protected Term(String id, String label, String hierarchy, String parentId, String note) {
+            this.id = id;
+            this.label = label;
+            this.hierarchy = hierarchy;
+            this.parentId = parentId;
+            this.note = note;
+        }
+
+        /**
+         * @return the ID, null if the term has none
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return the label of the term itself
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return the labels of the term and all terms above it, separated by the delimiter
+         */
+        public String getHierarchy() {
+            return hierarchy;
+        }
+
+        /**
+         * @return the ID of the term directly above this one, null if there is none
+         */
+        public String getParentId() {
+            return parentId;
+        }
+
+        /**
+         * @return the note, null if the term has none
+         */
+        public String getNote() {
+            return note;
+        }
+    }
+
+    private final List<Term> terms;
+    private final String[] searchLabels;
+    private final Map<String, Term> ids;
+    private final Map<String, int[]> trigrams;
+    private final long lastModified;
+
+    /**
+     * Index terms.
+     *
+     * @param terms        the terms, in the order they are to be returned in
+     * @param lastModified when the vocabulary file was last modified
+     */
+    public ControlledVocabularyIndex(List<Term> terms, long lastModified) {
+        this.terms = Collections.unmodifiableList(new ArrayList<>(terms));
+        this.lastModified = lastModified;
+        searchLabels = new String[terms.size()];
+        ids = new HashMap<>();
+        Map<String, List<Integer>> postings = new HashMap<>();
+        for (int i = 0; i < searchLabels.length; i++) {
+            Term term = terms.get(i);
+            searchLabels[i] = term.getLabel().toLowerCase(Locale.ROOT);
+            if (term.getId() != null && !ids.containsKey(term.getId())) {
+                ids.put(term.getId(), term);
+            }
+            for (int pos = 0; pos + 3 <= searchLabels[i].length(); pos++) {
+                String trigram = searchLabels[i].substring(pos, pos + 3);
+                List<Integer> posting = postings.computeIfAbsent(trigram, t -> new ArrayList<>());
+                // the same trigram may occur more than once in a label
+                if (posting.isEmpty() || posting.get(posting.size() - 1) != i) {
+                    posting.add(i);
+                }
+            }
+        }
+        trigrams = new HashMap<>(postings.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Integer>> posting : postings.entrySet()) {
+            trigrams.put(posting.getKey(), posting.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * Read a vocabulary file.
+     *
+     * @param file      the vocabulary file
+     * @param delimiter separates the labels in the hierarchy of a term
+     * @return the index of the vocabulary
+     * @throws IOException if the file could not be read or is not valid XML
+     */
+    public static ControlledVocabularyIndex load(File file, String delimiter) throws IOException {
+        long lastModified = file.lastModified();
+        Element root;
+        try {
+            root = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file).getDocumentElement();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Could not parse " + file, e);
+        }
+        List<Term> terms = new ArrayList<>();
+        addTerms(terms, root, null, "", delimiter);
+        return new ControlledVocabularyIndex(terms, lastModified);
+    }
+
+    private static void addTerms(List<Term> terms, Element element, Element parent, String parentHierarchy,
+                                 String delimiter) {
+        String hierarchy = parentHierarchy;
+        if (element.hasAttribute("label")) {
+            String label = element.getAttribute("label");
+            hierarchy = parentHierarchy.isEmpty() ? label : parentHierarchy + delimiter + label;
+        }
+        if ("node".equals(element.getNodeName())) {
+            String id = element.hasAttribute("id") ? element.getAttribute("id") : null;
+            String parentId = null;
+            // terms are nested as node/isComposedBy/node
+            Node grandParent = parent == null ? null : parent.getParentNode();
+            if (grandParent instanceof Element && ((Element) grandParent).hasAttribute("id")) {
+                parentId = ((Element) grandParent).getAttribute("id");
+            }
+            String note = null;
+            NodeList children = element.getChildNodes();
+            for (int i = 0; i < children.getLength(); i++) {
+                Node child = children.item(i);
+                if ("hasNote".equals(child.getNodeName()) && StringUtils.isNotBlank(child.getTextContent())) {
+                    note = child.getTextContent();
+                }
+            }
+            terms.add(new Term(id, element.getAttribute("label"), hierarchy, parentId, note));
+        }
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            if (children.item(i) instanceof Element) {
+                addTerms(terms, (Element) children.item(i), element, hierarchy, delimiter);
+            }
+        }
+    }
+
+    /**
+     * Find the terms whose label contains the given text, ignoring case.
+     *
+     * @param text the text
+     * @return the terms, in document order
+     */
+    public List<Term> search(String text) {
+        String lowerText = text.toLowerCase(Locale.ROOT);
+        List<Term> found = new ArrayList<>();
+        if (lowerText.length() < 3) {
+            for (int i = 0; i < searchLabels.length; i++) {
+                if (searchLabels[i].contains(lowerText)) {
+                    found.add(terms.get(i));
+                }
+            }
+            return found;
+        }
+        int[] candidates = null;
+        for (int pos = 0; pos + 3 <= lowerText.length(); pos++) {
+            int[] posting = trigrams.getOrDefault(lowerText.substring(pos, pos + 3), NONE);
+            if (candidates == null || posting.length < candidates.length) {
+                candidates = posting;
+            }
+        }
+        for (int i : candidates) {
+            if (searchLabels[i].contains(lowerText)) {
+                found.add(terms.get(i));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param id ID of a term
+     * @return the first term with this ID, or null if there is none
+     */
+    public Term getTerm(String id) {
+        return id == null ? null : ids.get(id);
+    }
+
+    /**
+     * @return all terms, in document order
+     */
+    public List<Term> getTerms() {
+        return terms;
+    }
+
+    /**
+     * @return when the vocabulary file was last modified when it was read
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+}
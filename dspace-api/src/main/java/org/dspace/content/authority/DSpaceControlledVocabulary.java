@@ -8,13 +8,13 @@
 package org.dspace.content.authority;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -23,9 +23,6 @@ import org.dspace.content.Collection;
 import org.dspace.core.SelfNamedPlugin;
 import org.dspace.services.ConfigurationService;
 import org.dspace.services.factory.DSpaceServicesFactory;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
 /**
  * ChoiceAuthority source that reads the JSPUI-style hierarchical vocabularies
@@ -51,20 +48,24 @@ import org.xml.sax.InputSource;
  * # Delimiter to use when building hierarchy strings. Default: "::"
  * }
  *
+ * Each vocabulary file is read into a {@link ControlledVocabularyIndex} once,
+ * shared by all instances and threads, and read again when the file changes.
+ *
  * @author Michael B. Klein
  */
 
 public class DSpaceControlledVocabulary extends SelfNamedPlugin implements ChoiceAuthority {
 
     private static Logger log = Logger.getLogger(DSpaceControlledVocabulary.class);
-    protected static String xpathTemplate = "//node[contains(translate(@label,'ABCDEFGHIJKLMNOPQRSTUVWXYZ'," +
-        "'abcdefghijklmnopqrstuvwxyz'),'%s')]";
-    protected static String idTemplate = "//node[@id = '%s']";
-    protected static String idParentTemplate = "//node[@id = '%s']/parent::isComposedBy";
     protected static String pluginNames[] = null;
 
+    /**
+     * The indexes of all vocabularies read so far, by file name and delimiter
+     */
+    protected static final Map<String, ControlledVocabularyIndex> indexes = new ConcurrentHashMap<>();
+
     protected String vocabularyName = null;
-    protected InputSource vocabulary = null;
+    protected File vocabulary = null;
     protected Boolean suggestHierarchy = true;
     protected Boolean storeHierarchy = true;
     protected String hierarchyDelimiter = "::";
@@ -118,88 +119,80 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
             }
             String filename = vocabulariesPath + vocabularyName + ".xml";
             log.info("Loading " + filename);
-            vocabulary = new InputSource(filename);
+            vocabulary = new File(filename);
         }
     }
 
-    protected String buildString(Node node) {
-        if (node.getNodeType() == Node.DOCUMENT_NODE) {
-            return ("");
-        } else {
-            String parentValue = buildString(node.getParentNode());
-            Node currentLabel = node.getAttributes().getNamedItem("label");
-            if (currentLabel != null) {
-                String currentValue = currentLabel.getNodeValue();
-                if (parentValue.equals("")) {
-                    return currentValue;
-                } else {
-                    return (parentValue + this.hierarchyDelimiter + currentValue);
+    /**
+     * Get the index of the vocabulary, reading the file if it was not read yet or changed since.
+     *
+     * @return the index, empty if the file could not be read
+     */
+    protected ControlledVocabularyIndex getIndex() {
+        init();
+        String key = vocabulary.getPath() + "\n" + hierarchyDelimiter;
+        ControlledVocabularyIndex index = indexes.get(key);
+        if (index == null || index.getLastModified() != vocabulary.lastModified()) {
+            synchronized (indexes) {
+                index = indexes.get(key);
+                if (index == null || index.getLastModified() != vocabulary.lastModified()) {
+                    long start = System.currentTimeMillis();
+                    try {
+                        index = ControlledVocabularyIndex.load(vocabulary, hierarchyDelimiter);
+                        log.info("Read " + index.getTerms().size() + " terms from " + vocabulary + " in "
+                                     + (System.currentTimeMillis() - start) + " ms");
+                    } catch (IOException e) {
+                        log.error("Could not read vocabulary " + vocabulary, e);
+                        // not read again until the file changes
+                        index = new ControlledVocabularyIndex(Collections.emptyList(), vocabulary.lastModified());
+                    }
+                    indexes.put(key, index);
                 }
-            } else {
-                return (parentValue);
             }
         }
+        return index;
+    }
+
+    protected Choice getChoice(ControlledVocabularyIndex.Term term) {
+        String label = this.suggestHierarchy ? term.getHierarchy() : term.getLabel();
+        String value = this.storeHierarchy ? term.getHierarchy() : term.getLabel();
+        Choice choice = new Choice(term.getId(), value, label);
+        // 'id' is optional
+        if (term.getId() != null && isHierarchical() && StringUtils.isNotBlank(term.getParentId())) {
+            choice.extras.put("parent", term.getParentId());
+        }
+        if (StringUtils.isNotBlank(term.getNote())) {
+            choice.extras.put("note", term.getNote());
+        }
+        return choice;
     }
 
     @Override
     public Choices getMatches(String field, String text, Collection collection, int start, int limit, String locale) {
-        init();
         log.debug("Getting matches for '" + text + "'");
-        String xpathExpression = String.format(xpathTemplate, text.replaceAll("'", "&apos;").toLowerCase());
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        Choice[] choices;
-        try {
-            NodeList results = (NodeList) xpath.evaluate(xpathExpression, vocabulary, XPathConstants.NODESET);
-            String[] authorities = new String[results.getLength()];
-            String[] values = new String[results.getLength()];
-            String[] labels = new String[results.getLength()];
-            String[] parent = new String[results.getLength()];
-            String[] notes = new String[results.getLength()];
-            for (int i = 0; i < results.getLength(); i++) {
-                Node node = results.item(i);
-                readNode(authorities, values, labels, parent, notes, i, node);
-            }
-            int resultCount = labels.length - start;
-            // limit = 0 means no limit
-            if ((limit > 0) && (resultCount > limit)) {
-                resultCount = limit;
-            }
-            choices = new Choice[resultCount];
-            if (resultCount > 0) {
-                for (int i = 0; i < resultCount; i++) {
-                    choices[i] = new Choice(authorities[start + i], values[start + i], labels[start + i]);
-                    if (StringUtils.isNotBlank(parent[i])) {
-                        choices[i].extras.put("parent", parent[i]);
-                    }
-                    if (StringUtils.isNotBlank(notes[i])) {
-                        choices[i].extras.put("note", notes[i]);
-                    }
-                }
-            }
-        } catch (XPathExpressionException e) {
-            choices = new Choice[0];
+        List<ControlledVocabularyIndex.Term> terms = getIndex().search(text);
+        int resultCount = Math.max(0, terms.size() - start);
+        // limit = 0 means no limit
+        if ((limit > 0) && (resultCount > limit)) {
+            resultCount = limit;
+        }
+        Choice[] choices = new Choice[resultCount];
+        for (int i = 0; i < resultCount; i++) {
+            choices[i] = getChoice(terms.get(start + i));
         }
         return new Choices(choices, 0, choices.length, Choices.CF_AMBIGUOUS, false);
     }
 
     @Override
     public Choices getBestMatch(String field, String text, Collection collection, String locale) {
-        init();
         log.debug("Getting best match for '" + text + "'");
         return getMatches(field, text, collection, 0, 2, locale);
     }
 
     @Override
     public String getLabel(String field, String key, String locale) {
-        init();
-        String xpathExpression = String.format(idTemplate, key);
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        try {
-            Node node = (Node) xpath.evaluate(xpathExpression, vocabulary, XPathConstants.NODE);
-            return node.getAttributes().getNamedItem("label").getNodeValue();
-        } catch (XPathExpressionException e) {
-            return ("");
-        }
+        ControlledVocabularyIndex.Term term = getIndex().getTerm(key);
+        return term != null ? term.getLabel() : "";
     }
 
     @Override
@@ -209,80 +202,11 @@ public class DSpaceControlledVocabulary extends SelfNamedPlugin implements Choic
 
     @Override
     public Choice getChoice(String fieldKey, String authKey, String locale) {
-        init();
         log.debug("Getting matches for '" + authKey + "'");
-        String xpathExpression = String.format(idTemplate, authKey);
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        try {
-            Node node = (Node) xpath.evaluate(xpathExpression, vocabulary, XPathConstants.NODE);
-            if (node != null) {
-                String[] authorities = new String[1];
-                String[] values = new String[1];
-                String[] labels = new String[1];
-                String[] parent = new String[1];
-                String[] note = new String[1];
-                readNode(authorities, values, labels, parent, note, 0, node);
-
-                if (values.length > 0) {
-                    Choice choice = new Choice(authorities[0], values[0], labels[0]);
-                    if (StringUtils.isNotBlank(parent[0])) {
-                        choice.extras.put("parent", parent[0]);
-                    }
-                    if (StringUtils.isNotBlank(note[0])) {
-                        choice.extras.put("note", note[0]);
-                    }
-                    return choice;
-                }
-            }
-        } catch (XPathExpressionException e) {
-            log.warn(e.getMessage(), e);
+        ControlledVocabularyIndex.Term term = getIndex().getTerm(authKey);
+        if (term != null) {
+            return getChoice(term);
         }
         return new Choice("", "", "");
     }
-
-    private void readNode(String[] authorities, String[] values, String[] labels, String[] parent, String[] notes,
-                          int i, Node node) {
-        String hierarchy = this.buildString(node);
-        if (this.suggestHierarchy) {
-            labels[i] = hierarchy;
-        } else {
-            labels[i] = node.getAttributes().getNamedItem("label").getNodeValue();
-        }
-        if (this.storeHierarchy) {
-            values[i] = hierarchy;
-        } else {
-            values[i] = node.getAttributes().getNamedItem("label").getNodeValue();
-        }
-
-        NodeList childNodes = node.getChildNodes();
-        for (int ci = 0; ci < childNodes.getLength(); ci++) {
-            Node firstChild = childNodes.item(ci);
-            if (firstChild != null && "hasNote".equals(firstChild.getNodeName())) {
-                String nodeValue = firstChild.getTextContent();
-                if (StringUtils.isNotBlank(nodeValue)) {
-                    notes[i] = nodeValue;
-                }
-            }
-        }
-        Node idAttr = node.getAttributes().getNamedItem("id");
-        if (null != idAttr) { // 'id' is optional
-            authorities[i] = idAttr.getNodeValue();
-            if (isHierarchical()) {
-                Node parentN = node.getParentNode();
-                if (parentN != null) {
-                    parentN = parentN.getParentNode();
-                    if (parentN != null) {
-                        Node parentIdAttr = parentN.getAttributes().getNamedItem("id");
-                        if (null != parentIdAttr) {
-                            parent[i] = parentIdAttr.getNodeValue();
-                        }
-                    }
-                }
-            }
-        } else {
-            authorities[i] = null;
-            parent[i] = null;
-        }
-    }
-
 }
@@ -10,7 +10,9 @@ package org.dspace.content.dao;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.dspace.content.Collection;
 import org.dspace.content.Item;
 import org.dspace.content.MetadataField;
@@ -46,4 +48,24 @@ public interface CollectionDAO extends DSpaceObjectLegacySupportDAO<Collection>
     int countRows(Context context) throws SQLException;
 
     List<Map.Entry<Collection, Long>> getCollectionsWithBitstreamSizesTotal(Context context) throws SQLException;
+
+    /**
+     * Get the handles of all collections, for {@link org.dspace.content.CommunityHierarchy}.
+     *
+     * @param context DSpace context object
+     * @return collection ID - handle pairs, the preferred handle of a collection first, a null handle for
+     * collections without
+     * @throws SQLException if database error
+     */
+    public List<Pair<UUID, String>> getHandleResults(Context context) throws SQLException;
+
+    /**
+     * Get the values of a metadata field of all collections, for {@link org.dspace.content.CommunityHierarchy}.
+     *
+     * @param context DSpace context object
+     * @param field   the metadata field
+     * @return collection ID - value pairs, in order of place
+     * @throws SQLException if database error
+     */
+    public List<Pair<UUID, String>> getMetadataResults(Context context, MetadataField field) throws SQLException;
 }
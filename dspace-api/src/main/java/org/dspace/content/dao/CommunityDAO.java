@@ -9,7 +9,9 @@ package org.dspace.content.dao;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.UUID;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.dspace.content.Community;
 import org.dspace.content.MetadataField;
 import org.dspace.core.Context;
@@ -41,4 +43,42 @@ public interface CommunityDAO extends DSpaceObjectLegacySupportDAO<Community> {
         throws SQLException;
 
     int countRows(Context context) throws SQLException;
+
+    /**
+     * Get the community hierarchy, for {@link org.dspace.content.CommunityHierarchy}.
+     *
+     * @param context DSpace context object
+     * @return parent - child community ID pairs
+     * @throws SQLException if database error
+     */
+    public List<Pair<UUID, UUID>> getSubcommunityResults(Context context) throws SQLException;
+
+    /**
+     * Get the collections of all communities, for {@link org.dspace.content.CommunityHierarchy}.
+     *
+     * @param context DSpace context object
+     * @return community - collection ID pairs
+     * @throws SQLException if database error
+     */
+    public List<Pair<UUID, UUID>> getCollectionResults(Context context) throws SQLException;
+
+    /**
+     * Get the handles of all communities, for {@link org.dspace.content.CommunityHierarchy}.
+     *
+     * @param context DSpace context object
+     * @return community ID - handle pairs, the preferred handle of a community first, a null handle for
+     * communities without
+     * @throws SQLException if database error
+     */
+    public List<Pair<UUID, String>> getHandleResults(Context context) throws SQLException;
+
+    /**
+     * Get the values of a metadata field of all communities, for {@link org.dspace.content.CommunityHierarchy}.
+     *
+     * @param context DSpace context object
+     * @param field   the metadata field
+     * @return community ID - value pairs, in order of place
+     * @throws SQLException if database error
+     */
+    public List<Pair<UUID, String>> getMetadataResults(Context context, MetadataField field) throws SQLException;
 }
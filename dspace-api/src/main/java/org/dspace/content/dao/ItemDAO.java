@@ -15,6 +15,7 @@ import java.util.UUID;
 
 import org.dspace.content.Collection;
 import org.dspace.content.Item;
+import org.dspace.content.ItemBitstreamCriteria;
 import org.dspace.content.MetadataField;
 import org.dspace.core.Context;
 import org.dspace.eperson.EPerson;
@@ -31,8 +32,52 @@ public interface ItemDAO extends DSpaceObjectLegacySupportDAO<Item> {
 
     public Iterator<Item> findAll(Context context, boolean archived, int limit, int offset) throws SQLException;
 
+    /**
+     * Find the items which are (or are not) archived, following the given ID in ID order.
+     * Paging through the items this way (keyset instead of offset) costs the same for every page.
+     *
+     * @param context  Context
+     * @param archived whether to find archived
+     * @param after    ID of the last item of the previous page, or null to start from the first item
+     * @param limit    maximum number of items to return
+     * @return iterator over items in ascending ID order
+     * @throws SQLException if database error
+     */
+    public Iterator<Item> findAll(Context context, boolean archived, UUID after, int limit) throws SQLException;
+
     public Iterator<Item> findAll(Context context, boolean archived, boolean withdrawn) throws SQLException;
 
+    /**
+     * Find the items which are archived or withdrawn in ID order, either following the given ID (keyset paging) or
+     * from the given offset.
+     *
+     * @param context   Context
+     * @param archived  whether to find archived
+     * @param withdrawn whether to find withdrawn
+     * @param after     ID of the last item of the previous page, or null
+     * @param limit     maximum number of items to return, or null for all of them
+     * @param offset    number of items to skip, or null
+     * @return iterator over items in ascending ID order
+     * @throws SQLException if database error
+     */
+    public Iterator<Item> findAll(Context context, boolean archived, boolean withdrawn, UUID after, Integer limit,
+                                  Integer offset) throws SQLException;
+
+    /**
+     * Find the IDs of the items which are archived or withdrawn, following the given ID in ID order.
+     * Paging through the items this way (keyset instead of offset) costs the same for every page.
+     *
+     * @param context   Context
+     * @param archived  whether to find archived
+     * @param withdrawn whether to find withdrawn
+     * @param after     ID of the last item of the previous page, or null to start from the first item
+     * @param limit     maximum number of IDs to return
+     * @return item IDs in ascending order
+     * @throws SQLException if database error
+     */
+    public List<UUID> findIdsAfter(Context context, boolean archived, boolean withdrawn, UUID after, int limit)
+        throws SQLException;
+
     /**
      * Find all Items modified since a Date.
      *
@@ -56,12 +101,39 @@ public interface ItemDAO extends DSpaceObjectLegacySupportDAO<Item> {
                                               List<String> query_op, List<String> query_val, List<UUID> collectionUuids,
                                               String regexClause, int offset, int limit) throws SQLException;
 
+    /**
+     * Find which of the given items match criteria on their bitstreams, evaluated by the database.
+     *
+     * @param context  Context
+     * @param ids      IDs of the items to test
+     * @param criteria the criteria
+     * @return IDs of the items matching the criteria
+     * @throws SQLException if database error
+     */
+    public List<UUID> findIdsMatching(Context context, List<UUID> ids, ItemBitstreamCriteria criteria)
+        throws SQLException;
+
     public Iterator<Item> findByAuthorityValue(Context context, MetadataField metadataField, String authority,
                                                boolean inArchive) throws SQLException;
 
     public Iterator<Item> findArchivedByCollection(Context context, Collection collection, Integer limit,
                                                    Integer offset) throws SQLException;
 
+    /**
+     * Find the archived items of a collection in ID order, either following the given ID (keyset paging) or from
+     * the given offset.
+     *
+     * @param context    Context
+     * @param collection the collection
+     * @param after      ID of the last item of the previous page, or null
+     * @param limit      maximum number of items to return, or null for all of them
+     * @param offset     number of items to skip, or null
+     * @return iterator over items in ascending ID order
+     * @throws SQLException if database error
+     */
+    public Iterator<Item> findArchivedByCollection(Context context, Collection collection, UUID after,
+                                                   Integer limit, Integer offset) throws SQLException;
+
     public Iterator<Item> findAllByCollection(Context context, Collection collection) throws SQLException;
 
     /**
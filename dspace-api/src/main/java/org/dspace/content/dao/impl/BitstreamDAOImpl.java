@@ -85,7 +85,7 @@ public class BitstreamDAOImpl extends AbstractHibernateDSODAO<Bitstream> impleme
 
         query.setParameter("community", community);
 
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
@@ -98,7 +98,7 @@ public class BitstreamDAOImpl extends AbstractHibernateDSODAO<Bitstream> impleme
 
         query.setParameter("collection", collection);
 
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
@@ -110,14 +110,14 @@ public class BitstreamDAOImpl extends AbstractHibernateDSODAO<Bitstream> impleme
 
         query.setParameter("item", item);
 
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
     public Iterator<Bitstream> findByStoreNumber(Context context, Integer storeNumber) throws SQLException {
         Query query = createQuery(context, "select b from Bitstream b where b.storeNumber = :storeNumber");
         query.setParameter("storeNumber", storeNumber);
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
@@ -161,6 +161,6 @@ public class BitstreamDAOImpl extends AbstractHibernateDSODAO<Bitstream> impleme
         Query query = createQuery(context, "select b FROM Bitstream b");
         query.setFirstResult(offset);
         query.setMaxResults(limit);
-        return iterate(query);
+        return iterate(context, query);
     }
 }
@@ -11,7 +11,9 @@ import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.dspace.content.Collection;
 import org.dspace.content.Item;
 import org.dspace.content.MetadataField;
@@ -193,4 +195,25 @@ public class CollectionDAOImpl extends AbstractHibernateDSODAO<Collection> imple
         });
         return ((List<Map.Entry<Collection, Long>>) query.list());
     }
+
+    @Override
+    public List<Pair<UUID, String>> getHandleResults(Context context) throws SQLException {
+        Query query = createQuery(context, "SELECT new org.apache.commons.lang3.tuple.ImmutablePair(o.id, h.handle) " +
+            "FROM Collection o LEFT JOIN o.handles h ORDER BY h.id");
+
+        @SuppressWarnings("unchecked")
+        List<Pair<UUID, String>> results = query.list();
+        return results;
+    }
+
+    @Override
+    public List<Pair<UUID, String>> getMetadataResults(Context context, MetadataField field) throws SQLException {
+        Query query = createQuery(context, "SELECT new org.apache.commons.lang3.tuple.ImmutablePair(o.id, mv.value) " +
+            "FROM Collection o JOIN o.metadata mv WHERE mv.metadataField = :field ORDER BY mv.place");
+        query.setParameter("field", field);
+
+        @SuppressWarnings("unchecked")
+        List<Pair<UUID, String>> results = query.list();
+        return results;
+    }
 }
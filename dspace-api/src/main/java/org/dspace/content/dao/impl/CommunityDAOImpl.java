@@ -10,8 +10,10 @@ package org.dspace.content.dao.impl;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 import org.apache.commons.collections.ListUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.dspace.content.Community;
 import org.dspace.content.MetadataField;
 import org.dspace.content.dao.CommunityDAO;
@@ -175,4 +177,45 @@ public class CommunityDAOImpl extends AbstractHibernateDSODAO<Community> impleme
     public int countRows(Context context) throws SQLException {
         return count(createQuery(context, "SELECT count(*) FROM Community"));
     }
+
+    @Override
+    public List<Pair<UUID, UUID>> getSubcommunityResults(Context context) throws SQLException {
+        Query query = createQuery(context, "SELECT new org.apache.commons.lang3.tuple.ImmutablePair(p.id, c.id) " +
+            "FROM Community p JOIN p.subCommunities c");
+
+        @SuppressWarnings("unchecked")
+        List<Pair<UUID, UUID>> results = query.list();
+        return results;
+    }
+
+    @Override
+    public List<Pair<UUID, UUID>> getCollectionResults(Context context) throws SQLException {
+        Query query = createQuery(context, "SELECT new org.apache.commons.lang3.tuple.ImmutablePair(p.id, c.id) " +
+            "FROM Community p JOIN p.collections c");
+
+        @SuppressWarnings("unchecked")
+        List<Pair<UUID, UUID>> results = query.list();
+        return results;
+    }
+
+    @Override
+    public List<Pair<UUID, String>> getHandleResults(Context context) throws SQLException {
+        Query query = createQuery(context, "SELECT new org.apache.commons.lang3.tuple.ImmutablePair(o.id, h.handle) " +
+            "FROM Community o LEFT JOIN o.handles h ORDER BY h.id");
+
+        @SuppressWarnings("unchecked")
+        List<Pair<UUID, String>> results = query.list();
+        return results;
+    }
+
+    @Override
+    public List<Pair<UUID, String>> getMetadataResults(Context context, MetadataField field) throws SQLException {
+        Query query = createQuery(context, "SELECT new org.apache.commons.lang3.tuple.ImmutablePair(o.id, mv.value) " +
+            "FROM Community o JOIN o.metadata mv WHERE mv.metadataField = :field ORDER BY mv.place");
+        query.setParameter("field", field);
+
+        @SuppressWarnings("unchecked")
+        List<Pair<UUID, String>> results = query.list();
+        return results;
+    }
 }
@@ -10,13 +10,16 @@ package org.dspace.content.dao.impl;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.apache.log4j.Logger;
 import org.dspace.content.Collection;
 import org.dspace.content.Item;
+import org.dspace.content.ItemBitstreamCriteria;
 import org.dspace.content.MetadataField;
 import org.dspace.content.MetadataValue;
 import org.dspace.content.dao.ItemDAO;
@@ -50,16 +53,35 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
     public Iterator<Item> findAll(Context context, boolean archived) throws SQLException {
         Query query = createQuery(context, "FROM Item WHERE inArchive= :in_archive");
         query.setParameter("in_archive", archived);
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
     public Iterator<Item> findAll(Context context, boolean archived, int limit, int offset) throws SQLException {
-        Query query = createQuery(context, "FROM Item WHERE inArchive= :in_archive");
+        // Ordered, so the pages do not overlap
+        Query query = createQuery(context, "FROM Item WHERE inArchive= :in_archive ORDER BY id");
         query.setParameter("in_archive", archived);
         query.setFirstResult(offset);
         query.setMaxResults(limit);
-        return iterate(query);
+        return iterate(context, query);
+    }
+
+    @Override
+    public Iterator<Item> findAll(Context context, boolean archived, UUID after, int limit) throws SQLException {
+        StringBuilder queryStr = new StringBuilder();
+        queryStr.append("SELECT i FROM Item i WHERE i.inArchive = :in_archive");
+        if (after != null) {
+            queryStr.append(" AND i.id > :after");
+        }
+        queryStr.append(" ORDER BY i.id");
+
+        Query query = createQuery(context, queryStr.toString());
+        query.setParameter("in_archive", archived);
+        if (after != null) {
+            query.setParameter("after", after);
+        }
+        query.setMaxResults(limit);
+        return iterate(context, query);
     }
 
 
@@ -68,7 +90,56 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         Query query = createQuery(context, "FROM Item WHERE inArchive= :in_archive or withdrawn = :withdrawn");
         query.setParameter("in_archive", archived);
         query.setParameter("withdrawn", withdrawn);
-        return iterate(query);
+        return iterate(context, query);
+    }
+
+    @Override
+    public Iterator<Item> findAll(Context context, boolean archived, boolean withdrawn, UUID after, Integer limit,
+                                  Integer offset) throws SQLException {
+        StringBuilder queryStr = new StringBuilder();
+        queryStr.append("SELECT i FROM Item i");
+        queryStr.append(" WHERE (inArchive = :in_archive OR withdrawn = :withdrawn)");
+        if (after != null) {
+            queryStr.append(" AND i.id > :after");
+        }
+        queryStr.append(" ORDER BY i.id");
+
+        Query query = createQuery(context, queryStr.toString());
+        query.setParameter("in_archive", archived);
+        query.setParameter("withdrawn", withdrawn);
+        if (after != null) {
+            query.setParameter("after", after);
+        }
+        if (offset != null) {
+            query.setFirstResult(offset);
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return iterate(context, query);
+    }
+
+    @Override
+    public List<UUID> findIdsAfter(Context context, boolean archived, boolean withdrawn, UUID after, int limit)
+        throws SQLException {
+        StringBuilder queryStr = new StringBuilder();
+        queryStr.append("SELECT i.id FROM Item i");
+        queryStr.append(" WHERE (inArchive = :in_archive OR withdrawn = :withdrawn)");
+        if (after != null) {
+            queryStr.append(" AND i.id > :after");
+        }
+        queryStr.append(" ORDER BY i.id");
+
+        Query query = createQuery(context, queryStr.toString());
+        query.setParameter("in_archive", archived);
+        query.setParameter("withdrawn", withdrawn);
+        if (after != null) {
+            query.setParameter("after", after);
+        }
+        query.setMaxResults(limit);
+        @SuppressWarnings("unchecked")
+        List<UUID> result = (List<UUID>) query.list();
+        return result;
     }
 
     @Override
@@ -91,7 +162,7 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         if (lastModified != null) {
             query.setTimestamp("last_modified", lastModified);
         }
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
@@ -99,7 +170,7 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         Query query = createQuery(context, "FROM Item WHERE inArchive= :in_archive and submitter= :submitter");
         query.setParameter("in_archive", true);
         query.setParameter("submitter", eperson);
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
@@ -118,7 +189,7 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         hibernateQuery.setParameter("in_archive", true);
         hibernateQuery.setParameter("submitter", eperson);
         hibernateQuery.setMaxResults(limit);
-        return iterate(hibernateQuery);
+        return iterate(context, hibernateQuery);
     }
 
     @Override
@@ -136,7 +207,7 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         if (value != null) {
             query.setParameter("text_value", value);
         }
-        return iterate(query);
+        return iterate(context, query);
     }
 
     enum OP { equals, not_equals, like, not_like, contains, doesnt_contain, exists, doesnt_exist, matches,
@@ -209,6 +280,82 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         return list(criteria).iterator();
     }
 
+    @Override
+    public List<UUID> findIdsMatching(Context context, List<UUID> ids, ItemBitstreamCriteria criteria)
+        throws SQLException {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder hql = new StringBuilder("SELECT item.id FROM Item item WHERE item.id IN (:ids)");
+        for (ItemBitstreamCriteria.Comparison comparison : criteria.getComparisons()) {
+            hql.append(" AND ").append(countQuery(comparison.getCount(), parameters))
+                .append(' ').append(comparison.getOperator().getSymbol()).append(' ');
+            if (comparison.getOthers() == null) {
+                hql.append(parameter(parameters, comparison.getValue()));
+            } else if (comparison.getOthers().isEmpty()) {
+                hql.append('0');
+            } else {
+                for (int i = 0; i < comparison.getOthers().size(); i++) {
+                    hql.append(i == 0 ? "" : " + ").append(countQuery(comparison.getOthers().get(i), parameters));
+                }
+            }
+        }
+
+        Query query = createQuery(context, hql.toString());
+        query.setParameterList("ids", ids);
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            if (parameter.getValue() instanceof java.util.Collection) {
+                query.setParameterList(parameter.getKey(), (java.util.Collection<?>) parameter.getValue());
+            } else {
+                query.setParameter(parameter.getKey(), parameter.getValue());
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<UUID> result = (List<UUID>) query.list();
+        return result;
+    }
+
+    /**
+     * Get the HQL subquery counting the bitstreams of the item {@code item} for a count of the criteria.
+     */
+    private String countQuery(ItemBitstreamCriteria.Count count, Map<String, Object> parameters) {
+        StringBuilder hql = new StringBuilder(
+            "(SELECT count(bit) FROM Bundle bun JOIN bun.items bunItem JOIN bun.bitstreams bit" +
+                " JOIN bun.metadata bunName JOIN bunName.metadataField bunField" +
+                " JOIN bunField.metadataSchema bunSchema" +
+                " WHERE bunItem = item AND bunSchema.name = 'dc' AND bunField.element = 'title'" +
+                " AND bunField.qualifier IS NULL AND STR(bunName.value) = ");
+        hql.append(parameter(parameters, count.getBundleName()));
+        if (count.getMimeTypes() != null) {
+            if (count.getMimeTypes().isEmpty()) {
+                hql.append(" AND 1 = 0");
+            } else {
+                hql.append(" AND bit.bitstreamFormat.mimetype IN (")
+                    .append(parameter(parameters, count.getMimeTypes())).append(')');
+            }
+        }
+        if (count.getMimeTypePrefix() != null) {
+            hql.append(" AND bit.bitstreamFormat.mimetype LIKE ")
+                .append(parameter(parameters, count.getMimeTypePrefix() + "%"));
+        }
+        if (count.getSmallerThan() != null) {
+            hql.append(" AND bit.sizeBytes < ").append(parameter(parameters, count.getSmallerThan()));
+        }
+        if (count.getLargerThan() != null) {
+            hql.append(" AND bit.sizeBytes > ").append(parameter(parameters, count.getLargerThan()));
+        }
+        return hql.append(')').toString();
+    }
+
+    /**
+     * Add a named parameter to a query being built.
+     *
+     * @return the reference to the parameter in the query
+     */
+    private String parameter(Map<String, Object> parameters, Object value) {
+        String name = "p" + parameters.size();
+        parameters.put(name, value);
+        return ":" + name;
+    }
+
     @Override
     public Iterator<Item> findByAuthorityValue(Context context, MetadataField metadataField, String authority,
                                                boolean inArchive) throws SQLException {
@@ -219,24 +366,34 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         query.setParameter("in_archive", inArchive);
         query.setParameter("metadata_field", metadataField);
         query.setParameter("authority", authority);
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
     public Iterator<Item> findArchivedByCollection(Context context, Collection collection, Integer limit,
                                                    Integer offset) throws SQLException {
+        return findArchivedByCollection(context, collection, null, limit, offset);
+    }
+
+    @Override
+    public Iterator<Item> findArchivedByCollection(Context context, Collection collection, UUID after,
+                                                   Integer limit, Integer offset) throws SQLException {
         Query query = createQuery(context,
                                   "select i from Item i join i.collections c WHERE :collection IN c AND i" +
-                                      ".inArchive=:in_archive");
+                                      ".inArchive=:in_archive" + (after != null ? " AND i.id > :after" : "") +
+                                      " ORDER BY i.id");
         query.setParameter("collection", collection);
         query.setParameter("in_archive", true);
+        if (after != null) {
+            query.setParameter("after", after);
+        }
         if (offset != null) {
             query.setFirstResult(offset);
         }
         if (limit != null) {
             query.setMaxResults(limit);
         }
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
@@ -244,7 +401,7 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         Query query = createQuery(context, "select i from Item i join i.collections c WHERE :collection IN c");
         query.setParameter("collection", collection);
 
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
@@ -281,7 +438,7 @@ public class ItemDAOImpl extends AbstractHibernateDSODAO<Item> implements ItemDA
         throws SQLException {
         Query query = createQuery(context, "SELECT i FROM item i WHERE last_modified > :last_modified");
         query.setTimestamp("last_modified", since);
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
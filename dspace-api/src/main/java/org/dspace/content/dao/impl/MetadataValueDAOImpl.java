@@ -53,7 +53,7 @@ public class MetadataValueDAOImpl extends AbstractHibernateDAO<MetadataValue> im
         Query query = createQuery(context, queryString);
         query.setString("searchString", value);
 
-        return iterate(query);
+        return iterate(context, query);
     }
 
     @Override
@@ -9,6 +9,7 @@ package org.dspace.content.factory;
 
 import java.util.List;
 
+import org.dspace.content.CommunityHierarchy;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.InProgressSubmission;
 import org.dspace.content.WorkspaceItem;
@@ -70,6 +71,8 @@ public abstract class ContentServiceFactory {
 
     public abstract SiteService getSiteService();
 
+    public abstract CommunityHierarchy getCommunityHierarchy();
+
     public InProgressSubmissionService getInProgressSubmissionService(InProgressSubmission inProgressSubmission) {
         if (inProgressSubmission instanceof WorkspaceItem) {
             return getWorkspaceItemService();
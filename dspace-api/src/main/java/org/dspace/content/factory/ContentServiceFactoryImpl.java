@@ -9,6 +9,7 @@ package org.dspace.content.factory;
 
 import java.util.List;
 
+import org.dspace.content.CommunityHierarchy;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.service.BitstreamFormatService;
 import org.dspace.content.service.BitstreamService;
@@ -67,6 +68,8 @@ public class ContentServiceFactoryImpl extends ContentServiceFactory {
     private SupervisedItemService supervisedItemService;
     @Autowired(required = true)
     private SiteService siteService;
+    @Autowired(required = true)
+    private CommunityHierarchy communityHierarchy;
 
 
     @Override
@@ -143,4 +146,9 @@ public class ContentServiceFactoryImpl extends ContentServiceFactory {
     public SiteService getSiteService() {
         return siteService;
     }
+
+    @Override
+    public CommunityHierarchy getCommunityHierarchy() {
+        return communityHierarchy;
+    }
 }
@@ -145,6 +145,21 @@ public interface BitstreamService extends DSpaceObjectService<Bitstream>, DSpace
     public InputStream retrieve(Context context, Bitstream bitstream)
         throws IOException, SQLException, AuthorizeException;
 
+    /**
+     * Retrieve a byte range of the contents of the bitstream, without reading the bytes before it.
+     *
+     * @param context   DSpace context object
+     * @param bitstream DSpace bitstream
+     * @param offset    position of the first byte to retrieve
+     * @param length    maximum number of bytes to retrieve, or -1 for all bytes from offset to the end
+     * @return a stream from which the range can be read.
+     * @throws IOException        if IO error
+     * @throws SQLException       if database error
+     * @throws AuthorizeException if authorization error
+     */
+    public InputStream retrieve(Context context, Bitstream bitstream, long offset, long length)
+        throws IOException, SQLException, AuthorizeException;
+
     /**
      * Determine if this bitstream is registered (available elsewhere on
      * filesystem than in assetstore). More about registered items:
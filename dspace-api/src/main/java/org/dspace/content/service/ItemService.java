@@ -22,6 +22,7 @@ import org.dspace.content.Bundle;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
 import org.dspace.content.Item;
+import org.dspace.content.ItemBitstreamCriteria;
 import org.dspace.content.MetadataField;
 import org.dspace.content.Thumbnail;
 import org.dspace.content.WorkspaceItem;
@@ -78,7 +79,7 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
 
     /**
      * Get all the items in the archive. Only items with the "in archive" flag
-     * set are included. The order of the list is indeterminate.
+     * set are included. The items are in ID order.
      *
      * @param context DSpace context object
      * @param limit   limit
@@ -88,6 +89,18 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
      */
     public Iterator<Item> findAll(Context context, Integer limit, Integer offset) throws SQLException;
 
+    /**
+     * Get the next page of items in the archive, in ID order. Unlike an offset, the ID of the last item of the
+     * previous page is used to find the next page, so every page costs the same to retrieve.
+     *
+     * @param context DSpace context object
+     * @param after   ID of the last item of the previous page, or null for the first page
+     * @param limit   maximum number of items to return
+     * @return an iterator over the items of the page
+     * @throws SQLException if database error
+     */
+    public Iterator<Item> findAll(Context context, UUID after, int limit) throws SQLException;
+
     /**
      * Get all "final" items in the archive, both archived ("in archive" flag) or
      * withdrawn items are included. The order of the list is indeterminate.
@@ -98,6 +111,33 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
      */
     public Iterator<Item> findAllUnfiltered(Context context) throws SQLException;
 
+    /**
+     * Get the IDs of the next page of "final" items (archived or withdrawn), in ID order.
+     * Unlike an offset, the ID of the last item of the previous page is used to find the next page,
+     * so every page costs the same to retrieve.
+     *
+     * @param context DSpace context object
+     * @param after   ID of the last item of the previous page, or null for the first page
+     * @param limit   maximum number of IDs to return
+     * @return the item IDs of the page, empty when there are no more items
+     * @throws SQLException if database error
+     */
+    public List<UUID> findAllUnfilteredIds(Context context, UUID after, int limit) throws SQLException;
+
+    /**
+     * Get a page of "final" items (archived or withdrawn), in ID order. The page either follows the item with the
+     * given ID, which costs the same for every page, or starts at the given offset.
+     *
+     * @param context DSpace context object
+     * @param after   ID of the last item of the previous page, or null
+     * @param limit   maximum number of items to return, or null for all of them
+     * @param offset  number of items to skip, or null
+     * @return an iterator over the items of the page
+     * @throws SQLException if database error
+     */
+    public Iterator<Item> findAllUnfiltered(Context context, UUID after, Integer limit, Integer offset)
+        throws SQLException;
+
     /**
      * Find all the items in the archive by a given submitter. The order is
      * indeterminate. Only items with the "in archive" flag set are included.
@@ -123,7 +163,7 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
         throws SQLException;
 
     /**
-     * Get all the items in this collection. The order is indeterminate.
+     * Get all the items in this collection. The items are in ID order.
      *
      * @param context    DSpace context object
      * @param collection Collection (parent)
@@ -133,7 +173,7 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
     public Iterator<Item> findByCollection(Context context, Collection collection) throws SQLException;
 
     /**
-     * Get all the items in this collection. The order is indeterminate.
+     * Get all the items in this collection. The items are in ID order.
      *
      * @param context    DSpace context object
      * @param collection Collection (parent)
@@ -145,6 +185,21 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
     public Iterator<Item> findByCollection(Context context, Collection collection, Integer limit, Integer offset)
         throws SQLException;
 
+    /**
+     * Get a page of the items in this collection, in ID order. The page either follows the item with the given
+     * ID, which costs the same for every page, or starts at the given offset.
+     *
+     * @param context    DSpace context object
+     * @param collection Collection (parent)
+     * @param after      ID of the last item of the previous page, or null
+     * @param limit      maximum number of items to return, or null for all of them
+     * @param offset     number of items to skip, or null
+     * @return an iterator over the items of the page
+     * @throws SQLException if database error
+     */
+    public Iterator<Item> findByCollection(Context context, Collection collection, UUID after, Integer limit,
+                                           Integer offset) throws SQLException;
+
     /**
      * Get all Items installed or withdrawn, discoverable, and modified since a Date.
      *
@@ -157,7 +212,7 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
         throws SQLException;
 
     /**
-     * Get all the items in this collection. The order is indeterminate.
+     * Get all the items in this collection. The items are in ID order.
      *
      * @param context    DSpace context object
      * @param collection Collection (parent)
@@ -496,6 +551,19 @@ public interface ItemService extends DSpaceObjectService<Item>, DSpaceObjectLega
                                               String regexClause, int offset, int limit)
         throws SQLException, AuthorizeException, IOException;
 
+    /**
+     * Find which of the given items match criteria on their bitstreams, so reports can test a page of items in a
+     * single query instead of walking their bundles and bitstreams one by one.
+     *
+     * @param context  DSpace context object
+     * @param ids      IDs of the items to test
+     * @param criteria the criteria
+     * @return IDs of the items matching the criteria
+     * @throws SQLException if database error
+     */
+    public List<UUID> findIdsMatching(Context context, List<UUID> ids, ItemBitstreamCriteria criteria)
+        throws SQLException;
+
     /**
      * Find all the items in the archive with a given authority key value
      * in the indicated metadata field.
@@ -13,8 +13,10 @@ import java.util.List;
 import java.util.UUID;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.dspace.services.factory.DSpaceServicesFactory;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Projections;
 
@@ -242,11 +244,30 @@ public abstract class AbstractHibernateDAO<T> implements GenericDAO<T> {
      *
      * @param query description of desired entities.
      * @return iterator over the results of the query.
+     * @see #iterate(Context, Query)
      */
     public Iterator<T> iterate(Query query) {
-        @SuppressWarnings("unchecked")
-        Iterator<T> result = (Iterator<T>) query.iterate();
-        return result;
+        return iterate(null, query);
+    }
+
+    /**
+     * Get an iterator over a stream of query results.
+     * Use this when consuming results one at a time.
+     * <p>
+     * The results are read from a forward-only cursor, <code>db.iterator.fetchsize</code> rows at a time, instead
+     * of loading every entity with a query of its own. If the context is read-only or in batch mode, entities are
+     * removed from the session once the caller moves on to the next one.
+     *
+     * @param context current DSpace context, may be null.
+     * @param query   description of desired entities.
+     * @return iterator over the results of the query.
+     * @see ScrollableResultsIterator
+     */
+    public Iterator<T> iterate(Context context, Query query) {
+        int fetchSize = DSpaceServicesFactory.getInstance().getConfigurationService()
+                                             .getIntProperty("db.iterator.fetchsize", 100);
+        query.setFetchSize(fetchSize);
+        return new ScrollableResultsIterator<>(context, query.scroll(ScrollMode.FORWARD_ONLY), fetchSize);
     }
 
     /**
@@ -9,6 +9,7 @@ package org.dspace.core;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EmptyStackException;
 import java.util.LinkedList;
 import java.util.List;
@@ -94,6 +95,16 @@ public class Context implements AutoCloseable {
      */
     private LinkedList<Event> events = null;
 
+    /**
+     * Actions to run once the current transaction is committed
+     */
+    private List<Runnable> commitActions = null;
+
+    /**
+     * Query cursors not read to the end yet, closed when this Context completes or aborts
+     */
+    private List<AutoCloseable> openCursors = null;
+
     /**
      * Event dispatcher name
      */
@@ -364,6 +375,7 @@ public class Context implements AutoCloseable {
         }
 
         try {
+            closeCursors();
             // As long as we have a valid, writeable database connection,
             // rollback any changes if we are in read-only mode,
             // otherwise, commit any changes made as part of the transaction
@@ -417,9 +429,78 @@ public class Context implements AutoCloseable {
             }
 
             if (dbConnection != null) {
+                // Actions registered by the consumers only run if the changes make it to the database
+                List<Runnable> actions = commitActions;
+                commitActions = null;
                 //Commit our changes
                 dbConnection.commit();
                 reloadContextBoundEntities();
+                runCommitActions(actions);
+            }
+        }
+    }
+
+    /**
+     * Register an action to run once the current transaction has been committed to the database, for instance to
+     * update a cache shared with other Contexts. Event consumers run before the commit, a cache updated there
+     * could be read again before the changes are visible, or keep changes that are rolled back. The actions are
+     * dropped if the transaction is rolled back or the commit fails.
+     *
+     * @param action the action to run after the next successful commit
+     */
+    public void afterCommit(Runnable action) {
+        if (commitActions == null) {
+            commitActions = new ArrayList<>();
+        }
+        commitActions.add(action);
+    }
+
+    /**
+     * Register a query cursor, such as the one of a {@link ScrollableResultsIterator}, to be closed when this
+     * Context completes or aborts if it was not closed before, for instance because the caller stopped iterating.
+     *
+     * @param cursor the open cursor
+     */
+    void registerCursor(AutoCloseable cursor) {
+        if (openCursors == null) {
+            openCursors = new ArrayList<>();
+        }
+        openCursors.add(cursor);
+    }
+
+    /**
+     * @param cursor a cursor registered with {@link #registerCursor(AutoCloseable)} which is now closed
+     */
+    void unregisterCursor(AutoCloseable cursor) {
+        if (openCursors != null) {
+            openCursors.remove(cursor);
+        }
+    }
+
+    private void closeCursors() {
+        List<AutoCloseable> cursors = openCursors;
+        openCursors = null;
+        if (cursors == null) {
+            return;
+        }
+        for (AutoCloseable cursor : cursors) {
+            try {
+                cursor.close();
+            } catch (Exception ex) {
+                log.error("Unable to close a query cursor", ex);
+            }
+        }
+    }
+
+    private void runCommitActions(List<Runnable> actions) {
+        if (actions == null) {
+            return;
+        }
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.error("Error running an action after commit", e);
             }
         }
     }
@@ -524,6 +605,7 @@ public class Context implements AutoCloseable {
         }
 
         try {
+            closeCursors();
             // Rollback ONLY if we have a database connection, and it is NOT Read Only
             if (isValid() && !isReadOnly()) {
                 dbConnection.rollback();
@@ -539,6 +621,7 @@ public class Context implements AutoCloseable {
                 log.error("Exception aborting context", ex);
             }
             events = null;
+            commitActions = null;
         }
     }
 
@@ -608,6 +691,16 @@ public class Context implements AutoCloseable {
         return myGroups;
     }
 
+    /**
+     * Get the IDs of the special groups the current user is a member of,
+     * without loading the groups.
+     *
+     * @return unmodifiable list of group IDs
+     */
+    public List<UUID> getSpecialGroupIds() {
+        return Collections.unmodifiableList(specialGroups);
+    }
+
     @Override
     protected void finalize() throws Throwable {
         /*
@@ -0,0 +1,130 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.dspace.content.DSpaceObject;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollableResults;
+
+/**
+ * Forward-only iterator over the entities returned by a Hibernate query, backed by {@link ScrollableResults}.
+ * <p>
+ * Unlike <code>Query.iterate()</code>, which first selects the IDs and then loads every entity with a query of
+ * its own, the entities are read from a single cursor. They are read a page at a time; when the entities are
+ * DSpace objects the metadata of the whole page is then loaded in one query (see the batch size of
+ * {@link DSpaceObject#getMetadata()}).
+ * <p>
+ * When the Context is read-only or in batch mode, an entity is removed from the Hibernate session as soon as
+ * the next one is requested, so memory use stays flat however many entities the query returns. Callers
+ * iterating in such a Context must therefore not keep references to entities they already processed.
+ * <p>
+ * The cursor is closed once the last entity is read. Callers which stop iterating before should close the
+ * iterator, otherwise its cursor stays open until the Context completes or aborts.
+ *
+ * @param <T> class type
+ */
+public class ScrollableResultsIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private final Context context;
+    private final ScrollableResults results;
+    private final int pageSize;
+    private final boolean uncache;
+
+    private final ArrayDeque<T> page;
+    private boolean exhausted = false;
+    private boolean closed = false;
+    private T previous = null;
+
+    /**
+     * @param context  The relevant DSpace Context, or null to never uncache the returned entities
+     * @param results  the results to iterate over, they are closed once exhausted or when the Context completes or
+     *                 aborts
+     * @param pageSize number of entities read ahead at once
+     */
+    public ScrollableResultsIterator(Context context, ScrollableResults results, int pageSize) {
+        this.context = context;
+        this.results = results;
+        this.pageSize = Math.max(1, pageSize);
+        this.page = new ArrayDeque<>(this.pageSize);
+        this.uncache = context != null && (context.isReadOnly() || context.isBatchModeEnabled());
+        if (context != null) {
+            context.registerCursor(this);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page.isEmpty() && !exhausted) {
+            readPage();
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        uncachePrevious();
+        previous = page.poll();
+        return previous;
+    }
+
+    protected void readPage() {
+        while (page.size() < pageSize && results.next()) {
+            @SuppressWarnings("unchecked")
+            T entity = (T) results.get(0);
+            page.add(entity);
+        }
+        if (page.size() < pageSize) {
+            exhausted = true;
+            closeResults();
+        }
+        T first = page.peek();
+        if (first instanceof DSpaceObject) {
+            // initializing one collection loads the metadata of all objects of the page with a single query
+            Hibernate.initialize(((DSpaceObject) first).getMetadata());
+        }
+    }
+
+    /**
+     * Close the cursor, no more entities are returned. Does nothing if it is already closed.
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        page.clear();
+        closeResults();
+    }
+
+    private void closeResults() {
+        if (!closed) {
+            closed = true;
+            results.close();
+            if (context != null) {
+                context.unregisterCursor(this);
+            }
+        }
+    }
+
+    protected void uncachePrevious() {
+        if (uncache && previous instanceof ReloadableEntity) {
+            try {
+                context.uncacheEntity((ReloadableEntity) previous);
+            } catch (SQLException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+        previous = null;
+    }
+}
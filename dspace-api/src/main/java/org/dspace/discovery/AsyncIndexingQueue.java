@@ -0,0 +1,702 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.DSpaceObjectService;
+import org.dspace.core.Context;
+import org.dspace.kernel.mixins.ShutdownService;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Queue used by {@link IndexEventConsumer} when asynchronous indexing is enabled
+ * (<code>discovery.index.async.enabled = true</code>).
+ * <p>
+ * Instead of indexing the changed objects inside <code>Context.commit()</code>, the consumer hands their
+ * identifiers to this queue. Every identifier is first appended to a journal, so pending updates survive
+ * a crash: on startup the journals left behind by JVMs which did not shut down cleanly are replayed.
+ * A dispatcher thread then regularly takes batches from the queue (duplicates are coalesced), builds the
+ * Solr documents in parallel on a pool of worker threads, each with its own read-only Context, and sends
+ * them to Solr in a single add request per worker using commitWithin.
+ * <p>
+ * The journal is split in segments of a limited size. A new segment is started once the current one is full,
+ * and a full segment is deleted as soon as all keys it holds have been processed, so the journal does not grow
+ * under a steady load. The journal is written while holding the queue lock, but it is synced to disk outside it.
+ * <p>
+ * The queue is drained before the service manager shuts down, so no update is lost on a regular shutdown.
+ */
+public class AsyncIndexingQueue implements InitializingBean, ShutdownService {
+
+    private static final Logger log = Logger.getLogger(AsyncIndexingQueue.class);
+
+    protected static final String UPDATE_PREFIX = "U:";
+    protected static final String DELETE_PREFIX = "D:";
+    protected static final String JOURNAL_SUFFIX = ".journal";
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    @Autowired(required = true)
+    protected IndexingService indexingService;
+
+    /**
+     * Queued keys in arrival order.
+     */
+    protected final LinkedHashMap<String, Entry> pending = new LinkedHashMap<>();
+
+    /**
+     * Keys taken by the dispatcher and not yet completed.
+     */
+    protected final LinkedHashMap<String, Entry> inFlight = new LinkedHashMap<>();
+
+    /**
+     * Number of failed attempts per key, used to give up on keys that keep failing.
+     */
+    protected final Map<String, Integer> attempts = new HashMap<>();
+
+    /**
+     * Actions to run once the keys of an enqueue call have been processed, by sequence number of the call.
+     */
+    protected final TreeMap<Long, List<Runnable>> afterIndexed = new TreeMap<>();
+
+    /**
+     * Sequence number of the last enqueue call.
+     */
+    protected long sequence = 0;
+
+    protected final AtomicLong indexedCount = new AtomicLong();
+    protected final AtomicLong deletedCount = new AtomicLong();
+    protected final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * Open journal segments by number, the last one being the one written to.
+     */
+    protected final TreeMap<Long, Segment> segments = new TreeMap<>();
+    protected Segment journal;
+    protected String journalName;
+    protected long segmentSize;
+
+    protected ScheduledExecutorService dispatcher;
+    protected ExecutorService workers;
+
+    protected int batchSize;
+    protected int threads;
+    protected int commitWithin;
+    protected int maxAttempts;
+
+    /**
+     * A queued key: the time it was first queued, the journal segment holding it and the enqueue call it
+     * belongs to.
+     */
+    protected static class Entry {
+        protected final long queued;
+        protected final long segment;
+        protected final long sequence;
+
+        protected Entry(long queued, long segment, long sequence) {
+            this.queued = queued;
+            this.segment = segment;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * One file of the journal, locked as long as this JVM may need it.
+     */
+    protected static class Segment {
+        protected final long number;
+        protected final File file;
+        protected final RandomAccessFile data;
+        protected final FileLock lock;
+
+        protected Segment(long number, File file) throws IOException {
+            this.number = number;
+            this.file = file;
+            this.data = new RandomAccessFile(file, "rw");
+            this.lock = data.getChannel().lock();
+        }
+
+        protected void close() throws IOException {
+            lock.release();
+            data.close();
+        }
+    }
+
+    protected AsyncIndexingQueue() {
+
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        batchSize = configurationService.getIntProperty("discovery.index.async.batch.size", 100);
+        threads = configurationService.getIntProperty("discovery.index.async.threads", 2);
+        commitWithin = configurationService.getIntProperty("discovery.index.async.commitWithin", 10000);
+        maxAttempts = configurationService.getIntProperty("discovery.index.async.max-attempts", 3);
+        segmentSize = configurationService.getLongProperty("discovery.index.async.journal.segment-size", 1048576);
+        long interval = configurationService.getLongProperty("discovery.index.async.interval", 1000);
+
+        openJournal(new File(configurationService.getProperty("discovery.index.async.journal.dir",
+            configurationService.getProperty("dspace.dir") + File.separator + "var" + File.separator
+                + "discovery-queue")));
+
+        workers = Executors.newFixedThreadPool(threads);
+        dispatcher = Executors.newSingleThreadScheduledExecutor();
+        dispatcher.scheduleWithFixedDelay(this::dispatch, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue the given objects for (re)indexing and the given handles for removal from the index.
+     *
+     * @param objects objects to (re)index
+     * @param handles handles of deleted objects
+     * @throws IOException if the keys could not be written to the journal
+     */
+    public void enqueue(Collection<DSpaceObject> objects, Collection<String> handles) throws IOException {
+        enqueue(objects, handles, null);
+    }
+
+    /**
+     * Queue the given objects for (re)indexing and the given handles for removal from the index.
+     *
+     * @param objects      objects to (re)index
+     * @param handles      handles of deleted objects
+     * @param afterIndexed action to run once all these objects have been processed and Solr had the time to
+     *                     commit them (may be null)
+     * @throws IOException if the keys could not be written to the journal
+     */
+    public void enqueue(Collection<DSpaceObject> objects, Collection<String> handles, Runnable afterIndexed)
+        throws IOException {
+        List<String> keys = new ArrayList<>(objects.size() + handles.size());
+        for (DSpaceObject dso : objects) {
+            keys.add(UPDATE_PREFIX + dso.getType() + ":" + dso.getID());
+        }
+        for (String handle : handles) {
+            keys.add(DELETE_PREFIX + handle);
+        }
+        enqueue(keys, afterIndexed);
+    }
+
+    /**
+     * Run an action once everything queued so far has been processed and Solr had the time to commit it.
+     *
+     * @param action action to run
+     */
+    public void afterIndexed(Runnable action) {
+        List<Runnable> actions;
+        synchronized (pending) {
+            afterIndexed.computeIfAbsent(sequence, k -> new ArrayList<>()).add(action);
+            actions = compact();
+        }
+        runAfterIndexed(actions);
+    }
+
+    protected void enqueue(List<String> keys, Runnable action) throws IOException {
+        if (keys.isEmpty()) {
+            if (action != null) {
+                runAfterIndexed(Collections.singletonList(action));
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Segment segment;
+        synchronized (pending) {
+            segment = appendToJournal(keys);
+            long number = segment == null ? 0 : segment.number;
+            long enqueued = ++sequence;
+            for (String key : keys) {
+                if (!pending.containsKey(key)) {
+                    pending.put(key, new Entry(now, number, enqueued));
+                }
+            }
+            if (action != null) {
+                afterIndexed.computeIfAbsent(enqueued, k -> new ArrayList<>()).add(action);
+            }
+        }
+        if (segment != null) {
+            syncJournal(segment);
+        }
+    }
+
+    /**
+     * Take batches from the queue and index them until the queue is empty.
+     */
+    protected void dispatch() {
+        try {
+            List<String> batch = takeBatch();
+            while (!batch.isEmpty()) {
+                boolean succeeded = process(batch);
+                if (log.isDebugEnabled()) {
+                    log.debug("Processed " + batch.size() + " queued index updates, queue depth="
+                                  + getQueueDepth() + ", lag=" + getLag() + "ms");
+                }
+                if (!succeeded) {
+                    // retry the failed updates on the next run rather than immediately
+                    break;
+                }
+                batch = takeBatch();
+            }
+        } catch (Exception e) {
+            // Never let an exception escape, it would cancel the scheduled dispatcher
+            log.error("Failed while processing the asynchronous indexing queue", e);
+        }
+    }
+
+    protected List<String> takeBatch() {
+        List<String> batch = new ArrayList<>();
+        synchronized (pending) {
+            Iterator<Map.Entry<String, Entry>> it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < batchSize) {
+                Map.Entry<String, Entry> entry = it.next();
+                // an object changed again while its previous version is being indexed is kept for the next batch
+                if (!inFlight.containsKey(entry.getKey())) {
+                    batch.add(entry.getKey());
+                    inFlight.put(entry.getKey(), entry.getValue());
+                    it.remove();
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Index one batch: updates are spread over the worker threads, deletes are sent from the calling thread.
+     *
+     * @param batch keys taken from the queue
+     * @return true if all keys of the batch were processed without error
+     */
+    protected boolean process(List<String> batch) throws InterruptedException {
+        List<List<String>> partitions = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            partitions.add(new ArrayList<String>());
+        }
+        List<String> deletes = new ArrayList<>();
+        int i = 0;
+        for (String key : batch) {
+            if (key.startsWith(DELETE_PREFIX)) {
+                deletes.add(key);
+            } else {
+                partitions.get(i++ % threads).add(key);
+            }
+        }
+
+        Map<Future<Integer>, List<String>> futures = new HashMap<>();
+        for (final List<String> partition : partitions) {
+            if (!partition.isEmpty()) {
+                futures.put(workers.submit(() -> indexPartition(partition)), partition);
+            }
+        }
+
+        List<String> failed = new ArrayList<>();
+        if (!deletes.isEmpty()) {
+            try {
+                unIndex(deletes);
+            } catch (Exception e) {
+                log.error("Failed while removing " + deletes.size() + " queued objects from the index", e);
+                failed.addAll(deletes);
+            }
+        }
+        for (Map.Entry<Future<Integer>, List<String>> future : futures.entrySet()) {
+            try {
+                indexedCount.addAndGet(future.getKey().get());
+            } catch (ExecutionException e) {
+                log.error("Failed while indexing " + future.getValue().size() + " queued objects", e.getCause());
+                failed.addAll(future.getValue());
+            }
+        }
+
+        complete(batch, failed);
+        return failed.isEmpty();
+    }
+
+    /**
+     * Build and send the documents for a set of queued updates, using a Context of its own.
+     *
+     * @param keys update keys
+     * @return the number of documents sent to the index
+     * @throws Exception if the objects could not be loaded or the documents could not be sent
+     */
+    protected int indexPartition(List<String> keys) throws Exception {
+        Context context = new Context(Context.Mode.READ_ONLY);
+        try {
+            context.turnOffAuthorisationSystem();
+            indexingService.startBatch();
+            boolean flushed = false;
+            try {
+                for (String key : keys) {
+                    String[] typeAndId = key.substring(UPDATE_PREFIX.length()).split(":");
+                    DSpaceObjectService<DSpaceObject> service = ContentServiceFactory.getInstance()
+                        .getDSpaceObjectService(Integer.parseInt(typeAndId[0]));
+                    DSpaceObject dso = service.find(context, UUID.fromString(typeAndId[1]));
+                    if (dso == null) {
+                        log.debug("Queued object " + key + " no longer exists, skipping it");
+                        continue;
+                    }
+                    indexingService.indexContent(context, dso, true);
+                    //To prevent memory issues, discard an object from the cache after processing
+                    context.uncacheEntity(dso);
+                }
+                int sent = indexingService.flushBatch(commitWithin);
+                flushed = true;
+                return sent;
+            } finally {
+                if (!flushed) {
+                    // close the batch anyway, the pooled thread must not keep the documents of a failed partition
+                    try {
+                        indexingService.flushBatch(commitWithin);
+                    } catch (SearchServiceException e) {
+                        log.error("Failed while sending the documents of a failed partition", e);
+                    }
+                }
+            }
+        } finally {
+            context.abort();
+        }
+    }
+
+    protected void unIndex(List<String> keys) throws Exception {
+        Context context = new Context(Context.Mode.READ_ONLY);
+        try {
+            for (String key : keys) {
+                indexingService.unIndexContent(context, key.substring(DELETE_PREFIX.length()), false);
+                deletedCount.incrementAndGet();
+            }
+        } finally {
+            context.abort();
+        }
+    }
+
+    /**
+     * Mark a processed batch as done. Failed keys go back to the queue until they reach the maximum number of
+     * attempts. Journal segments holding only processed keys are deleted, and the actions waiting for the
+     * processed keys are run.
+     *
+     * @param batch  all keys of the batch
+     * @param failed keys that could not be processed
+     */
+    protected void complete(List<String> batch, List<String> failed) {
+        List<Runnable> actions;
+        synchronized (pending) {
+            for (String key : batch) {
+                Entry entry = inFlight.remove(key);
+                if (failed.contains(key)) {
+                    int attempt = attempts.containsKey(key) ? attempts.get(key) + 1 : 1;
+                    if (attempt < maxAttempts) {
+                        attempts.put(key, attempt);
+                        if (!pending.containsKey(key)) {
+                            pending.put(key, entry);
+                        }
+                        continue;
+                    }
+                    log.error("Giving up on queued index update " + key + " after " + attempt + " attempts");
+                    failedCount.incrementAndGet();
+                }
+                attempts.remove(key);
+            }
+            actions = compact();
+        }
+        runAfterIndexed(actions);
+    }
+
+    /**
+     * Delete the journal segments whose keys have all been processed (the current segment is truncated once the
+     * queue is empty), and collect the actions of the enqueue calls whose keys have all been processed.
+     * Must be called while holding the lock on {@link #pending}.
+     *
+     * @return the actions which can be run
+     */
+    protected List<Runnable> compact() {
+        long oldestSegment = Long.MAX_VALUE;
+        long oldestSequence = Long.MAX_VALUE;
+        for (Entry entry : pending.values()) {
+            oldestSegment = Math.min(oldestSegment, entry.segment);
+            oldestSequence = Math.min(oldestSequence, entry.sequence);
+        }
+        for (Entry entry : inFlight.values()) {
+            oldestSegment = Math.min(oldestSegment, entry.segment);
+            oldestSequence = Math.min(oldestSequence, entry.sequence);
+        }
+
+        if (journal != null) {
+            Iterator<Segment> processed = segments.headMap(Math.min(oldestSegment, journal.number)).values()
+                                                  .iterator();
+            while (processed.hasNext()) {
+                deleteSegment(processed.next());
+                processed.remove();
+            }
+            if (oldestSegment == Long.MAX_VALUE) {
+                truncateJournal();
+            }
+        }
+
+        List<Runnable> actions = new ArrayList<>();
+        Iterator<List<Runnable>> done = afterIndexed.headMap(oldestSequence).values().iterator();
+        while (done.hasNext()) {
+            actions.addAll(done.next());
+            done.remove();
+        }
+        return actions;
+    }
+
+    /**
+     * Run actions waiting for queued keys once Solr had the time to commit the documents, on the dispatcher
+     * thread if there is one.
+     *
+     * @param actions actions to run
+     */
+    protected void runAfterIndexed(List<Runnable> actions) {
+        if (actions.isEmpty()) {
+            return;
+        }
+        Runnable run = () -> {
+            for (Runnable action : actions) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    log.error("Error running an action after indexing", e);
+                }
+            }
+        };
+        if (dispatcher != null && !dispatcher.isShutdown()) {
+            try {
+                dispatcher.schedule(run, commitWithin, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                log.debug("The dispatcher is shutting down, running the actions after indexing now");
+            }
+        }
+        run.run();
+    }
+
+    /**
+     * Index everything that is queued from the calling thread, waiting for it to complete.
+     */
+    public void flush() {
+        dispatch();
+    }
+
+    @Override
+    public void shutdown() {
+        log.info("Flushing " + getQueueDepth() + " queued index updates before shutdown");
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            try {
+                dispatcher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (workers != null) {
+            workers.shutdown();
+        }
+        closeJournal();
+    }
+
+    /**
+     * @return the number of objects queued or being indexed
+     */
+    public int getQueueDepth() {
+        synchronized (pending) {
+            return pending.size() + inFlight.size();
+        }
+    }
+
+    /**
+     * @return the age in milliseconds of the oldest object that was queued and has not been indexed yet, 0 when
+     * the queue is empty
+     */
+    public long getLag() {
+        long oldest = Long.MAX_VALUE;
+        synchronized (pending) {
+            for (Entry entry : inFlight.values()) {
+                oldest = Math.min(oldest, entry.queued);
+            }
+            if (!pending.isEmpty()) {
+                oldest = Math.min(oldest, pending.values().iterator().next().queued);
+            }
+        }
+        return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    public long getIndexedCount() {
+        return indexedCount.get();
+    }
+
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Replay the journal segments of JVMs which did not shut down cleanly, then open the first journal segment
+     * of this JVM. A segment which is still locked belongs to a running JVM and is left alone.
+     *
+     * @param directory directory holding the journals
+     * @throws IOException if the journal directory cannot be used
+     */
+    protected void openJournal(File directory) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the indexing journal directory " + directory);
+        }
+
+        List<String> recovered = new ArrayList<>();
+        File[] journals = directory.listFiles((dir, name) -> name.endsWith(JOURNAL_SUFFIX));
+        if (journals != null) {
+            Arrays.sort(journals);
+            for (File orphan : journals) {
+                try (RandomAccessFile file = new RandomAccessFile(orphan, "rw")) {
+                    FileLock lock;
+                    try {
+                        lock = file.getChannel().tryLock();
+                    } catch (OverlappingFileLockException e) {
+                        // locked by another queue of this JVM
+                        lock = null;
+                    }
+                    if (lock == null) {
+                        continue;
+                    }
+                    String line;
+                    while ((line = file.readLine()) != null) {
+                        if (StringUtils.isNotBlank(line)) {
+                            recovered.add(new String(line.getBytes(StandardCharsets.ISO_8859_1),
+                                                     StandardCharsets.UTF_8));
+                        }
+                    }
+                    lock.release();
+                }
+                if (!orphan.delete()) {
+                    log.warn("Unable to delete replayed indexing journal " + orphan);
+                }
+            }
+        }
+
+        journalName = UUID.randomUUID().toString();
+        synchronized (pending) {
+            journal = openSegment(directory, 1);
+        }
+
+        if (!recovered.isEmpty()) {
+            log.info("Recovered " + recovered.size() + " index updates from the journals in " + directory);
+            enqueue(recovered, null);
+        }
+    }
+
+    protected Segment openSegment(File directory, long number) throws IOException {
+        Segment segment = new Segment(number, new File(directory, journalName + "." + number + JOURNAL_SUFFIX));
+        segments.put(number, segment);
+        return segment;
+    }
+
+    /**
+     * Append keys to the journal, starting a new segment when the current one is full. Must be called while
+     * holding the lock on {@link #pending}; the keys are not synced to disk yet.
+     *
+     * @param keys keys to append
+     * @return the segment holding the keys, null if there is no journal
+     * @throws IOException if the keys could not be written
+     */
+    protected Segment appendToJournal(List<String> keys) throws IOException {
+        if (journal == null) {
+            return null;
+        }
+        if (journal.data.length() >= segmentSize) {
+            journal = openSegment(journal.file.getParentFile(), journal.number + 1);
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String key : keys) {
+            lines.append(key).append('\n');
+        }
+        journal.data.seek(journal.data.length());
+        journal.data.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+        return journal;
+    }
+
+    protected void syncJournal(Segment segment) throws IOException {
+        try {
+            segment.data.getChannel().force(false);
+        } catch (ClosedChannelException e) {
+            // the segment was deleted meanwhile because all its keys were processed already
+            log.debug("Indexing journal " + segment.file + " was deleted before it was synced");
+        }
+    }
+
+    protected void truncateJournal() {
+        try {
+            if (journal.data.length() > 0) {
+                journal.data.setLength(0);
+            }
+        } catch (IOException e) {
+            log.error("Unable to truncate the indexing journal " + journal.file, e);
+        }
+    }
+
+    protected void deleteSegment(Segment segment) {
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.error("Unable to close the indexing journal " + segment.file, e);
+        }
+        if (!segment.file.delete()) {
+            log.warn("Unable to delete the indexing journal " + segment.file);
+        }
+    }
+
+    protected void closeJournal() {
+        synchronized (pending) {
+            boolean empty = pending.isEmpty() && inFlight.isEmpty();
+            for (Segment segment : segments.values()) {
+                if (empty) {
+                    deleteSegment(segment);
+                } else {
+                    try {
+                        segment.close();
+                    } catch (IOException e) {
+                        log.error("Unable to close the indexing journal " + segment.file, e);
+                    }
+                }
+            }
+            segments.clear();
+            journal = null;
+        }
+    }
+}
@@ -58,8 +58,8 @@ public class IndexClient {
         Context context = new Context(Context.Mode.READ_ONLY);
         context.turnOffAuthorisationSystem();
 
-        String usage = "org.dspace.discovery.IndexClient [-cbhf] | [-r <handle>] | [-i <handle>] or nothing to " +
-            "update/clean an existing index.";
+        String usage = "org.dspace.discovery.IndexClient [-cbhf] [-t <threads>] | [-r <handle>] | [-i <handle>] " +
+            "or nothing to update/clean an existing index.";
         Options options = new Options();
         HelpFormatter formatter = new HelpFormatter();
         CommandLine line = null;
@@ -96,6 +96,14 @@ public class IndexClient {
                                   "Rebuild the spellchecker, can be combined with -b and -f.")
                               .create("s"));
 
+        options.addOption(OptionBuilder
+                              .withArgName("number of threads")
+                              .hasArg(true)
+                              .withDescription(
+                                  "(re)build index with -b using this number of threads. Progress is checkpointed, " +
+                                      "an interrupted rebuild resumes where it stopped")
+                              .create("t"));
+
         options.addOption(OptionBuilder
                               .isRequired(false)
                               .withDescription(
@@ -141,6 +149,15 @@ public class IndexClient {
         } else if (line.hasOption("c")) {
             log.info("Cleaning Index");
             indexer.cleanIndex(line.hasOption("f"));
+        } else if (line.hasOption("b") && line.hasOption("t")) {
+            int threads = Integer.parseInt(line.getOptionValue("t"));
+            log.info("(Re)building index from scratch using " + threads + " threads.");
+            try {
+                new ParallelIndexer(indexer, threads).run(true);
+            } catch (Exception e) {
+                throw new SearchServiceException("Index rebuild failed, run it again to resume it", e);
+            }
+            checkRebuildSpellCheck(line, indexer);
         } else if (line.hasOption("b")) {
             log.info("(Re)building index from scratch.");
             indexer.createIndex(context);
@@ -7,16 +7,19 @@
  */
 package org.dspace.discovery;
 
+import java.sql.SQLException;
 import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.dspace.browse.SolrBrowseValueCache;
 import org.dspace.content.Bundle;
 import org.dspace.content.DSpaceObject;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.event.Consumer;
 import org.dspace.event.Event;
+import org.dspace.services.ConfigurationService;
 import org.dspace.services.factory.DSpaceServicesFactory;
 
 /**
@@ -42,9 +45,22 @@ public class IndexEventConsumer implements Consumer {
                                                    .getServiceByName(IndexingService.class.getName(),
                                                                      IndexingService.class);
 
+    SolrBrowseValueCache browseValueCache = DSpaceServicesFactory.getInstance().getServiceManager()
+                                                                 .getServiceByName(
+                                                                     SolrBrowseValueCache.class.getName(),
+                                                                     SolrBrowseValueCache.class);
+
+    // queue used instead of the indexer when asynchronous indexing is enabled
+    AsyncIndexingQueue queue = null;
+
     @Override
     public void initialize() throws Exception {
-
+        ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+        if (configurationService.getBooleanProperty("discovery.index.async.enabled", false)) {
+            queue = DSpaceServicesFactory.getInstance().getServiceManager()
+                                         .getServiceByName(AsyncIndexingQueue.class.getName(),
+                                                           AsyncIndexingQueue.class);
+        }
     }
 
     /**
@@ -151,46 +167,99 @@ public class IndexEventConsumer implements Consumer {
     @Override
     public void end(Context ctx) throws Exception {
 
-        if (objectsToUpdate != null && handlesToDelete != null) {
+        // the distinct values of the browse indexes may have changed
+        boolean valuesChanged = browseValueCache != null && objectsToUpdate != null && handlesToDelete != null
+            && (!handlesToDelete.isEmpty() || containsItem(objectsToUpdate));
 
-            // update the changed Items not deleted because they were on create list
+        if (objectsToUpdate != null && handlesToDelete != null && queue != null) {
+
+            // leave the actual indexing to the background workers of the queue
+            Set<DSpaceObject> toQueue = new HashSet<DSpaceObject>();
             for (DSpaceObject o : objectsToUpdate) {
-                /* we let all types through here and
-                 * allow the search indexer to make
-                 * decisions on indexing and/or removal
-                 */
                 DSpaceObject iu = ctx.reloadEntity(o);
                 String hdl = iu.getHandle();
                 if (hdl != null && !handlesToDelete.contains(hdl)) {
+                    toQueue.add(iu);
+                }
+            }
+            Set<String> toDelete = handlesToDelete;
+            // the workers read the objects from the database, so only once the changes are committed
+            ctx.afterCommit(() -> {
+                try {
+                    // the cached values are only outdated once the queued objects reach the index
+                    queue.enqueue(toQueue, toDelete, valuesChanged ? browseValueCache::invalidate : null);
+                } catch (Exception e) {
+                    log.error("Failed while queueing objects for indexing, indexing them now: ", e);
                     try {
-                        indexer.indexContent(ctx, iu, true);
-                        log.debug("Indexed "
-                                      + Constants.typeText[iu.getType()]
-                                      + ", id=" + String.valueOf(iu.getID())
-                                      + ", handle=" + hdl);
-                    } catch (Exception e) {
-                        log.error("Failed while indexing object: ", e);
+                        index(ctx, toQueue, toDelete);
+                    } catch (SQLException ex) {
+                        log.error("Failed while indexing objects: ", ex);
+                    }
+                    if (valuesChanged) {
+                        browseValueCache.invalidate();
                     }
                 }
+            });
+
+        } else if (objectsToUpdate != null && handlesToDelete != null) {
+
+            index(ctx, objectsToUpdate, handlesToDelete);
+
+            if (valuesChanged) {
+                ctx.afterCommit(browseValueCache::invalidate);
             }
+        }
+
+        // "free" the resources
+        objectsToUpdate = null;
+        handlesToDelete = null;
+    }
 
-            for (String hdl : handlesToDelete) {
+    /**
+     * Update the index for the given objects and remove the given handles from it, right away.
+     */
+    private void index(Context ctx, Set<DSpaceObject> objects, Set<String> handles) throws SQLException {
+        // update the changed Items not deleted because they were on create list
+        for (DSpaceObject o : objects) {
+            /* we let all types through here and
+             * allow the search indexer to make
+             * decisions on indexing and/or removal
+             */
+            DSpaceObject iu = ctx.reloadEntity(o);
+            String hdl = iu.getHandle();
+            if (hdl != null && !handles.contains(hdl)) {
                 try {
-                    indexer.unIndexContent(ctx, hdl, true);
-                    if (log.isDebugEnabled()) {
-                        log.debug("UN-Indexed Item, handle=" + hdl);
-                    }
+                    indexer.indexContent(ctx, iu, true);
+                    log.debug("Indexed "
+                                  + Constants.typeText[iu.getType()]
+                                  + ", id=" + String.valueOf(iu.getID())
+                                  + ", handle=" + hdl);
                 } catch (Exception e) {
-                    log.error("Failed while UN-indexing object: " + hdl, e);
+                    log.error("Failed while indexing object: ", e);
                 }
+            }
+        }
 
+        for (String hdl : handles) {
+            try {
+                indexer.unIndexContent(ctx, hdl, true);
+                if (log.isDebugEnabled()) {
+                    log.debug("UN-Indexed Item, handle=" + hdl);
+                }
+            } catch (Exception e) {
+                log.error("Failed while UN-indexing object: " + hdl, e);
             }
 
         }
+    }
 
-        // "free" the resources
-        objectsToUpdate = null;
-        handlesToDelete = null;
+    private boolean containsItem(Set<DSpaceObject> objects) {
+        for (DSpaceObject o : objects) {
+            if (o.getType() == Constants.ITEM) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -57,6 +57,20 @@ public interface IndexingService {
 
     void commit() throws SearchServiceException;
 
+    /**
+     * Start buffering the documents built by the current thread, so they can be sent together.
+     */
+    void startBatch();
+
+    /**
+     * Send the documents buffered since {@link #startBatch()} by the current thread and stop buffering.
+     *
+     * @param commitWithin milliseconds within which the index should commit, negative to use its default
+     * @return the number of documents sent
+     * @throws SearchServiceException if the documents could not be sent
+     */
+    int flushBatch(int commitWithin) throws SearchServiceException;
+
     void optimize() throws SearchServiceException;
 
     void buildSpellCheck() throws SearchServiceException;
@@ -0,0 +1,261 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * Rebuilds the whole Discovery index using several threads.
+ * <p>
+ * The items are paged through in ID order (keyset paging). Every page of item IDs is handed to a pool of
+ * worker threads; each worker uses a read-only Context of its own and sends the documents of a page to Solr
+ * in a single add request. Once a page and all pages before it are indexed, the ID of its last item is written
+ * to a checkpoint file. When a rebuild is interrupted, the next rebuild finds the checkpoint and continues after
+ * that item instead of starting from the first one. The checkpoint is removed when the rebuild completes.
+ */
+public class ParallelIndexer {
+
+    private static final Logger log = Logger.getLogger(ParallelIndexer.class);
+
+    protected static final String CHECKPOINT_LAST_ITEM = "last.item";
+    protected static final String CHECKPOINT_ITEMS_DONE = "items.done";
+
+    protected final IndexingService indexingService;
+    protected final ItemService itemService;
+    protected final CollectionService collectionService;
+    protected final CommunityService communityService;
+
+    protected final int threads;
+    protected final int pageSize;
+    protected final File checkpoint;
+
+    /**
+     * Pages which are indexed but can not be checkpointed yet since a page before them is still being indexed,
+     * mapped to the ID of their last item.
+     */
+    protected final TreeMap<Long, UUID> completedPages = new TreeMap<>();
+    protected long nextPageToCheckpoint = 0;
+
+    protected final AtomicLong itemsDone = new AtomicLong();
+    protected final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    /**
+     * @param indexingService the indexer to send the documents to
+     * @param threads         number of worker threads
+     */
+    public ParallelIndexer(IndexingService indexingService, int threads) {
+        ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+        this.indexingService = indexingService;
+        this.itemService = ContentServiceFactory.getInstance().getItemService();
+        this.collectionService = ContentServiceFactory.getInstance().getCollectionService();
+        this.communityService = ContentServiceFactory.getInstance().getCommunityService();
+        this.threads = threads;
+        this.pageSize = configurationService.getIntProperty("discovery.index.rebuild.page.size", 500);
+        this.checkpoint = new File(configurationService.getProperty("discovery.index.rebuild.checkpoint",
+            configurationService.getProperty("dspace.dir") + File.separator + "var" + File.separator
+                + "discovery-rebuild.checkpoint"));
+    }
+
+    /**
+     * Index all items, collections and communities, resuming from the checkpoint of an earlier, interrupted
+     * run if there is one.
+     *
+     * @param force force each object to be reindexed even if it is up to date
+     * @return the number of items indexed by this run
+     * @throws Exception if the rebuild failed, the checkpoint then allows the next run to resume
+     */
+    public long run(boolean force) throws Exception {
+        UUID after = null;
+        Properties resumed = readCheckpoint();
+        if (resumed != null) {
+            after = UUID.fromString(resumed.getProperty(CHECKPOINT_LAST_ITEM));
+            itemsDone.set(Long.parseLong(resumed.getProperty(CHECKPOINT_ITEMS_DONE, "0")));
+            log.info("Resuming index rebuild after item " + after + ", " + itemsDone.get() + " items already done");
+        }
+        long alreadyDone = itemsDone.get();
+        long start = System.currentTimeMillis();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        // bound the number of pages waiting for a worker, so memory use does not depend on the number of items
+        Semaphore queued = new Semaphore(threads * 2);
+        Context context = new Context(Context.Mode.READ_ONLY);
+        try {
+            long page = 0;
+            List<UUID> ids = itemService.findAllUnfilteredIds(context, after, pageSize);
+            while (!ids.isEmpty() && failure.get() == null) {
+                queued.acquire();
+                final long pageNumber = page++;
+                final List<UUID> pageIds = ids;
+                workers.execute(() -> {
+                    try {
+                        indexPage(pageNumber, pageIds, force);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        queued.release();
+                    }
+                });
+                ids = itemService.findAllUnfilteredIds(context, ids.get(ids.size() - 1), pageSize);
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            context.abort();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        long seconds = Math.max(1, (System.currentTimeMillis() - start) / 1000);
+        log.info("Indexed " + (itemsDone.get() - alreadyDone) + " items in " + seconds + " seconds");
+
+        indexContainers(force);
+        indexingService.commit();
+        if (checkpoint.exists() && !checkpoint.delete()) {
+            log.warn("Unable to remove the index rebuild checkpoint " + checkpoint);
+        }
+        return itemsDone.get() - alreadyDone;
+    }
+
+    /**
+     * Index one page of items with a Context of its own, then checkpoint it.
+     *
+     * @param page  sequence number of the page
+     * @param ids   IDs of the items of the page
+     * @param force force each item to be reindexed even if it is up to date
+     * @throws Exception if the items could not be loaded or the documents could not be sent
+     */
+    protected void indexPage(long page, List<UUID> ids, boolean force) throws Exception {
+        Context context = new Context(Context.Mode.READ_ONLY);
+        try {
+            context.turnOffAuthorisationSystem();
+            indexingService.startBatch();
+            try {
+                for (UUID id : ids) {
+                    Item item = itemService.find(context, id);
+                    if (item != null) {
+                        indexingService.indexContent(context, item, force);
+                        //To prevent memory issues, discard an object from the cache after processing
+                        context.uncacheEntity(item);
+                    }
+                }
+                indexingService.flushBatch(-1);
+            } catch (Throwable t) {
+                // do not leave the documents of a failed page behind on the pooled thread, without hiding
+                // why the page failed if that fails too
+                try {
+                    indexingService.flushBatch(-1);
+                } catch (Exception flushException) {
+                    t.addSuppressed(flushException);
+                }
+                throw t;
+            }
+        } finally {
+            context.abort();
+        }
+        checkpoint(page, ids.get(ids.size() - 1), ids.size());
+    }
+
+    /**
+     * Record a completed page. The checkpoint only moves forward once all pages before it are completed too,
+     * so everything up to the checkpointed item is known to be indexed.
+     *
+     * @param page     sequence number of the page
+     * @param lastItem ID of the last item of the page
+     * @param size     number of items in the page
+     * @throws IOException if the checkpoint could not be written
+     */
+    protected synchronized void checkpoint(long page, UUID lastItem, int size) throws IOException {
+        itemsDone.addAndGet(size);
+        completedPages.put(page, lastItem);
+        UUID checkpointed = null;
+        while (completedPages.containsKey(nextPageToCheckpoint)) {
+            checkpointed = completedPages.remove(nextPageToCheckpoint++);
+        }
+        if (checkpointed != null) {
+            Properties properties = new Properties();
+            properties.setProperty(CHECKPOINT_LAST_ITEM, checkpointed.toString());
+            // pages completed after the checkpointed one are counted too, they will be indexed again on resume
+            properties.setProperty(CHECKPOINT_ITEMS_DONE, Long.toString(itemsDone.get()));
+            writeCheckpoint(properties);
+            if (log.isInfoEnabled() && nextPageToCheckpoint % 10 == 0) {
+                log.info("Indexed " + itemsDone.get() + " items, checkpoint at item " + checkpointed);
+            }
+        }
+    }
+
+    protected void indexContainers(boolean force) throws SQLException {
+        Context context = new Context(Context.Mode.READ_ONLY);
+        try {
+            context.turnOffAuthorisationSystem();
+            for (Collection collection : collectionService.findAll(context)) {
+                indexingService.indexContent(context, collection, force);
+            }
+            for (Community community : communityService.findAll(context)) {
+                indexingService.indexContent(context, community, force);
+            }
+        } finally {
+            context.abort();
+        }
+    }
+
+    protected Properties readCheckpoint() throws IOException {
+        if (!checkpoint.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(checkpoint)) {
+            properties.load(in);
+        }
+        return properties.getProperty(CHECKPOINT_LAST_ITEM) != null ? properties : null;
+    }
+
+    protected void writeCheckpoint(Properties properties) throws IOException {
+        File parent = checkpoint.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create the directory of the checkpoint " + checkpoint);
+        }
+        // write next to the checkpoint and move it in place, a crash must never leave a truncated checkpoint
+        File temp = new File(parent, checkpoint.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, "Discovery index rebuild checkpoint");
+        }
+        Files.move(temp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+}
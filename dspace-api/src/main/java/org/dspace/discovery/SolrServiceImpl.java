@@ -163,6 +163,11 @@ public class SolrServiceImpl implements SearchService, IndexingService {
      */
     protected SolrServer solr = null;
 
+    /**
+     * Documents built by the current thread while a batch is open, see {@link #startBatch()}.
+     */
+    protected final ThreadLocal<List<SolrInputDocument>> documentBatch = new ThreadLocal<>();
+
 
     protected SolrServiceImpl() {
 
@@ -782,6 +787,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                     req.setParam(ExtractingParams.EXTRACT_FORMAT, "text");
                     req.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
                     req.process(getSolr());
+                } else if (documentBatch.get() != null) {
+                    documentBatch.get().add(doc);
                 } else {
                     getSolr().add(doc);
                 }
@@ -2189,6 +2196,40 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         }
     }
 
+    /**
+     * Open a batch for the current thread. Until {@link #flushBatch(int)} is called, documents built
+     * without full text streams are buffered instead of being sent to Solr one by one.
+     */
+    @Override
+    public void startBatch() {
+        if (documentBatch.get() == null) {
+            documentBatch.set(new ArrayList<SolrInputDocument>());
+        }
+    }
+
+    /**
+     * Send all documents buffered by the current thread to Solr in a single add request and close the batch.
+     *
+     * @param commitWithin milliseconds within which Solr should commit the documents, or a negative value
+     *                     to leave committing to the Solr autoCommit configuration
+     * @return the number of documents sent
+     * @throws SearchServiceException if the documents could not be sent to Solr
+     */
+    @Override
+    public int flushBatch(int commitWithin) throws SearchServiceException {
+        List<SolrInputDocument> docs = documentBatch.get();
+        documentBatch.remove();
+        if (docs == null || docs.isEmpty() || getSolr() == null) {
+            return 0;
+        }
+        try {
+            getSolr().add(docs, commitWithin);
+            return docs.size();
+        } catch (SolrServerException | IOException e) {
+            throw new SearchServiceException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public void commit() throws SearchServiceException {
         try {
@@ -9,7 +9,10 @@ package org.dspace.eperson;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -89,6 +92,18 @@ public class Group extends DSpaceObject implements DSpaceObjectLegacySupport {
     @Transient
     private boolean groupsChanged;
 
+    /**
+     * Member groups added (true) or removed (false) since the last update, by group ID
+     */
+    @Transient
+    private final Map<UUID, Boolean> memberGroupChanges = new HashMap<>();
+
+    /**
+     * Parent groups added (true) or removed (false) since the last update, by group ID
+     */
+    @Transient
+    private final Map<UUID, Boolean> parentGroupChanges = new HashMap<>();
+
     /**
      * Protected constructor, create object using:
      * {@link org.dspace.eperson.service.GroupService#create(Context)}
@@ -113,15 +128,19 @@ public class Group extends DSpaceObject implements DSpaceObjectLegacySupport {
     void addMember(Group g) {
         getMemberGroups().add(g);
         groupsChanged = true;
+        recordChange(memberGroupChanges, g, true);
     }
 
     void addParentGroup(Group group) {
         getParentGroups().add(group);
         groupsChanged = true;
+        recordChange(parentGroupChanges, group, true);
     }
 
     void removeParentGroup(Group group) {
-        getParentGroups().remove(group);
+        if (getParentGroups().remove(group)) {
+            recordChange(parentGroupChanges, group, false);
+        }
         groupsChanged = true;
     }
 
@@ -131,7 +150,37 @@ public class Group extends DSpaceObject implements DSpaceObjectLegacySupport {
 
     boolean remove(Group g) {
         groupsChanged = true;
-        return getMemberGroups().remove(g);
+        boolean removed = getMemberGroups().remove(g);
+        if (removed) {
+            recordChange(memberGroupChanges, g, false);
+        }
+        return removed;
+    }
+
+    /**
+     * Record an added or removed relation, a relation added and removed again (or the other way around) cancels out.
+     */
+    private static void recordChange(Map<UUID, Boolean> changes, Group group, boolean added) {
+        Boolean previous = changes.get(group.getID());
+        if (previous != null && previous != added) {
+            changes.remove(group.getID());
+        } else {
+            changes.put(group.getID(), added);
+        }
+    }
+
+    /**
+     * @return the member groups added (true) or removed (false) since the last update, by group ID
+     */
+    Map<UUID, Boolean> getMemberGroupChanges() {
+        return memberGroupChanges;
+    }
+
+    /**
+     * @return the parent groups added (true) or removed (false) since the last update, by group ID
+     */
+    Map<UUID, Boolean> getParentGroupChanges() {
+        return parentGroupChanges;
     }
 
     boolean contains(Group g) {
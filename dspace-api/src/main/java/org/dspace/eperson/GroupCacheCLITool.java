@@ -0,0 +1,67 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import java.sql.SQLException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.dspace.core.Context;
+import org.dspace.eperson.factory.EPersonServiceFactory;
+import org.dspace.eperson.service.GroupService;
+
+/**
+ * Command line tool regenerating the group2groupcache table from the group2group relations.
+ * <p>
+ * The table is kept up to date whenever groups are added to or removed from other groups, so this is only needed
+ * to repair it, e.g. after the group2group table was changed directly in the database.
+ */
+public class GroupCacheCLITool {
+
+    /**
+     * Default constructor
+     */
+    private GroupCacheCLITool() { }
+
+    public static void main(String[] argv) throws SQLException {
+        Options options = new Options();
+        options.addOption("h", "help", false, "Explain options");
+
+        CommandLine command;
+        try {
+            command = new PosixParser().parse(options, argv);
+        } catch (ParseException ex) {
+            System.err.println(ex.getMessage());
+            new HelpFormatter().printHelp("rebuild-group-cache", options);
+            System.exit(1);
+            return;
+        }
+        if (command.hasOption('h')) {
+            new HelpFormatter().printHelp("rebuild-group-cache", options);
+            System.exit(0);
+        }
+
+        GroupService groupService = EPersonServiceFactory.getInstance().getGroupService();
+        Context context = new Context();
+        try {
+            context.turnOffAuthorisationSystem();
+            long start = System.currentTimeMillis();
+            groupService.rebuildGroupCache(context);
+            context.restoreAuthSystemState();
+            context.complete();
+            System.out.println("Group cache rebuilt in " + (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            if (context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+/**
+ * Keeps the shared {@link GroupMembershipGraph} up to date: EPersons added to or removed from groups are patched
+ * into its snapshot, any other change to groups or deletion of EPersons discards the snapshot. Both happen once the
+ * transaction is committed.
+ */
+public class GroupMembershipConsumer implements Consumer {
+
+    protected GroupMembershipGraph groupMembershipGraph;
+
+    /**
+     * EPerson - group memberships changed, true if added
+     */
+    protected final Map<Pair<UUID, UUID>, Boolean> memberships = new LinkedHashMap<>();
+
+    protected boolean invalidate = false;
+
+    @Override
+    public void initialize() throws Exception {
+        groupMembershipGraph = DSpaceServicesFactory.getInstance().getServiceManager()
+                                                    .getServiceByName(GroupMembershipGraph.class.getName(),
+                                                                      GroupMembershipGraph.class);
+    }
+
+    @Override
+    public void consume(Context ctx, Event event) throws Exception {
+        int et = event.getEventType();
+        if (event.getSubjectType() == Constants.GROUP && (et == Event.ADD || et == Event.REMOVE)
+            && event.getObjectType() == Constants.EPERSON) {
+            memberships.put(new ImmutablePair<>(event.getObjectID(), event.getSubjectID()), et == Event.ADD);
+        } else if (et != Event.CREATE && et != Event.MODIFY && et != Event.MODIFY_METADATA) {
+            // group hierarchy changes, deleted groups and EPersons
+            invalidate = true;
+        }
+    }
+
+    @Override
+    public void end(Context ctx) throws Exception {
+        if (groupMembershipGraph != null && groupMembershipGraph.isEnabled()) {
+            // the snapshot must not see the changes before they are committed, nor keep them if they are not
+            if (invalidate) {
+                ctx.afterCommit(groupMembershipGraph::invalidate);
+            } else if (!memberships.isEmpty()) {
+                final List<Pair<UUID, UUID>> added = new ArrayList<>();
+                final List<Pair<UUID, UUID>> removed = new ArrayList<>();
+                for (Map.Entry<Pair<UUID, UUID>, Boolean> membership : memberships.entrySet()) {
+                    (membership.getValue() ? added : removed).add(membership.getKey());
+                }
+                ctx.afterCommit(() -> groupMembershipGraph.update(added, removed));
+            }
+        }
+        memberships.clear();
+        invalidate = false;
+    }
+
+    @Override
+    public void finish(Context ctx) throws Exception {
+        // nothing to do
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.eperson.dao.GroupDAO;
+import org.dspace.services.ConfigurationService;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Holds the {@link GroupMembershipSnapshot} shared by all Contexts of this node, so
+ * {@link GroupServiceImpl#isMember(Context, EPerson, Group)} and
+ * {@link GroupServiceImpl#allMemberGroupsSet(Context, EPerson)} do not need the database.
+ * <p>
+ * The snapshot is read from the database when first needed. Once a transaction is committed,
+ * {@link GroupMembershipConsumer} patches it with the EPersons added to or removed from groups, and discards it
+ * when the group hierarchy changes, groups or EPersons are deleted; the next Context needing it then reads it
+ * again. Changes committed on other nodes are only picked up once the snapshot expires, so the time-to-live bounds
+ * how long such a node may use outdated memberships.
+ * <p>
+ * Disabled unless <code>core.authorization.group-graph.enabled</code> is set.
+ */
+public class GroupMembershipGraph implements InitializingBean {
+
+    private static final Logger log = Logger.getLogger(GroupMembershipGraph.class);
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    @Autowired(required = true)
+    protected GroupDAO groupDAO;
+
+    protected boolean enabled;
+    protected long ttlMillis;
+
+    protected volatile GroupMembershipSnapshot snapshot;
+
+    /**
+     * Incremented by every change, so a snapshot read before a change is never used after it.
+     */
+    protected long generation = 0;
+
+    /**
+     * Held while reading a snapshot, other threads use the database meanwhile.
+     */
+    protected final ReentrantLock loadLock = new ReentrantLock();
+
+    protected GroupMembershipGraph() {
+
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        enabled = configurationService.getBooleanProperty("core.authorization.group-graph.enabled", false);
+        ttlMillis = configurationService.getLongProperty("core.authorization.group-graph.ttl", 600) * 1000;
+        if (enabled) {
+            log.info("Group membership graph enabled, time-to-live " + ttlMillis / 1000 + " seconds");
+        }
+    }
+
+    /**
+     * Get the current snapshot, reading it if there is none. The Context must not have uncommitted changes: those
+     * are not in the snapshot.
+     *
+     * @param context The relevant DSpace Context.
+     * @return the snapshot, or null if memberships must be looked up in the database
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public GroupMembershipSnapshot getSnapshot(Context context) throws SQLException {
+        if (!enabled || context.hasEvents()) {
+            return null;
+        }
+        GroupMembershipSnapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - current.getCreated() < ttlMillis) {
+            return current;
+        }
+        if (!loadLock.tryLock()) {
+            return null;
+        }
+        try {
+            long loadGeneration;
+            synchronized (this) {
+                loadGeneration = generation;
+            }
+
+            long start = System.currentTimeMillis();
+            GroupMembershipSnapshot loaded = new GroupMembershipSnapshot(
+                groupDAO.getGroup2GroupResults(context, false), groupDAO.getEPersonGroupResults(context), start);
+            if (log.isDebugEnabled()) {
+                log.debug("Read memberships of " + loaded.getEPersonCount() + " EPersons in "
+                              + loaded.getGroupCount() + " groups in " + (System.currentTimeMillis() - start) + " ms");
+            }
+
+            synchronized (this) {
+                if (generation != loadGeneration) {
+                    return null;
+                }
+                snapshot = loaded;
+            }
+            return loaded;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Apply committed EPerson membership changes to the current snapshot. Only call it once the changes are
+     * committed, see {@link Context#afterCommit(Runnable)}.
+     *
+     * @param added   EPerson - group memberships added
+     * @param removed EPerson - group memberships removed
+     */
+    public synchronized void update(Collection<Pair<UUID, UUID>> added, Collection<Pair<UUID, UUID>> removed) {
+        generation++;
+        if (snapshot != null) {
+            // null when one of the groups is new, it is read again then
+            snapshot = snapshot.withMemberships(added, removed);
+        }
+    }
+
+    /**
+     * Discard the current snapshot. Only call it once the changes are committed, otherwise the snapshot may be
+     * read again before they are.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * An immutable copy of all group memberships: the group hierarchy and the groups every EPerson is a direct member
+ * of. Groups are numbered, the groups containing a group are kept as a sorted array of numbers per group and the
+ * direct groups of an EPerson as a sorted array per EPerson, so membership questions are answered without any
+ * database access. A snapshot can be shared by any number of threads.
+ *
+ * @see GroupMembershipGraph
+ */
+public class GroupMembershipSnapshot {
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * Group number by group ID, and the other way around
+     */
+    private final Map<UUID, Integer> groupNumbers;
+    private final UUID[] groupIds;
+
+    /**
+     * Per group number, the numbers of all groups it is directly or indirectly a member of
+     */
+    private final int[][] ancestors;
+
+    /**
+     * Per EPerson ID, the numbers of the groups it is a direct member of
+     */
+    private final Map<UUID, int[]> memberships;
+
+    /**
+     * When the memberships were read from the database
+     */
+    private final long created;
+
+    /**
+     * Build a snapshot.
+     *
+     * @param groupRelations all direct parent - child group relations
+     * @param ePersonGroups  all direct EPerson - group memberships
+     * @param created        when the memberships were read
+     */
+    public GroupMembershipSnapshot(Collection<Pair<UUID, UUID>> groupRelations,
+                                   Collection<Pair<UUID, UUID>> ePersonGroups, long created) {
+        this.created = created;
+        // only groups with members or parents are numbered, other groups have no members anyway
+        groupNumbers = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        for (Pair<UUID, UUID> relation : groupRelations) {
+            ids.add(relation.getLeft());
+            ids.add(relation.getRight());
+        }
+        for (Pair<UUID, UUID> membership : ePersonGroups) {
+            ids.add(membership.getRight());
+        }
+        List<UUID> numbered = new ArrayList<>();
+        for (UUID id : ids) {
+            if (!groupNumbers.containsKey(id)) {
+                groupNumbers.put(id, numbered.size());
+                numbered.add(id);
+            }
+        }
+        groupIds = numbered.toArray(new UUID[numbered.size()]);
+
+        // direct parents per group, then all ancestors breadth first
+        List<List<Integer>> parents = new ArrayList<>(groupIds.length);
+        for (int i = 0; i < groupIds.length; i++) {
+            parents.add(new ArrayList<Integer>(1));
+        }
+        for (Pair<UUID, UUID> relation : groupRelations) {
+            parents.get(groupNumbers.get(relation.getRight())).add(groupNumbers.get(relation.getLeft()));
+        }
+        ancestors = new int[groupIds.length][];
+        BitSet seen = new BitSet(groupIds.length);
+        Deque<Integer> toVisit = new ArrayDeque<>();
+        for (int group = 0; group < groupIds.length; group++) {
+            if (parents.get(group).isEmpty()) {
+                ancestors[group] = NONE;
+                continue;
+            }
+            seen.clear();
+            toVisit.addAll(parents.get(group));
+            while (!toVisit.isEmpty()) {
+                int parent = toVisit.poll();
+                if (!seen.get(parent)) {
+                    seen.set(parent);
+                    toVisit.addAll(parents.get(parent));
+                }
+            }
+            ancestors[group] = seen.stream().toArray();
+        }
+
+        Map<UUID, BitSet> direct = new HashMap<>();
+        for (Pair<UUID, UUID> membership : ePersonGroups) {
+            int group = groupNumbers.get(membership.getRight());
+            direct.computeIfAbsent(membership.getLeft(), ePerson -> new BitSet()).set(group);
+        }
+        memberships = new HashMap<>(direct.size() * 4 / 3 + 1);
+        for (Map.Entry<UUID, BitSet> entry : direct.entrySet()) {
+            memberships.put(entry.getKey(), entry.getValue().stream().toArray());
+        }
+    }
+
+    private GroupMembershipSnapshot(GroupMembershipSnapshot original, Map<UUID, int[]> memberships) {
+        this.groupNumbers = original.groupNumbers;
+        this.groupIds = original.groupIds;
+        this.ancestors = original.ancestors;
+        this.created = original.created;
+        this.memberships = memberships;
+    }
+
+    /**
+     * A copy of this snapshot with changed EPerson memberships, sharing the group hierarchy.
+     *
+     * @param added   EPerson - group memberships to add
+     * @param removed EPerson - group memberships to remove
+     * @return the new snapshot, or null if one of the groups is not known to this snapshot
+     */
+    public GroupMembershipSnapshot withMemberships(Collection<Pair<UUID, UUID>> added,
+                                                   Collection<Pair<UUID, UUID>> removed) {
+        Map<UUID, BitSet> changed = new HashMap<>();
+        for (Pair<UUID, UUID> membership : added) {
+            Integer group = groupNumbers.get(membership.getRight());
+            if (group == null) {
+                return null;
+            }
+            changedGroups(changed, membership.getLeft()).set(group);
+        }
+        for (Pair<UUID, UUID> membership : removed) {
+            Integer group = groupNumbers.get(membership.getRight());
+            if (group != null) {
+                changedGroups(changed, membership.getLeft()).clear(group);
+            }
+        }
+
+        Map<UUID, int[]> patched = new HashMap<>(memberships);
+        for (Map.Entry<UUID, BitSet> entry : changed.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                patched.remove(entry.getKey());
+            } else {
+                patched.put(entry.getKey(), entry.getValue().stream().toArray());
+            }
+        }
+        return new GroupMembershipSnapshot(this, patched);
+    }
+
+    private BitSet changedGroups(Map<UUID, BitSet> changed, UUID ePerson) {
+        BitSet groups = changed.get(ePerson);
+        if (groups == null) {
+            groups = new BitSet(groupIds.length);
+            for (int group : memberships.getOrDefault(ePerson, NONE)) {
+                groups.set(group);
+            }
+            changed.put(ePerson, groups);
+        }
+        return groups;
+    }
+
+    /**
+     * Whether an EPerson is a direct or indirect member of a group.
+     *
+     * @param ePerson ID of the EPerson
+     * @param group   ID of the group
+     * @return true if the EPerson is a member
+     */
+    public boolean isMember(UUID ePerson, UUID group) {
+        Integer number = groupNumbers.get(group);
+        if (number == null) {
+            return false;
+        }
+        for (int direct : memberships.getOrDefault(ePerson, NONE)) {
+            if (direct == number || Arrays.binarySearch(ancestors[direct], number) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a group is a direct or indirect member of another group.
+     *
+     * @param parent ID of the containing group
+     * @param child  ID of the member group
+     * @return true if child is a member of parent
+     */
+    public boolean isParentOf(UUID parent, UUID child) {
+        Integer parentNumber = groupNumbers.get(parent);
+        Integer childNumber = groupNumbers.get(child);
+        return parentNumber != null && childNumber != null
+            && Arrays.binarySearch(ancestors[childNumber], parentNumber) >= 0;
+    }
+
+    /**
+     * @param ePerson ID of the EPerson
+     * @return the IDs of the groups the EPerson is a direct member of
+     */
+    public Set<UUID> getDirectGroupIds(UUID ePerson) {
+        int[] direct = memberships.getOrDefault(ePerson, NONE);
+        Set<UUID> groups = new HashSet<>(direct.length * 4 / 3 + 1);
+        for (int group : direct) {
+            groups.add(groupIds[group]);
+        }
+        return groups;
+    }
+
+    /**
+     * The given groups along with all groups they are directly or indirectly a member of.
+     *
+     * @param groups IDs of the groups, unknown groups are returned as they are
+     * @return the IDs of the groups and their ancestors
+     */
+    public Set<UUID> withParentIds(Collection<UUID> groups) {
+        Set<UUID> result = new HashSet<>(groups);
+        BitSet found = new BitSet(groupIds.length);
+        for (UUID group : groups) {
+            Integer number = groupNumbers.get(group);
+            if (number != null) {
+                for (int ancestor : ancestors[number]) {
+                    found.set(ancestor);
+                }
+            }
+        }
+        for (int ancestor = found.nextSetBit(0); ancestor >= 0; ancestor = found.nextSetBit(ancestor + 1)) {
+            result.add(groupIds[ancestor]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of groups
+     */
+    public int getGroupCount() {
+        return groupIds.length;
+    }
+
+    /**
+     * @return the number of EPersons which are a member of at least one group
+     */
+    public int getEPersonCount() {
+        return memberships.size();
+    }
+
+    /**
+     * @return when the memberships were read from the database, in milliseconds since the epoch
+     */
+    public long getCreated() {
+        return created;
+    }
+}
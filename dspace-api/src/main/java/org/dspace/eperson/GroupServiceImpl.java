@@ -8,7 +8,10 @@
 package org.dspace.eperson;
 
 import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -71,6 +74,9 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
     @Autowired(required = true)
     protected AuthorizeService authorizeService;
 
+    @Autowired(required = true)
+    protected GroupMembershipGraph groupMembershipGraph;
+
     protected GroupServiceImpl() {
         super();
     }
@@ -190,11 +196,13 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
 
             } else {
                 boolean isMember = false;
+                GroupMembershipSnapshot snapshot = groupMembershipGraph.getSnapshot(context);
 
-                //If we have an ePerson, check we can find membership in the database
+                //If we have an ePerson, check we can find membership in memory or in the database
                 if (ePerson != null) {
                     //lookup eperson in normal groups and subgroups with 1 query
-                    isMember = isEPersonInGroup(context, group, ePerson);
+                    isMember = snapshot != null ? snapshot.isMember(ePerson.getID(), group.getID())
+                        : isEPersonInGroup(context, group, ePerson);
                 }
 
                 //If we did not find the group membership in the database, check the special groups.
@@ -210,7 +218,9 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
                     while (it.hasNext() && !isMember) {
                         Group specialGroup = it.next();
                         //Check if the special group matches the given group or if it is a subgroup (with 1 query)
-                        if (specialGroup.equals(group) || isParentOf(context, group, specialGroup)) {
+                        if (specialGroup.equals(group) || (snapshot != null
+                            ? snapshot.isParentOf(group.getID(), specialGroup.getID())
+                            : isParentOf(context, group, specialGroup))) {
                             isMember = true;
                         }
                     }
@@ -249,6 +259,11 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
             return cachedGroupMembership;
         }
 
+        GroupMembershipSnapshot snapshot = groupMembershipGraph.getSnapshot(context);
+        if (snapshot != null) {
+            return allMemberGroupsSet(context, ePerson, snapshot);
+        }
+
         Set<Group> groups = new HashSet<>();
 
         if (ePerson != null) {
@@ -283,6 +298,43 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
         return groups;
     }
 
+    /**
+     * Get all groups an EPerson is a direct or indirect member of, using the memberships kept in memory instead
+     * of the database. Like {@link #allMemberGroupsSet(Context, EPerson)} this includes the special groups of
+     * the current user and the anonymous group.
+     *
+     * @param context  The relevant DSpace Context.
+     * @param ePerson  the EPerson, or null for anonymous
+     * @param snapshot the memberships
+     * @return the groups
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    protected Set<Group> allMemberGroupsSet(Context context, EPerson ePerson, GroupMembershipSnapshot snapshot)
+        throws SQLException {
+        Set<UUID> groupIds = new HashSet<>();
+        if (ePerson != null) {
+            groupIds.addAll(snapshot.getDirectGroupIds(ePerson.getID()));
+        }
+        if ((context.getCurrentUser() == null) || (context.getCurrentUser().equals(ePerson))) {
+            groupIds.addAll(context.getSpecialGroupIds());
+        }
+        Group anonymous = findByName(context, Group.ANONYMOUS);
+        if (anonymous != null) {
+            groupIds.add(anonymous.getID());
+        }
+
+        Set<Group> groups = new HashSet<>();
+        for (UUID groupId : snapshot.withParentIds(groupIds)) {
+            Group group = find(context, groupId);
+            if (group != null) {
+                groups.add(group);
+            }
+        }
+
+        context.cacheAllMemberGroupsSet(ePerson, groups);
+        return groups;
+    }
+
     @Override
     public List<EPerson> allMembers(Context c, Group g) throws SQLException {
         // two queries - first to get all groups which are a member of this group
@@ -417,11 +469,20 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
             ePerson.getGroups().remove(group);
         }
 
-        // empty out group2groupcache table (if we do it after we delete our object we get an issue with references)
-        group2GroupCacheDAO.deleteAll(context);
+        // the cached relations which may have run through this group
+        Set<UUID> ancestors = group2GroupCacheDAO.findParentIds(context, group.getID());
+        Set<UUID> descendants = group2GroupCacheDAO.findChildIds(context, group.getID());
+        ancestors.remove(group.getID());
+        descendants.remove(group.getID());
+        group.getMemberGroupChanges().clear();
+        group.getParentGroupChanges().clear();
+
+        // remove our own group2groupcache rows (if we do it after we delete our object we get an issue with
+        // references)
+        group2GroupCacheDAO.deleteByGroup(context, group.getID());
         // Remove ourself
         groupDAO.delete(context, group);
-        rethinkGroupCache(context, false);
+        updateGroupCache(context, ancestors, descendants);
 
         log.info(LogManager.getHeader(context, "delete_group", "group_id="
             + group.getID()));
@@ -512,7 +573,7 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
         }
 
         if (group.isGroupsChanged()) {
-            rethinkGroupCache(context, true);
+            updateGroupCache(context, group);
             group.clearGroupsChanged();
         }
 
@@ -527,9 +588,123 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
     }
 
 
+    /**
+     * Bring the group cache AKA the group2groupcache table up to date with the groups added to or removed from
+     * the given group, or the groups it was added to or removed from, since its last update.
+     *
+     * @param context The relevant DSpace Context.
+     * @param group   the updated group
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    protected void updateGroupCache(Context context, Group group) throws SQLException {
+        for (Map.Entry<UUID, Boolean> change : group.getMemberGroupChanges().entrySet()) {
+            // the member group has the same change recorded, it is handled now
+            Group child = find(context, change.getKey());
+            if (child != null) {
+                child.getParentGroupChanges().remove(group.getID());
+            }
+            updateGroupCache(context, group.getID(), change.getKey(), change.getValue());
+        }
+        for (Map.Entry<UUID, Boolean> change : group.getParentGroupChanges().entrySet()) {
+            Group parent = find(context, change.getKey());
+            if (parent != null) {
+                parent.getMemberGroupChanges().remove(group.getID());
+            }
+            updateGroupCache(context, change.getKey(), group.getID(), change.getValue());
+        }
+        group.getMemberGroupChanges().clear();
+        group.getParentGroupChanges().clear();
+    }
+
+    /**
+     * Update the group cache for a single group2group relation which was added or removed.
+     * <p>
+     * A new relation makes the parent and its ancestors ancestors of the child and its descendants, which is a
+     * single insert. A removed relation can only break the paths which ran through it, so only the rows between
+     * the parent (and its ancestors) and the child (and its descendants) are recomputed.
+     *
+     * @param context The relevant DSpace Context.
+     * @param parent  ID of the parent group
+     * @param child   ID of the member group
+     * @param added   true if the relation was added, false if it was removed
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    protected void updateGroupCache(Context context, UUID parent, UUID child, boolean added) throws SQLException {
+        if (added) {
+            group2GroupCacheDAO.addRelation(context, parent, child);
+        } else {
+            Set<UUID> ancestors = group2GroupCacheDAO.findParentIds(context, parent);
+            ancestors.add(parent);
+            Set<UUID> descendants = group2GroupCacheDAO.findChildIds(context, child);
+            descendants.add(child);
+            updateGroupCache(context, ancestors, descendants);
+        }
+    }
+
+    /**
+     * Recompute the group cache rows between a set of ancestors and a set of descendants, after relations on the
+     * paths between them were removed. Every removed path must have run from one of the ancestors to one of the
+     * descendants, so the cached descendants of any other group are still valid and are used as they are.
+     *
+     * @param context     The relevant DSpace Context.
+     * @param ancestors   IDs of the groups whose descendants may have changed
+     * @param descendants IDs of the groups which may no longer be descendants
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    protected void updateGroupCache(Context context, Set<UUID> ancestors, Set<UUID> descendants)
+        throws SQLException {
+        if (ancestors.isEmpty() || descendants.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, Set<UUID>> children = new HashMap<>();
+        Set<UUID> others = new HashSet<>();
+        for (Pair<UUID, UUID> relation : groupDAO.getGroup2GroupResults(context, ancestors)) {
+            children.computeIfAbsent(relation.getLeft(), id -> new HashSet<>()).add(relation.getRight());
+            if (!ancestors.contains(relation.getRight())) {
+                others.add(relation.getRight());
+            }
+        }
+        Map<UUID, Set<UUID>> cached = group2GroupCacheDAO.findChildIds(context, others);
+
+        // the descendants each ancestor still reaches, grown until nothing changes
+        Map<UUID, Set<UUID>> reached = new HashMap<>();
+        for (UUID ancestor : ancestors) {
+            reached.put(ancestor, new HashSet<>());
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (UUID ancestor : ancestors) {
+                Set<UUID> found = reached.get(ancestor);
+                for (UUID child : children.getOrDefault(ancestor, Collections.emptySet())) {
+                    if (descendants.contains(child)) {
+                        changed |= found.add(child);
+                    }
+                    Set<UUID> further = ancestors.contains(child) ? reached.get(child)
+                        : cached.getOrDefault(child, Collections.emptySet());
+                    if (further == found) {
+                        continue;
+                    }
+                    for (UUID descendant : further) {
+                        if (descendants.contains(descendant)) {
+                            changed |= found.add(descendant);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (UUID ancestor : ancestors) {
+            Set<UUID> lost = new HashSet<>(descendants);
+            lost.removeAll(reached.get(ancestor));
+            group2GroupCacheDAO.delete(context, ancestor, lost);
+        }
+    }
+
     /**
      * Regenerate the group cache AKA the group2groupcache table in the database -
-     * meant to be called when a group is added or removed from another group
+     * used to repair the table, changes to the groups only update the affected rows
      *
      * @param context      The relevant DSpace Context.
      * @param flushQueries flushQueries Flush all pending queries
@@ -564,35 +739,25 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
         // parent groups
         // so now to establish all parent,child relationships we can iterate
         // through the parents hash
-        for (Map.Entry<UUID, Set<UUID>> parent : parents.entrySet()) {
-            Set<UUID> myChildren = getChildren(parents, parent.getKey());
-            parent.getValue().addAll(myChildren);
+        Map<UUID, Set<UUID>> descendants = new HashMap<>();
+        for (UUID parent : parents.keySet()) {
+            descendants.put(parent, getChildren(parents, parent));
         }
 
         // empty out group2groupcache table
         group2GroupCacheDAO.deleteAll(context);
 
-        // write out new one
-        for (Map.Entry<UUID, Set<UUID>> parent : parents.entrySet()) {
-            UUID key = parent.getKey();
-
-            for (UUID child : parent.getValue()) {
-
-                Group parentGroup = find(context, key);
-                Group childGroup = find(context, child);
-
-
-                if (parentGroup != null && childGroup != null && group2GroupCacheDAO
-                    .find(context, parentGroup, childGroup) == null) {
-                    Group2GroupCache group2GroupCache = group2GroupCacheDAO.create(context, new Group2GroupCache());
-                    group2GroupCache.setParent(parentGroup);
-                    group2GroupCache.setChild(childGroup);
-                    group2GroupCacheDAO.save(context, group2GroupCache);
-                }
-            }
+        // write out new one, one statement per parent
+        for (Map.Entry<UUID, Set<UUID>> parent : descendants.entrySet()) {
+            group2GroupCacheDAO.create(context, parent.getKey(), parent.getValue());
         }
     }
 
+    @Override
+    public void rebuildGroupCache(Context context) throws SQLException {
+        rethinkGroupCache(context, true);
+    }
+
     @Override
     public DSpaceObject getParentObject(Context context, Group group) throws SQLException {
         if (group == null) {
@@ -653,7 +818,7 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
     }
 
     /**
-     * Used recursively to generate a map of ALL of the children of the given
+     * Used to generate a map of ALL of the children of the given
      * parent
      *
      * @param parents Map of parent,child relationships
@@ -663,22 +828,19 @@ public class GroupServiceImpl extends DSpaceObjectServiceImpl<Group> implements
     protected Set<UUID> getChildren(Map<UUID, Set<UUID>> parents, UUID parent) {
         Set<UUID> myChildren = new HashSet<>();
 
-        // degenerate case, this parent has no children
-        if (!parents.containsKey(parent)) {
-            return myChildren;
-        }
-
-        // got this far, so we must have children
-        Set<UUID> children = parents.get(parent);
-
-        // now iterate over all of the children
-
-        for (UUID child : children) {
-            // add this child's ID to our return set
-            myChildren.add(child);
-
-            // and now its children
-            myChildren.addAll(getChildren(parents, child));
+        // walk down breadth first, every child is visited once however many paths lead to it
+        Deque<UUID> toVisit = new ArrayDeque<>();
+        toVisit.add(parent);
+        while (!toVisit.isEmpty()) {
+            Set<UUID> children = parents.get(toVisit.poll());
+            if (children == null) {
+                continue;
+            }
+            for (UUID child : children) {
+                if (myChildren.add(child)) {
+                    toVisit.add(child);
+                }
+            }
         }
 
         return myChildren;
@@ -8,7 +8,11 @@
 package org.dspace.eperson.dao;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 import org.dspace.core.Context;
 import org.dspace.core.GenericDAO;
@@ -34,4 +38,74 @@ public interface Group2GroupCacheDAO extends GenericDAO<Group2GroupCache> {
     public Group2GroupCache find(Context context, Group parent, Group child) throws SQLException;
 
     public void deleteAll(Context context) throws SQLException;
+
+    /**
+     * Find the IDs of all groups the given group is directly or indirectly a member of.
+     *
+     * @param context The relevant DSpace Context.
+     * @param child   ID of the group
+     * @return the IDs of its ancestor groups
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public Set<UUID> findParentIds(Context context, UUID child) throws SQLException;
+
+    /**
+     * Find the IDs of all direct and indirect member groups of a group.
+     *
+     * @param context The relevant DSpace Context.
+     * @param parent  ID of the group
+     * @return the IDs of its descendant groups
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public Set<UUID> findChildIds(Context context, UUID parent) throws SQLException;
+
+    /**
+     * Find the IDs of all direct and indirect member groups of several groups.
+     *
+     * @param context The relevant DSpace Context.
+     * @param parents IDs of the groups
+     * @return the IDs of the descendant groups by ID of the parent, groups without members are left out
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public Map<UUID, Set<UUID>> findChildIds(Context context, Collection<UUID> parents) throws SQLException;
+
+    /**
+     * Add the rows implied by a new group2group relation in one statement: the parent and each of its ancestors
+     * become ancestors of the child and each of its descendants. Rows which already exist are left alone.
+     *
+     * @param context The relevant DSpace Context.
+     * @param parent  ID of the parent group of the new relation
+     * @param child   ID of the member group of the new relation
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public void addRelation(Context context, UUID parent, UUID child) throws SQLException;
+
+    /**
+     * Add rows for a parent group and a number of its descendants, existing groups only.
+     *
+     * @param context  The relevant DSpace Context.
+     * @param parent   ID of the parent group
+     * @param children IDs of its descendants, none of which may already have a row for this parent
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public void create(Context context, UUID parent, Collection<UUID> children) throws SQLException;
+
+    /**
+     * Delete the rows for a parent group and a number of its former descendants.
+     *
+     * @param context  The relevant DSpace Context.
+     * @param parent   ID of the parent group
+     * @param children IDs of the descendants to delete, rows which do not exist are ignored
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public void delete(Context context, UUID parent, Collection<UUID> children) throws SQLException;
+
+    /**
+     * Delete all rows in which a group is either the parent or the child.
+     *
+     * @param context The relevant DSpace Context.
+     * @param group   ID of the group
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    public void deleteByGroup(Context context, UUID group) throws SQLException;
 }
@@ -8,6 +8,7 @@
 package org.dspace.eperson.dao;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -85,6 +86,25 @@ public interface GroupDAO extends DSpaceObjectDAO<Group>, DSpaceObjectLegacySupp
      */
     List<Pair<UUID, UUID>> getGroup2GroupResults(Context context, boolean flushQueries) throws SQLException;
 
+    /**
+     * Get the direct parent - child group relations of the given parent groups
+     *
+     * @param context The DSpace context
+     * @param parents IDs of the parent groups
+     * @return A list of pairs indicating parent - child
+     * @throws SQLException if database error
+     */
+    List<Pair<UUID, UUID>> getGroup2GroupResults(Context context, Collection<UUID> parents) throws SQLException;
+
+    /**
+     * Get a list of all direct EPerson - group memberships in the database
+     *
+     * @param context The DSpace context
+     * @return A list of pairs indicating EPerson - group
+     * @throws SQLException if database error
+     */
+    List<Pair<UUID, UUID>> getEPersonGroupResults(Context context) throws SQLException;
+
     /**
      * Return all empty groups
      *
@@ -8,8 +8,15 @@
 package org.dspace.eperson.dao.impl;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
+import com.google.common.collect.Iterables;
 import org.dspace.core.AbstractHibernateDAO;
 import org.dspace.core.Context;
 import org.dspace.eperson.Group;
@@ -17,6 +24,7 @@ import org.dspace.eperson.Group2GroupCache;
 import org.dspace.eperson.dao.Group2GroupCacheDAO;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.SQLQuery;
 import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Restrictions;
 
@@ -28,6 +36,12 @@ import org.hibernate.criterion.Restrictions;
  * @author kevinvandevelde at atmire.com
  */
 public class Group2GroupCacheDAOImpl extends AbstractHibernateDAO<Group2GroupCache> implements Group2GroupCacheDAO {
+
+    /**
+     * Maximum number of IDs bound to a single IN clause
+     */
+    protected static final int BATCH_SIZE = 1000;
+
     protected Group2GroupCacheDAOImpl() {
         super();
     }
@@ -82,4 +96,100 @@ public class Group2GroupCacheDAOImpl extends AbstractHibernateDAO<Group2GroupCac
     public void deleteAll(Context context) throws SQLException {
         createQuery(context, "delete from Group2GroupCache").executeUpdate();
     }
+
+    @Override
+    public Set<UUID> findParentIds(Context context, UUID child) throws SQLException {
+        Query query = createQuery(context, "SELECT g.parent.id FROM Group2GroupCache g WHERE g.child.id = :child");
+        query.setParameter("child", child);
+
+        @SuppressWarnings("unchecked")
+        List<UUID> results = query.list();
+        return new HashSet<>(results);
+    }
+
+    @Override
+    public Set<UUID> findChildIds(Context context, UUID parent) throws SQLException {
+        Query query = createQuery(context, "SELECT g.child.id FROM Group2GroupCache g WHERE g.parent.id = :parent");
+        query.setParameter("parent", parent);
+
+        @SuppressWarnings("unchecked")
+        List<UUID> results = query.list();
+        return new HashSet<>(results);
+    }
+
+    @Override
+    public Map<UUID, Set<UUID>> findChildIds(Context context, Collection<UUID> parents) throws SQLException {
+        Map<UUID, Set<UUID>> children = new HashMap<>();
+        for (List<UUID> batch : Iterables.partition(parents, BATCH_SIZE)) {
+            Query query = createQuery(context,
+                                      "SELECT g.parent.id, g.child.id FROM Group2GroupCache g " +
+                                          "WHERE g.parent.id IN (:parents)");
+            query.setParameterList("parents", batch);
+
+            @SuppressWarnings("unchecked")
+            List<Object[]> results = query.list();
+            for (Object[] result : results) {
+                children.computeIfAbsent((UUID) result[0], parent -> new HashSet<>()).add((UUID) result[1]);
+            }
+        }
+        return children;
+    }
+
+    @Override
+    public void addRelation(Context context, UUID parent, UUID child) throws SQLException {
+        SQLQuery query = createNativeUpdate(context,
+            "INSERT INTO group2groupcache (parent_id, child_id) " +
+                "SELECT a.uuid, d.uuid FROM epersongroup a, epersongroup d " +
+                "WHERE (a.uuid = :parent " +
+                "OR a.uuid IN (SELECT p.parent_id FROM group2groupcache p WHERE p.child_id = :parent)) " +
+                "AND (d.uuid = :child " +
+                "OR d.uuid IN (SELECT c.child_id FROM group2groupcache c WHERE c.parent_id = :child)) " +
+                "AND NOT EXISTS (SELECT 1 FROM group2groupcache x WHERE x.parent_id = a.uuid AND x.child_id = d.uuid)");
+        query.setParameter("parent", parent);
+        query.setParameter("child", child);
+        query.executeUpdate();
+    }
+
+    @Override
+    public void create(Context context, UUID parent, Collection<UUID> children) throws SQLException {
+        for (List<UUID> batch : Iterables.partition(children, BATCH_SIZE)) {
+            SQLQuery query = createNativeUpdate(context,
+                "INSERT INTO group2groupcache (parent_id, child_id) " +
+                    "SELECT p.uuid, c.uuid FROM epersongroup p, epersongroup c " +
+                    "WHERE p.uuid = :parent AND c.uuid IN (:children)");
+            query.setParameter("parent", parent);
+            query.setParameterList("children", batch);
+            query.executeUpdate();
+        }
+    }
+
+    @Override
+    public void delete(Context context, UUID parent, Collection<UUID> children) throws SQLException {
+        for (List<UUID> batch : Iterables.partition(children, BATCH_SIZE)) {
+            SQLQuery query = createNativeUpdate(context,
+                "DELETE FROM group2groupcache WHERE parent_id = :parent AND child_id IN (:children)");
+            query.setParameter("parent", parent);
+            query.setParameterList("children", batch);
+            query.executeUpdate();
+        }
+    }
+
+    @Override
+    public void deleteByGroup(Context context, UUID group) throws SQLException {
+        SQLQuery query = createNativeUpdate(context,
+            "DELETE FROM group2groupcache WHERE parent_id = :group OR child_id = :group");
+        query.setParameter("group", group);
+        query.executeUpdate();
+    }
+
+    /**
+     * Create a native statement changing the group2groupcache table. Pending changes are flushed first, so the
+     * statement sees new groups and relations, and cached results for the table are invalidated afterwards.
+     */
+    protected SQLQuery createNativeUpdate(Context context, String sql) throws SQLException {
+        getHibernateSession(context).flush();
+        SQLQuery query = getHibernateSession(context).createSQLQuery(sql);
+        query.addSynchronizedEntityClass(Group2GroupCache.class);
+        return query;
+    }
 }
@@ -8,10 +8,13 @@
 package org.dspace.eperson.dao.impl;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
+import com.google.common.collect.Iterables;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.dspace.content.MetadataField;
@@ -186,6 +189,35 @@ public class GroupDAOImpl extends AbstractHibernateDSODAO<Group> implements Grou
         return results;
     }
 
+    @Override
+    public List<Pair<UUID, UUID>> getGroup2GroupResults(Context context, Collection<UUID> parents)
+        throws SQLException {
+        List<Pair<UUID, UUID>> results = new ArrayList<>();
+        for (List<UUID> batch : Iterables.partition(parents, 1000)) {
+            Query query = createQuery(context, "SELECT new org.apache.commons.lang3.tuple.ImmutablePair(g.id, c.id) " +
+                "FROM Group g " +
+                "JOIN g.groups c " +
+                "WHERE g.id IN (:parents)");
+            query.setParameterList("parents", batch);
+
+            @SuppressWarnings("unchecked")
+            List<Pair<UUID, UUID>> batchResults = query.list();
+            results.addAll(batchResults);
+        }
+        return results;
+    }
+
+    @Override
+    public List<Pair<UUID, UUID>> getEPersonGroupResults(Context context) throws SQLException {
+        Query query = createQuery(context, "SELECT new org.apache.commons.lang3.tuple.ImmutablePair(e.id, g.id) " +
+            "FROM Group g " +
+            "JOIN g.epeople e ");
+
+        @SuppressWarnings("unchecked")
+        List<Pair<UUID, UUID>> results = query.list();
+        return results;
+    }
+
     @Override
     public List<Group> getEmptyGroups(Context context) throws SQLException {
         return list(createQuery(context, "SELECT g from Group g where g.epeople is EMPTY"));
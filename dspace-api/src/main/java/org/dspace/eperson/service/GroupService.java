@@ -298,6 +298,15 @@ public interface GroupService extends DSpaceObjectService<Group>, DSpaceObjectLe
      */
     List<Group> getEmptyGroups(Context context) throws SQLException;
 
+    /**
+     * Regenerate the whole group2groupcache table from the group2group relations. The table is kept up to date
+     * as groups are added to and removed from other groups, a rebuild is only needed to repair it.
+     *
+     * @param context The DSpace context
+     * @throws SQLException database exception
+     */
+    void rebuildGroupCache(Context context) throws SQLException;
+
     /**
      * Count the total number of groups in DSpace
      *
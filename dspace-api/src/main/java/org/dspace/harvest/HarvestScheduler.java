@@ -214,15 +214,10 @@ public class HarvestScheduler implements Runnable {
                     }
                 }
 
-                // Finally, wait for the last few remaining threads to finish
-                // TODO: this step might be unnecessary. Theoretically a single very long harvest process
-                // could then lock out all the other ones from starting on their next iteration.
-                // FIXME: also, this might lead to a situation when a single thread getting stuck without
-                // throwing an exception would shut down the whole scheduler
-                while (activeThreads != 0) {
-                    /* Wait a second */
-                    Thread.sleep(1000);
-                }
+                // The remaining threads are not waited for: a single very long harvest would otherwise keep
+                // the other collections from starting their next cycle. Collections being harvested are busy,
+                // so they are not found ready again until they are done. Requests to the same OAI server are
+                // limited by oai.harvester.requestInterval, however many of its collections are harvested.
 
                 // Commit everything
                 try {
@@ -13,6 +13,8 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.ConnectException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -21,8 +23,15 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 
@@ -31,6 +40,7 @@ import ORG.oclc.oai.harvester2.verb.Identify;
 import ORG.oclc.oai.harvester2.verb.ListIdentifiers;
 import ORG.oclc.oai.harvester2.verb.ListMetadataFormats;
 import ORG.oclc.oai.harvester2.verb.ListRecords;
+import com.google.common.util.concurrent.RateLimiter;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -60,6 +70,7 @@ import org.dspace.core.I18nUtil;
 import org.dspace.core.Utils;
 import org.dspace.core.factory.CoreServiceFactory;
 import org.dspace.core.service.PluginService;
+import org.dspace.eperson.EPerson;
 import org.dspace.handle.factory.HandleServiceFactory;
 import org.dspace.handle.service.HandleService;
 import org.dspace.harvest.factory.HarvestServiceFactory;
@@ -131,6 +142,18 @@ public class OAIHarvester {
 
     // DOMbuilder class for the DOM -> JDOM conversions
     private static DOMBuilder db = new DOMBuilder();
+
+    // Limit the requests to each OAI server host, shared by all harvests
+    // Set in oai.cfg as oai.harvester.requestInterval = {milliseconds}
+    private static final ConcurrentMap<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    // Number of records ingested in parallel, and how many records each of them commits at once
+    // Set in oai.cfg as oai.harvester.ingestThreads and oai.harvester.commitBatchSize
+    protected int ingestThreads;
+    protected int commitBatchSize;
+
+    // Set when a harvest fails, the records still queued for ingest are skipped
+    protected volatile boolean cancelled = false;
     // The point at which this thread should terminate itself
 
     /* Initialize the harvester with a collection object */
@@ -149,7 +172,8 @@ public class OAIHarvester {
         pluginService = CoreServiceFactory.getInstance().getPluginService();
 
         configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
-
+        ingestThreads = Math.max(1, configurationService.getIntProperty("oai.harvester.ingestThreads", 1));
+        commitBatchSize = Math.max(1, configurationService.getIntProperty("oai.harvester.commitBatchSize", 20));
 
         if (dso.getType() != Constants.COLLECTION) {
             throw new HarvestingException("OAIHarvester can only harvest collections");
@@ -327,98 +351,121 @@ public class OAIHarvester {
             calendar.add(Calendar.HOUR, expirationInterval);
             Date expirationTime = calendar.getTime();
 
-            // main loop to keep requesting more objects until we're done
+            // main loop to keep requesting more objects until we're done: the next page is fetched while the
+            // records of the current one are ingested by the workers
             List<Element> records;
             Set<String> errorSet = new HashSet<String>();
 
-            ListRecords listRecords = new ListRecords(oaiSource, fromDate, toDate, oaiSetId, descMDPrefix);
-            log.debug(
-                "Harvesting request parameters: listRecords " + oaiSource + " " + fromDate + " " + toDate + " " +
-                    oaiSetId + " " + descMDPrefix);
-            if (listRecords != null) {
-                log.info("HTTP Request: " + listRecords.getRequestURL());
-            }
-
-            while (listRecords != null) {
-                records = new ArrayList<Element>();
-                oaiResponse = db.build(listRecords.getDocument());
+            ExecutorService fetcher = Executors.newSingleThreadExecutor();
+            List<IngestWorker> workers = new ArrayList<>();
+            boolean completed = false;
+            try {
+                for (int i = 0; i < ingestThreads; i++) {
+                    workers.add(new IngestWorker(expirationTime));
+                }
 
-                if (listRecords.getErrors() != null && listRecords.getErrors().getLength() > 0) {
-                    for (int i = 0; i < listRecords.getErrors().getLength(); i++) {
-                        String errorCode = listRecords.getErrors().item(i).getAttributes().getNamedItem("code")
-                                                      .getTextContent();
-                        errorSet.add(errorCode);
-                    }
-                    if (errorSet.contains("noRecordsMatch")) {
-                        log.info("noRecordsMatch: OAI server did not contain any updates");
-                        harvestRow.setHarvestStartTime(new Date());
-                        harvestRow.setHarvestMessage("OAI server did not contain any updates");
-                        harvestRow.setHarvestStatus(HarvestedCollection.STATUS_READY);
-                        harvestedCollection.update(ourContext, harvestRow);
-                        return;
+                final String from = fromDate;
+                final String until = toDate;
+                final String set = oaiSetId;
+                final String prefix = descMDPrefix;
+                log.debug(
+                    "Harvesting request parameters: listRecords " + oaiSource + " " + fromDate + " " + toDate + " " +
+                        oaiSetId + " " + descMDPrefix);
+                Future<ListRecords> nextPage = fetcher.submit(() -> fetchPage(oaiSource, from, until, set, prefix));
+
+                while (nextPage != null) {
+                    ListRecords listRecords = await(nextPage);
+                    log.info("HTTP Request: " + listRecords.getRequestURL());
+                    records = new ArrayList<Element>();
+                    oaiResponse = db.build(listRecords.getDocument());
+
+                    if (listRecords.getErrors() != null && listRecords.getErrors().getLength() > 0) {
+                        for (int i = 0; i < listRecords.getErrors().getLength(); i++) {
+                            String errorCode = listRecords.getErrors().item(i).getAttributes().getNamedItem("code")
+                                                          .getTextContent();
+                            errorSet.add(errorCode);
+                        }
+                        if (errorSet.contains("noRecordsMatch")) {
+                            log.info("noRecordsMatch: OAI server did not contain any updates");
+                            harvestRow.setHarvestStartTime(new Date());
+                            harvestRow.setHarvestMessage("OAI server did not contain any updates");
+                            harvestRow.setHarvestStatus(HarvestedCollection.STATUS_READY);
+                            harvestedCollection.update(ourContext, harvestRow);
+                            return;
+                        } else {
+                            throw new HarvestingException(errorSet.toString());
+                        }
                     } else {
-                        throw new HarvestingException(errorSet.toString());
-                    }
-                } else {
-                    root = oaiResponse.getRootElement();
-                    records.addAll(root.getChild("ListRecords", OAI_NS).getChildren("record", OAI_NS));
-
-                    Element resumptionElement = root.getChild("ListRecords", OAI_NS)
-                                                    .getChild("resumptionToken", OAI_NS);
-                    if (resumptionElement != null && resumptionElement.getAttribute("completeListSize") != null) {
-                        String value = resumptionElement.getAttribute("completeListSize").getValue();
-                        if (StringUtils.isNotBlank(value)) {
-                            totalListSize = Long.parseLong(value);
+                        root = oaiResponse.getRootElement();
+                        records.addAll(root.getChild("ListRecords", OAI_NS).getChildren("record", OAI_NS));
+
+                        Element resumptionElement = root.getChild("ListRecords", OAI_NS)
+                                                        .getChild("resumptionToken", OAI_NS);
+                        if (resumptionElement != null && resumptionElement.getAttribute("completeListSize") != null) {
+                            String value = resumptionElement.getAttribute("completeListSize").getValue();
+                            if (StringUtils.isNotBlank(value)) {
+                                totalListSize = Long.parseLong(value);
+                            }
                         }
                     }
-                }
 
-                // Process the obtained records
-                if (records != null && records.size() > 0) {
-                    log.info("Found " + records.size() + " records to process");
-                    for (Element record : records) {
-                        // check for STOP interrupt from the scheduler
-                        if (HarvestScheduler.getInterrupt() == HarvestScheduler.HARVESTER_INTERRUPT_STOP) {
-                            throw new HarvestingException("Harvest process for " + targetCollection
-                                .getID() + " interrupted by stopping the scheduler.");
+                    // keep going if there are more records to process
+                    resumptionToken = listRecords.getResumptionToken();
+                    if (resumptionToken == null || resumptionToken.length() == 0) {
+                        nextPage = null;
+                    } else {
+                        final String token = resumptionToken;
+                        nextPage = fetcher.submit(() -> fetchPage(oaiSource, token));
+                    }
+
+                    // Process the obtained records
+                    if (records.size() > 0) {
+                        log.info("Found " + records.size() + " records to process");
+                        List<Future<?>> ingested = new ArrayList<>();
+                        for (Element record : records) {
+                            currentRecord++;
+                            String itemOaiID = record.getChild("header", OAI_NS).getChildText("identifier", OAI_NS);
+                            IngestWorker worker = workers.get(Math.floorMod(Objects.hashCode(itemOaiID),
+                                                                            workers.size()));
+                            ingested.add(worker.submit(record, OREPrefix, currentRecord, totalListSize));
                         }
-                        // check for timeout
-                        if (expirationTime.before(new Date())) {
-                            throw new HarvestingException(
-                                "runHarvest method timed out for collection " + targetCollection.getID());
+                        for (Future<?> future : ingested) {
+                            await(future);
                         }
+                    }
 
-                        currentRecord++;
-
-                        processRecord(record, OREPrefix, currentRecord, totalListSize);
-                        ourContext.dispatchEvents();
+                    ourContext.turnOffAuthorisationSystem();
+                    try {
+                        collectionService.update(ourContext, targetCollection);
 
-                        intermediateCommit();
+                        harvestRow.setHarvestMessage(String
+                                                         .format("Collection is currently being harvested " +
+                                                                     "(item %d of %d)",
+                                                                 currentRecord, totalListSize));
+                        harvestedCollection.update(ourContext, harvestRow);
+                    } finally {
+                        //In case of an exception, make sure to restore our authentication state to the previous
+                        // state
+                        ourContext.restoreAuthSystemState();
                     }
+
+                    ourContext.dispatchEvents();
+                    intermediateCommit();
                 }
 
-                // keep going if there are more records to process
-                resumptionToken = listRecords.getResumptionToken();
-                if (resumptionToken == null || resumptionToken.length() == 0) {
-                    listRecords = null;
-                } else {
-                    listRecords = new ListRecords(oaiSource, resumptionToken);
+                for (IngestWorker worker : workers) {
+                    worker.complete();
                 }
-                ourContext.turnOffAuthorisationSystem();
-                try {
-                    collectionService.update(ourContext, targetCollection);
-
-                    harvestRow.setHarvestMessage(String
-                                                     .format("Collection is currently being harvested (item %d of %d)",
-                                                             currentRecord, totalListSize));
-                    harvestedCollection.update(ourContext, harvestRow);
-                } finally {
-                    //In case of an exception, make sure to restore our authentication state to the previous state
-                    ourContext.restoreAuthSystemState();
+                completed = true;
+            } finally {
+                fetcher.shutdownNow();
+                if (!completed) {
+                    // the records still queued are not ingested, those not committed yet are rolled back
+                    cancelled = true;
+                }
+                for (IngestWorker worker : workers) {
+                    worker.shutdown();
                 }
-
-                ourContext.dispatchEvents();
-                intermediateCommit();
             }
         } catch (HarvestingException hex) {
             log.error("Harvesting error occurred while processing an OAI record: " + hex.getMessage(), hex);
@@ -461,6 +508,167 @@ public class OAIHarvester {
         ourContext.setMode(originalMode);
     }
 
+    /**
+     * Request the first page of records from the OAI-PMH provider.
+     *
+     * @param oaiSource      the address of the OAI-PMH provider
+     * @param from           harvest records modified since this date, may be null
+     * @param until          harvest records modified up to this date
+     * @param set            OAI set identifier, null for all records
+     * @param metadataPrefix the OAI metadataPrefix of the desired metadata
+     * @return the response
+     * @throws IOException                  if IO error
+     * @throws ParserConfigurationException XML parsing error
+     * @throws SAXException                 if XML processing error
+     * @throws TransformerException         if XML transformer error
+     */
+    protected ListRecords fetchPage(String oaiSource, String from, String until, String set, String metadataPrefix)
+        throws IOException, ParserConfigurationException, SAXException, TransformerException {
+        throttle(oaiSource);
+        return new ListRecords(oaiSource, from, until, set, metadataPrefix);
+    }
+
+    /**
+     * Request the next page of records from the OAI-PMH provider.
+     *
+     * @param oaiSource       the address of the OAI-PMH provider
+     * @param resumptionToken the token of the previous page
+     * @return the response
+     * @throws IOException                  if IO error
+     * @throws ParserConfigurationException XML parsing error
+     * @throws SAXException                 if XML processing error
+     * @throws TransformerException         if XML transformer error
+     */
+    protected ListRecords fetchPage(String oaiSource, String resumptionToken)
+        throws IOException, ParserConfigurationException, SAXException, TransformerException {
+        throttle(oaiSource);
+        return new ListRecords(oaiSource, resumptionToken);
+    }
+
+    /**
+     * Wait until another request to the host of the OAI-PMH provider is allowed.
+     *
+     * @param oaiSource the address of the OAI-PMH provider
+     */
+    protected void throttle(String oaiSource) {
+        int interval = configurationService.getIntProperty("oai.harvester.requestInterval", 0);
+        if (interval > 0) {
+            String host = null;
+            try {
+                host = new URI(oaiSource).getHost();
+            } catch (URISyntaxException e) {
+                log.debug("Could not parse " + oaiSource, e);
+            }
+            rateLimiters.computeIfAbsent(host != null ? host : oaiSource, h -> RateLimiter.create(1000.0 / interval))
+                        .acquire();
+        }
+    }
+
+    /**
+     * Wait for a task of the harvest to finish.
+     *
+     * @param future the task
+     * @param <T>    the result type of the task
+     * @return the result of the task
+     * @throws Exception the exception thrown by the task
+     */
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Ingests records in a context of its own, on a thread of its own as database sessions are bound to threads,
+     * and commits every <code>commitBatchSize</code> records. Records with the same OAI identifier always go to the
+     * same worker, so they are ingested in the order they were harvested in.
+     */
+    protected class IngestWorker {
+        private final ExecutorService executor = Executors.newSingleThreadExecutor();
+        private final Date expirationTime;
+
+        // only used on the thread of the executor
+        private Context context;
+        private OAIHarvester harvester;
+        private int uncommitted = 0;
+
+        protected IngestWorker(Date expirationTime) throws Exception {
+            this.expirationTime = expirationTime;
+            final EPerson user = ourContext.getCurrentUser();
+            final Collection collection = targetCollection;
+            final HarvestedCollection row = harvestRow;
+            await(executor.submit(() -> {
+                context = new Context(Context.Mode.BATCH_EDIT);
+                context.setCurrentUser(context.reloadEntity(user));
+                harvester = new OAIHarvester(context, context.reloadEntity(collection), context.reloadEntity(row));
+                return null;
+            }));
+        }
+
+        /**
+         * Queue a record for ingest.
+         *
+         * @param record        the record
+         * @param OREPrefix     the metadataprefix value used by the remote PMH server to disseminate ORE
+         * @param currentRecord current record number to log
+         * @param totalListSize The total number of records that this Harvest contains
+         * @return completes once the record was ingested
+         */
+        protected Future<?> submit(Element record, String OREPrefix, long currentRecord, long totalListSize) {
+            return executor.submit(() -> {
+                if (cancelled) {
+                    return null;
+                }
+                // check for STOP interrupt from the scheduler
+                if (HarvestScheduler.getInterrupt() == HarvestScheduler.HARVESTER_INTERRUPT_STOP) {
+                    throw new HarvestingException("Harvest process for " + targetCollection
+                        .getID() + " interrupted by stopping the scheduler.");
+                }
+                // check for timeout
+                if (expirationTime.before(new Date())) {
+                    throw new HarvestingException(
+                        "runHarvest method timed out for collection " + targetCollection.getID());
+                }
+
+                harvester.processRecord(record, OREPrefix, currentRecord, totalListSize);
+                if (++uncommitted >= commitBatchSize) {
+                    harvester.intermediateCommit();
+                    uncommitted = 0;
+                }
+                return null;
+            });
+        }
+
+        /**
+         * Commit the remaining records and close the context.
+         *
+         * @throws Exception if the records could not be committed
+         */
+        protected void complete() throws Exception {
+            await(executor.submit(() -> {
+                context.complete();
+                return null;
+            }));
+        }
+
+        /**
+         * Roll back what was not committed and stop the thread.
+         */
+        protected void shutdown() {
+            executor.submit(() -> {
+                if (context != null && context.isValid()) {
+                    context.abort();
+                }
+            });
+            executor.shutdown();
+        }
+    }
+
     private void intermediateCommit() throws SQLException {
         ourContext.commit();
         reloadRequiredEntities();
@@ -871,6 +1079,7 @@ public class OAIHarvester {
      */
     protected List<Element> getMDrecord(String oaiSource, String itemOaiId, String metadataPrefix)
         throws IOException, ParserConfigurationException, SAXException, TransformerException, HarvestingException {
+        throttle(oaiSource);
         GetRecord getRecord = new GetRecord(oaiSource, itemOaiId, metadataPrefix);
         Set<String> errorSet = new HashSet<String>();
         // If the metadata is not available for this item, can the whole thing
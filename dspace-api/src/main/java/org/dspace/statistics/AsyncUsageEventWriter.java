@@ -0,0 +1,268 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * Writes usage events to the statistics core from background threads, used by {@link SolrLoggerServiceImpl}
+ * when <code>usage-statistics.async.enabled</code> is set.
+ * <p>
+ * The thread recording an event only hands its document to a bounded queue. Worker threads take the documents
+ * from the queue, enrich them (the reverse DNS and GeoIP lookups, and the spider check which may discard them)
+ * and send everything that is queued at that moment to Solr in a single add request. When the queue is full,
+ * new events are either dropped or the recording thread waits for room, depending on the overflow policy.
+ * <p>
+ * The queue only lives in memory: events still queued when the JVM dies are lost, just like events which could
+ * not be sent to Solr.
+ */
+public class AsyncUsageEventWriter {
+
+    private static final Logger log = Logger.getLogger(AsyncUsageEventWriter.class);
+
+    /**
+     * How long a worker waits for an event before checking whether it should stop.
+     */
+    protected static final long POLL_MILLIS = 500;
+
+    protected final SolrServer solr;
+    protected final Predicate<SolrInputDocument> enricher;
+    protected final BlockingQueue<SolrInputDocument> queue;
+    protected final int batchSize;
+    protected final boolean block;
+    protected final ExecutorService workers;
+
+    protected volatile boolean running = true;
+
+    /**
+     * Number of documents taken from the queue and not sent yet.
+     */
+    protected final AtomicInteger inFlight = new AtomicInteger();
+
+    protected final AtomicLong queuedCount = new AtomicLong();
+    protected final AtomicLong droppedCount = new AtomicLong();
+    protected final AtomicLong writtenCount = new AtomicLong();
+    protected final AtomicLong failedCount = new AtomicLong();
+    protected final AtomicLong discardedCount = new AtomicLong();
+
+    /**
+     * Create a writer and start its worker threads.
+     *
+     * @param solr      the statistics core
+     * @param enricher  adds the fields which are expensive to compute to a document, on a worker thread, and
+     *                  returns false if the event should be discarded
+     * @param capacity  maximum number of queued events
+     * @param batchSize maximum number of documents sent in one add request
+     * @param threads   number of worker threads
+     * @param block     true to make recording threads wait when the queue is full, false to drop the event
+     */
+    public AsyncUsageEventWriter(SolrServer solr, Predicate<SolrInputDocument> enricher, int capacity,
+                                 int batchSize, int threads, boolean block) {
+        this.solr = solr;
+        this.enricher = enricher;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.block = block;
+
+        AtomicInteger number = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "usage-event-writer-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.submit(this::work);
+        }
+    }
+
+    /**
+     * Queue a usage event.
+     *
+     * @param doc the document of the event
+     * @return false if the event was dropped because the queue is full
+     */
+    public boolean enqueue(SolrInputDocument doc) {
+        boolean queued;
+        if (block) {
+            try {
+                queue.put(doc);
+                queued = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+        } else {
+            queued = queue.offer(doc);
+        }
+
+        if (queued) {
+            queuedCount.incrementAndGet();
+        } else {
+            long dropped = droppedCount.incrementAndGet();
+            // a full queue means every further event is dropped too, do not flood the log
+            if (dropped == 1 || dropped % 1000 == 0) {
+                log.warn("Usage event queue is full, " + dropped + " usage events dropped so far");
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Worker loop: wait for an event, then send it along with whatever else is queued, up to the batch size.
+     */
+    protected void work() {
+        List<SolrInputDocument> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                SolrInputDocument first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                batch.add(first);
+                inFlight.addAndGet(queue.drainTo(batch, batchSize - 1));
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // never let an exception end the worker
+                log.error("Unexpected failure while writing usage events", e);
+            } finally {
+                inFlight.addAndGet(-batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Enrich and send a batch of documents, without those the enricher discards.
+     *
+     * @param batch the documents
+     */
+    protected void write(List<SolrInputDocument> batch) {
+        List<SolrInputDocument> kept = new ArrayList<>(batch.size());
+        for (SolrInputDocument doc : batch) {
+            try {
+                if (!enricher.test(doc)) {
+                    discardedCount.incrementAndGet();
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                // the event is still worth recording without the extra fields
+                log.warn("Unable to enrich usage event: " + e.getMessage(), e);
+            }
+            kept.add(doc);
+        }
+        if (kept.isEmpty()) {
+            return;
+        }
+        try {
+            solr.add(kept);
+            writtenCount.addAndGet(kept.size());
+            if (log.isDebugEnabled()) {
+                log.debug("Wrote " + kept.size() + " usage events, queue depth=" + queue.size());
+            }
+        } catch (Exception e) {
+            failedCount.addAndGet(kept.size());
+            log.error("Unable to write " + kept.size() + " usage events to the statistics core", e);
+        }
+    }
+
+    /**
+     * Wait until all events queued so far have been sent, or the timeout expires.
+     *
+     * @param timeout maximum time to wait, in milliseconds
+     * @return true if all events queued before the call were sent (or failed, or were discarded)
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean flush(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long queued = queuedCount.get();
+        while (writtenCount.get() + failedCount.get() + discardedCount.get() < queued) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Stop accepting work: the workers send what is still queued and end.
+     *
+     * @param timeout maximum time to wait for the queue to be sent, in milliseconds
+     */
+    public void shutdown(long timeout) {
+        log.info("Writing " + getQueueDepth() + " queued usage events before shutdown");
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                log.warn(getQueueDepth() + " usage events were not written before shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of events queued or being sent
+     */
+    public int getQueueDepth() {
+        return queue.size() + inFlight.get();
+    }
+
+    /**
+     * @return the number of events accepted since startup
+     */
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of events sent to Solr
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return the number of events Solr did not accept
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return the number of events discarded while enriched, spiders when they are not logged
+     */
+    public long getDiscardedCount() {
+        return discardedCount.get();
+    }
+}
@@ -27,13 +27,17 @@ import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.http.HttpServletRequest;
 
 import au.com.bytecode.opencsv.CSVReader;
 import au.com.bytecode.opencsv.CSVWriter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.maxmind.geoip.Location;
 import com.maxmind.geoip.LookupService;
 import org.apache.commons.io.FileUtils;
@@ -45,6 +49,7 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest.METHOD;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
@@ -54,6 +59,7 @@ import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.client.solrj.request.LukeRequest;
 import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.LukeResponse;
+import org.apache.solr.client.solrj.response.PivotField;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.RangeFacet;
 import org.apache.solr.client.solrj.response.SolrPingResponse;
@@ -61,6 +67,7 @@ import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
 import org.apache.solr.common.luke.FieldFlag;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.FacetParams;
@@ -81,6 +88,7 @@ import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.eperson.EPerson;
 import org.dspace.eperson.Group;
+import org.dspace.kernel.mixins.ShutdownService;
 import org.dspace.services.ConfigurationService;
 import org.dspace.statistics.service.SolrLoggerService;
 import org.dspace.statistics.util.DnsLookup;
@@ -99,7 +107,7 @@ import org.springframework.beans.factory.annotation.Autowired;
  * @author kevinvandevelde at atmire.com
  * @author mdiggory at atmire.com
  */
-public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBean {
+public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBean, ShutdownService {
     private static final Logger log = Logger.getLogger(SolrLoggerServiceImpl.class);
     private static final String MULTIPLE_VALUES_SPLITTER = "|";
     protected SolrServer solr;
@@ -112,6 +120,29 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
     protected boolean useProxies;
 
+    /**
+     * Writes usage events from background threads, null unless usage-statistics.async.enabled is set.
+     */
+    protected AsyncUsageEventWriter usageEventWriter;
+
+    /**
+     * Fields holding what the spider check of a usage event needs until the writer threads do it, when usage
+     * events are written asynchronously. They are removed before the event is sent.
+     */
+    protected static final String SPIDER_IP_FIELD = "spider.ip";
+    protected static final String SPIDER_PROXY_IPS_FIELD = "spider.proxyIPs";
+    protected static final String SPIDER_AGENT_FIELD = "spider.userAgent";
+
+    /**
+     * Recent reverse DNS lookups by IP address, an empty name for failed lookups. Null if disabled.
+     */
+    protected Cache<String, String> dnsCache;
+
+    /**
+     * Recent query responses by their request parameters. Null if disabled.
+     */
+    protected Cache<String, QueryResponse> queryCache;
+
     private static List<String> statisticYearCores = new ArrayList<String>();
     private static boolean statisticYearCoresInit = false;
 
@@ -190,6 +221,158 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
         useProxies = configurationService.getBooleanProperty("useProxies");
         log.info("useProxies=" + useProxies);
+
+        long dnsCacheTtl = configurationService.getLongProperty("usage-statistics.dns-cache.ttl", 3600);
+        if (dnsCacheTtl > 0) {
+            dnsCache = CacheBuilder.newBuilder()
+                                   .maximumSize(configurationService.getLongProperty(
+                                       "usage-statistics.dns-cache.size", 10000))
+                                   .expireAfterWrite(dnsCacheTtl, TimeUnit.SECONDS)
+                                   .build();
+        }
+
+        long queryCacheTtl = configurationService.getLongProperty("solr-statistics.query.cache.ttl", 0);
+        if (queryCacheTtl > 0) {
+            queryCache = CacheBuilder.newBuilder()
+                                     .maximumSize(configurationService.getLongProperty(
+                                         "solr-statistics.query.cache.size", 1000))
+                                     .expireAfterWrite(queryCacheTtl, TimeUnit.SECONDS)
+                                     .build();
+        }
+
+        if (solr != null && configurationService.getBooleanProperty("usage-statistics.async.enabled", false)) {
+            String overflow = configurationService.getProperty("usage-statistics.async.overflow", "drop");
+            usageEventWriter = new AsyncUsageEventWriter(
+                solr, this::enrich,
+                configurationService.getIntProperty("usage-statistics.async.queue.size", 10000),
+                configurationService.getIntProperty("usage-statistics.async.batch.size", 100),
+                configurationService.getIntProperty("usage-statistics.async.threads", 1),
+                "block".equalsIgnoreCase(overflow));
+            log.info("Usage events are written asynchronously, overflow policy: " + overflow);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (usageEventWriter != null) {
+            usageEventWriter.shutdown(configurationService.getLongProperty(
+                "usage-statistics.async.shutdown-timeout", 30000));
+        }
+    }
+
+    /**
+     * @return the writer used for usage events, or null if they are written synchronously
+     */
+    public AsyncUsageEventWriter getUsageEventWriter() {
+        return usageEventWriter;
+    }
+
+    /**
+     * Send a usage event document to the statistics core, or queue it when usage events are written
+     * asynchronously.
+     *
+     * @param doc the document
+     * @throws IOException         if IO error
+     * @throws SolrServerException if Solr rejected the document
+     */
+    protected void send(SolrInputDocument doc) throws IOException, SolrServerException {
+        if (usageEventWriter != null) {
+            usageEventWriter.enqueue(doc);
+        } else {
+            solr.add(doc);
+        }
+    }
+
+    /**
+     * Add the fields derived from the IP address of a usage event: its host name and location. These lookups
+     * may be slow, so when usage events are written asynchronously they are done by the writer threads, along
+     * with the spider check.
+     *
+     * @param doc the document of the event, nothing is added if it has no "ip" field
+     * @return false if the event is from a spider and should not be logged
+     */
+    protected boolean enrich(SolrInputDocument doc) {
+        Object ip = doc.getFieldValue("ip");
+        if (ip == null) {
+            return checkSpider(doc, null);
+        }
+        String dns = reverseDns(ip.toString());
+        if (!dns.isEmpty()) {
+            doc.addField("dns", dns);
+        }
+        // Save the location information if valid, save the event without
+        // location information if not valid
+        if (locationService != null) {
+            Location location = locationService.getLocation(ip.toString());
+            if (location != null
+                && !("--".equals(location.countryCode)
+                && location.latitude == -180 && location.longitude == -180)) {
+                try {
+                    doc.addField("continent", LocationUtils
+                        .getContinentCode(location.countryCode));
+                } catch (Exception e) {
+                    log.debug("No continent for country code " + location.countryCode + " of IP " + ip);
+                }
+                doc.addField("countryCode", location.countryCode);
+                doc.addField("city", location.city);
+                doc.addField("latitude", location.latitude);
+                doc.addField("longitude", location.longitude);
+            }
+        }
+        return checkSpider(doc, dns);
+    }
+
+    /**
+     * Do the spider check of a usage event left to the writer threads and add its "isBot" field. The host name
+     * matched against the spider domains is the one found by the reverse DNS lookup of the event.
+     *
+     * @param doc the document of the event, unchanged if it was checked when it was recorded
+     * @param dns the host name of the event, empty or null if unknown
+     * @return false if the event is from a spider and should not be logged
+     */
+    protected boolean checkSpider(SolrInputDocument doc, String dns) {
+        if (!doc.containsKey(SPIDER_IP_FIELD)) {
+            return true;
+        }
+        String clientIP = removeField(doc, SPIDER_IP_FIELD);
+        String proxyIPs = removeField(doc, SPIDER_PROXY_IPS_FIELD);
+        String agent = removeField(doc, SPIDER_AGENT_FIELD);
+        boolean isSpiderBot = SpiderDetector.isSpider(clientIP, proxyIPs, StringUtils.trimToNull(dns), agent);
+        if (isSpiderBot && !configurationService.getBooleanProperty("usage-statistics.logBots", true)) {
+            return false;
+        }
+        if (doc.containsKey("ip")) {
+            doc.addField("isBot", isSpiderBot);
+        }
+        return true;
+    }
+
+    private static String removeField(SolrInputDocument doc, String name) {
+        SolrInputField field = doc.removeField(name);
+        return field != null && field.getValue() != null ? field.getValue().toString() : null;
+    }
+
+    /**
+     * Look up the host name of an IP address, using the cache of recent lookups if enabled.
+     *
+     * @param ip the IP address
+     * @return the lowercased host name, the address if it has none, or an empty string if the lookup failed
+     */
+    protected String reverseDns(String ip) {
+        String dns = dnsCache != null ? dnsCache.getIfPresent(ip) : null;
+        if (dns == null) {
+            try {
+                dns = DnsLookup.reverseDns(ip).toLowerCase();
+            } catch (Exception e) {
+                log.info("Failed DNS Lookup for IP:" + ip);
+                log.debug(e.getMessage(), e);
+                dns = "";
+            }
+            if (dnsCache != null) {
+                dnsCache.put(ip, dns);
+            }
+        }
+        return dns;
     }
 
     @Override
@@ -223,7 +406,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             doc1.addField("statistics_type", StatisticsType.VIEW.text());
 
 
-            solr.add(doc1);
+            send(doc1);
             //commits are executed automatically using the solr autocommit
 //            solr.commit(false, false);
 
@@ -258,7 +441,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
             doc1.addField("statistics_type", StatisticsType.VIEW.text());
 
-            solr.add(doc1);
+            send(doc1);
             // commits are executed automatically using the solr autocommit
             // solr.commit(false, false);
 
@@ -281,7 +464,8 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
      */
     protected SolrInputDocument getCommonSolrDoc(DSpaceObject dspaceObject, HttpServletRequest request,
                                                  EPerson currentUser) throws SQLException {
-        boolean isSpiderBot = request != null && SpiderDetector.isSpider(request);
+        // when usage events are written asynchronously, the spider check is done by the writer threads
+        boolean isSpiderBot = usageEventWriter == null && request != null && SpiderDetector.isSpider(request);
         if (isSpiderBot &&
             !configurationService.getBooleanProperty("usage-statistics.logBots", true)) {
             return null;
@@ -318,37 +502,19 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
                 doc1.addField("referrer", request.getHeader("referer"));
             }
 
-            try {
-                String dns = DnsLookup.reverseDns(ip);
-                doc1.addField("dns", dns.toLowerCase());
-            } catch (Exception e) {
-                log.info("Failed DNS Lookup for IP:" + ip);
-                log.debug(e.getMessage(), e);
-            }
             if (request.getHeader("User-Agent") != null) {
                 doc1.addField("userAgent", request.getHeader("User-Agent"));
             }
-            doc1.addField("isBot", isSpiderBot);
-            // Save the location information if valid, save the event without
-            // location information if not valid
-            if (locationService != null) {
-                Location location = locationService.getLocation(ip);
-                if (location != null
-                    && !("--".equals(location.countryCode)
-                    && location.latitude == -180 && location.longitude == -180)) {
-                    try {
-                        doc1.addField("continent", LocationUtils
-                            .getContinentCode(location.countryCode));
-                    } catch (Exception e) {
-                        System.out
-                            .println("COUNTRY ERROR: " + location.countryCode);
-                    }
-                    doc1.addField("countryCode", location.countryCode);
-                    doc1.addField("city", location.city);
-                    doc1.addField("latitude", location.latitude);
-                    doc1.addField("longitude", location.longitude);
-
-
+            if (usageEventWriter == null) {
+                doc1.addField("isBot", isSpiderBot);
+                enrich(doc1);
+            } else {
+                doc1.addField(SPIDER_IP_FIELD, request.getRemoteAddr());
+                if (request.getHeader("X-Forwarded-For") != null) {
+                    doc1.addField(SPIDER_PROXY_IPS_FIELD, request.getHeader("X-Forwarded-For"));
+                }
+                if (request.getHeader("User-Agent") != null) {
+                    doc1.addField(SPIDER_AGENT_FIELD, request.getHeader("User-Agent"));
                 }
             }
         }
@@ -369,7 +535,8 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
     protected SolrInputDocument getCommonSolrDoc(DSpaceObject dspaceObject, String ip, String userAgent,
                                                  String xforwardedfor, EPerson currentUser) throws SQLException {
-        boolean isSpiderBot = SpiderDetector.isSpider(ip);
+        // when usage events are written asynchronously, the spider check is done by the writer threads
+        boolean isSpiderBot = usageEventWriter == null && SpiderDetector.isSpider(ip);
         if (isSpiderBot &&
             !configurationService.getBooleanProperty("usage-statistics.logBots", true)) {
             return null;
@@ -377,6 +544,9 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
         SolrInputDocument doc1 = new SolrInputDocument();
         // Save our basic info that we already have
+        if (usageEventWriter != null) {
+            doc1.addField(SPIDER_IP_FIELD, ip);
+        }
 
         if (!isUseProxies() && xforwardedfor != null) {
             log.warn(
@@ -397,38 +567,12 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
             doc1.addField("ip", ip);
 
-            try {
-                String dns = DnsLookup.reverseDns(ip);
-                doc1.addField("dns", dns.toLowerCase());
-            } catch (Exception e) {
-                log.info("Failed DNS Lookup for IP:" + ip);
-                log.debug(e.getMessage(), e);
-            }
             if (userAgent != null) {
                 doc1.addField("userAgent", userAgent);
             }
-            doc1.addField("isBot", isSpiderBot);
-            // Save the location information if valid, save the event without
-            // location information if not valid
-            if (locationService != null) {
-                Location location = locationService.getLocation(ip);
-                if (location != null
-                    && !("--".equals(location.countryCode)
-                    && location.latitude == -180 && location.longitude == -180)) {
-                    try {
-                        doc1.addField("continent", LocationUtils
-                            .getContinentCode(location.countryCode));
-                    } catch (Exception e) {
-                        System.out
-                            .println("COUNTRY ERROR: " + location.countryCode);
-                    }
-                    doc1.addField("countryCode", location.countryCode);
-                    doc1.addField("city", location.city);
-                    doc1.addField("latitude", location.latitude);
-                    doc1.addField("longitude", location.longitude);
-
-
-                }
+            if (usageEventWriter == null) {
+                doc1.addField("isBot", isSpiderBot);
+                enrich(doc1);
             }
         }
 
@@ -488,7 +632,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
                 solrDoc.addField("page", page);
             }
 
-            solr.add(solrDoc);
+            send(solrDoc);
         } catch (RuntimeException re) {
             throw re;
         } catch (Exception e) {
@@ -536,7 +680,7 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
                 solrDoc.addField("actor", usageWorkflowEvent.getActor().getID());
             }
 
-            solr.add(solrDoc);
+            send(solrDoc);
         } catch (Exception e) {
             //Log the exception, no need to send it through, the workflow shouldn't crash because of this !
             log.error(e.getMessage(), e);
@@ -889,6 +1033,80 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
         return result;
     }
 
+    @Override
+    public Map<String, ObjectCount[]> queryFacetFieldDate(String query, String filterQuery, String facetField,
+                                                          int max, String dateType, String dateStart,
+                                                          String dateEnd, boolean showTotal, Context context)
+        throws SolrServerException {
+        Map<String, ObjectCount[]> result = new LinkedHashMap<>();
+        // The top values and the dates
+        QueryResponse queryResponse = query(query, filterQuery, facetField, 0, max,
+                                            dateType, dateStart, dateEnd, null, null, false);
+        if (queryResponse == null || queryResponse.getFacetField(facetField) == null
+            || queryResponse.getFacetField(facetField).getValueCount() == 0) {
+            return result;
+        }
+        List<FacetField.Count> values = queryResponse.getFacetField(facetField).getValues();
+        FacetField dateFacet = queryResponse.getFacetDate("time");
+        List<FacetField.Count> dates = dateFacet != null && dateFacet.getValues() != null
+            ? dateFacet.getValues() : new ArrayList<FacetField.Count>();
+
+        // Then every value in every date, as facet queries of a single request
+        List<String> facetQueries = new ArrayList<String>();
+        for (FacetField.Count value : values) {
+            String valueQuery = facetField + ":" + ClientUtils.escapeQueryChars(value.getName());
+            for (FacetField.Count date : dates) {
+                // The same range as the date facet: from the start of the gap up to, not including, its end
+                facetQueries.add(valueQuery + " AND time:[\"" + date.getName() + "\" TO \"" + date.getName()
+                                     + "+1" + dateType + "\"}");
+            }
+            if (showTotal) {
+                facetQueries.add(valueQuery);
+            }
+        }
+        Map<String, Integer> counts = queryFacetQuery(query, filterQuery, facetQueries);
+
+        int facetQuery = 0;
+        for (FacetField.Count value : values) {
+            ObjectCount[] valueCounts = new ObjectCount[dates.size() + (showTotal ? 1 : 0)];
+            for (int i = 0; i < valueCounts.length; i++) {
+                valueCounts[i] = new ObjectCount();
+                Integer count = counts.get(facetQueries.get(facetQuery++));
+                valueCounts[i].setCount(count != null ? count : 0);
+                if (i < dates.size()) {
+                    valueCounts[i].setValue(getDateView(dates.get(i).getName(), dateType, context));
+                } else {
+                    valueCounts[i].setValue("total");
+                }
+            }
+            result.put(value.getName(), valueCounts);
+        }
+        return result;
+    }
+
+    @Override
+    public List<PivotField> queryFacetPivot(String query, String filterQuery, String facetField, String pivotField)
+        throws SolrServerException {
+        if (solr == null) {
+            return new ArrayList<PivotField>();
+        }
+
+        SolrQuery solrQuery = new SolrQuery().setRows(0).setQuery(query).setFacet(true)
+                                             .setFacetMinCount(1).setFacetLimit(-1);
+        solrQuery.addFacetPivotField(facetField + "," + pivotField);
+        solrQuery.setParam(FacetParams.FACET_PIVOT_MINCOUNT, "1");
+        addAdditionalSolrYearCores(solrQuery);
+        addDefaultFilterQueries(solrQuery);
+        if (filterQuery != null) {
+            solrQuery.addFilterQuery(filterQuery);
+        }
+
+        QueryResponse response = runQuery(solrQuery);
+        List<PivotField> pivots = response.getFacetPivot() != null
+            ? response.getFacetPivot().get(facetField + "," + pivotField) : null;
+        return pivots != null ? pivots : new ArrayList<PivotField>();
+    }
+
     @Override
     public Map<String, Integer> queryFacetQuery(String query,
                                                 String filterQuery, List<String> facetQueries)
@@ -1001,6 +1219,25 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             solrQuery.setFacetLimit(max);
         }
 
+        if (sort != null) {
+            solrQuery.setSortField(sort, (ascending ? SolrQuery.ORDER.asc : SolrQuery.ORDER.desc));
+        }
+
+        addDefaultFilterQueries(solrQuery);
+
+        if (filterQuery != null) {
+            solrQuery.addFilterQuery(filterQuery);
+        }
+
+        return runQuery(solrQuery);
+    }
+
+    /**
+     * Add the filter queries every statistics query uses: the spider and bundle filters of the configuration.
+     *
+     * @param solrQuery the query to filter
+     */
+    protected void addDefaultFilterQueries(SolrQuery solrQuery) {
         // A filter is used instead of a regular query to improve
         // performance and ensure the search result ordering will
         // not be influenced
@@ -1016,10 +1253,6 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
             solrQuery.addFilterQuery("-isBot:true");
         }
 
-        if (sort != null) {
-            solrQuery.setSortField(sort, (ascending ? SolrQuery.ORDER.asc : SolrQuery.ORDER.desc));
-        }
-
         String[] bundles = configurationService.getArrayProperty("solr-statistics.query.filter.bundles");
         if (bundles != null && bundles.length > 0) {
 
@@ -1042,19 +1275,32 @@ public class SolrLoggerServiceImpl implements SolrLoggerService, InitializingBea
 
             solrQuery.addFilterQuery(bundleQuery.toString());
         }
+    }
 
-        if (filterQuery != null) {
-            solrQuery.addFilterQuery(filterQuery);
+    /**
+     * Run a query, or give back the remembered response of the same query.
+     *
+     * @param solrQuery the query to run
+     * @return the response of the Solr server
+     * @throws SolrServerException Exception from the Solr server to the solrj Java client.
+     */
+    protected QueryResponse runQuery(SolrQuery solrQuery) throws SolrServerException {
+        // the parameters include the relative dates, so cached reports move on when they expire
+        String key = solrQuery.toString();
+        QueryResponse response = queryCache != null ? queryCache.getIfPresent(key) : null;
+        if (response != null) {
+            return response;
         }
-
-        QueryResponse response;
         try {
-            // solr.set
-            response = solr.query(solrQuery);
+            // the facet queries of a whole report may not fit in a URL
+            response = solr.query(solrQuery, solrQuery.getFacetQuery() != null ? METHOD.POST : METHOD.GET);
         } catch (SolrServerException e) {
-            System.err.println("Error using query " + query);
+            System.err.println("Error using query " + solrQuery.getQuery());
             throw e;
         }
+        if (queryCache != null) {
+            queryCache.put(key, response);
+        }
         return response;
     }
 
@@ -0,0 +1,101 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import org.dspace.core.Context;
+import org.dspace.core.ReloadableEntity;
+
+/**
+ * The number of views of one period, folded from the view events in the statistics Solr core.
+ * <p>
+ * The period is a day ({@code yyyy-MM-dd}) or, once the days of a month have been folded, a month
+ * ({@code yyyy-MM}), so both sort (and can be selected) as strings. A rollup without an object
+ * counts all the objects of its type, a rollup without a country counts all the countries.
+ *
+ * @see org.dspace.statistics.service.UsageRollupService
+ */
+@Entity
+@Table(name = "statistics_rollup")
+public class UsageRollup implements ReloadableEntity<Integer> {
+
+    @Id
+    @Column(name = "rollup_id")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "statistics_rollup_seq")
+    @SequenceGenerator(name = "statistics_rollup_seq", sequenceName = "statistics_rollup_seq", allocationSize = 1)
+    private Integer id;
+
+    @Column(name = "period", length = 10, nullable = false)
+    private String period;
+
+    @Column(name = "dso_type", nullable = false)
+    private int dsoType;
+
+    @Column(name = "dso_id", length = 36)
+    private String dsoId;
+
+    @Column(name = "country_code", length = 8)
+    private String countryCode;
+
+    @Column(name = "views", nullable = false)
+    private long views;
+
+    /**
+     * Protected constructor, create object using:
+     * {@link org.dspace.statistics.service.UsageRollupService#rollup(Context)}
+     */
+    protected UsageRollup() {
+    }
+
+    protected UsageRollup(String period, int dsoType, String dsoId, String countryCode, long views) {
+        this.period = period;
+        this.dsoType = dsoType;
+        this.dsoId = dsoId;
+        this.countryCode = countryCode;
+        this.views = views;
+    }
+
+    @Override
+    public Integer getID() {
+        return id;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public int getDsoType() {
+        return dsoType;
+    }
+
+    /**
+     * @return the UUID (or legacy id) of the viewed object, null when the views of all objects of the type are
+     * counted
+     */
+    public String getDsoId() {
+        return dsoId;
+    }
+
+    /**
+     * @return the country of the views, null when the views of all countries are counted
+     */
+    public String getCountryCode() {
+        return countryCode;
+    }
+
+    public long getViews() {
+        return views;
+    }
+}
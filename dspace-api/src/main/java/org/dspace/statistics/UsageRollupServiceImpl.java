@@ -0,0 +1,399 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.PivotField;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.DSpaceObjectLegacySupport;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.dspace.statistics.dao.UsageRollupDAO;
+import org.dspace.statistics.service.SolrLoggerService;
+import org.dspace.statistics.service.UsageRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Service implementation for the usage statistics rollups.
+ * This class is responsible for all business logic calls for the UsageRollup object and is autowired by spring.
+ * This class should never be accessed directly.
+ * <p>
+ * All the days are UTC days, as are the dates of the statistics Solr core.
+ */
+public class UsageRollupServiceImpl implements UsageRollupService {
+    private static final Logger log = Logger.getLogger(UsageRollupServiceImpl.class);
+
+    /**
+     * The types of the objects views are logged for
+     */
+    protected static final int[] TYPES = {Constants.BITSTREAM, Constants.ITEM, Constants.COLLECTION,
+        Constants.COMMUNITY};
+
+    /**
+     * Only the views, old data (where no statistics type is present) are views as well
+     */
+    protected static final String VIEWS = "-(statistics_type:[* TO *] AND -statistics_type:"
+        + SolrLoggerServiceImpl.StatisticsType.VIEW.text() + ")";
+
+    protected static final String DAY = "yyyy-MM-dd";
+    protected static final String MONTH = "yyyy-MM";
+
+    @Autowired(required = true)
+    protected UsageRollupDAO usageRollupDAO;
+
+    @Autowired(required = true)
+    protected SolrLoggerService solrLoggerService;
+
+    @Autowired(required = true)
+    protected ConfigurationService configurationService;
+
+    protected UsageRollupServiceImpl() {
+
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return configurationService.getBooleanProperty("solr-statistics.rollup.enabled", false);
+    }
+
+    @Override
+    public void rollup(Context context) throws SQLException, SolrServerException {
+        Calendar today = truncate(Calendar.getInstance(TimeZone.getTimeZone("UTC")), Calendar.DAY_OF_MONTH);
+
+        Calendar day = getRolledUp(context);
+        if (day == null) {
+            // Nothing was rolled up yet, start at the first view
+            QueryResponse first = solrLoggerService.query("*:*", VIEWS, null, 1, -1, null, null, null, null,
+                                                          "time", true);
+            if (first == null || first.getResults().isEmpty()) {
+                return;
+            }
+            day = truncate(toCalendar((Date) first.getResults().get(0).getFieldValue("time")),
+                           Calendar.DAY_OF_MONTH);
+        }
+
+        for (; day.before(today); day.add(Calendar.DAY_OF_MONTH, 1)) {
+            rollupDay(context, day);
+            context.commit();
+        }
+
+        // Fold the days of the months before these into their months
+        Calendar daily = truncate(today, Calendar.MONTH);
+        daily.add(Calendar.MONTH, -configurationService.getIntProperty("solr-statistics.rollup.daily.months", 3));
+        String firstDay = usageRollupDAO.findFirstDay(context);
+        while (firstDay != null && parse(firstDay).before(daily)) {
+            String month = firstDay.substring(0, MONTH.length());
+            for (Object[] sum : usageRollupDAO.sumDays(context, month)) {
+                usageRollupDAO.create(context, new UsageRollup(month, (Integer) sum[0], (String) sum[1],
+                                                               (String) sum[2], ((Number) sum[3]).longValue()));
+            }
+            usageRollupDAO.deleteDays(context, month);
+            context.commit();
+            log.info("Folded the usage statistics rollups of " + month);
+            firstDay = usageRollupDAO.findFirstDay(context);
+        }
+    }
+
+    /**
+     * Count the views of a day per object, per object and country, per type and per type and country.
+     *
+     * @param context The relevant DSpace Context.
+     * @param day     the day to count the views of
+     * @throws SQLException        An exception that provides information on a database access error or other errors.
+     * @throws SolrServerException Exception from the Solr server to the solrj Java client.
+     */
+    protected void rollupDay(Context context, Calendar day) throws SQLException, SolrServerException {
+        String period = format(day, DAY);
+        Calendar next = (Calendar) day.clone();
+        next.add(Calendar.DAY_OF_MONTH, 1);
+        String filterQuery = VIEWS + " AND time:[" + toSolrDate(day) + " TO " + toSolrDate(next) + "}";
+
+        for (int type : TYPES) {
+            long views = 0;
+            Map<String, Long> countries = new HashMap<>();
+            for (PivotField object : solrLoggerService.queryFacetPivot("type:" + type, filterQuery, "id",
+                                                                       "countryCode")) {
+                String dsoId = String.valueOf(object.getValue());
+                usageRollupDAO.create(context, new UsageRollup(period, type, dsoId, null, object.getCount()));
+                if (object.getPivot() != null) {
+                    for (PivotField country : object.getPivot()) {
+                        String countryCode = String.valueOf(country.getValue());
+                        usageRollupDAO.create(context, new UsageRollup(period, type, dsoId, countryCode,
+                                                                       country.getCount()));
+                        Long count = countries.get(countryCode);
+                        countries.put(countryCode, (count != null ? count : 0) + country.getCount());
+                    }
+                }
+                views += object.getCount();
+            }
+            for (Map.Entry<String, Long> country : countries.entrySet()) {
+                usageRollupDAO.create(context, new UsageRollup(period, type, null, country.getKey(),
+                                                               country.getValue()));
+            }
+            // Also when there were no views, it marks the day as rolled up
+            usageRollupDAO.create(context, new UsageRollup(period, type, null, null, views));
+        }
+        log.info("Rolled up the usage statistics of " + period);
+    }
+
+    @Override
+    public ObjectCount[] queryFacetDate(Context context, DSpaceObject dso, String query, String filterQuery,
+                                        String dateType, String dateStart, String dateEnd, boolean showTotal)
+        throws SQLException, SolrServerException {
+        int field;
+        if ("DAY".equals(dateType)) {
+            field = Calendar.DAY_OF_MONTH;
+        } else if ("MONTH".equals(dateType)) {
+            field = Calendar.MONTH;
+        } else if ("YEAR".equals(dateType)) {
+            field = Calendar.YEAR;
+        } else {
+            return null;
+        }
+        if (dateStart == null || !dateStart.matches("[-+]?[0-9]+")
+            || dateEnd == null || !dateEnd.matches("[-+]?[0-9]+")) {
+            return null;
+        }
+        Calendar rolledUp = getRolledUp(context);
+        if (rolledUp == null) {
+            return null;
+        }
+
+        // The same gaps as the date facet of the Solr query, from NOW/MONTH-6MONTHS up to NOW/MONTH+1MONTH
+        Calendar now = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Calendar start = truncate(now, field);
+        start.add(field, Integer.parseInt(dateStart));
+        Calendar end = truncate(now, field);
+        end.add(field, Integer.parseInt(dateEnd));
+        if (field == Calendar.DAY_OF_MONTH) {
+            // The days of the folded months cannot be told apart anymore
+            String lastMonth = usageRollupDAO.findLastMonth(context);
+            if (lastMonth != null) {
+                Calendar folded = parse(lastMonth);
+                folded.add(Calendar.MONTH, 1);
+                if (start.before(folded)) {
+                    return null;
+                }
+            }
+        }
+        List<Calendar> gaps = new ArrayList<>();
+        for (Calendar gap = (Calendar) start.clone(); gap.before(end); gap.add(field, 1)) {
+            gaps.add((Calendar) gap.clone());
+        }
+        long[] counts = new long[gaps.size()];
+
+        // The closed days from the rollups
+        if (start.before(rolledUp)) {
+            Calendar to = end.before(rolledUp) ? end : rolledUp;
+            Map<String, Long> periods = usageRollupDAO.sumByPeriod(context, dso.getType(), getIds(dso),
+                                                                   toPeriod(start), toPeriod(to));
+            for (Map.Entry<String, Long> period : periods.entrySet()) {
+                int gap = findGap(gaps, parse(period.getKey()));
+                if (gap != -1) {
+                    counts[gap] += period.getValue();
+                }
+            }
+        }
+
+        // The rest from the views themselves
+        Calendar today = truncate(now, Calendar.DAY_OF_MONTH);
+        Calendar from = start.before(rolledUp) ? rolledUp : start;
+        if (from.before(end) && !from.after(today)) {
+            long days = (today.getTimeInMillis() - from.getTimeInMillis()) / (24 * 60 * 60 * 1000L);
+            QueryResponse response = solrLoggerService.query(query, filterQuery, null, 0, -1, "DAY",
+                                                             "-" + days, "+1", null, null, false);
+            FacetField dates = response != null ? response.getFacetDate("time") : null;
+            if (dates != null && dates.getValues() != null) {
+                for (FacetField.Count date : dates.getValues()) {
+                    int gap = findGap(gaps, parseSolrDate(date.getName()));
+                    if (gap != -1) {
+                        counts[gap] += date.getCount();
+                    }
+                }
+            }
+        }
+
+        // Like the date facet only the dates with views are given back
+        List<ObjectCount> result = new ArrayList<>();
+        long total = 0;
+        SimpleDateFormat label = new SimpleDateFormat(
+            field == Calendar.DAY_OF_MONTH ? "dd-MM-yyyy" : field == Calendar.MONTH ? "MMMM yyyy" : "yyyy",
+            context.getCurrentLocale());
+        label.setTimeZone(TimeZone.getTimeZone("UTC"));
+        for (int i = 0; i < gaps.size(); i++) {
+            if (0 < counts[i]) {
+                ObjectCount count = new ObjectCount();
+                count.setValue(label.format(gaps.get(i).getTime()));
+                count.setCount(counts[i]);
+                result.add(count);
+                total += counts[i];
+            }
+        }
+        if (showTotal) {
+            ObjectCount count = new ObjectCount();
+            count.setValue("total");
+            count.setCount(total);
+            result.add(count);
+        }
+        return result.toArray(new ObjectCount[result.size()]);
+    }
+
+    @Override
+    public ObjectCount[] queryFacetField(Context context, DSpaceObject dso, String query, String filterQuery,
+                                        String facetField, int max) throws SQLException, SolrServerException {
+        Calendar rolledUp = getRolledUp(context);
+        if (rolledUp == null) {
+            return null;
+        }
+
+        // The closed days from the rollups
+        Map<String, Long> counts;
+        if ("id".equals(facetField)) {
+            counts = usageRollupDAO.sumByDsoId(context, dso.getType(), getIds(dso), toPeriod(rolledUp));
+        } else if ("countryCode".equals(facetField)) {
+            counts = usageRollupDAO.sumByCountry(context, dso.getType(), getIds(dso), toPeriod(rolledUp));
+        } else {
+            return null;
+        }
+
+        // The rest from the views themselves
+        ObjectCount[] recent = solrLoggerService.queryFacetField(query, filterQuery + " AND time:["
+            + toSolrDate(rolledUp) + " TO *]", facetField, Integer.MAX_VALUE, false, null);
+        for (ObjectCount count : recent) {
+            Long rolledUpCount = counts.get(count.getValue());
+            counts.put(count.getValue(), (rolledUpCount != null ? rolledUpCount : 0) + count.getCount());
+        }
+
+        ObjectCount[] result = new ObjectCount[counts.size()];
+        int i = 0;
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            result[i] = new ObjectCount();
+            result[i].setValue(count.getKey());
+            result[i].setCount(count.getValue());
+            i++;
+        }
+        Arrays.sort(result, (a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return max != -1 && max < result.length ? Arrays.copyOf(result, max) : result;
+    }
+
+    /**
+     * @param context The relevant DSpace Context.
+     * @return the first day that is not rolled up, or null when nothing was rolled up yet
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    protected Calendar getRolledUp(Context context) throws SQLException {
+        String lastPeriod = usageRollupDAO.findLastPeriod(context);
+        if (lastPeriod == null) {
+            return null;
+        }
+        Calendar rolledUp = parse(lastPeriod);
+        rolledUp.add(lastPeriod.length() == MONTH.length() ? Calendar.MONTH : Calendar.DAY_OF_MONTH, 1);
+        return rolledUp;
+    }
+
+    /**
+     * @param dso the viewed object
+     * @return its UUID and its legacy id, the views of both are counted
+     */
+    protected List<String> getIds(DSpaceObject dso) {
+        List<String> ids = new ArrayList<>();
+        ids.add(dso.getID().toString());
+        if (dso instanceof DSpaceObjectLegacySupport && ((DSpaceObjectLegacySupport) dso).getLegacyId() != null) {
+            ids.add(String.valueOf(((DSpaceObjectLegacySupport) dso).getLegacyId()));
+        }
+        return ids;
+    }
+
+    /**
+     * @param gaps the starts of the gaps, in order
+     * @param date the date to find the gap of
+     * @return the index of the gap the date falls in, or -1 when it falls in none
+     */
+    protected int findGap(List<Calendar> gaps, Calendar date) {
+        for (int i = gaps.size() - 1; 0 <= i; i--) {
+            if (!gaps.get(i).after(date)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The period to select the rollups from or up to: a month when the day starts one, so the rollup of the month
+     * is selected from it, but not up to it.
+     *
+     * @param day the day
+     * @return the period of the day
+     */
+    protected String toPeriod(Calendar day) {
+        return format(day, day.get(Calendar.DAY_OF_MONTH) == 1 ? MONTH : DAY);
+    }
+
+    protected Calendar truncate(Calendar calendar, int field) {
+        Calendar truncated = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        truncated.clear();
+        truncated.set(calendar.get(Calendar.YEAR), field == Calendar.YEAR ? Calendar.JANUARY
+            : calendar.get(Calendar.MONTH), field == Calendar.DAY_OF_MONTH ? calendar.get(Calendar.DAY_OF_MONTH) : 1);
+        return truncated;
+    }
+
+    protected Calendar toCalendar(Date date) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTime(date);
+        return calendar;
+    }
+
+    protected String format(Calendar calendar, String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(calendar.getTime());
+    }
+
+    protected String toSolrDate(Calendar calendar) {
+        return format(calendar, SolrLoggerServiceImpl.DATE_FORMAT_DCDATE);
+    }
+
+    /**
+     * @param period a day or a month
+     * @return the start of the period
+     */
+    protected Calendar parse(String period) {
+        return parse(period, period.length() == MONTH.length() ? MONTH : DAY);
+    }
+
+    protected Calendar parseSolrDate(String date) {
+        return parse(date, SolrLoggerServiceImpl.DATE_FORMAT_DCDATE);
+    }
+
+    protected Calendar parse(String date, String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return toCalendar(format.parse(date));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Unexpected date " + date, e);
+        }
+    }
+}
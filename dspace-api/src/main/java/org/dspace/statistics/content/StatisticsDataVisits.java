@@ -45,6 +45,7 @@ import org.dspace.statistics.content.filter.StatisticsFilter;
 import org.dspace.statistics.content.filter.StatisticsSolrDateFilter;
 import org.dspace.statistics.factory.StatisticsServiceFactory;
 import org.dspace.statistics.service.SolrLoggerService;
+import org.dspace.statistics.service.UsageRollupService;
 import org.dspace.statistics.util.LocationUtils;
 
 /**
@@ -73,6 +74,8 @@ public class StatisticsDataVisits extends StatisticsData {
 
     protected final HandleService handleService = HandleServiceFactory.getInstance().getHandleService();
     protected final SolrLoggerService solrLoggerService = StatisticsServiceFactory.getInstance().getSolrLoggerService();
+    protected final UsageRollupService usageRollupService =
+        StatisticsServiceFactory.getInstance().getUsageRollupService();
     protected final BitstreamService bitstreamService = ContentServiceFactory.getInstance().getBitstreamService();
     protected final ItemService itemService = ContentServiceFactory.getInstance().getItemService();
     protected final CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
@@ -159,6 +162,8 @@ public class StatisticsDataVisits extends StatisticsData {
             showTotal = true;
         }
 
+        // Only the views of a single object without any other filter than its dates are in the rollups
+        boolean filtered = !getFilters().isEmpty();
         if (dateFacet != null && dateFacet.getActualStartDate() != null
             && dateFacet.getActualEndDate() != null) {
             StatisticsSolrDateFilter dateFilter = new StatisticsSolrDateFilter();
@@ -208,12 +213,23 @@ public class StatisticsDataVisits extends StatisticsData {
                 if (dataSetQuery.getQueries().size() != 1) {
                     // TODO: do this
                 } else {
-                    String query = dataSetQuery.getQueries().get(0).getQuery();
+                    Query dsoQuery = dataSetQuery.getQueries().get(0);
+                    String query = dsoQuery.getQuery();
                     if (dataSetQuery.getMax() == -1) {
                         // We are asking from our current query all the visits faceted by date
-                        ObjectCount[] results = solrLoggerService
-                            .queryFacetDate(query, filterQuery, dataSetQuery.getMax(), dateFacet.getDateType(),
-                                            dateFacet.getStartDate(), dateFacet.getEndDate(), showTotal, context);
+                        ObjectCount[] results = null;
+                        if (!filtered && isRolledUp(dsoQuery)) {
+                            results = usageRollupService
+                                .queryFacetDate(context, dsoQuery.getDso(), query, filterQuery,
+                                                dateFacet.getDateType(), dateFacet.getStartDate(),
+                                                dateFacet.getEndDate(), showTotal);
+                        }
+                        if (results == null) {
+                            results = solrLoggerService
+                                .queryFacetDate(query, filterQuery, dataSetQuery.getMax(), dateFacet.getDateType(),
+                                                dateFacet.getStartDate(), dateFacet.getEndDate(), showTotal,
+                                                context);
+                        }
                         dataset = new Dataset(1, results.length);
                         // Now that we have our results put em in a matrix
                         for (int j = 0; j < results.length; j++) {
@@ -226,27 +242,24 @@ public class StatisticsDataVisits extends StatisticsData {
                         dataset.setRowLabelAttr(0, getAttributes(dataSetQuery.getName(), dataSetQuery, context));
                     } else {
                         // We need to get the max objects and the next part of the query on them (next part beeing
-                        // the datasettimequery
-                        ObjectCount[] maxObjectCounts = solrLoggerService
-                            .queryFacetField(query, filterQuery, dataSetQuery.getFacetField(), dataSetQuery.getMax(),
-                                             false, null);
-                        for (int j = 0; j < maxObjectCounts.length; j++) {
-                            ObjectCount firstCount = maxObjectCounts[j];
-                            String newQuery = dataSetQuery.getFacetField() + ": " + ClientUtils
-                                .escapeQueryChars(firstCount.getValue()) + " AND " + query;
-                            ObjectCount[] maxDateFacetCounts = solrLoggerService
-                                .queryFacetDate(newQuery, filterQuery, dataSetQuery.getMax(), dateFacet.getDateType(),
-                                                dateFacet.getStartDate(), dateFacet.getEndDate(), showTotal, context);
-
+                        // the datasettimequery), all of them at once
+                        Map<String, ObjectCount[]> maxObjectCounts = solrLoggerService
+                            .queryFacetFieldDate(query, filterQuery, dataSetQuery.getFacetField(),
+                                                 dataSetQuery.getMax(), dateFacet.getDateType(),
+                                                 dateFacet.getStartDate(), dateFacet.getEndDate(), showTotal,
+                                                 context);
+                        int j = 0;
+                        for (Map.Entry<String, ObjectCount[]> firstCount : maxObjectCounts.entrySet()) {
+                            ObjectCount[] maxDateFacetCounts = firstCount.getValue();
 
                             // Make sure we have a dataSet
                             if (dataset == null) {
-                                dataset = new Dataset(maxObjectCounts.length, maxDateFacetCounts.length);
+                                dataset = new Dataset(maxObjectCounts.size(), maxDateFacetCounts.length);
                             }
 
                             // TODO: this is a very dirty fix change this ! ! ! ! ! !
-                            dataset.setRowLabel(j, getResultName(firstCount.getValue(), dataSetQuery, context));
-                            dataset.setRowLabelAttr(j, getAttributes(firstCount.getValue(), dataSetQuery, context));
+                            dataset.setRowLabel(j, getResultName(firstCount.getKey(), dataSetQuery, context));
+                            dataset.setRowLabelAttr(j, getAttributes(firstCount.getKey(), dataSetQuery, context));
 
                             for (int k = 0; k < maxDateFacetCounts.length; k++) {
                                 ObjectCount objectCount = maxDateFacetCounts[k];
@@ -256,6 +269,7 @@ public class StatisticsDataVisits extends StatisticsData {
                                 }
                                 dataset.addValueToMatrix(j, k, objectCount.getCount());
                             }
+                            j++;
                         }
                         if (dataset != null && !(getDatasetGenerators().get(0) instanceof DatasetTimeGenerator)) {
                             dataset.flipRowCols();
@@ -281,8 +295,17 @@ public class StatisticsDataVisits extends StatisticsData {
             //Do the first query
 
             ObjectCount[] topCounts1 = null;
+            Query firstQuery = firsDataset.getQueries().get(0);
+            if (datasetQueries.size() == 1 && !filtered && isRolledUp(firstQuery)) {
+                topCounts1 = usageRollupService
+                    .queryFacetField(context, firstQuery.getDso(), firstQuery.getQuery(), filterQuery,
+                                     firsDataset.getFacetField() == null ? "id" : firsDataset.getFacetField(),
+                                     firsDataset.getMax());
+            }
 //            if (firsDataset.getQueries().size() == 1) {
-            topCounts1 = queryFacetField(firsDataset, firsDataset.getQueries().get(0).getQuery(), filterQuery);
+            if (topCounts1 == null) {
+                topCounts1 = queryFacetField(firsDataset, firstQuery.getQuery(), filterQuery);
+            }
 //            } else {
 //                TODO: do this
 //            }
@@ -305,9 +328,26 @@ public class StatisticsDataVisits extends StatisticsData {
 
                     facetQueries.add(facetQuery);
                 }
+                // Every combination of both is counted by a single request
+                List<String> queries = new ArrayList<String>();
+                List<String> matrixQueries = new ArrayList<String>();
+                for (ObjectCount count1 : topCounts1) {
+                    String query = firsDataset.getFacetField() + ":" + ClientUtils.escapeQueryChars(count1.getValue());
+                    // Check if we also have a type present (if so this should be put into the query)
+                    if ("id".equals(firsDataset.getFacetField()) && firsDataset.getQueries().get(0)
+                                                                               .getDsoType() != -1) {
+                        query += " AND type:" + firsDataset.getQueries().get(0).getDsoType();
+                    }
+                    queries.add(query);
+                    for (String facetQuery : facetQueries) {
+                        matrixQueries.add("(" + query + ") AND (" + facetQuery + ")");
+                    }
+                }
+                Map<String, Integer> matrixResult = matrixQueries.isEmpty() ? new HashMap<String, Integer>()
+                    : solrLoggerService.queryFacetQuery("*:*", filterQuery, matrixQueries);
+
                 for (int i = 0; i < topCounts1.length; i++) {
                     ObjectCount count1 = topCounts1[i];
-                    ObjectCount[] currentResult = new ObjectCount[topCounts2.length];
 
                     // Make sure we have a dataSet
                     if (dataset == null) {
@@ -316,17 +356,6 @@ public class StatisticsDataVisits extends StatisticsData {
                     dataset.setColLabel(i, getResultName(count1.getValue(), firsDataset, context));
                     dataset.setColLabelAttr(i, getAttributes(count1.getValue(), firsDataset, context));
 
-                    String query = firsDataset.getFacetField() + ":" + ClientUtils.escapeQueryChars(count1.getValue());
-                    // Check if we also have a type present (if so this should be put into the query)
-                    if ("id".equals(firsDataset.getFacetField()) && firsDataset.getQueries().get(0)
-                                                                               .getDsoType() != -1) {
-                        query += " AND type:" + firsDataset.getQueries().get(0).getDsoType();
-                    }
-
-                    Map<String, Integer> facetResult = solrLoggerService
-                        .queryFacetQuery(query, filterQuery, facetQueries);
-
-
                     // TODO: the show total
                     // No need to add this many times
                     // TODO: dit vervangen door te displayen value
@@ -338,16 +367,8 @@ public class StatisticsDataVisits extends StatisticsData {
 
                         }
                         // Get our value the value is the same as the query
-                        String facetQuery = secondDataSet.getFacetField() + ":" + ClientUtils
-                            .escapeQueryChars(count2.getValue());
-                        // Check if we also have a type present (if so this should be put into the query
-                        if ("id".equals(secondDataSet.getFacetField()) && secondDataSet.getQueries().get(0)
-                                                                                       .getDsoType() != -1) {
-                            facetQuery += " AND type:" + secondDataSet.getQueries().get(0).getDsoType();
-                        }
-
-                        // We got our query so now get the value
-                        dataset.addValueToMatrix(j, i, facetResult.get(facetQuery));
+                        Integer count = matrixResult.get("(" + queries.get(i) + ") AND (" + facetQueries.get(j) + ")");
+                        dataset.addValueToMatrix(j, i, count != null ? count : 0);
                     }
 
                     /*
@@ -702,6 +723,19 @@ public class StatisticsDataVisits extends StatisticsData {
     }
 
 
+    /**
+     * Whether the views of a query can be counted from the usage statistics rollups: when they are enabled
+     * and the query is for the views of a single object, recorded with the type of the object. The rollups are
+     * kept by the type of the object, a query for another type counts other views.
+     *
+     * @param query the query
+     * @return true if the views can be counted from the rollups
+     */
+    protected boolean isRolledUp(Query query) {
+        return usageRollupService.isEnabled() && query.getDso() != null && query.getOwningDso() == null
+            && query.getDsoType() == query.getDso().getType();
+    }
+
     protected ObjectCount[] queryFacetField(DatasetQuery dataset, String query,
                                             String filterQuery) throws SolrServerException {
         String facetType = dataset.getFacetField() == null ? "id" : dataset
@@ -771,6 +805,10 @@ public class StatisticsDataVisits extends StatisticsData {
             this.owningDso = owningDso;
         }
 
+        public DSpaceObject getOwningDso() {
+            return owningDso;
+        }
+
         public void setDso(DSpaceObject dso, int dsoType) {
             this.dso = dso;
             this.dsoType = dsoType;
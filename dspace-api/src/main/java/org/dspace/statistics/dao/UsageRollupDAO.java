@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.dao;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.dspace.core.Context;
+import org.dspace.core.GenericDAO;
+import org.dspace.statistics.UsageRollup;
+
+/**
+ * Database Access Object interface class for the UsageRollup object.
+ * The implementation of this class is responsible for all database calls for the UsageRollup object and is
+ * autowired by spring
+ * This class should only be accessed from a single service and should never be exposed outside of the API
+ *
+ * @see UsageRollup
+ */
+public interface UsageRollupDAO extends GenericDAO<UsageRollup> {
+
+    /**
+     * @param context The relevant DSpace Context.
+     * @return the last period counted by the rollups of the types, or null when nothing was rolled up yet
+     * @throws SQLException if database error
+     */
+    public String findLastPeriod(Context context) throws SQLException;
+
+    /**
+     * @param context The relevant DSpace Context.
+     * @return the first day whose views are not folded into a month, or null when there is none
+     * @throws SQLException if database error
+     */
+    public String findFirstDay(Context context) throws SQLException;
+
+    /**
+     * @param context The relevant DSpace Context.
+     * @return the last month the days of which are folded into it, or null when there is none
+     * @throws SQLException if database error
+     */
+    public String findLastMonth(Context context) throws SQLException;
+
+    /**
+     * Sum the views of all countries of the given objects per period.
+     *
+     * @param context The relevant DSpace Context.
+     * @param dsoType the type of the objects
+     * @param dsoIds  the UUIDs (and legacy ids) of the objects
+     * @param from    the first period to count
+     * @param to      the period to stop counting at, it is not counted
+     * @return the views per period
+     * @throws SQLException if database error
+     */
+    public Map<String, Long> sumByPeriod(Context context, int dsoType, List<String> dsoIds, String from, String to)
+        throws SQLException;
+
+    /**
+     * Sum the views of all countries of the given objects per object.
+     *
+     * @param context The relevant DSpace Context.
+     * @param dsoType the type of the objects
+     * @param dsoIds  the UUIDs (and legacy ids) of the objects
+     * @param to      the period to stop counting at, it is not counted
+     * @return the views per UUID (or legacy id)
+     * @throws SQLException if database error
+     */
+    public Map<String, Long> sumByDsoId(Context context, int dsoType, List<String> dsoIds, String to)
+        throws SQLException;
+
+    /**
+     * Sum the views of the given objects per country.
+     *
+     * @param context The relevant DSpace Context.
+     * @param dsoType the type of the objects
+     * @param dsoIds  the UUIDs (and legacy ids) of the objects
+     * @param to      the period to stop counting at, it is not counted
+     * @return the views per country code
+     * @throws SQLException if database error
+     */
+    public Map<String, Long> sumByCountry(Context context, int dsoType, List<String> dsoIds, String to)
+        throws SQLException;
+
+    /**
+     * Sum the daily rollups of a month.
+     *
+     * @param context The relevant DSpace Context.
+     * @param month   the month ({@code yyyy-MM})
+     * @return the type, object id, country code and views of every rollup the days fold into
+     * @throws SQLException if database error
+     */
+    public List<Object[]> sumDays(Context context, String month) throws SQLException;
+
+    /**
+     * Delete the daily rollups of a month.
+     *
+     * @param context The relevant DSpace Context.
+     * @param month   the month ({@code yyyy-MM})
+     * @return number of rows deleted.
+     * @throws SQLException if database error
+     */
+    public int deleteDays(Context context, String month) throws SQLException;
+}
@@ -0,0 +1,115 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.dao.impl;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dspace.core.AbstractHibernateDAO;
+import org.dspace.core.Context;
+import org.dspace.statistics.UsageRollup;
+import org.dspace.statistics.dao.UsageRollupDAO;
+import org.hibernate.Query;
+
+/**
+ * Hibernate implementation of the Database Access Object interface class for the UsageRollup object.
+ * This class is responsible for all database calls for the UsageRollup object and is autowired by spring
+ * This class should never be accessed directly.
+ */
+public class UsageRollupDAOImpl extends AbstractHibernateDAO<UsageRollup> implements UsageRollupDAO {
+
+    protected UsageRollupDAOImpl() {
+        super();
+    }
+
+    @Override
+    public String findLastPeriod(Context context) throws SQLException {
+        Query query = createQuery(context, "SELECT max(r.period) FROM UsageRollup r " +
+            "WHERE r.dsoId IS NULL AND r.countryCode IS NULL");
+        return (String) query.uniqueResult();
+    }
+
+    @Override
+    public String findFirstDay(Context context) throws SQLException {
+        Query query = createQuery(context, "SELECT min(r.period) FROM UsageRollup r WHERE length(r.period) = 10");
+        return (String) query.uniqueResult();
+    }
+
+    @Override
+    public String findLastMonth(Context context) throws SQLException {
+        Query query = createQuery(context, "SELECT max(r.period) FROM UsageRollup r WHERE length(r.period) = 7");
+        return (String) query.uniqueResult();
+    }
+
+    @Override
+    public Map<String, Long> sumByPeriod(Context context, int dsoType, List<String> dsoIds, String from, String to)
+        throws SQLException {
+        Query query = createQuery(context, "SELECT r.period, sum(r.views) FROM UsageRollup r " +
+            "WHERE r.dsoType = :dsoType AND r.dsoId IN (:dsoIds) AND r.countryCode IS NULL " +
+            "AND r.period >= :from AND r.period < :to GROUP BY r.period");
+        query.setParameter("dsoType", dsoType);
+        query.setParameterList("dsoIds", dsoIds);
+        query.setParameter("from", from);
+        query.setParameter("to", to);
+        return toMap(query);
+    }
+
+    @Override
+    public Map<String, Long> sumByDsoId(Context context, int dsoType, List<String> dsoIds, String to)
+        throws SQLException {
+        Query query = createQuery(context, "SELECT r.dsoId, sum(r.views) FROM UsageRollup r " +
+            "WHERE r.dsoType = :dsoType AND r.dsoId IN (:dsoIds) AND r.countryCode IS NULL " +
+            "AND r.period < :to GROUP BY r.dsoId");
+        query.setParameter("dsoType", dsoType);
+        query.setParameterList("dsoIds", dsoIds);
+        query.setParameter("to", to);
+        return toMap(query);
+    }
+
+    @Override
+    public Map<String, Long> sumByCountry(Context context, int dsoType, List<String> dsoIds, String to)
+        throws SQLException {
+        Query query = createQuery(context, "SELECT r.countryCode, sum(r.views) FROM UsageRollup r " +
+            "WHERE r.dsoType = :dsoType AND r.dsoId IN (:dsoIds) AND r.countryCode IS NOT NULL " +
+            "AND r.period < :to GROUP BY r.countryCode");
+        query.setParameter("dsoType", dsoType);
+        query.setParameterList("dsoIds", dsoIds);
+        query.setParameter("to", to);
+        return toMap(query);
+    }
+
+    @Override
+    public List<Object[]> sumDays(Context context, String month) throws SQLException {
+        Query query = createQuery(context, "SELECT r.dsoType, r.dsoId, r.countryCode, sum(r.views) " +
+            "FROM UsageRollup r WHERE r.period LIKE :days GROUP BY r.dsoType, r.dsoId, r.countryCode");
+        query.setParameter("days", month + "-%");
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = query.list();
+        return results;
+    }
+
+    @Override
+    public int deleteDays(Context context, String month) throws SQLException {
+        Query query = createQuery(context, "DELETE FROM UsageRollup WHERE period LIKE :days");
+        query.setParameter("days", month + "-%");
+        return query.executeUpdate();
+    }
+
+    protected Map<String, Long> toMap(Query query) {
+        Map<String, Long> sums = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = query.list();
+        for (Object[] result : results) {
+            sums.put((String) result[0], ((Number) result[1]).longValue());
+        }
+        return sums;
+    }
+}
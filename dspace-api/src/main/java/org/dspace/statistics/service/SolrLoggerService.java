@@ -14,6 +14,7 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.PivotField;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrInputDocument;
 import org.dspace.content.DSpaceObject;
@@ -157,6 +158,47 @@ public interface SolrLoggerService {
                                         String filterQuery, int max, String dateType, String dateStart,
                                         String dateEnd, boolean showTotal, Context context) throws SolrServerException;
 
+    /**
+     * Query used to get the top values of the given facet field, each with its values grouped by the date. Takes
+     * two requests however many values there are: one for the top values and the dates, one for the count of every
+     * value and date.
+     *
+     * @param query       the query to be used
+     * @param filterQuery filter query
+     * @param facetField  the facet field on which to group our values
+     * @param max         the max number of values given back (in case of 10 the top 10
+     *                    will be given)
+     * @param dateType    the type to be used (example: DAY, MONTH, YEAR)
+     * @param dateStart   the start date Format:(-3, -2, ..) the date is calculated
+     *                    relatively on today
+     * @param dateEnd     the end date stop Format (-2, +1, ..) the date is calculated
+     *                    relatively on today
+     * @param showTotal   a boolean determining whether the total amount should be given
+     *                    back as the last element of each array
+     * @param context     The relevant DSpace Context.
+     * @return the top values, most frequent first, each with the array {@link #queryFacetDate} would give for it
+     * @throws SolrServerException Exception from the Solr server to the solrj Java client.
+     */
+    public Map<String, ObjectCount[]> queryFacetFieldDate(String query, String filterQuery, String facetField,
+                                                          int max, String dateType, String dateStart,
+                                                          String dateEnd, boolean showTotal, Context context)
+        throws SolrServerException;
+
+    /**
+     * Query used to count all the values of a field, each with the counts of the values of a second field
+     * among the documents having it. No limit is put on the number of values, so the query should only
+     * match a bounded number of documents (a single day of views for example).
+     *
+     * @param query       the query to be used
+     * @param filterQuery an optional filter query
+     * @param facetField  the field to count the values of
+     * @param pivotField  the field to count the values of for each value of the first field
+     * @return the values of the first field, each with the values of the second field as its pivot
+     * @throws SolrServerException Exception from the Solr server to the solrj Java client.
+     */
+    public List<PivotField> queryFacetPivot(String query, String filterQuery, String facetField, String pivotField)
+        throws SolrServerException;
+
     public Map<String, Integer> queryFacetQuery(String query,
                                                 String filterQuery, List<String> facetQueries)
         throws SolrServerException;
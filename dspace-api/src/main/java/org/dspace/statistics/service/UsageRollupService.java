@@ -0,0 +1,84 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.service;
+
+import java.sql.SQLException;
+
+import org.apache.solr.client.solrj.SolrServerException;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.Context;
+import org.dspace.statistics.ObjectCount;
+
+/**
+ * Service interface class for the usage statistics rollups.
+ * <p>
+ * The views of every closed day are counted once, per object, per country and per type, and stored in the
+ * database. Statistics of a single object are then answered from these counts, only the views since the last
+ * rolled up day are counted in the statistics Solr core. The counts of the days are folded into the count of
+ * their month once they are older than {@code solr-statistics.rollup.daily.months} months.
+ * <p>
+ * The rollups are counted with the spider and bundle filters configured at the time, views marked as spiders
+ * afterwards are still counted by them.
+ *
+ * @see org.dspace.statistics.UsageRollup
+ */
+public interface UsageRollupService {
+
+    /**
+     * @return whether statistics should be answered from the rollups ({@code solr-statistics.rollup.enabled})
+     */
+    public boolean isEnabled();
+
+    /**
+     * Roll up the views of the closed days that were not rolled up yet, starting at the first view logged,
+     * then fold the days older than {@code solr-statistics.rollup.daily.months} months into their months.
+     * Every day is committed on its own, so an interrupted run continues where it stopped.
+     *
+     * @param context The relevant DSpace Context.
+     * @throws SQLException        An exception that provides information on a database access error or other errors.
+     * @throws SolrServerException Exception from the Solr server to the solrj Java client.
+     */
+    public void rollup(Context context) throws SQLException, SolrServerException;
+
+    /**
+     * The counterpart of {@link SolrLoggerService#queryFacetDate} for the views of a single object.
+     *
+     * @param context     The relevant DSpace Context.
+     * @param dso         the viewed object, only its views recorded with its own type are counted
+     * @param query       the query for the views of the object, to count the views since the last rolled up day
+     * @param filterQuery the filter query for them, it may only restrict the views to the given dates
+     * @param dateType    the type to be used (example: DAY, MONTH, YEAR)
+     * @param dateStart   the start date Format:(-3, -2, ..) the date is calculated relatively on today
+     * @param dateEnd     the end date stop Format (-2, +1, ..) the date is calculated relatively on today
+     * @param showTotal   a boolean determining whether the total amount should be given back as the last element
+     * @return the views per date, or null when they cannot be counted from the rollups
+     * @throws SQLException        An exception that provides information on a database access error or other errors.
+     * @throws SolrServerException Exception from the Solr server to the solrj Java client.
+     */
+    public ObjectCount[] queryFacetDate(Context context, DSpaceObject dso, String query, String filterQuery,
+                                        String dateType, String dateStart, String dateEnd, boolean showTotal)
+        throws SQLException, SolrServerException;
+
+    /**
+     * The counterpart of {@link SolrLoggerService#queryFacetField} for all the views of a single object,
+     * counted per object ({@code id}) or per country ({@code countryCode}).
+     *
+     * @param context     The relevant DSpace Context.
+     * @param dso         the viewed object, only its views recorded with its own type are counted
+     * @param query       the query for the views of the object, to count the views since the last rolled up day
+     * @param filterQuery the filter query for them, it may not restrict the views
+     * @param facetField  the field to count the views per value of
+     * @param max         the max number of values given back, -1 for all of them
+     * @return the values, most viewed first, or null when they cannot be counted from the rollups
+     * @throws SQLException        An exception that provides information on a database access error or other errors.
+     * @throws SolrServerException Exception from the Solr server to the solrj Java client.
+     */
+    public ObjectCount[] queryFacetField(Context context, DSpaceObject dso, String query, String filterQuery,
+                                         String facetField, int max)
+        throws SQLException, SolrServerException;
+}
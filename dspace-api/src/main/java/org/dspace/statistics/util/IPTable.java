@@ -7,182 +7,483 @@
  */
 package org.dspace.statistics.util;
 
-import java.util.HashMap;
+import java.math.BigInteger;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 /**
- * A Spare v4 IPTable implementation that uses nested HashMaps
- * to optimize IP address matching over ranges of IP addresses.
+ * A table of IPv4 and IPv6 address ranges, optimized for quickly checking whether an address falls in one of
+ * them.
+ * <p>
+ * Addresses are handled as 128 bit numbers, IPv4 addresses as IPv4-compatible IPv6 addresses
+ * (<code>::a.b.c.d</code>) just like {@link org.dspace.authenticate.IPMatcher} does. The ranges are kept in a
+ * single sorted array of non-overlapping intervals, so {@link #contains(String)} is a binary search which does
+ * not allocate any objects.
+ * <p>
+ * Supported entries are:
+ * <ul>
+ * <li>Full IPv4 or IPv6 address, e.g. {@code 12.34.56.78} or {@code 2001:18e8:3:171:218:8bff:fe2a:56a4}</li>
+ * <li>Three part IPv4 address, matching the whole subnet, e.g. {@code 12.34.56}</li>
+ * <li>IPv4 or IPv6 CIDR notation, e.g. {@code 18.25.0.0/16} or {@code 2001:18e8:3:171::/64}</li>
+ * <li>IPv4 network/netmask, e.g. {@code 18.25.0.0/255.255.0.0}</li>
+ * <li>Range of full addresses, e.g. {@code 12.34.56.78 - 12.34.57.12}</li>
+ * </ul>
  *
  * @author mdiggory at atmire.com
  */
 public class IPTable {
 
-    /* A lookup tree for IP addresses and SubnetRanges */
-    private Map<String, Map<String, Map<String, Set<String>>>> map =
-        new HashMap<String, Map<String, Map<String, Set<String>>>>();
+    private static final long[] EMPTY = new long[0];
 
     /**
-     * Can be full v4 IP, subnet or range string
+     * The ranges, four longs per range: the upper and lower 64 bits of the first address and the upper and lower
+     * 64 bits of the last address. Sorted on the first address, never overlapping or adjacent. The array is
+     * replaced as a whole by {@link #add(String)}, so concurrent lookups always see a consistent table.
+     */
+    private volatile long[] ranges = EMPTY;
+
+    /**
+     * Can be full v4 or v6 IP, subnet, CIDR or range string
      *
      * @param ip IP address(es)
      * @throws IPFormatException Exception Class to deal with IPFormat errors.
      */
     public void add(String ip) throws IPFormatException {
-
-        String[] start;
-
-        String[] end;
-
-        String[] range = ip.split("-");
-
-        if (range.length >= 2) {
-
-            start = range[0].trim().split("/")[0].split("\\.");
-            end = range[1].trim().split("/")[0].split("\\.");
-
-            if (start.length != 4 || end.length != 4) {
-                throw new IPFormatException(ip + " - Ranges need to be full IPv4 Addresses");
+        ip = ip.trim();
+        int dash = ip.indexOf('-');
+        int slash = ip.indexOf('/');
+
+        long startHi;
+        long startLo;
+        long endHi;
+        long endLo;
+        if (dash >= 0) {
+            String start = stripMask(ip.substring(0, dash).trim());
+            String end = stripMask(ip.substring(dash + 1).trim());
+            if (isIPv6(start) != isIPv6(end)) {
+                throw new IPFormatException(ip + " - Ranges can not mix IPv4 and IPv6 addresses");
             }
-
-            if (!(start[0].equals(end[0]) && start[1].equals(end[1]) && start[2].equals(end[2]))) {
-                throw new IPFormatException(ip + " - Ranges can only be across the last subnet x.y.z.0 - x.y.z.254");
+            startHi = parse(start, 0, start.length(), true);
+            startLo = parse(start, 0, start.length(), false);
+            endHi = parse(end, 0, end.length(), true);
+            endLo = parse(end, 0, end.length(), false);
+        } else if (slash >= 0) {
+            boolean ipv6 = isIPv6(ip);
+            startHi = parse(ip, 0, slash, true);
+            startLo = parse(ip, 0, slash, false);
+            int bits = parseMaskBits(ip, slash + 1, ipv6);
+            if (!ipv6) {
+                bits += 96;
             }
-
+            long maskHi = bits >= 64 ? -1L : bits == 0 ? 0 : -1L << (64 - bits);
+            long maskLo = bits <= 64 ? 0 : bits == 128 ? -1L : -1L << (128 - bits);
+            startHi &= maskHi;
+            startLo &= maskLo;
+            endHi = startHi | ~maskHi;
+            endLo = startLo | ~maskLo;
+        } else if (!isIPv6(ip) && countOctets(ip, 0, ip.length()) == 3) {
+            startHi = 0;
+            startLo = parse(ip + ".0", 0, ip.length() + 2, false);
+            endHi = 0;
+            endLo = startLo | 0xff;
+        } else if (!isIPv6(ip) && countOctets(ip, 0, ip.length()) < 3) {
+            throw new IPFormatException(ip + " - require at least three subnet places (255.255.255.0");
         } else {
-            //need to ignore CIDR notation for the moment.
-            //ip = ip.split("\\/")[0];
-
-            String[] subnets = ip.split("\\.");
+            startHi = parse(ip, 0, ip.length(), true);
+            startLo = parse(ip, 0, ip.length(), false);
+            endHi = startHi;
+            endLo = startLo;
+        }
 
-            if (subnets.length < 3) {
-                throw new IPFormatException(ip + " - require at least three subnet places (255.255.255.0");
+        if (compare(startHi, startLo, endHi, endLo) > 0) {
+            throw new IPFormatException(ip + " - Range start is greater than its end");
+        }
+        add(startHi, startLo, endHi, endLo);
+    }
 
+    /**
+     * Merge a range into the table.
+     */
+    private synchronized void add(long startHi, long startLo, long endHi, long endLo) {
+        long[] current = ranges;
+        int count = current.length / 4;
+
+        // first range which does not end before the new one starts
+        int first = 0;
+        int high = count - 1;
+        while (first <= high) {
+            int mid = (first + high) >>> 1;
+            if (precedes(current[mid * 4 + 2], current[mid * 4 + 3], startHi, startLo)) {
+                first = mid + 1;
+            } else {
+                high = mid - 1;
             }
-
-            start = subnets;
-            end = subnets;
         }
-
-        if (start.length >= 3) {
-
-
-            Map<String, Map<String, Set<String>>> first = map.get(start[0]);
-
-            if (first == null) {
-                first = new HashMap<String, Map<String, Set<String>>>();
-                map.put(start[0], first);
+        // ranges first..last overlap or touch the new range and are merged into it
+        int last = first - 1;
+        while (last + 1 < count && !precedes(endHi, endLo, current[(last + 1) * 4], current[(last + 1) * 4 + 1])) {
+            last++;
+        }
+        if (last >= first) {
+            if (compare(current[first * 4], current[first * 4 + 1], startHi, startLo) < 0) {
+                startHi = current[first * 4];
+                startLo = current[first * 4 + 1];
+            }
+            if (compare(current[last * 4 + 2], current[last * 4 + 3], endHi, endLo) > 0) {
+                endHi = current[last * 4 + 2];
+                endLo = current[last * 4 + 3];
             }
+        }
 
-            Map<String, Set<String>> second = first.get(start[1]);
+        int merged = last - first + 1;
+        long[] updated = new long[(count - merged + 1) * 4];
+        System.arraycopy(current, 0, updated, 0, first * 4);
+        updated[first * 4] = startHi;
+        updated[first * 4 + 1] = startLo;
+        updated[first * 4 + 2] = endHi;
+        updated[first * 4 + 3] = endLo;
+        System.arraycopy(current, (last + 1) * 4, updated, (first + 1) * 4, (count - last - 1) * 4);
+        ranges = updated;
+    }
 
+    /**
+     * Check whether a given address is contained in this netblock. IPv4-mapped IPv6 addresses
+     * (<code>::ffff:a.b.c.d</code>) are checked as the IPv4 address they represent.
+     *
+     * @param ip the address to be tested
+     * @return true if {@code ip} is within this table's limits
+     * @throws IPFormatException Exception Class to deal with IPFormat errors.
+     */
+    public boolean contains(String ip) throws IPFormatException {
+        long hi = highBits(ip);
+        long lo = lowBits(ip);
+        if (hi == 0 && (lo >>> 32) == 0xffffL) {
+            lo &= 0xffffffffL;
+        }
 
-            if (second == null) {
-                second = new HashMap<String, Set<String>>();
-                first.put(start[1], second);
+        long[] current = ranges;
+        // last range starting at or before the address
+        int low = 0;
+        int high = current.length / 4 - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(current[mid * 4], current[mid * 4 + 1], hi, lo) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
             }
+        }
+        return found >= 0 && compare(hi, lo, current[found * 4 + 2], current[found * 4 + 3]) <= 0;
+    }
 
-            Set<String> third = second.get(start[2]);
-
-            if (third == null) {
-                third = new HashSet<String>();
-                second.put(start[2], third);
+    /**
+     * Convert to a Set. IPv4 ranges are listed as three part subnets where they cover a whole subnet, and as
+     * single addresses otherwise. IPv6 ranges are listed in CIDR notation.
+     *
+     * @return this table's content as a Set
+     */
+    public Set<String> toSet() {
+        HashSet<String> set = new HashSet<String>();
+        long[] current = ranges;
+        for (int i = 0; i < current.length; i += 4) {
+            if (current[i + 2] == 0 && (current[i + 3] >>> 32) == 0) {
+                long ip = current[i + 1];
+                long end = current[i + 3];
+                while (ip <= end) {
+                    if ((ip & 0xff) == 0 && ip + 0xff <= end) {
+                        set.add((ip >>> 24) + "." + ((ip >>> 16) & 0xff) + "." + ((ip >>> 8) & 0xff));
+                        ip += 0x100;
+                    } else {
+                        set.add((ip >>> 24) + "." + ((ip >>> 16) & 0xff) + "." + ((ip >>> 8) & 0xff) + "."
+                                    + (ip & 0xff));
+                        ip++;
+                    }
+                }
+            } else {
+                addCidrBlocks(set, toBigInteger(current[i], current[i + 1]),
+                              toBigInteger(current[i + 2], current[i + 3]));
             }
+        }
+        return set;
+    }
 
-            //now populate fourth place (* or value 0-254);
-
-            if (start.length == 3) {
-                third.add("*");
+    /**
+     * Add the smallest list of CIDR blocks exactly covering a range of IPv6 addresses.
+     */
+    private static void addCidrBlocks(Set<String> set, BigInteger start, BigInteger end) {
+        while (start.compareTo(end) <= 0) {
+            int bits = start.signum() == 0 ? 128 : start.getLowestSetBit();
+            while (bits > 0 && start.add(BigInteger.ONE.shiftLeft(bits)).subtract(BigInteger.ONE)
+                                    .compareTo(end) > 0) {
+                bits--;
             }
+            String address = format(start.shiftRight(64).longValue(), start.longValue());
+            set.add(bits == 0 ? address : address + "/" + (128 - bits));
+            start = start.add(BigInteger.ONE.shiftLeft(bits));
+        }
+    }
 
-            if (third.contains("*")) {
-                return;
-            }
+    private static BigInteger toBigInteger(long hi, long lo) {
+        return new BigInteger(1, new byte[] {
+            (byte) (hi >>> 56), (byte) (hi >>> 48), (byte) (hi >>> 40), (byte) (hi >>> 32),
+            (byte) (hi >>> 24), (byte) (hi >>> 16), (byte) (hi >>> 8), (byte) hi,
+            (byte) (lo >>> 56), (byte) (lo >>> 48), (byte) (lo >>> 40), (byte) (lo >>> 32),
+            (byte) (lo >>> 24), (byte) (lo >>> 16), (byte) (lo >>> 8), (byte) lo
+        });
+    }
 
-            if (start.length >= 4) {
-                int s = Integer.valueOf(start[3]);
-                int e = Integer.valueOf(end[3]);
-                for (int i = s; i <= e; i++) {
-                    third.add(String.valueOf(i));
-                }
+    private static String format(long hi, long lo) {
+        StringBuilder address = new StringBuilder(39);
+        for (int group = 0; group < 8; group++) {
+            long half = group < 4 ? hi : lo;
+            if (group > 0) {
+                address.append(':');
             }
+            address.append(Long.toHexString((half >>> (16 * (3 - group % 4))) & 0xffff));
         }
+        return address.toString();
     }
 
     /**
-     * Check whether a given address is contained in this netblock.
+     * The upper 64 bits of the 128 bit form of a full IPv4 or IPv6 address, see {@link #lowBits(String)}.
      *
-     * @param ip the address to be tested
-     * @return true if {@code ip} is within this table's limits
-     * @throws IPFormatException Exception Class to deal with IPFormat errors.
+     * @param ip the address
+     * @return the upper 64 bits, always 0 for IPv4 addresses
+     * @throws IPFormatException if the address is not a full IPv4 or IPv6 address
      */
-    public boolean contains(String ip) throws IPFormatException {
+    public static long highBits(String ip) throws IPFormatException {
+        int from = ip.startsWith("[") ? 1 : 0;
+        return parse(ip, from, addressEnd(ip), true);
+    }
 
-        String[] subnets = ip.split("\\.");
+    /**
+     * The lower 64 bits of the 128 bit form of a full IPv4 or IPv6 address. IPv4 addresses are converted to
+     * IPv4-compatible IPv6 addresses, so the lower 32 bits hold the IPv4 address. An IPv6 address may be
+     * enclosed in brackets and may have a zone index, which is ignored. Does not allocate any objects unless the
+     * address is malformed.
+     *
+     * @param ip the address
+     * @return the lower 64 bits
+     * @throws IPFormatException if the address is not a full IPv4 or IPv6 address
+     */
+    public static long lowBits(String ip) throws IPFormatException {
+        int from = ip.startsWith("[") ? 1 : 0;
+        return parse(ip, from, addressEnd(ip), false);
+    }
 
-        if (subnets.length != 4) {
-            throw new IPFormatException("needs to be a single IP address");
+    private static int addressEnd(String ip) {
+        int end = ip.length();
+        if (end > 0 && ip.charAt(end - 1) == ']' && ip.charAt(0) == '[') {
+            end--;
         }
+        int zone = ip.indexOf('%');
+        return zone >= 0 && zone < end ? zone : end;
+    }
 
-        Map<String, Map<String, Set<String>>> first = map.get(subnets[0]);
-
-        if (first == null) {
-            return false;
-        }
+    private static boolean isIPv6(String ip) {
+        return ip.indexOf(':') >= 0;
+    }
 
-        Map<String, Set<String>> second = first.get(subnets[1]);
+    private static String stripMask(String ip) {
+        int slash = ip.indexOf('/');
+        return slash >= 0 ? ip.substring(0, slash).trim() : ip;
+    }
 
-        if (second == null) {
-            return false;
+    /**
+     * Parse the prefix length of a CIDR entry, or a contiguous IPv4 netmask.
+     */
+    private static int parseMaskBits(String ip, int from, boolean ipv6) throws IPFormatException {
+        if (!ipv6 && ip.indexOf('.', from) >= 0) {
+            long mask = parse(ip, from, ip.length(), false);
+            int bits = Math.min(32, Long.numberOfLeadingZeros(~mask << 32));
+            if (bits < 32 && (mask & (0xffffffffL >>> bits)) != 0) {
+                throw new IPFormatException(ip + " - netmask is not contiguous");
+            }
+            return bits;
         }
-
-        Set<String> third = second.get(subnets[2]);
-
-        if (third == null) {
-            return false;
+        int bits = 0;
+        int length = ip.length();
+        if (from == length || length - from > 3) {
+            throw new IPFormatException(ip + " - malformed prefix length");
         }
+        for (int i = from; i < length; i++) {
+            int digit = Character.digit(ip.charAt(i), 10);
+            if (digit < 0) {
+                throw new IPFormatException(ip + " - malformed prefix length");
+            }
+            bits = bits * 10 + digit;
+        }
+        if (bits > (ipv6 ? 128 : 32)) {
+            throw new IPFormatException(ip + " - prefix length out of range");
+        }
+        return bits;
+    }
 
-        return third.contains(subnets[3]) || third.contains("*");
-
+    private static int countOctets(String ip, int from, int to) {
+        int octets = 1;
+        for (int i = from; i < to; i++) {
+            if (ip.charAt(i) == '.') {
+                octets++;
+            }
+        }
+        return octets;
     }
 
     /**
-     * Convert to a Set.
-     *
-     * @return this table's content as a Set
+     * Parse half of a full address in <code>ip[from, to)</code>.
      */
-    public Set<String> toSet() {
-        HashSet<String> set = new HashSet<String>();
+    private static long parse(String ip, int from, int to, boolean high) throws IPFormatException {
+        int colon = ip.indexOf(':', from);
+        if (colon < 0 || colon >= to) {
+            long ipv4 = parseIPv4(ip, from, to);
+            return high ? 0 : ipv4;
+        }
 
-        for (Map.Entry<String, Map<String, Map<String, Set<String>>>> first : map.entrySet()) {
-            String firstString = first.getKey();
-            Map<String, Map<String, Set<String>>> secondMap = first.getValue();
+        int gap = ip.indexOf("::", from);
+        if (gap >= to - 1) {
+            gap = -1;
+        }
+        if (gap >= 0) {
+            int second = ip.indexOf("::", gap + 1);
+            if (second >= 0 && second < to - 1) {
+                throw new IPFormatException(ip + " - malformed IPv6 address");
+            }
+            int left = countGroups(ip, from, gap);
+            int right = countGroups(ip, gap + 2, to);
+            if (left + right > 7) {
+                throw new IPFormatException(ip + " - malformed IPv6 address");
+            }
+            long value = parseGroups(ip, from, gap, 0, high, 0);
+            return parseGroups(ip, gap + 2, to, 8 - right, high, value);
+        }
+        if (countGroups(ip, from, to) != 8) {
+            throw new IPFormatException(ip + " - malformed IPv6 address");
+        }
+        return parseGroups(ip, from, to, 0, high, 0);
+    }
 
-            for (Map.Entry<String, Map<String, Set<String>>> second : secondMap.entrySet()) {
-                String secondString = second.getKey();
-                Map<String, Set<String>> thirdMap = second.getValue();
+    /**
+     * Count the 16 bit groups in <code>ip[from, to)</code>, an embedded IPv4 address counts as two.
+     */
+    private static int countGroups(String ip, int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        int groups = 1;
+        for (int i = from; i < to; i++) {
+            char c = ip.charAt(i);
+            if (c == ':') {
+                groups++;
+            } else if (c == '.') {
+                return groups + 1;
+            }
+        }
+        return groups;
+    }
 
-                for (Map.Entry<String, Set<String>> third : thirdMap.entrySet()) {
-                    String thirdString = third.getKey();
-                    Set<String> fourthSet = third.getValue();
+    /**
+     * Parse the 16 bit groups in <code>ip[from, to)</code>, starting at group <code>position</code>, and add
+     * those in the requested half to <code>value</code>.
+     */
+    private static long parseGroups(String ip, int from, int to, int position, boolean high, long value)
+        throws IPFormatException {
+        int start = from;
+        while (start < to) {
+            int end = start;
+            boolean embedded = false;
+            while (end < to && ip.charAt(end) != ':') {
+                embedded |= ip.charAt(end) == '.';
+                end++;
+            }
+            if (embedded) {
+                if (end != to || position != 6) {
+                    throw new IPFormatException(ip + " - malformed IPv6 address");
+                }
+                long ipv4 = parseIPv4(ip, start, end);
+                value = setGroup(value, position, ipv4 >>> 16, high);
+                return setGroup(value, position + 1, ipv4 & 0xffff, high);
+            }
+            if (end == start || end - start > 4) {
+                throw new IPFormatException(ip + " - malformed IPv6 address");
+            }
+            long group = 0;
+            for (int i = start; i < end; i++) {
+                int digit = Character.digit(ip.charAt(i), 16);
+                if (digit < 0) {
+                    throw new IPFormatException(ip + " - malformed IPv6 address");
+                }
+                group = group << 4 | digit;
+            }
+            value = setGroup(value, position++, group, high);
+            if (end < to && end + 1 == to) {
+                throw new IPFormatException(ip + " - malformed IPv6 address");
+            }
+            start = end + 1;
+        }
+        return value;
+    }
 
-                    if (fourthSet.contains("*")) {
-                        set.add(firstString + "." + secondString + "." + thirdString);
-                    } else {
-                        for (String fourth : fourthSet) {
-                            set.add(firstString + "." + secondString + "." + thirdString + "." + fourth);
-                        }
-                    }
+    private static long setGroup(long value, int position, long group, boolean high) {
+        if (high && position < 4) {
+            return value | group << (16 * (3 - position));
+        } else if (!high && position >= 4) {
+            return value | group << (16 * (7 - position));
+        }
+        return value;
+    }
 
+    /**
+     * Parse the full IPv4 address in <code>ip[from, to)</code>.
+     */
+    private static long parseIPv4(String ip, int from, int to) throws IPFormatException {
+        long value = 0;
+        int octets = 0;
+        int start = from;
+        while (start <= to) {
+            int end = start;
+            int octet = 0;
+            while (end < to && ip.charAt(end) != '.') {
+                int digit = Character.digit(ip.charAt(end), 10);
+                if (digit < 0) {
+                    throw new IPFormatException(ip + " - malformed IPv4 address");
                 }
+                octet = octet * 10 + digit;
+                end++;
             }
+            if (end == start || end - start > 3 || octet > 255 || ++octets > 4) {
+                throw new IPFormatException(ip + " - malformed IPv4 address");
+            }
+            value = value << 8 | octet;
+            start = end + 1;
+        }
+        if (octets != 4) {
+            throw new IPFormatException("needs to be a single IP address");
         }
+        return value;
+    }
 
-        return set;
+    /**
+     * Unsigned comparison of two 128 bit addresses.
+     */
+    private static int compare(long aHi, long aLo, long bHi, long bLo) {
+        int result = Long.compareUnsigned(aHi, bHi);
+        return result != 0 ? result : Long.compareUnsigned(aLo, bLo);
     }
 
+    /**
+     * Whether address a comes before address b with at least one address in between, so ranges ending at a and
+     * starting at b can not be merged.
+     */
+    private static boolean precedes(long aHi, long aLo, long bHi, long bLo) {
+        if (compare(aHi, aLo, bHi, bLo) >= 0) {
+            return false;
+        }
+        long nextLo = aLo + 1;
+        long nextHi = nextLo == 0 ? aHi + 1 : aHi;
+        return nextHi != bHi || nextLo != bLo;
+    }
 
     /**
      * Exception Class to deal with IPFormat errors.
@@ -0,0 +1,357 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests a string against a set of regular expressions in a single pass, finding out whether any of them is found
+ * in it like {@link java.util.regex.Matcher#find()} would.
+ * <p>
+ * Every expression is reduced to the longest piece of plain text any match of it must contain. All those pieces
+ * are compiled into one Aho-Corasick automaton, which finds all of them in a single scan of the input. Only the
+ * expressions whose text was found are evaluated, and expressions which are plain text themselves are not
+ * evaluated at all. Expressions without such a piece of text are evaluated for every input.
+ * <p>
+ * A matcher is immutable once built, so it can be used by any number of threads without locking.
+ */
+public class MultiPatternMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MultiPatternMatcher.class);
+
+    private static final int[] NONE = new int[0];
+
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    /**
+     * The expressions, by number
+     */
+    private final Pattern[] patterns;
+
+    /**
+     * Whether an expression is plain text, so finding its text is a match
+     */
+    private final boolean[] plain;
+
+    /**
+     * Expressions without a required piece of text
+     */
+    private final int[] unfiltered;
+
+    /**
+     * The automaton: per state the sorted characters of its transitions and the states they lead to, the state
+     * to continue from when no transition matches and the expressions whose text ends in the state.
+     */
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] failure;
+    private final int[][] outputs;
+
+    /**
+     * Build a matcher. Expressions which do not compile are logged and ignored.
+     *
+     * @param regexes the regular expressions
+     */
+    public MultiPatternMatcher(Collection<String> regexes) {
+        List<Pattern> compiled = new ArrayList<>(regexes.size());
+        List<String> texts = new ArrayList<>(regexes.size());
+        for (String regex : regexes) {
+            try {
+                compiled.add(Pattern.compile(regex));
+            } catch (PatternSyntaxException e) {
+                log.warn("Ignoring malformed pattern {}:  {}", regex, e.getMessage());
+                continue;
+            }
+            String text = plainText(regex);
+            texts.add(text != null ? text : requiredText(regex));
+        }
+        patterns = compiled.toArray(new Pattern[compiled.size()]);
+        plain = new boolean[patterns.length];
+
+        // build the trie
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> found = new ArrayList<>();
+        trie.add(new TreeMap<Character, Integer>());
+        found.add(new ArrayList<Integer>());
+        List<Integer> always = new ArrayList<>();
+        for (int id = 0; id < patterns.length; id++) {
+            String text = texts.get(id);
+            if (text == null || text.isEmpty()) {
+                always.add(id);
+                continue;
+            }
+            plain[id] = text.equals(plainText(patterns[id].pattern()));
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                Integer next = trie.get(state).get(text.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<Character, Integer>());
+                    found.add(new ArrayList<Integer>());
+                    trie.get(state).put(text.charAt(i), next);
+                }
+                state = next;
+            }
+            found.get(state).add(id);
+        }
+        unfiltered = toArray(always);
+
+        int states = trie.size();
+        labels = new char[states][];
+        targets = new int[states][];
+        failure = new int[states];
+        outputs = new int[states][];
+        for (int state = 0; state < states; state++) {
+            TreeMap<Character, Integer> transitions = trie.get(state);
+            labels[state] = new char[transitions.size()];
+            targets[state] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                labels[state][i] = transition.getKey();
+                targets[state][i] = transition.getValue();
+                i++;
+            }
+        }
+
+        // failure links and outputs, breadth first so those of shorter prefixes are known
+        Deque<Integer> queue = new ArrayDeque<>();
+        outputs[0] = toArray(found.get(0));
+        for (int child : targets[0]) {
+            failure[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> output = found.get(state);
+            for (int id : outputs[failure[state]]) {
+                output.add(id);
+            }
+            outputs[state] = toArray(output);
+            for (int i = 0; i < labels[state].length; i++) {
+                int child = targets[state][i];
+                int fallback = failure[state];
+                int next = step(fallback, labels[state][i]);
+                while (next < 0 && fallback != 0) {
+                    fallback = failure[fallback];
+                    next = step(fallback, labels[state][i]);
+                }
+                failure[child] = next < 0 ? 0 : next;
+                queue.add(child);
+            }
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        if (list.isEmpty()) {
+            return NONE;
+        }
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private int step(int state, char c) {
+        char[] chars = labels[state];
+        int low = 0;
+        int high = chars.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (chars[mid] < c) {
+                low = mid + 1;
+            } else if (chars[mid] > c) {
+                high = mid - 1;
+            } else {
+                return targets[state][mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether any of the expressions is found in the input.
+     *
+     * @param input the string to test
+     * @return true if at least one expression matches part of the input
+     */
+    public boolean find(CharSequence input) {
+        int state = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int next = step(state, c);
+            while (next < 0 && state != 0) {
+                state = failure[state];
+                next = step(state, c);
+            }
+            state = next < 0 ? 0 : next;
+            for (int id : outputs[state]) {
+                if (plain[id] || patterns[id].matcher(input).find()) {
+                    return true;
+                }
+            }
+        }
+        for (int id : unfiltered) {
+            if (patterns[id].matcher(input).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of expressions
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * The text matched by an expression without any special constructs.
+     *
+     * @param regex the regular expression
+     * @return the text, or null if the expression is not plain text
+     */
+    static String plainText(String regex) {
+        StringBuilder text = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                text.append(regex.charAt(++i));
+            } else if (METACHARACTERS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * The longest piece of plain text every match of an expression contains. The analysis is conservative:
+     * expressions with alternatives or flags outside of groups, or with unusual constructs, yield null.
+     *
+     * @param regex the regular expression
+     * @return the text, or null if none was found
+     */
+    static String requiredText(String regex) {
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        int length = regex.length();
+        for (int i = 0; i < length; i++) {
+            char c = regex.charAt(i);
+            boolean literal = false;
+            if (c == '\\') {
+                if (i + 1 >= length) {
+                    return null;
+                }
+                c = regex.charAt(++i);
+                if (Character.isLetterOrDigit(c)) {
+                    if ("sSdDwWbBhHvVRAzZG".indexOf(c) < 0) {
+                        // quoting, back references, numeric and property escapes
+                        return null;
+                    }
+                } else {
+                    literal = true;
+                }
+            } else if (c == '[') {
+                i = skipClass(regex, i);
+            } else if (c == '(') {
+                if (i + 1 < length && regex.charAt(i + 1) == '?' && (i + 2 >= length
+                    || regex.charAt(i + 2) != ':')) {
+                    // flags, look-arounds and other special groups
+                    return null;
+                }
+                i = skipGroup(regex, i);
+            } else if (c == '{') {
+                i = regex.indexOf('}', i);
+            } else if (c == '|' || c == ')') {
+                return null;
+            } else if (METACHARACTERS.indexOf(c) < 0) {
+                literal = true;
+            }
+            if (i < 0) {
+                return null;
+            }
+
+            char quantifier = i + 1 < length ? regex.charAt(i + 1) : 0;
+            if (literal && quantifier != '?' && quantifier != '*' && quantifier != '{') {
+                run.append(c);
+                if (quantifier != '+') {
+                    continue;
+                }
+            }
+            if (run.length() > longest.length()) {
+                longest = run.toString();
+            }
+            run.setLength(0);
+        }
+        if (run.length() > longest.length()) {
+            longest = run.toString();
+        }
+        return longest.isEmpty() ? null : longest;
+    }
+
+    /**
+     * @return the position of the bracket closing the character class opened at start, or -1
+     */
+    private static int skipClass(String regex, int start) {
+        int depth = 0;
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == ']' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the position of the parenthesis closing the group opened at start, or -1
+     */
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = skipClass(regex, i);
+                if (i < 0) {
+                    return -1;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
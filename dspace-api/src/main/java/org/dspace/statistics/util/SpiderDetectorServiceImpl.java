@@ -12,13 +12,13 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
 import javax.servlet.http.HttpServletRequest;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.configuration.ConversionException;
 import org.apache.commons.lang.StringUtils;
 import org.dspace.services.ConfigurationService;
@@ -44,11 +44,17 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
 
     private Boolean useCaseInsensitiveMatching;
 
-    private final List<Pattern> agents
-        = Collections.synchronizedList(new ArrayList<Pattern>());
+    /**
+     * User agent and domain name patterns, loaded when first needed.
+     */
+    private volatile MultiPatternMatcher agents;
+
+    private volatile MultiPatternMatcher domains;
 
-    private final List<Pattern> domains
-        = Collections.synchronizedList(new ArrayList<Pattern>());
+    /**
+     * Recent user agent verdicts, null if disabled.
+     */
+    private final Cache<String, Boolean> agentVerdicts;
 
     private ConfigurationService configurationService;
 
@@ -60,6 +66,9 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
     @Autowired(required = true)
     public SpiderDetectorServiceImpl(ConfigurationService configurationService) {
         this.configurationService = configurationService;
+        int cacheSize = configurationService.getIntProperty("usage-statistics.bots.agent-cache.size", 1000);
+        agentVerdicts = cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).<String, Boolean>build()
+            : null;
     }
 
     public IPTable getTable() {
@@ -81,25 +90,13 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
     public boolean isSpider(String clientIP, String proxyIPs, String hostname, String agent) {
         // See if any agent patterns match
         if (null != agent) {
-            synchronized (agents) {
-                if (agents.isEmpty()) {
-                    loadPatterns("agents", agents);
-                }
-            }
-
             if (isUseCaseInsensitiveMatching()) {
                 agent = StringUtils.lowerCase(agent);
                 hostname = StringUtils.lowerCase(hostname);
             }
 
-            for (Pattern candidate : agents) {
-
-                // prevent matcher() invocation from a null Pattern object
-                if (null != candidate && candidate.matcher(agent).find()) {
-                    return true;
-                }
-
-
+            if (isSpiderAgent(agent)) {
+                return true;
             }
         }
 
@@ -118,18 +115,8 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
         }
 
         // No.  See if any DNS names match
-        if (null != hostname) {
-            synchronized (domains) {
-                if (domains.isEmpty()) {
-                    loadPatterns("domains", domains);
-                }
-            }
-            for (Pattern candidate : domains) {
-                // prevent matcher() invocation from a null Pattern object
-                if (null != candidate && candidate.matcher(hostname).find()) {
-                    return true;
-                }
-            }
+        if (null != hostname && getDomains().find(hostname)) {
+            return true;
         }
 
         // Not a known spider.
@@ -170,16 +157,60 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
         return patterns;
     }
 
+    /**
+     * Check a user agent against the agent patterns, remembering the verdicts for recent agents.
+     *
+     * @param agent User-Agent header value, lowercased if matching is case insensitive.
+     * @return true if the agent matches an agent pattern
+     */
+    private boolean isSpiderAgent(String agent) {
+        if (agentVerdicts == null) {
+            return getAgents().find(agent);
+        }
+        Boolean verdict = agentVerdicts.getIfPresent(agent);
+        if (verdict == null) {
+            verdict = getAgents().find(agent);
+            agentVerdicts.put(agent, verdict);
+        }
+        return verdict;
+    }
+
+    private MultiPatternMatcher getAgents() {
+        MultiPatternMatcher matcher = agents;
+        if (matcher == null) {
+            synchronized (this) {
+                if (agents == null) {
+                    agents = loadPatterns("agents");
+                }
+                matcher = agents;
+            }
+        }
+        return matcher;
+    }
+
+    private MultiPatternMatcher getDomains() {
+        MultiPatternMatcher matcher = domains;
+        if (matcher == null) {
+            synchronized (this) {
+                if (domains == null) {
+                    domains = loadPatterns("domains");
+                }
+                matcher = domains;
+            }
+        }
+        return matcher;
+    }
+
     /**
      * Load agent name patterns from all files in a single subdirectory of config/spiders.
      *
-     * @param directory   simple directory name (e.g. "agents").
-     *                    "${dspace.dir}/config/spiders" will be prepended to yield the path to
-     *                    the directory of pattern files.
-     * @param patternList patterns read from the files in {@code directory} will
-     *                    be added to this List.
+     * @param directory simple directory name (e.g. "agents").
+     *                  "${dspace.dir}/config/spiders" will be prepended to yield the path to
+     *                  the directory of pattern files.
+     * @return a matcher for the patterns read from the files in {@code directory}.
      */
-    private void loadPatterns(String directory, List<Pattern> patternList) {
+    private MultiPatternMatcher loadPatterns(String directory) {
+        List<String> patternList = new ArrayList<>();
         String dspaceHome = configurationService.getProperty("dspace.dir");
         File spidersDir = new File(dspaceHome, "config/spiders");
         File patternsDir = new File(spidersDir, directory);
@@ -198,7 +229,7 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
                     if (isUseCaseInsensitiveMatching()) {
                         pattern = StringUtils.lowerCase(pattern);
                     }
-                    patternList.add(Pattern.compile(pattern));
+                    patternList.add(pattern);
                 }
 
 
@@ -207,6 +238,7 @@ public class SpiderDetectorServiceImpl implements SpiderDetectorService {
         } else {
             log.info("No patterns loaded from {}", patternsDir.getPath());
         }
+        return new MultiPatternMatcher(patternList);
     }
 
     /**
@@ -17,6 +17,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.PosixParser;
 import org.apache.log4j.Logger;
 import org.apache.tools.ant.taskdefs.Get;
+import org.dspace.core.Context;
 import org.dspace.services.factory.DSpaceServicesFactory;
 import org.dspace.statistics.factory.StatisticsServiceFactory;
 import org.dspace.statistics.service.SolrLoggerService;
@@ -74,6 +75,8 @@ public class StatisticsClient {
                           "While indexing the bundle names remove the statistics about deleted bitstreams");
         options.addOption("s", "shard-solr-index", false,
                           "Split the data from the main Solr core into separate Solr cores per year");
+        options.addOption("p", "rollup", false,
+                          "Roll up the views of the closed days into the usage statistics rollups of the database");
         options.addOption("h", "help", false, "help");
 
         CommandLine line = parser.parse(options, args);
@@ -100,6 +103,16 @@ public class StatisticsClient {
             solrLoggerService.exportHits();
         } else if (line.hasOption('s')) {
             solrLoggerService.shardSolrIndex();
+        } else if (line.hasOption('p')) {
+            Context context = new Context(Context.Mode.BATCH_EDIT);
+            try {
+                StatisticsServiceFactory.getInstance().getUsageRollupService().rollup(context);
+                context.complete();
+            } finally {
+                if (context.isValid()) {
+                    context.abort();
+                }
+            }
         } else {
             printHelp(options, 0);
         }
@@ -44,6 +44,18 @@ public interface BitStoreService {
      */
     public InputStream get(Bitstream bitstream) throws IOException;
 
+    /**
+     * Retrieve a byte range of the bits for bitstream, without reading the bytes before it.
+     *
+     * @param bitstream DSpace Bitstream object
+     * @param offset    position of the first byte to retrieve
+     * @param length    maximum number of bytes to retrieve, or -1 for all bytes from offset to the end
+     * @return The stream of bits in the range, shorter than length if the bitstream ends before
+     * @throws java.io.IOException If a problem occurs while retrieving the bits, or if no
+     *                             asset with ID exists in the store
+     */
+    public InputStream get(Bitstream bitstream, long offset, long length) throws IOException;
+
     /**
      * Store a stream of bits.
      *
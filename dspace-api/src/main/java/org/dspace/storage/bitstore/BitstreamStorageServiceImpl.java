@@ -219,6 +219,13 @@ public class BitstreamStorageServiceImpl implements BitstreamStorageService, Ini
         return stores.get(storeNumber).get(bitstream);
     }
 
+    @Override
+    public InputStream retrieve(Context context, Bitstream bitstream, long offset, long length)
+        throws SQLException, IOException {
+        Integer storeNumber = bitstream.getStoreNumber();
+        return stores.get(storeNumber).get(bitstream, offset, length);
+    }
+
     @Override
     public void cleanup(boolean deleteDbRecords, boolean verbose) throws SQLException, IOException, AuthorizeException {
         Context context = null;
@@ -12,11 +12,15 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.log4j.Logger;
 import org.dspace.content.Bitstream;
 import org.dspace.core.Utils;
@@ -94,6 +98,31 @@ public class DSBitStoreService implements BitStoreService {
         }
     }
 
+    /**
+     * Retrieve a byte range of the bits for the asset, by positioning a file channel at the offset.
+     *
+     * @param bitstream The bitstream to retrieve
+     * @param offset    position of the first byte to retrieve
+     * @param length    maximum number of bytes to retrieve, or -1 for all bytes from offset to the end
+     * @return The stream of bits in the range
+     * @throws java.io.IOException If a problem occurs while retrieving the bits
+     */
+    public InputStream get(Bitstream bitstream, long offset, long length) throws IOException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(getFile(bitstream).toPath(), StandardOpenOption.READ);
+            channel.position(offset);
+            InputStream in = Channels.newInputStream(channel);
+            return length < 0 ? in : new BoundedInputStream(in, length);
+        } catch (Exception e) {
+            if (channel != null) {
+                channel.close();
+            }
+            log.error("get(" + bitstream.getInternalId() + ", " + offset + ", " + length + ")", e);
+            throw new IOException(e);
+        }
+    }
+
     /**
      * Store a stream of bits.
      *
@@ -7,10 +7,22 @@
  */
 package org.dspace.storage.bitstore;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.BasicAWSCredentials;
@@ -18,13 +30,18 @@ import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
-import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
-import org.apache.commons.io.FileUtils;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.apache.log4j.Logger;
@@ -52,6 +69,27 @@ public class S3BitStoreService implements BitStoreService {
      */
     private static final String CSA = "MD5";
 
+    /**
+     * Smallest part size S3 accepts for all but the last part of a multipart upload
+     */
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * Objects up to this size are read into a buffer of their own and sent with a single request, without waiting
+     * for a part buffer
+     */
+    private static final int SMALL_OBJECT_SIZE = 1024 * 1024;
+
+    /**
+     * Largest object S3 copies with a single request
+     */
+    private static final long MAX_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+
+    /**
+     * User metadata of an object holding its hex encoded MD5 checksum, computed while it was uploaded
+     */
+    protected static final String CHECKSUM_METADATA = "dspace-md5";
+
     private String awsAccessKey;
     private String awsSecretKey;
     private String awsRegionName;
@@ -71,6 +109,24 @@ public class S3BitStoreService implements BitStoreService {
      */
     private AmazonS3 s3Service = null;
 
+    /**
+     * Size in bytes of the parts of a multipart upload, uploads smaller than this are sent in a single request
+     */
+    private int partSize = 16 * 1024 * 1024;
+
+    /**
+     * Number of parts uploaded concurrently
+     */
+    private int uploadThreads = 4;
+
+    /**
+     * Part buffers shared by all uploads of objects larger than SMALL_OBJECT_SIZE, bounding the memory used for
+     * them to (uploadThreads + 1) * partSize however many bitstreams are stored at once
+     */
+    protected BufferPool buffers = null;
+
+    private ExecutorService uploadExecutor = null;
+
     public S3BitStoreService() {
     }
 
@@ -87,8 +143,10 @@ public class S3BitStoreService implements BitStoreService {
         }
 
         // init client
-        AWSCredentials awsCredentials = new BasicAWSCredentials(getAwsAccessKey(), getAwsSecretKey());
-        s3Service = new AmazonS3Client(awsCredentials);
+        if (s3Service == null) {
+            AWSCredentials awsCredentials = new BasicAWSCredentials(getAwsAccessKey(), getAwsSecretKey());
+            s3Service = new AmazonS3Client(awsCredentials);
+        }
 
         // bucket name
         if (StringUtils.isEmpty(bucketName)) {
@@ -118,6 +176,16 @@ public class S3BitStoreService implements BitStoreService {
             }
         }
 
+        // multipart uploads
+        partSize = Math.max(MIN_PART_SIZE, partSize);
+        uploadThreads = Math.max(1, uploadThreads);
+        buffers = new BufferPool(uploadThreads + 1, partSize);
+        uploadExecutor = Executors.newFixedThreadPool(uploadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
         log.info("AWS S3 Assetstore ready to go! bucket:" + bucketName);
     }
 
@@ -150,6 +218,37 @@ public class S3BitStoreService implements BitStoreService {
         }
     }
 
+    /**
+     * Retrieve a byte range of the bits for the asset with a ranged GET, so only the requested bytes are
+     * transferred from S3.
+     *
+     * @param bitstream The bitstream to retrieve
+     * @param offset    position of the first byte to retrieve
+     * @param length    maximum number of bytes to retrieve, or -1 for all bytes from offset to the end
+     * @return The stream of bits in the range
+     * @throws java.io.IOException If a problem occurs while retrieving the bits
+     */
+    public InputStream get(Bitstream bitstream, long offset, long length) throws IOException {
+        if (length == 0) {
+            // S3 has no empty ranges
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        String key = getFullKey(bitstream.getInternalId());
+        try {
+            GetObjectRequest request = new GetObjectRequest(bucketName, key);
+            if (length < 0) {
+                request.setRange(offset);
+            } else {
+                request.setRange(offset, offset + length - 1);
+            }
+            S3Object object = s3Service.getObject(request);
+            return (object != null) ? object.getObjectContent() : null;
+        } catch (Exception e) {
+            log.error("get(" + key + ", " + offset + ", " + length + ")", e);
+            throw new IOException(e);
+        }
+    }
+
     /**
      * Store a stream of bits.
      *
@@ -158,40 +257,256 @@ public class S3BitStoreService implements BitStoreService {
      * If an exception is thrown, the bits have not been stored.
      * </p>
      *
-     * @param in The stream of bits to store
+     * <p>
+     * The stream is read into memory while its MD5 checksum and size are computed, it is never copied to local
+     * disk. A small stream is read into a buffer of its own. A larger one is read a part at a time into the shared
+     * part buffers: if it fits in a single part it is sent with one request, otherwise as a multipart upload with
+     * up to <code>uploadThreads</code> parts in flight. The checksum is stored as user metadata of the object, so
+     * {@link #about} never has to read the object.
+     * </p>
+     *
+     * @param in The stream of bits to store, closed once read
      * @throws java.io.IOException If a problem occurs while storing the bits
      */
     public void put(Bitstream bitstream, InputStream in) throws IOException {
         String key = getFullKey(bitstream.getInternalId());
-        //Copy istream to temp file, and send the file, with some metadata
-        File scratchFile = File.createTempFile(bitstream.getInternalId(), "s3bs");
+        DigestInputStream dis;
         try {
-            FileUtils.copyInputStreamToFile(in, scratchFile);
-            Long contentLength = Long.valueOf(scratchFile.length());
+            dis = new DigestInputStream(in, MessageDigest.getInstance(CSA));
+        } catch (NoSuchAlgorithmException e) {
+            log.warn("Caught NoSuchAlgorithmException", e);
+            IOUtils.closeQuietly(in);
+            throw new IOException("Invalid checksum algorithm");
+        }
 
-            PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, key, scratchFile);
-            PutObjectResult putObjectResult = s3Service.putObject(putObjectRequest);
+        byte[] buffer = null;
+        try {
+            byte[] head = read(dis, SMALL_OBJECT_SIZE + 1);
+            long contentLength;
+            String checksum;
+            if (head.length <= SMALL_OBJECT_SIZE) {
+                contentLength = head.length;
+                checksum = Utils.toHex(dis.getMessageDigest().digest());
+                putSinglePart(key, head, head.length, checksum);
+            } else {
+                buffer = buffers.take();
+                System.arraycopy(head, 0, buffer, 0, head.length);
+                int length = head.length + fill(dis, buffer, head.length);
+                if (length < buffer.length) {
+                    contentLength = length;
+                    checksum = Utils.toHex(dis.getMessageDigest().digest());
+                    putSinglePart(key, buffer, length, checksum);
+                } else {
+                    // from here on the buffer is released by the upload of the first part
+                    byte[] first = buffer;
+                    buffer = null;
+                    contentLength = putMultipart(key, dis, first);
+                    checksum = Utils.toHex(dis.getMessageDigest().digest());
+                    putChecksum(key, checksum, contentLength);
+                }
+            }
 
             bitstream.setSizeBytes(contentLength);
-            bitstream.setChecksum(putObjectResult.getETag());
+            bitstream.setChecksum(checksum);
             bitstream.setChecksumAlgorithm(CSA);
-
-            scratchFile.delete();
-
+        } catch (IOException e) {
+            log.error("put(" + bitstream.getInternalId() + ", is)", e);
+            throw e;
         } catch (Exception e) {
             log.error("put(" + bitstream.getInternalId() + ", is)", e);
             throw new IOException(e);
         } finally {
-            if (scratchFile.exists()) {
-                scratchFile.delete();
+            if (buffer != null) {
+                buffers.release(buffer);
+            }
+            IOUtils.closeQuietly(dis);
+        }
+    }
+
+    protected void putSinglePart(String key, byte[] buffer, int length, String checksum) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(length);
+        objectMetadata.addUserMetadata(CHECKSUM_METADATA, checksum);
+        s3Service.putObject(new PutObjectRequest(bucketName, key, new ByteArrayInputStream(buffer, 0, length),
+                                                 objectMetadata));
+    }
+
+    /**
+     * Send a stream as a multipart upload. The upload is aborted if any part fails, so no partial object and
+     * no orphaned parts are left in the bucket.
+     *
+     * @param key   the key of the object
+     * @param in    the rest of the stream
+     * @param first buffer holding the first part, it is released once that part is uploaded
+     * @return the total number of bytes uploaded
+     * @throws Exception if reading the stream or uploading a part failed
+     */
+    protected long putMultipart(String key, InputStream in, byte[] first) throws Exception {
+        String uploadId;
+        try {
+            uploadId = s3Service.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key))
+                                .getUploadId();
+        } catch (RuntimeException e) {
+            buffers.release(first);
+            throw e;
+        }
+        List<Future<PartETag>> parts = new ArrayList<>();
+        try {
+            long contentLength = first.length;
+            parts.add(uploadPart(key, uploadId, 1, first, first.length));
+            int length = first.length;
+            while (length == partSize) {
+                // blocks while all buffers are in use, so reading never gets further ahead than the uploads
+                byte[] buffer = buffers.take();
+                try {
+                    length = fill(in, buffer);
+                } catch (IOException e) {
+                    buffers.release(buffer);
+                    throw e;
+                }
+                if (length == 0) {
+                    buffers.release(buffer);
+                    break;
+                }
+                contentLength += length;
+                parts.add(uploadPart(key, uploadId, parts.size() + 1, buffer, length));
+            }
+
+            List<PartETag> partETags = new ArrayList<>(parts.size());
+            for (Future<PartETag> part : parts) {
+                partETags.add(part.get());
+            }
+            s3Service.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId,
+                                                                                 partETags));
+            return contentLength;
+        } catch (Exception e) {
+            for (Future<PartETag> part : parts) {
+                part.cancel(false);
+            }
+            // wait for the parts in flight, they would otherwise be stored after the upload is aborted
+            for (Future<PartETag> part : parts) {
+                try {
+                    part.get();
+                } catch (Exception ignored) {
+                    // failure or cancellation, already reported through the exception thrown below
+                }
+            }
+            try {
+                s3Service.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+            } catch (Exception abortException) {
+                log.warn("Unable to abort multipart upload " + uploadId + " of " + key, abortException);
             }
+            throw e instanceof ExecutionException && e.getCause() instanceof Exception
+                ? (Exception) e.getCause() : e;
         }
     }
 
+    /**
+     * Store the checksum of an object sent as a multipart upload as its user metadata. The checksum is only known
+     * once the upload is complete, and S3 can only change the metadata of an object by copying it (on the server)
+     * onto itself. An object too large to be copied with a single request keeps no checksum, a failure is only
+     * logged: in both cases {@link #about} computes the checksum by reading the object.
+     *
+     * @param key           the key of the object
+     * @param checksum      hex encoded MD5 checksum of the object
+     * @param contentLength size of the object
+     */
+    protected void putChecksum(String key, String checksum, long contentLength) {
+        if (contentLength > MAX_COPY_SIZE) {
+            log.info("Not storing the checksum of " + key + ", it is too large to be copied");
+            return;
+        }
+        try {
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.addUserMetadata(CHECKSUM_METADATA, checksum);
+            s3Service.copyObject(new CopyObjectRequest(bucketName, key, bucketName, key)
+                                     .withNewObjectMetadata(objectMetadata));
+        } catch (RuntimeException e) {
+            log.warn("Unable to store the checksum of " + key, e);
+        }
+    }
+
+    protected Future<PartETag> uploadPart(String key, String uploadId, int partNumber, byte[] buffer, int length) {
+        try {
+            return uploadExecutor.submit(() -> {
+                try {
+                    UploadPartRequest request = new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withInputStream(new ByteArrayInputStream(buffer, 0, length))
+                        .withPartSize(length);
+                    return s3Service.uploadPart(request).getPartETag();
+                } finally {
+                    buffers.release(buffer);
+                }
+            });
+        } catch (RuntimeException e) {
+            buffers.release(buffer);
+            throw e;
+        }
+    }
+
+    /**
+     * Read from a stream until the buffer is full or the stream ends.
+     *
+     * @param in     the stream
+     * @param buffer the buffer
+     * @return the number of bytes read, less than the size of the buffer only at the end of the stream
+     * @throws IOException if the stream could not be read
+     */
+    protected static int fill(InputStream in, byte[] buffer) throws IOException {
+        return fill(in, buffer, 0);
+    }
+
+    /**
+     * Read from a stream until the buffer is full or the stream ends.
+     *
+     * @param in     the stream
+     * @param buffer the buffer
+     * @param offset position in the buffer of the first byte read
+     * @return the number of bytes read, less than the space left in the buffer only at the end of the stream
+     * @throws IOException if the stream could not be read
+     */
+    protected static int fill(InputStream in, byte[] buffer, int offset) throws IOException {
+        int length = offset;
+        while (length < buffer.length) {
+            int count = in.read(buffer, length, buffer.length - length);
+            if (count == -1) {
+                break;
+            }
+            length += count;
+        }
+        return length - offset;
+    }
+
+    /**
+     * Read from a stream until the limit is reached or the stream ends, in a buffer growing with what is read.
+     *
+     * @param in    the stream
+     * @param limit maximum number of bytes read
+     * @return the bytes read, fewer than the limit only at the end of the stream
+     * @throws IOException if the stream could not be read
+     */
+    protected static byte[] read(InputStream in, int limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8 * 1024];
+        while (out.size() < limit) {
+            int count = in.read(chunk, 0, Math.min(chunk.length, limit - out.size()));
+            if (count == -1) {
+                break;
+            }
+            out.write(chunk, 0, count);
+        }
+        return out.toByteArray();
+    }
+
     /**
      * Obtain technical metadata about an asset in the asset store.
      *
-     * Checksum used is (ETag) hex encoded 128-bit MD5 digest of an object's content as calculated by Amazon S3
+     * Checksum used is the hex encoded 128-bit MD5 digest of an object's content stored with it on upload, or for
+     * objects without it the ETag as calculated by Amazon S3
      * (Does not use getContentMD5, as that is 128-bit MD5 digest calculated on caller's side)
      *
      * @param bitstream The asset to describe
@@ -211,7 +526,7 @@ public class S3BitStoreService implements BitStoreService {
                     attrs.put("size_bytes", objectMetadata.getContentLength());
                 }
                 if (attrs.containsKey("checksum")) {
-                    attrs.put("checksum", objectMetadata.getETag());
+                    attrs.put("checksum", getChecksum(key, objectMetadata));
                     attrs.put("checksum_algorithm", CSA);
                 }
                 if (attrs.containsKey("modified")) {
@@ -230,6 +545,36 @@ public class S3BitStoreService implements BitStoreService {
         return null;
     }
 
+    /**
+     * The MD5 checksum of an object. It is normally stored as user metadata on upload. Otherwise the ETag is the
+     * MD5 checksum for objects stored with a single request; the ETag of a multipart upload (which contains a "-")
+     * is not, the checksum is then computed by reading the object.
+     *
+     * @param key            the key of the object
+     * @param objectMetadata the metadata of the object
+     * @return hex encoded MD5 checksum
+     * @throws Exception if the object could not be read
+     */
+    protected String getChecksum(String key, ObjectMetadata objectMetadata) throws Exception {
+        String checksum = objectMetadata.getUserMetaDataOf(CHECKSUM_METADATA);
+        if (checksum != null) {
+            return checksum;
+        }
+        String eTag = objectMetadata.getETag();
+        if (eTag != null && !eTag.contains("-")) {
+            return eTag;
+        }
+        S3Object object = s3Service.getObject(new GetObjectRequest(bucketName, key));
+        try (DigestInputStream dis = new DigestInputStream(object.getObjectContent(),
+                                                           MessageDigest.getInstance(CSA))) {
+            final byte[] buffer = new byte[64 * 1024];
+            while (dis.read(buffer) != -1) {
+                // only read for the digest
+            }
+            return Utils.toHex(dis.getMessageDigest().digest());
+        }
+    }
+
     /**
      * Remove an asset from the asset store. An irreversible operation.
      *
@@ -260,6 +605,13 @@ public class S3BitStoreService implements BitStoreService {
         }
     }
 
+    /**
+     * @param s3Service the S3 client to use instead of one created by {@link #init}
+     */
+    protected void setS3Service(AmazonS3 s3Service) {
+        this.s3Service = s3Service;
+    }
+
     public String getAwsAccessKey() {
         return awsAccessKey;
     }
@@ -303,6 +655,58 @@ public class S3BitStoreService implements BitStoreService {
         this.subfolder = subfolder;
     }
 
+    public int getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * @param partSize size in bytes of the parts of a multipart upload, at least 5 MB
+     */
+    public void setPartSize(int partSize) {
+        this.partSize = partSize;
+    }
+
+    public int getUploadThreads() {
+        return uploadThreads;
+    }
+
+    /**
+     * @param uploadThreads number of parts uploaded concurrently
+     */
+    public void setUploadThreads(int uploadThreads) {
+        this.uploadThreads = uploadThreads;
+    }
+
+    /**
+     * Fixed number of equally sized buffers, allocated on first use and then reused.
+     */
+    protected static class BufferPool {
+        private final Semaphore available;
+        private final ConcurrentLinkedQueue<byte[]> free = new ConcurrentLinkedQueue<>();
+        private final int bufferSize;
+
+        BufferPool(int buffers, int bufferSize) {
+            this.available = new Semaphore(buffers);
+            this.bufferSize = bufferSize;
+        }
+
+        byte[] take() throws IOException {
+            try {
+                available.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for an upload buffer", e);
+            }
+            byte[] buffer = free.poll();
+            return buffer != null ? buffer : new byte[bufferSize];
+        }
+
+        void release(byte[] buffer) {
+            free.offer(buffer);
+            available.release();
+        }
+    }
+
     /**
      * Contains a command-line testing tool. Expects arguments:
      * -a accessKey -s secretKey -f assetFileName
@@ -125,6 +125,21 @@ public interface BitstreamStorageService {
     public InputStream retrieve(Context context, Bitstream bitstream)
         throws SQLException, IOException;
 
+    /**
+     * Retrieve a byte range of the bits for the bitstream, without reading the bytes before it. Used to serve
+     * HTTP Range requests.
+     *
+     * @param context   The current context
+     * @param bitstream The bitstream to retrieve
+     * @param offset    position of the first byte to retrieve
+     * @param length    maximum number of bytes to retrieve, or -1 for all bytes from offset to the end
+     * @return The stream of bits in the range
+     * @throws IOException  If a problem occurs while retrieving the bits
+     * @throws SQLException If a problem occurs accessing the RDBMS
+     */
+    public InputStream retrieve(Context context, Bitstream bitstream, long offset, long length)
+        throws SQLException, IOException;
+
     /**
      * Clean up the bitstream storage area. This method deletes any bitstreams
      * which are more than 1 hour old and marked deleted. The deletions cannot
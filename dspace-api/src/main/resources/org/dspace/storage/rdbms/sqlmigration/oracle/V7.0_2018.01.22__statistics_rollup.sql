@@ -0,0 +1,34 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+-- ===============================================================
+-- WARNING WARNING WARNING WARNING WARNING WARNING WARNING WARNING
+--
+-- DO NOT MANUALLY RUN THIS DATABASE MIGRATION. IT WILL BE EXECUTED
+-- AUTOMATICALLY (IF NEEDED) BY "FLYWAY" WHEN YOU STARTUP DSPACE.
+-- http://flywaydb.org/
+-- ===============================================================
+
+------------------------------------------------------------------------------------------------------------
+-- Usage statistics rollups: the views of closed days (and months) per object, per country and per type,
+-- folded from the statistics Solr core so reports do not have to count the raw view events.
+------------------------------------------------------------------------------------------------------------
+CREATE SEQUENCE statistics_rollup_seq;
+
+CREATE TABLE statistics_rollup
+(
+  rollup_id INTEGER PRIMARY KEY,
+  period VARCHAR2(10) NOT NULL,
+  dso_type INTEGER NOT NULL,
+  dso_id VARCHAR2(36),
+  country_code VARCHAR2(8),
+  views NUMBER(19) NOT NULL
+);
+
+CREATE INDEX statistics_rollup_dso_idx ON statistics_rollup(dso_id, period);
+CREATE INDEX statistics_rollup_period_idx ON statistics_rollup(period);
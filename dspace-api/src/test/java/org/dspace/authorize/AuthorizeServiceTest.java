@@ -22,6 +22,7 @@ import org.dspace.eperson.Group;
 import org.dspace.eperson.factory.EPersonServiceFactory;
 import org.dspace.eperson.service.EPersonService;
 import org.dspace.eperson.service.GroupService;
+import org.dspace.services.factory.DSpaceServicesFactory;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -126,4 +127,53 @@ public class AuthorizeServiceTest extends AbstractUnitTest {
             throw new RuntimeException(ex);
         }
     }
+
+    @Test
+    public void testSharedCacheIsInvalidatedByPolicyChanges() throws Exception {
+        AuthorizationCache authorizationCache = DSpaceServicesFactory.getInstance().getServiceManager()
+            .getServiceByName(AuthorizationCache.class.getName(), AuthorizationCache.class);
+        boolean enabled = authorizationCache.enabled;
+
+        EPerson eperson1;
+        Group group1;
+        Community dso;
+        try {
+            context.turnOffAuthorisationSystem();
+
+            eperson1 = ePersonService.create(context);
+            group1 = groupService.create(context);
+            // A group has to have a name, otherwise there are queries that break
+            groupService.setName(group1, "My test group 3");
+            groupService.addMember(context, group1, eperson1);
+            groupService.update(context, group1);
+
+            dso = communityService.create(null, context);
+            authorizeService.addPolicy(context, dso, Constants.READ, group1);
+            context.commit();
+        } finally {
+            context.restoreAuthSystemState();
+        }
+
+        try {
+            authorizationCache.enabled = true;
+            authorizationCache.invalidateAll();
+            long hits = authorizationCache.getHitCount();
+
+            Assert.assertTrue(authorizeService.authorizeActionBoolean(context, eperson1, dso, Constants.READ, true));
+            // the second check is answered by the shared cache
+            Assert.assertTrue(authorizeService.authorizeActionBoolean(context, eperson1, dso, Constants.READ, true));
+            Assert.assertEquals(hits + 1, authorizationCache.getHitCount());
+
+            // committing the removal of the policy must clear the cached decision
+            context.turnOffAuthorisationSystem();
+            authorizeService.removeAllPolicies(context, dso);
+            context.commit();
+            context.restoreAuthSystemState();
+
+            Assert.assertFalse(authorizeService.authorizeActionBoolean(context, eperson1, dso, Constants.READ, true));
+        } finally {
+            authorizationCache.enabled = enabled;
+            authorizationCache.invalidateAll();
+        }
+    }
 }
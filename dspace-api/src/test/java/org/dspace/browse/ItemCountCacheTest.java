@@ -0,0 +1,206 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import mockit.Mock;
+import mockit.MockUp;
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.Item;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.InstallItemService;
+import org.dspace.content.service.ItemService;
+import org.dspace.content.service.WorkspaceItemService;
+import org.dspace.core.Context;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ItemCountCache} and {@link ItemCountConsumer}: the containers of installed, withdrawn and moved
+ * items are counted again once the changes are committed. Counting is replaced by a stub recording the filters.
+ */
+public class ItemCountCacheTest extends AbstractUnitTest {
+
+    private static final Logger log = Logger.getLogger(ItemCountCacheTest.class);
+
+    protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    protected ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+    protected InstallItemService installItemService = ContentServiceFactory.getInstance().getInstallItemService();
+    protected WorkspaceItemService workspaceItemService = ContentServiceFactory.getInstance().getWorkspaceItemService();
+
+    private ItemCountCache itemCountCache;
+    private long delayMillis;
+
+    private Community community;
+    private Collection collection;
+    private Collection otherCollection;
+
+    /**
+     * Filter of every count, null for a count of all containers
+     */
+    private final List<String> counts = new ArrayList<>();
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        new MockUp<ItemCountCache>() {
+            @Mock
+            void count(String filter, Map<String, Integer> communities, Map<String, Integer> collections) {
+                counts.add(filter);
+            }
+        };
+        itemCountCache = DSpaceServicesFactory.getInstance().getServiceManager()
+            .getServiceByName(ItemCountCache.class.getName(), ItemCountCache.class);
+        delayMillis = itemCountCache.delayMillis;
+        try {
+            context.turnOffAuthorisationSystem();
+            community = communityService.create(null, context);
+            collection = collectionService.create(context, community);
+            otherCollection = collectionService.create(context, community);
+            context.commit();
+            context.restoreAuthSystemState();
+        } catch (Exception ex) {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+        itemCountCache.delayMillis = 0;
+        readCounts();
+    }
+
+    @After
+    @Override
+    public void destroy() {
+        itemCountCache.delayMillis = delayMillis;
+        try {
+            context.turnOffAuthorisationSystem();
+            communityService.delete(context, communityService.find(context, community.getID()));
+            context.restoreAuthSystemState();
+        } catch (Exception ex) {
+            log.error("Error in destroy", ex);
+            fail("Error in destroy: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    /**
+     * Bring the counts up to date and forget the counts done so far.
+     */
+    private void readCounts() {
+        try {
+            itemCountCache.getCollectionCount(collection.getID());
+        } catch (ItemCountException ex) {
+            fail("Error counting: " + ex.getMessage());
+        }
+        counts.clear();
+    }
+
+    private Item installItem(Context ctx, Collection owner) throws Exception {
+        WorkspaceItem workspaceItem = workspaceItemService.create(ctx, owner, false);
+        return installItemService.installItem(ctx, workspaceItem);
+    }
+
+    private void assertRecounted(Collection... collections) throws Exception {
+        itemCountCache.getCollectionCount(collection.getID());
+        assertEquals(1, counts.size());
+        String filter = counts.get(0);
+        for (Collection c : collections) {
+            assertTrue(filter, filter.contains(c.getID().toString()));
+        }
+        assertTrue(filter, filter.contains("location.comm:(" + community.getID() + ")"));
+    }
+
+    @Test
+    public void testInstalledItem() throws Exception {
+        context.turnOffAuthorisationSystem();
+        installItem(context, collection);
+        context.commit();
+        context.restoreAuthSystemState();
+
+        assertRecounted(collection);
+    }
+
+    @Test
+    public void testWithdrawnItem() throws Exception {
+        context.turnOffAuthorisationSystem();
+        Item item = installItem(context, collection);
+        context.commit();
+        readCounts();
+
+        itemService.withdraw(context, itemService.find(context, item.getID()));
+        context.commit();
+        context.restoreAuthSystemState();
+
+        assertRecounted(collection);
+    }
+
+    @Test
+    public void testMovedItem() throws Exception {
+        context.turnOffAuthorisationSystem();
+        Item item = installItem(context, collection);
+        context.commit();
+        readCounts();
+
+        itemService.move(context, itemService.find(context, item.getID()),
+                         collectionService.find(context, collection.getID()),
+                         collectionService.find(context, otherCollection.getID()));
+        context.commit();
+        context.restoreAuthSystemState();
+
+        assertRecounted(collection, otherCollection);
+    }
+
+    @Test
+    public void testRolledBackChangeIsNotCounted() throws Exception {
+        Context other = new Context();
+        try {
+            other.turnOffAuthorisationSystem();
+            other.setCurrentUser(other.reloadEntity(eperson));
+            installItem(other, collectionService.find(other, collection.getID()));
+            // the consumers see the change, then the transaction is rolled back
+            other.dispatchEvents();
+        } finally {
+            other.abort();
+        }
+
+        itemCountCache.getCollectionCount(collection.getID());
+        assertTrue(counts.isEmpty());
+    }
+
+    @Test
+    public void testDelayedUntilVisible() throws Exception {
+        itemCountCache.delayMillis = 60000;
+        context.turnOffAuthorisationSystem();
+        installItem(context, collection);
+        context.commit();
+        context.restoreAuthSystemState();
+
+        // Solr does not show the new item yet, the counts are not read again
+        itemCountCache.getCollectionCount(collection.getID());
+        assertTrue(counts.isEmpty());
+
+        itemCountCache.delayMillis = 0;
+        assertRecounted(collection);
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mockit.Mock;
+import mockit.MockUp;
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.Context;
+import org.dspace.discovery.DiscoverFacetField;
+import org.dspace.discovery.DiscoverQuery;
+import org.dspace.discovery.DiscoverResult;
+import org.dspace.discovery.SolrServiceImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the distinct value browses of {@link SolrBrowseDAO}, with a search service answering facet requests
+ * from a fixed list of values.
+ */
+public class SolrBrowseDAOTest extends AbstractUnitTest {
+
+    private static final String FACET_FIELD = "subject";
+
+    private static final int VALUES = 50;
+
+    /**
+     * Facet limit of every facet request sent to the search service
+     */
+    private final List<Integer> requests = new ArrayList<>();
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        new MockUp<SolrServiceImpl>() {
+            @Mock
+            public DiscoverResult search(Context context, DiscoverQuery query, boolean includeUnDiscoverable) {
+                DiscoverFacetField field = query.getFacetFields().get(0);
+                requests.add(field.getLimit());
+                DiscoverResult result = new DiscoverResult();
+                int offset = Math.max(0, field.getOffset());
+                int end = field.getLimit() < 0 ? VALUES : Math.min(VALUES, offset + field.getLimit());
+                for (int i = offset; i < end; i++) {
+                    String value = String.format("v%03d", i);
+                    result.addFacetResult(FACET_FIELD, new DiscoverResult.FacetResult(
+                        value, value, null, value, 1, DiscoverFacetField.class.getSimpleName()));
+                }
+                return result;
+            }
+        };
+        SolrBrowseValueCache valueCache = new SolrBrowseDAO(context).valueCache;
+        if (valueCache != null) {
+            valueCache.invalidate();
+        }
+    }
+
+    private SolrBrowseDAO createDAO(int offset, int limit) {
+        SolrBrowseDAO dao = new SolrBrowseDAO(context);
+        dao.setTable(FACET_FIELD);
+        dao.setDistinct(true);
+        dao.setOffset(offset);
+        dao.setLimit(limit);
+        return dao;
+    }
+
+    @Test
+    public void testWithoutValueCache() throws Exception {
+        SolrBrowseDAO dao = createDAO(20, 10);
+        dao.valueCache = null;
+        assertEquals(VALUES, dao.doCountQuery());
+        List<String[]> page = dao.doValueQuery();
+        assertEquals(10, page.size());
+        assertEquals("v020", page.get(0)[0]);
+        assertEquals(20, dao.doDistinctOffsetQuery(null, "v020", true));
+        // the values read to count them serve the page and the offset too
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void testLoggedInUserPagesFromCache() throws Exception {
+        context.setCurrentUser(eperson);
+
+        SolrBrowseDAO dao = createDAO(20, 10);
+        List<String[]> page = dao.doValueQuery();
+        assertEquals(10, page.size());
+        assertEquals("v020", page.get(0)[0]);
+        assertEquals(1, requests.size());
+
+        // the next page is the only value request, the count comes from the cache
+        requests.clear();
+        dao = createDAO(30, 10);
+        assertEquals(VALUES, dao.doCountQuery());
+        page = dao.doValueQuery();
+        assertEquals("v030", page.get(0)[0]);
+        assertEquals(1, requests.size());
+        assertEquals(10, (int) requests.get(0));
+    }
+
+    @Test
+    public void testDescendingPage() throws Exception {
+        SolrBrowseDAO dao = createDAO(0, 5);
+        dao.setAscending(false);
+        List<String[]> page = dao.doValueQuery();
+        assertEquals(5, page.size());
+        assertEquals("v049", page.get(0)[0]);
+        assertEquals("v045", page.get(4)[0]);
+    }
+}
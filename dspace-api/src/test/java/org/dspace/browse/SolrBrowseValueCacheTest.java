@@ -0,0 +1,54 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.browse;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SolrBrowseValueCache.DistinctValues}.
+ */
+public class SolrBrowseValueCacheTest {
+
+    @Test
+    public void testGetBlockStart() {
+        // "v000" to "v998", even numbers only
+        List<String> sortValues = new ArrayList<>();
+        for (int i = 0; i < 1000; i += 2) {
+            sortValues.add(String.format("v%03d", i));
+        }
+        SolrBrowseValueCache.DistinctValues values = new SolrBrowseValueCache.DistinctValues(sortValues, 10);
+        assertEquals(500, values.getCount());
+        assertEquals(10, values.getInterval());
+
+        for (String value : new String[] {"v", "v000", "v001", "v020", "v021", "v500", "v997", "v998", "w"}) {
+            int expected = Collections.binarySearch(sortValues, value);
+            expected = expected >= 0 ? expected : -(expected + 1);
+            int start = values.getBlockStart(value);
+            if (expected == 0) {
+                assertEquals(value, -1, start);
+            } else {
+                // the first value not sorting before the given one is within the block
+                assertEquals(value, true, start < expected && expected <= start + values.getInterval());
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        SolrBrowseValueCache.DistinctValues values =
+            new SolrBrowseValueCache.DistinctValues(Collections.<String>emptyList(), 100);
+        assertEquals(0, values.getCount());
+        assertEquals(-1, values.getBlockStart("a"));
+    }
+}
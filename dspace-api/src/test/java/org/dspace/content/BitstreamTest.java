@@ -11,6 +11,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -19,11 +20,14 @@ import static org.junit.Assert.fail;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
 import mockit.NonStrictExpectations;
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.factory.ContentServiceFactory;
@@ -441,6 +445,34 @@ public class BitstreamTest extends AbstractDSpaceObjectTest {
         assertThat("testRetrieveCanRead 0", bitstreamService.retrieve(context, bs), notNullValue());
     }
 
+    /**
+     * Test of retrieve method with a byte range, of class Bitstream.
+     */
+    @Test
+    public void testRetrieveRange() throws IOException, SQLException, AuthorizeException {
+        new NonStrictExpectations(authorizeService.getClass()) {{
+            // Allow Bitstream READ perms
+            authorizeService.authorizeAction((Context) any, (Bitstream) any,
+                                             Constants.READ);
+            result = null;
+        }};
+
+        byte[] content = IOUtils.toByteArray(bitstreamService.retrieve(context, bs));
+        int offset = content.length / 3;
+        try (InputStream in = bitstreamService.retrieve(context, bs, offset, 10)) {
+            assertArrayEquals("testRetrieveRange 0", Arrays.copyOfRange(content, offset, offset + 10),
+                              IOUtils.toByteArray(in));
+        }
+        try (InputStream in = bitstreamService.retrieve(context, bs, offset, -1)) {
+            assertArrayEquals("testRetrieveRange 1", Arrays.copyOfRange(content, offset, content.length),
+                              IOUtils.toByteArray(in));
+        }
+        try (InputStream in = bitstreamService.retrieve(context, bs, content.length - 5, 10)) {
+            assertArrayEquals("testRetrieveRange 2", Arrays.copyOfRange(content, content.length - 5, content.length),
+                              IOUtils.toByteArray(in));
+        }
+    }
+
     /**
      * Test of retrieve method, of class Bitstream.
      */
@@ -0,0 +1,129 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.dspace.content.CommunityHierarchySnapshot.Node;
+import org.dspace.core.Constants;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CommunityHierarchySnapshot}.
+ */
+public class CommunityHierarchySnapshotTest {
+
+    private final UUID top = UUID.randomUUID();
+    private final UUID otherTop = UUID.randomUUID();
+    private final UUID sub = UUID.randomUUID();
+    private final UUID subSub = UUID.randomUUID();
+    private final UUID collection = UUID.randomUUID();
+    private final UUID shared = UUID.randomUUID();
+
+    private CommunityHierarchySnapshot snapshot;
+
+    /**
+     * Two top communities "Beta" and "alpha". Beta has subcommunity "Sub", which has subcommunity "SubSub" and
+     * collection "Collection". Collection "Shared" is in both SubSub and alpha.
+     */
+    @Before
+    public void init() {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(community(top, "Beta"));
+        nodes.add(community(otherTop, "alpha"));
+        nodes.add(community(sub, "Sub", top));
+        nodes.add(community(subSub, "SubSub", sub));
+        nodes.add(collection(collection, "Collection", sub));
+        nodes.add(collection(shared, "Shared", subSub, otherTop));
+        snapshot = new CommunityHierarchySnapshot(nodes, 42);
+    }
+
+    private Node community(UUID id, String name, UUID... parents) {
+        return new Node(id, Constants.COMMUNITY, "123456789/" + name, name, Arrays.asList(parents));
+    }
+
+    private Node collection(UUID id, String name, UUID... parents) {
+        return new Node(id, Constants.COLLECTION, "123456789/" + name, name, Arrays.asList(parents));
+    }
+
+    private List<UUID> ids(List<Node> nodes) {
+        List<UUID> ids = new ArrayList<>();
+        for (Node node : nodes) {
+            ids.add(node.getID());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testTree() {
+        assertEquals(Arrays.asList(otherTop, top), ids(snapshot.getTopCommunities()));
+        assertEquals(Collections.singletonList(sub), ids(snapshot.getSubcommunities(top)));
+        assertEquals(Collections.singletonList(subSub), ids(snapshot.getSubcommunities(sub)));
+        assertEquals(Collections.singletonList(collection), ids(snapshot.getCollections(sub)));
+        assertEquals(Collections.singletonList(shared), ids(snapshot.getCollections(otherTop)));
+        assertTrue(snapshot.getCollections(top).isEmpty());
+        assertTrue(snapshot.getSubcommunities(UUID.randomUUID()).isEmpty());
+        assertEquals("123456789/Sub", snapshot.getNode(sub).getHandle());
+        assertEquals(6, snapshot.getSize());
+    }
+
+    @Test
+    public void testPath() {
+        assertEquals(Arrays.asList(top, sub), ids(snapshot.getPath(collection)));
+        // alpha sorts before SubSub
+        assertEquals(Collections.singletonList(otherTop), ids(snapshot.getPath(shared)));
+        assertEquals(Arrays.asList(otherTop, subSub), ids(snapshot.getParents(shared)));
+        assertTrue(snapshot.getPath(top).isEmpty());
+        assertTrue(snapshot.getPath(UUID.randomUUID()).isEmpty());
+    }
+
+    /**
+     * Test method for {@link CommunityHierarchySnapshot#with(java.util.Collection, java.util.Collection)}.
+     */
+    @Test
+    public void testWith() {
+        Node renamed = community(sub, "A sub", top);
+        Node moved = collection(collection, "Collection", top);
+        UUID created = UUID.randomUUID();
+        CommunityHierarchySnapshot patched = snapshot.with(
+            Arrays.asList(renamed, moved, community(created, "Z sub", top)), Collections.<UUID>emptyList());
+
+        assertEquals(Arrays.asList(sub, created), ids(patched.getSubcommunities(top)));
+        assertEquals("A sub", patched.getNode(sub).getName());
+        assertEquals(Collections.singletonList(collection), ids(patched.getCollections(top)));
+        assertTrue(patched.getCollections(sub).isEmpty());
+        assertEquals(42, patched.getCreated());
+
+        // the original is unchanged
+        assertEquals(Collections.singletonList(collection), ids(snapshot.getCollections(sub)));
+        assertEquals("Sub", snapshot.getNode(sub).getName());
+    }
+
+    @Test
+    public void testDeleteCascades() {
+        CommunityHierarchySnapshot patched = snapshot.with(Collections.<Node>emptyList(),
+                                                           Collections.singletonList(top));
+
+        assertNull(patched.getNode(sub));
+        assertNull(patched.getNode(subSub));
+        assertNull(patched.getNode(collection));
+        // still in alpha
+        assertEquals(Collections.singletonList(otherTop), ids(patched.getParents(shared)));
+        assertEquals(Collections.singletonList(otherTop), ids(patched.getTopCommunities()));
+        assertEquals(2, patched.getSize());
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.core.Context;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CommunityHierarchy} and {@link CommunityHierarchyConsumer}: the shared snapshot only follows
+ * committed changes, and parent paths are the same with or without it.
+ */
+public class CommunityHierarchyTest extends AbstractUnitTest {
+
+    private static final Logger log = Logger.getLogger(CommunityHierarchyTest.class);
+
+    protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+
+    private CommunityHierarchy communityHierarchy;
+    private boolean enabled;
+
+    private UUID top;
+    private UUID otherTop;
+    private UUID sub;
+    private UUID shared;
+
+    /**
+     * Two top communities "Beta" and "alpha". Beta has subcommunity "Sub", collection "Shared" is in both Sub and
+     * alpha.
+     */
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        communityHierarchy = DSpaceServicesFactory.getInstance().getServiceManager()
+            .getServiceByName(CommunityHierarchy.class.getName(), CommunityHierarchy.class);
+        enabled = communityHierarchy.enabled;
+        try {
+            context.turnOffAuthorisationSystem();
+            Community beta = createCommunity(null, "Beta");
+            Community alpha = createCommunity(null, "alpha");
+            Community subCommunity = createCommunity(beta, "Sub");
+            Collection collection = collectionService.create(context, subCommunity);
+            collectionService.setMetadata(context, collection, "name", "Shared");
+            collectionService.update(context, collection);
+            communityService.addCollection(context, alpha, collection);
+            context.commit();
+            context.restoreAuthSystemState();
+            top = beta.getID();
+            otherTop = alpha.getID();
+            sub = subCommunity.getID();
+            shared = collection.getID();
+        } catch (Exception ex) {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+        communityHierarchy.enabled = true;
+        communityHierarchy.invalidate();
+    }
+
+    @After
+    @Override
+    public void destroy() {
+        communityHierarchy.enabled = enabled;
+        communityHierarchy.invalidate();
+        try {
+            context.turnOffAuthorisationSystem();
+            communityService.delete(context, communityService.find(context, otherTop));
+            communityService.delete(context, communityService.find(context, top));
+            context.restoreAuthSystemState();
+        } catch (Exception ex) {
+            log.error("Error in destroy", ex);
+            fail("Error in destroy: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    private Community createCommunity(Community parent, String name) throws Exception {
+        Community community = communityService.create(parent, context);
+        communityService.setMetadata(context, community, "name", name);
+        communityService.update(context, community);
+        return community;
+    }
+
+    private List<UUID> ids(List<Community> communities) {
+        List<UUID> ids = new ArrayList<>();
+        for (Community community : communities) {
+            ids.add(community.getID());
+        }
+        return ids;
+    }
+
+    private void rename(Context ctx, UUID id, String name) throws Exception {
+        Community community = communityService.find(ctx, id);
+        communityService.setMetadata(ctx, community, "name", name);
+        communityService.update(ctx, community);
+    }
+
+    @Test
+    public void testParentPathWithAndWithoutSnapshot() throws Exception {
+        assertNotNull(communityHierarchy.getSnapshot(context));
+        // alpha sorts before Sub
+        assertEquals(Collections.singletonList(otherTop), ids(communityHierarchy.getParentPath(context, shared)));
+        assertEquals(Collections.singletonList(top), ids(communityHierarchy.getParentPath(context, sub)));
+        assertTrue(communityHierarchy.getParentPath(context, top).isEmpty());
+        assertNull(communityHierarchy.getParentPath(context, UUID.randomUUID()));
+
+        communityHierarchy.enabled = false;
+        assertEquals(Collections.singletonList(otherTop), ids(communityHierarchy.getParentPath(context, shared)));
+        assertEquals(Collections.singletonList(top), ids(communityHierarchy.getParentPath(context, sub)));
+        assertTrue(communityHierarchy.getParentPath(context, top).isEmpty());
+        assertNull(communityHierarchy.getParentPath(context, UUID.randomUUID()));
+    }
+
+    @Test
+    public void testCommittedChangeIsPatched() throws Exception {
+        CommunityHierarchySnapshot snapshot = communityHierarchy.getSnapshot(context);
+
+        context.turnOffAuthorisationSystem();
+        // Sub now sorts before alpha
+        rename(context, sub, "A sub");
+        Community created = createCommunity(communityService.find(context, otherTop), "Created");
+        context.commit();
+        context.restoreAuthSystemState();
+
+        CommunityHierarchySnapshot patched = communityHierarchy.getSnapshot(context);
+        assertNotSame(snapshot, patched);
+        assertEquals("patched, not read again", snapshot.getCreated(), patched.getCreated());
+        assertEquals("A sub", patched.getNode(sub).getName());
+        assertEquals(created.getID(), patched.getSubcommunities(otherTop).get(0).getID());
+        assertEquals(Arrays.asList(top, sub), ids(communityHierarchy.getParentPath(context, shared)));
+    }
+
+    @Test
+    public void testRolledBackChangeIsNotApplied() throws Exception {
+        CommunityHierarchySnapshot snapshot = communityHierarchy.getSnapshot(context);
+
+        Context other = new Context();
+        try {
+            other.turnOffAuthorisationSystem();
+            rename(other, sub, "Rolled back");
+            // the consumers see the change, then the transaction is rolled back
+            other.dispatchEvents();
+        } finally {
+            other.abort();
+        }
+
+        assertSame(snapshot, communityHierarchy.getSnapshot(context));
+        assertEquals("Sub", snapshot.getNode(sub).getName());
+    }
+
+    @Test
+    public void testDeletedCollectionIsRemoved() throws Exception {
+        CommunityHierarchySnapshot snapshot = communityHierarchy.getSnapshot(context);
+
+        context.turnOffAuthorisationSystem();
+        Collection collection = collectionService.find(context, shared);
+        communityService.removeCollection(context, communityService.find(context, otherTop), collection);
+        communityService.removeCollection(context, communityService.find(context, sub), collection);
+        context.commit();
+        context.restoreAuthSystemState();
+
+        CommunityHierarchySnapshot patched = communityHierarchy.getSnapshot(context);
+        assertEquals(snapshot.getCreated(), patched.getCreated());
+        assertNull(patched.getNode(shared));
+        assertTrue(patched.getCollections(otherTop).isEmpty());
+        assertTrue(patched.getCollections(sub).isEmpty());
+    }
+}
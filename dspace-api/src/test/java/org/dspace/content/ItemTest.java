@@ -34,6 +34,8 @@ import org.apache.log4j.Logger;
 import org.dspace.app.util.AuthorizeUtil;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.authorize.ResourcePolicy;
+import org.dspace.content.ItemBitstreamCriteria.Count;
+import org.dspace.content.ItemBitstreamCriteria.Operator;
 import org.dspace.content.factory.ContentServiceFactory;
 import org.dspace.content.service.BitstreamFormatService;
 import org.dspace.content.service.MetadataFieldService;
@@ -194,6 +196,66 @@ public class ItemTest extends AbstractDSpaceObjectTest {
         assertTrue("testFindAll 1", added);
     }
 
+    /**
+     * Test of findAllUnfilteredIds method, of class Item.
+     */
+    @Test
+    public void testFindAllUnfilteredIds() throws Exception {
+        List<UUID> all = new ArrayList<>();
+        List<UUID> page = itemService.findAllUnfilteredIds(context, null, 1);
+        while (!page.isEmpty()) {
+            assertEquals("testFindAllUnfilteredIds 0", 1, page.size());
+            all.addAll(page);
+            page = itemService.findAllUnfilteredIds(context, page.get(0), 1);
+        }
+        assertTrue("testFindAllUnfilteredIds 1", all.contains(it.getID()));
+        assertEquals("testFindAllUnfilteredIds 2", all.size(), itemService.findAllUnfilteredIds(context, null,
+            all.size() + 1).size());
+    }
+
+    /**
+     * Test of findAllUnfiltered method paged after an item, of class Item.
+     */
+    @Test
+    public void testFindAllUnfilteredAfter() throws Exception {
+        List<UUID> all = itemService.findAllUnfilteredIds(context, null, Integer.MAX_VALUE);
+        List<UUID> paged = new ArrayList<>();
+        UUID after = null;
+        Iterator<Item> page = itemService.findAllUnfiltered(context, after, 1, null);
+        while (page.hasNext()) {
+            after = page.next().getID();
+            assertFalse("testFindAllUnfilteredAfter 0", page.hasNext());
+            paged.add(after);
+            page = itemService.findAllUnfiltered(context, after, 1, null);
+        }
+        assertEquals("testFindAllUnfilteredAfter 1", all, paged);
+    }
+
+    /**
+     * Test of findIdsMatching method, of class Item.
+     */
+    @Test
+    public void testFindIdsMatching() throws Exception {
+        context.turnOffAuthorisationSystem();
+        File f = new File(testProps.get("test.bitstream").toString());
+        Bitstream bitstream = itemService.createSingleBitstream(context, new FileInputStream(f), it, "ORIGINAL");
+        context.restoreAuthSystemState();
+        String mime = bitstream.getFormat(context).getMIMEType();
+
+        List<UUID> ids = Arrays.asList(it.getID());
+        assertEquals("testFindIdsMatching 0", ids, itemService.findIdsMatching(context, ids, ItemBitstreamCriteria
+            .where(new Count("ORIGINAL").withMimeTypes(Arrays.asList(mime)), Operator.EQUAL, 1)));
+        assertTrue("testFindIdsMatching 1", itemService.findIdsMatching(context, ids, ItemBitstreamCriteria
+            .where(new Count("ORIGINAL").withMimeTypes(Arrays.asList("none/none")), Operator.GREATER, 0)).isEmpty());
+        assertEquals("testFindIdsMatching 2", ids, itemService.findIdsMatching(context, ids, ItemBitstreamCriteria
+            .where(new Count("ORIGINAL").withMimeTypePrefix(mime.substring(0, 2)), Operator.EQUAL, 1)
+            .and(new Count("TEXT"), Operator.EQUAL, 0)));
+        assertEquals("testFindIdsMatching 3", ids, itemService.findIdsMatching(context, ids, ItemBitstreamCriteria
+            .where(new Count("ORIGINAL"), Operator.GREATER, new Count("LICENSE"), new Count("TEXT"))));
+        assertTrue("testFindIdsMatching 4", itemService.findIdsMatching(context, ids, ItemBitstreamCriteria
+            .where(new Count("ORIGINAL").largerThan(bitstream.getSize()), Operator.GREATER, 0)).isEmpty());
+    }
+
     /**
      * Test of findBySubmitter method, of class Item.
      */
@@ -316,6 +378,59 @@ public class ItemTest extends AbstractDSpaceObjectTest {
         assertTrue("testGetMetadata_4args 1", dc.size() == 0);
     }
 
+    /**
+     * Test of getMetadata method, of class Item, on an item with many values in several fields.
+     */
+    @Test
+    public void testGetMetadata_manyValues() throws SQLException {
+        for (int i = 0; i < 200; i++) {
+            itemService.addMetadata(context, it, "dc", "contributor", "author", null, "author " + i);
+            itemService.addMetadata(context, it, "dc", "subject", null, "en", "subject " + i);
+            itemService.addMetadata(context, it, "dc", "subject", "other", null, "other " + i);
+        }
+
+        List<MetadataValue> authors = itemService.getMetadata(it, "dc", "contributor", "author", Item.ANY);
+        assertEquals("testGetMetadata_manyValues 0", 200, authors.size());
+        assertEquals("testGetMetadata_manyValues 1", "author 0", authors.get(0).getValue());
+        assertEquals("testGetMetadata_manyValues 2", "author 199", authors.get(199).getValue());
+        assertEquals("testGetMetadata_manyValues 3", 200,
+                     itemService.getMetadata(it, "dc", "subject", null, Item.ANY).size());
+        assertEquals("testGetMetadata_manyValues 4", 200,
+                     itemService.getMetadata(it, "dc", "subject", "", "en").size());
+        assertEquals("testGetMetadata_manyValues 5", 0,
+                     itemService.getMetadata(it, "dc", "subject", null, null).size());
+        assertEquals("testGetMetadata_manyValues 6", 400,
+                     itemService.getMetadata(it, "dc", "subject", Item.ANY, Item.ANY).size());
+        assertEquals("testGetMetadata_manyValues 7", 200,
+                     itemService.getMetadata(it, Item.ANY, Item.ANY, "author", Item.ANY).size());
+
+        // changes to the metadata must be visible immediately
+        itemService.addMetadata(context, it, "dc", "contributor", "author", null, "author 200");
+        assertEquals("testGetMetadata_manyValues 8", 201,
+                     itemService.getMetadata(it, "dc", "contributor", "author", Item.ANY).size());
+        itemService.clearMetadata(context, it, "dc", "subject", Item.ANY, Item.ANY);
+        assertEquals("testGetMetadata_manyValues 9", 0,
+                     itemService.getMetadata(it, "dc", "subject", Item.ANY, Item.ANY).size());
+        itemService.removeMetadataValues(context, it, authors.subList(0, 100));
+        assertEquals("testGetMetadata_manyValues 10", 101,
+                     itemService.getMetadata(it, "dc", "contributor", "author", Item.ANY).size());
+    }
+
+    /**
+     * Test of getMetadata method, of class Item, after a value is moved to another field.
+     */
+    @Test
+    public void testGetMetadata_fieldChanged() throws SQLException {
+        itemService.addMetadata(context, it, "dc", "subject", null, null, "moved");
+        MetadataValue value = itemService.getMetadata(it, "dc", "subject", null, Item.ANY).get(0);
+
+        value.setMetadataField(metadataFieldService.findByElement(context, "dc", "description", null));
+        assertEquals("testGetMetadata_fieldChanged 0", 0,
+                     itemService.getMetadata(it, "dc", "subject", null, Item.ANY).size());
+        assertEquals("testGetMetadata_fieldChanged 1", "moved",
+                     itemService.getMetadataFirstValue(it, "dc", "description", null, Item.ANY));
+    }
+
     /**
      * Test of getMetadataByMetadataString method, of class Item.
      */
@@ -24,6 +24,7 @@ import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.factory.ContentServiceFactory;
 import org.dspace.content.service.MetadataFieldService;
 import org.dspace.content.service.MetadataSchemaService;
+import org.dspace.services.factory.DSpaceServicesFactory;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -266,6 +267,37 @@ public class MetadataFieldTest extends AbstractUnitTest {
         assertThat("testFindByElement 3", found.getQualifier(), equalTo(mf.getQualifier()));
     }
 
+    /**
+     * Test of findByElement method, of class MetadataField, through the registry cache after the field is renamed.
+     */
+    @Test
+    public void testFindByElementRenamed() throws Exception {
+        new NonStrictExpectations(authorizeService.getClass()) {{
+            // Allow full admin permissions
+            authorizeService.isAdmin(context);
+            result = true;
+        }};
+
+        MetadataRegistryCache registryCache = DSpaceServicesFactory.getInstance().getServiceManager()
+            .getServiceByName(MetadataRegistryCache.class.getName(), MetadataRegistryCache.class);
+        MetadataField m = metadataFieldService.create(context, dcSchema, "elem5", null, null);
+        assertThat("testFindByElementRenamed 0", metadataFieldService.findByElement(context,
+            MetadataSchema.DC_SCHEMA, "elem5", ""), equalTo(m));
+        assertThat("testFindByElementRenamed 1", registryCache.getFieldId("dc.elem5"), equalTo(m.getID()));
+        assertThat("testFindByElementRenamed 2", registryCache.getFieldName(m.getID()), equalTo("dc.elem5"));
+
+        m.setQualifier("qual5");
+        metadataFieldService.update(context, m);
+        assertThat("testFindByElementRenamed 3", metadataFieldService.findByElement(context,
+            MetadataSchema.DC_SCHEMA, "elem5", null), nullValue());
+        assertThat("testFindByElementRenamed 4", metadataFieldService.findByElement(context,
+            MetadataSchema.DC_SCHEMA, "elem5", "qual5"), equalTo(m));
+        assertThat("testFindByElementRenamed 5", registryCache.getFieldId("dc", "elem5", "qual5"),
+                   equalTo(m.getID()));
+        assertThat("testFindByElementRenamed 6", registryCache.getSchemaId(MetadataSchema.DC_SCHEMA),
+                   equalTo(dcSchema.getID()));
+    }
+
     /**
      * Test of findAll method, of class MetadataField.
      */
@@ -0,0 +1,92 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MetadataIndex}, on values which are not stored in the database.
+ */
+public class MetadataIndexTest {
+
+    private final MetadataSchema dc = schema("dc");
+
+    private static MetadataSchema schema(String name) {
+        MetadataSchema schema = new MetadataSchema();
+        schema.setName(name);
+        return schema;
+    }
+
+    private static MetadataValue value(MetadataSchema schema, String element, String qualifier) {
+        MetadataField field = new MetadataField();
+        field.setMetadataSchema(schema);
+        field.setElement(element);
+        field.setQualifier(qualifier);
+        MetadataValue value = new MetadataValue();
+        value.setMetadataField(field);
+        return value;
+    }
+
+    /**
+     * MetadataValue.equals() needs the values to belong to an object, compare them by identity instead.
+     */
+    private static void assertValues(List<MetadataValue> values, MetadataValue... expected) {
+        assertEquals(expected.length, values.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i], values.get(i));
+        }
+    }
+
+    @Test
+    public void testGetValues() {
+        MetadataValue title = value(dc, "title", null);
+        MetadataValue author = value(dc, "contributor", "author");
+        MetadataValue editor = value(dc, "contributor", "editor");
+        MetadataValue otherAuthor = value(dc, "contributor", "author");
+        MetadataValue local = value(schema("local"), "contributor", "author");
+        MetadataIndex index = new MetadataIndex(Arrays.asList(title, author, editor, otherAuthor, local), 0);
+
+        assertValues(index.getValues("dc", "contributor", "author"), author, otherAuthor);
+        assertValues(index.getValues("dc", "contributor", Item.ANY), author, editor, otherAuthor);
+        assertValues(index.getValues("dc", "title", null), title);
+        assertTrue(index.getValues("dc", "contributor", null).isEmpty());
+        assertTrue(index.getValues("dc", "subject", Item.ANY).isEmpty());
+        assertTrue(index.getValues(null, "title", null).isEmpty());
+    }
+
+    @Test
+    public void testValueWithoutSchema() {
+        List<MetadataValue> metadata = Arrays.asList(value(dc, "title", null), value(null, "contributor", "author"));
+        MetadataIndex index = new MetadataIndex(metadata, 0);
+
+        assertSame("matches any schema", metadata, index.getValues("dc", "contributor", "author"));
+        assertSame(metadata, index.getValues("local", "title", Item.ANY));
+    }
+
+    @Test
+    public void testValidity() {
+        List<MetadataValue> metadata = new ArrayList<>();
+        metadata.add(value(dc, "title", null));
+        MetadataIndex index = new MetadataIndex(metadata, 3);
+
+        assertTrue(index.isValidFor(metadata, 3));
+        assertFalse("changed through the object", index.isValidFor(metadata, 4));
+        assertFalse("replaced", index.isValidFor(new ArrayList<>(metadata), 3));
+        metadata.add(value(dc, "title", null));
+        assertFalse("changed behind the object's back", index.isValidFor(metadata, 3));
+    }
+}
@@ -91,6 +91,46 @@ public class DSpaceControlledVocabularyTest extends AbstractDSpaceTest {
         assertEquals("the farm::north 40", result.values[0].value);
     }
 
+    /**
+     * Test of getMatches method, of class DSpaceControlledVocabulary, with text which is not lower case and
+     * shorter than three characters.
+     */
+    @Test
+    public void testGetMatchesIgnoreCase() {
+        DSpaceControlledVocabulary instance = (DSpaceControlledVocabulary)
+            CoreServiceFactory.getInstance().getPluginService().getNamedPlugin(ChoiceAuthority.class, "farm");
+        Choices result = instance.getMatches(null, "SOUTH", null, 0, 0, null);
+        assertEquals(1, result.values.length);
+        assertEquals("s40", result.values[0].authority);
+
+        result = instance.getMatches(null, "40", null, 0, 0, null);
+        assertEquals(2, result.values.length);
+        assertEquals("the farm::north 40", result.values[0].value);
+        assertEquals("the farm::south 40", result.values[1].value);
+
+        result = instance.getMatches(null, "40", null, 1, 0, null);
+        assertEquals(1, result.values.length);
+        assertEquals("the farm::south 40", result.values[0].value);
+
+        assertEquals(0, instance.getMatches(null, "east", null, 0, 0, null).values.length);
+    }
+
+    /**
+     * Test of getLabel and getChoice methods, of class DSpaceControlledVocabulary.
+     */
+    @Test
+    public void testGetLabelAndChoice() {
+        DSpaceControlledVocabulary instance = (DSpaceControlledVocabulary)
+            CoreServiceFactory.getInstance().getPluginService().getNamedPlugin(ChoiceAuthority.class, "farm");
+        assertEquals("south 40", instance.getLabel(null, "s40", null));
+        assertEquals("", instance.getLabel(null, "unknown", null));
+
+        Choice choice = instance.getChoice(null, "s40", null);
+        assertEquals("s40", choice.authority);
+        assertEquals("the farm::south 40", choice.value);
+        assertEquals("", instance.getChoice(null, "unknown", null).authority);
+    }
+
     /**
      * Test of getBestMatch method, of class DSpaceControlledVocabulary.
      */
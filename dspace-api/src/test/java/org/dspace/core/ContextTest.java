@@ -18,6 +18,7 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import mockit.NonStrictExpectations;
 import org.dspace.AbstractUnitTest;
@@ -228,6 +229,48 @@ public class ContextTest extends AbstractUnitTest {
         cleanupContext(instance);
     }
 
+    /**
+     * Test of afterCommit method, of class Context.
+     */
+    @Test
+    public void testAfterCommit() throws SQLException {
+        Context instance = new Context();
+        final AtomicInteger runs = new AtomicInteger();
+        instance.afterCommit(runs::incrementAndGet);
+        assertThat("testAfterCommit 0", runs.get(), equalTo(0));
+
+        instance.commit();
+        assertThat("testAfterCommit 1", runs.get(), equalTo(1));
+
+        // actions only run once
+        instance.commit();
+        assertThat("testAfterCommit 2", runs.get(), equalTo(1));
+
+        // a failing action does not stop the others
+        instance.afterCommit(() -> {
+            throw new IllegalStateException("test");
+        });
+        instance.afterCommit(runs::incrementAndGet);
+        instance.complete();
+        assertThat("testAfterCommit 3", runs.get(), equalTo(2));
+
+        cleanupContext(instance);
+    }
+
+    /**
+     * Test that actions registered with afterCommit are dropped on abort.
+     */
+    @Test
+    public void testAfterCommitAbort() throws SQLException {
+        Context instance = new Context();
+        final AtomicInteger runs = new AtomicInteger();
+        instance.afterCommit(runs::incrementAndGet);
+        instance.abort();
+        assertThat("testAfterCommitAbort 0", runs.get(), equalTo(0));
+
+        cleanupContext(instance);
+    }
+
     /**
      * Test of abort method, of class Context.
      */
@@ -0,0 +1,210 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.InstallItemService;
+import org.dspace.content.service.ItemService;
+import org.dspace.content.service.WorkspaceItemService;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ScrollableResultsIterator}: entities uncached in read-only Contexts, metadata loaded a page at
+ * a time, and cursors closed with their Context.
+ */
+public class ScrollableResultsIteratorTest extends AbstractUnitTest {
+
+    private static final Logger log = Logger.getLogger(ScrollableResultsIteratorTest.class);
+
+    private static final String FETCH_SIZE = "db.iterator.fetchsize";
+
+    protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    protected ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+    protected InstallItemService installItemService = ContentServiceFactory.getInstance().getInstallItemService();
+    protected WorkspaceItemService workspaceItemService = ContentServiceFactory.getInstance().getWorkspaceItemService();
+
+    private final ConfigurationService configurationService
+        = DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    private Object fetchSize;
+    private Community community;
+    private final List<UUID> items = new ArrayList<>();
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        try {
+            context.turnOffAuthorisationSystem();
+            community = communityService.create(null, context);
+            Collection collection = collectionService.create(context, community);
+            for (int i = 0; i < 3; i++) {
+                Item item = installItemService.installItem(context,
+                                                           workspaceItemService.create(context, collection, false));
+                items.add(item.getID());
+            }
+            context.commit();
+            context.restoreAuthSystemState();
+        } catch (Exception ex) {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+        fetchSize = configurationService.getProperty(FETCH_SIZE);
+        // the three items are read in two pages
+        configurationService.setProperty(FETCH_SIZE, 2);
+    }
+
+    @After
+    @Override
+    public void destroy() {
+        configurationService.setProperty(FETCH_SIZE, fetchSize);
+        try {
+            context.turnOffAuthorisationSystem();
+            communityService.delete(context, communityService.find(context, community.getID()));
+            context.restoreAuthSystemState();
+        } catch (Exception ex) {
+            log.error("Error in destroy", ex);
+            fail("Error in destroy: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    private static Session session(Context ctx) throws Exception {
+        return (Session) ctx.getDBConnection().getSession();
+    }
+
+    @Test
+    public void testPreviousItemUncachedInReadOnlyContext() throws Exception {
+        Context readOnly = new Context(Context.Mode.READ_ONLY);
+        try {
+            Item previous = null;
+            Iterator<Item> iterator = itemService.findAll(readOnly);
+            while (iterator.hasNext()) {
+                Item item = iterator.next();
+                assertTrue(session(readOnly).contains(item));
+                if (previous != null) {
+                    assertFalse("uncached once the next item is requested", session(readOnly).contains(previous));
+                }
+                previous = item;
+            }
+        } finally {
+            readOnly.abort();
+        }
+    }
+
+    @Test
+    public void testPreviousItemKeptInReadWriteContext() throws Exception {
+        Context readWrite = new Context();
+        try {
+            List<Item> read = new ArrayList<>();
+            Iterator<Item> iterator = itemService.findAll(readWrite);
+            while (iterator.hasNext()) {
+                read.add(iterator.next());
+            }
+
+            assertTrue(read.size() >= items.size());
+            for (Item item : read) {
+                assertTrue(session(readWrite).contains(item));
+            }
+        } finally {
+            readWrite.abort();
+        }
+    }
+
+    @Test
+    public void testMetadataLoadedForTheWholePage() throws Exception {
+        Context readOnly = new Context(Context.Mode.READ_ONLY);
+        try {
+            int count = 0;
+            Iterator<Item> iterator = itemService.findAll(readOnly);
+            while (iterator.hasNext()) {
+                Item item = iterator.next();
+                assertTrue("loaded with the first item of the page", Hibernate.isInitialized(item.getMetadata()));
+                count++;
+            }
+            assertTrue(count >= items.size());
+        } finally {
+            readOnly.abort();
+        }
+    }
+
+    @Test
+    public void testCursorClosedWhenContextAborts() throws Exception {
+        ScrollableResults results = mock(ScrollableResults.class);
+        when(results.next()).thenReturn(true);
+        when(results.get(0)).thenReturn("entity");
+
+        Context other = new Context();
+        ScrollableResultsIterator<String> iterator = new ScrollableResultsIterator<>(other, results, 2);
+        assertEquals("entity", iterator.next());
+        other.abort();
+
+        verify(results).close();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testCursorClosedWhenContextCompletes() throws Exception {
+        ScrollableResults results = mock(ScrollableResults.class);
+        when(results.next()).thenReturn(true);
+        when(results.get(0)).thenReturn("entity");
+
+        Context other = new Context(Context.Mode.READ_ONLY);
+        ScrollableResultsIterator<String> iterator = new ScrollableResultsIterator<>(other, results, 2);
+        assertEquals("entity", iterator.next());
+        other.complete();
+
+        verify(results).close();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testCursorClosedOnce() throws Exception {
+        ScrollableResults results = mock(ScrollableResults.class);
+        when(results.next()).thenReturn(true, false);
+        when(results.get(0)).thenReturn("entity");
+
+        Context other = new Context();
+        ScrollableResultsIterator<String> iterator = new ScrollableResultsIterator<>(other, results, 2);
+        assertEquals("entity", iterator.next());
+        assertFalse(iterator.hasNext());
+        iterator.close();
+        other.abort();
+
+        verify(results, times(1)).close();
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link AsyncIndexingQueue}: journal replay, retries, shutdown and journal compaction, with the
+ * indexing itself replaced by a recording stub.
+ */
+public class AsyncIndexingQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<TestQueue> queues = new ArrayList<>();
+
+    @After
+    public void destroy() {
+        for (TestQueue queue : queues) {
+            queue.workers.shutdownNow();
+            queue.closeJournal();
+        }
+    }
+
+    @Test
+    public void testReplayAfterCrash() throws Exception {
+        TestQueue queue = createQueue();
+        String first = updateKey();
+        String second = updateKey();
+        queue.enqueue(Arrays.asList(first, second, AsyncIndexingQueue.DELETE_PREFIX + "123456789/1"), null);
+        crash(queue);
+
+        TestQueue recovered = createQueue();
+        assertEquals(3, recovered.getQueueDepth());
+        recovered.flush();
+        assertEquals(0, recovered.getQueueDepth());
+        assertTrue(recovered.indexed.containsAll(Arrays.asList(first, second)));
+        assertEquals(Collections.singletonList("123456789/1"), recovered.deleted);
+
+        // the journal of the crashed JVM is gone, the one of the new queue is empty
+        File[] journals = journals();
+        assertEquals(1, journals.length);
+        assertEquals(0, journals[0].length());
+    }
+
+    @Test
+    public void testJournalOfRunningQueueIsNotReplayed() throws Exception {
+        TestQueue running = createQueue();
+        running.enqueue(Collections.singletonList(updateKey()), null);
+
+        TestQueue other = createQueue();
+        assertEquals(0, other.getQueueDepth());
+        assertEquals(1, running.getQueueDepth());
+        assertEquals(2, journals().length);
+    }
+
+    @Test
+    public void testRetries() throws Exception {
+        TestQueue queue = createQueue();
+        String flaky = updateKey();
+        String broken = updateKey();
+        queue.failing.add(flaky);
+        queue.failing.add(broken);
+        queue.enqueue(Arrays.asList(flaky, broken), null);
+
+        queue.flush();
+        assertEquals("failed keys are queued again", 2, queue.getQueueDepth());
+
+        queue.failing.remove(flaky);
+        queue.flush();
+        assertEquals(Collections.singletonList(flaky), queue.indexed);
+        assertEquals(1, queue.getQueueDepth());
+        assertEquals(0, queue.getFailedCount());
+
+        queue.flush();
+        assertEquals("given up after the maximum number of attempts", 0, queue.getQueueDepth());
+        assertEquals(1, queue.getFailedCount());
+    }
+
+    @Test
+    public void testShutdownDrainsTheQueue() throws Exception {
+        TestQueue queue = createQueue();
+        List<String> keys = Arrays.asList(updateKey(), updateKey(), updateKey());
+        queue.enqueue(keys, null);
+
+        queue.shutdown();
+        assertEquals(0, queue.getQueueDepth());
+        assertTrue(queue.indexed.containsAll(keys));
+        assertEquals(0, journals().length);
+    }
+
+    @Test
+    public void testJournalIsCompactedUnderLoad() throws Exception {
+        TestQueue queue = createQueue();
+        queue.segmentSize = 64;
+        queue.batchSize = 2;
+
+        // the queue never becomes empty: every batch leaves the last key queued
+        queue.enqueue(Collections.singletonList(updateKey()), null);
+        for (int i = 0; i < 100; i++) {
+            queue.enqueue(Collections.singletonList(updateKey()), null);
+            queue.enqueue(Collections.singletonList(updateKey()), null);
+            queue.process(queue.takeBatch());
+            assertEquals(1, queue.getQueueDepth());
+        }
+
+        File[] journals = journals();
+        assertTrue("only the segments holding queued keys are kept", journals.length <= 2);
+        long size = 0;
+        for (File journal : journals) {
+            size += journal.length();
+        }
+        assertTrue(size < 4 * queue.segmentSize);
+    }
+
+    @Test
+    public void testAfterIndexed() throws Exception {
+        TestQueue queue = createQueue();
+        AtomicInteger runs = new AtomicInteger();
+        String key = updateKey();
+        queue.failing.add(key);
+        queue.enqueue(Collections.singletonList(key), runs::incrementAndGet);
+
+        queue.flush();
+        assertEquals("not run while the key is retried", 0, runs.get());
+
+        queue.failing.remove(key);
+        queue.flush();
+        assertEquals(1, runs.get());
+
+        queue.enqueue(Collections.<String>emptyList(), runs::incrementAndGet);
+        assertEquals("nothing to wait for", 2, runs.get());
+    }
+
+    private TestQueue createQueue() throws IOException {
+        TestQueue queue = new TestQueue(folder.getRoot());
+        queues.add(queue);
+        return queue;
+    }
+
+    /**
+     * Release the journal like a JVM that died would, without processing or deleting anything.
+     */
+    private void crash(TestQueue queue) throws IOException {
+        queues.remove(queue);
+        queue.workers.shutdownNow();
+        for (AsyncIndexingQueue.Segment segment : queue.segments.values()) {
+            segment.close();
+        }
+        queue.segments.clear();
+    }
+
+    private File[] journals() {
+        return folder.getRoot().listFiles((dir, name) -> name.endsWith(AsyncIndexingQueue.JOURNAL_SUFFIX));
+    }
+
+    private static String updateKey() {
+        return AsyncIndexingQueue.UPDATE_PREFIX + "2:" + UUID.randomUUID();
+    }
+
+    private static class TestQueue extends AsyncIndexingQueue {
+
+        private final List<String> indexed = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+        TestQueue(File directory) throws IOException {
+            threads = 2;
+            batchSize = 10;
+            commitWithin = 0;
+            maxAttempts = 3;
+            segmentSize = 1048576;
+            workers = Executors.newFixedThreadPool(threads);
+            openJournal(directory);
+        }
+
+        @Override
+        protected int indexPartition(List<String> keys) throws Exception {
+            for (String key : keys) {
+                if (failing.contains(key)) {
+                    throw new IllegalStateException("Failing " + key);
+                }
+            }
+            indexed.addAll(keys);
+            return keys.size();
+        }
+
+        @Override
+        protected void unIndex(List<String> keys) {
+            for (String key : keys) {
+                deleted.add(key.substring(DELETE_PREFIX.length()));
+            }
+        }
+    }
+}
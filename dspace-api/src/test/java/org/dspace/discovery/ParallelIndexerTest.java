@@ -0,0 +1,191 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.InstallItemService;
+import org.dspace.content.service.ItemService;
+import org.dspace.content.service.WorkspaceItemService;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ParallelIndexer}, with the indexing service replaced by a mock recording the indexed objects.
+ */
+public class ParallelIndexerTest extends AbstractUnitTest {
+
+    private static final Logger log = Logger.getLogger(ParallelIndexerTest.class);
+
+    private static final String PAGE_SIZE = "discovery.index.rebuild.page.size";
+    private static final String CHECKPOINT = "discovery.index.rebuild.checkpoint";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    protected ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+    protected InstallItemService installItemService = ContentServiceFactory.getInstance().getInstallItemService();
+    protected WorkspaceItemService workspaceItemService = ContentServiceFactory.getInstance().getWorkspaceItemService();
+
+    private final ConfigurationService configurationService
+        = DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    private final IndexingService indexingService = mock(IndexingService.class);
+    private final List<UUID> indexed = Collections.synchronizedList(new ArrayList<>());
+
+    private Object pageSize;
+    private Object checkpointPath;
+    private File checkpoint;
+
+    private Community community;
+    private final List<UUID> items = new ArrayList<>();
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        try {
+            context.turnOffAuthorisationSystem();
+            community = communityService.create(null, context);
+            Collection collection = collectionService.create(context, community);
+            for (int i = 0; i < 3; i++) {
+                Item item = installItemService.installItem(context,
+                                                           workspaceItemService.create(context, collection, false));
+                items.add(item.getID());
+            }
+            context.commit();
+            context.restoreAuthSystemState();
+
+            doAnswer(invocation -> {
+                indexed.add(((DSpaceObject) invocation.getArguments()[1]).getID());
+                return null;
+            }).when(indexingService).indexContent(any(Context.class), any(DSpaceObject.class), anyBoolean());
+        } catch (Exception ex) {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+        pageSize = configurationService.getProperty(PAGE_SIZE);
+        checkpointPath = configurationService.getProperty(CHECKPOINT);
+        checkpoint = new File(folder.getRoot(), "rebuild.checkpoint");
+        configurationService.setProperty(PAGE_SIZE, 2);
+        configurationService.setProperty(CHECKPOINT, checkpoint.getPath());
+    }
+
+    @After
+    @Override
+    public void destroy() {
+        configurationService.setProperty(PAGE_SIZE, pageSize);
+        configurationService.setProperty(CHECKPOINT, checkpointPath);
+        try {
+            context.turnOffAuthorisationSystem();
+            communityService.delete(context, communityService.find(context, community.getID()));
+            context.restoreAuthSystemState();
+        } catch (Exception ex) {
+            log.error("Error in destroy", ex);
+            fail("Error in destroy: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    @Test
+    public void testAllObjectsAreIndexed() throws Exception {
+        long count = new ParallelIndexer(indexingService, 2).run(false);
+
+        assertEquals(itemService.findAllUnfilteredIds(context, null, Integer.MAX_VALUE).size(), count);
+        assertTrue(indexed.containsAll(items));
+        assertTrue("containers are indexed", indexed.contains(community.getID()));
+        verify(indexingService).commit();
+        assertFalse("checkpoint removed once complete", checkpoint.exists());
+    }
+
+    @Test
+    public void testFailedItemIsReported() throws Exception {
+        doAnswer(invocation -> {
+            throw new SQLException("Broken item");
+        }).when(indexingService).indexContent(any(Context.class), any(DSpaceObject.class), anyBoolean());
+        when(indexingService.flushBatch(anyInt())).thenAnswer(invocation -> {
+            throw new SearchServiceException("Solr is down");
+        });
+
+        try {
+            new ParallelIndexer(indexingService, 1).run(false);
+            fail("The rebuild should fail");
+        } catch (SQLException e) {
+            assertEquals("not replaced by the failure of the flush", "Broken item", e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+            assertEquals("Solr is down", e.getSuppressed()[0].getMessage());
+        }
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        List<UUID> ids = itemService.findAllUnfilteredIds(context, null, Integer.MAX_VALUE);
+        Properties properties = new Properties();
+        properties.setProperty(ParallelIndexer.CHECKPOINT_LAST_ITEM, ids.get(ids.size() - 2).toString());
+        properties.setProperty(ParallelIndexer.CHECKPOINT_ITEMS_DONE, Integer.toString(ids.size() - 1));
+        ParallelIndexer indexer = new ParallelIndexer(indexingService, 2);
+        indexer.writeCheckpoint(properties);
+
+        assertEquals(1, indexer.run(false));
+        assertTrue(indexed.contains(ids.get(ids.size() - 1)));
+        for (UUID id : ids.subList(0, ids.size() - 1)) {
+            assertFalse("indexed before the checkpoint", indexed.contains(id));
+        }
+    }
+
+    @Test
+    public void testCheckpointWaitsForEarlierPages() throws Exception {
+        ParallelIndexer indexer = new ParallelIndexer(indexingService, 2);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        indexer.checkpoint(1, second, 2);
+        assertNull("page 0 is not indexed yet", indexer.readCheckpoint());
+
+        indexer.checkpoint(0, first, 2);
+        Properties properties = indexer.readCheckpoint();
+        assertEquals(second.toString(), properties.getProperty(ParallelIndexer.CHECKPOINT_LAST_ITEM));
+        assertEquals("4", properties.getProperty(ParallelIndexer.CHECKPOINT_ITEMS_DONE));
+    }
+}
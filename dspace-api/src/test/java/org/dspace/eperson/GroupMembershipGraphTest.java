@@ -0,0 +1,149 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.Context;
+import org.dspace.eperson.factory.EPersonServiceFactory;
+import org.dspace.eperson.service.EPersonService;
+import org.dspace.eperson.service.GroupService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GroupMembershipGraph} and {@link GroupMembershipConsumer}: the shared snapshot only follows
+ * committed membership changes.
+ */
+public class GroupMembershipGraphTest extends AbstractUnitTest {
+
+    private static final Logger log = Logger.getLogger(GroupMembershipGraphTest.class);
+
+    protected EPersonService ePersonService = EPersonServiceFactory.getInstance().getEPersonService();
+    protected GroupService groupService = EPersonServiceFactory.getInstance().getGroupService();
+
+    private GroupMembershipGraph groupMembershipGraph;
+    private boolean enabled;
+
+    private UUID groupId;
+    private UUID memberId;
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        groupMembershipGraph = DSpaceServicesFactory.getInstance().getServiceManager()
+            .getServiceByName(GroupMembershipGraph.class.getName(), GroupMembershipGraph.class);
+        enabled = groupMembershipGraph.enabled;
+        try {
+            context.turnOffAuthorisationSystem();
+            Group group = groupService.create(context);
+            groupService.setName(group, "GroupMembershipGraphTest");
+            groupService.update(context, group);
+            EPerson member = ePersonService.create(context);
+            member.setEmail("group-graph@email.com");
+            ePersonService.update(context, member);
+            context.commit();
+            context.restoreAuthSystemState();
+            groupId = group.getID();
+            memberId = member.getID();
+        } catch (Exception ex) {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+        groupMembershipGraph.enabled = true;
+        groupMembershipGraph.invalidate();
+    }
+
+    @After
+    @Override
+    public void destroy() {
+        groupMembershipGraph.enabled = enabled;
+        groupMembershipGraph.invalidate();
+        try {
+            context.turnOffAuthorisationSystem();
+            groupService.delete(context, groupService.find(context, groupId));
+            ePersonService.delete(context, ePersonService.find(context, memberId));
+            context.restoreAuthSystemState();
+        } catch (Exception ex) {
+            log.error("Error in destroy", ex);
+            fail("Error in destroy: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    @Test
+    public void testCommittedMembershipIsPatched() throws Exception {
+        assertFalse(groupMembershipGraph.getSnapshot(context).isMember(memberId, groupId));
+
+        context.turnOffAuthorisationSystem();
+        Group group = groupService.find(context, groupId);
+        groupService.addMember(context, group, ePersonService.find(context, memberId));
+        groupService.update(context, group);
+        context.commit();
+        context.restoreAuthSystemState();
+
+        // the group had no members, so it was not in the snapshot: it is read again
+        GroupMembershipSnapshot snapshot = groupMembershipGraph.getSnapshot(context);
+        assertNotNull(snapshot);
+        assertTrue(snapshot.isMember(memberId, groupId));
+
+        context.turnOffAuthorisationSystem();
+        group = groupService.find(context, groupId);
+        groupService.removeMember(context, group, ePersonService.find(context, memberId));
+        groupService.update(context, group);
+        context.commit();
+        context.restoreAuthSystemState();
+
+        GroupMembershipSnapshot patched = groupMembershipGraph.getSnapshot(context);
+        assertNotSame(snapshot, patched);
+        assertEquals("patched, not read again", snapshot.getCreated(), patched.getCreated());
+        assertFalse(patched.isMember(memberId, groupId));
+    }
+
+    @Test
+    public void testRolledBackMembershipIsNotApplied() throws Exception {
+        context.turnOffAuthorisationSystem();
+        Group group = groupService.find(context, groupId);
+        groupService.addMember(context, group, ePersonService.find(context, memberId));
+        groupService.update(context, group);
+        context.commit();
+        context.restoreAuthSystemState();
+        GroupMembershipSnapshot snapshot = groupMembershipGraph.getSnapshot(context);
+        assertTrue(snapshot.isMember(memberId, groupId));
+
+        Context other = new Context();
+        try {
+            other.turnOffAuthorisationSystem();
+            group = groupService.find(other, groupId);
+            groupService.removeMember(other, group, ePersonService.find(other, memberId));
+            groupService.update(other, group);
+            // the consumers see the change, then the transaction is rolled back
+            other.dispatchEvents();
+        } finally {
+            other.abort();
+        }
+
+        GroupMembershipSnapshot current = groupMembershipGraph.getSnapshot(context);
+        assertNotNull(current);
+        assertTrue(current.isMember(memberId, groupId));
+        assertTrue(groupService.isMember(context, ePersonService.find(context, memberId),
+                                         groupService.find(context, groupId)));
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GroupMembershipSnapshot}.
+ */
+public class GroupMembershipSnapshotTest {
+
+    private final UUID top = UUID.randomUUID();
+    private final UUID left = UUID.randomUUID();
+    private final UUID right = UUID.randomUUID();
+    private final UUID bottom = UUID.randomUUID();
+    private final UUID other = UUID.randomUUID();
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    private GroupMembershipSnapshot snapshot;
+
+    /**
+     * A diamond: left and right are members of top, bottom is a member of both. Alice is a member of bottom,
+     * Bob of right and other.
+     */
+    @Before
+    public void init() {
+        List<Pair<UUID, UUID>> relations = new ArrayList<>();
+        relations.add(new ImmutablePair<>(top, left));
+        relations.add(new ImmutablePair<>(top, right));
+        relations.add(new ImmutablePair<>(left, bottom));
+        relations.add(new ImmutablePair<>(right, bottom));
+        List<Pair<UUID, UUID>> memberships = new ArrayList<>();
+        memberships.add(new ImmutablePair<>(alice, bottom));
+        memberships.add(new ImmutablePair<>(bob, right));
+        memberships.add(new ImmutablePair<>(bob, other));
+        snapshot = new GroupMembershipSnapshot(relations, memberships, 42);
+    }
+
+    @Test
+    public void testIsMember() {
+        for (UUID group : Arrays.asList(top, left, right, bottom)) {
+            assertTrue(snapshot.isMember(alice, group));
+        }
+        assertFalse(snapshot.isMember(alice, other));
+        assertTrue(snapshot.isMember(bob, top));
+        assertTrue(snapshot.isMember(bob, other));
+        assertFalse(snapshot.isMember(bob, left));
+        assertFalse(snapshot.isMember(bob, bottom));
+        assertFalse(snapshot.isMember(UUID.randomUUID(), top));
+        assertFalse(snapshot.isMember(alice, UUID.randomUUID()));
+    }
+
+    @Test
+    public void testIsParentOf() {
+        assertTrue(snapshot.isParentOf(top, bottom));
+        assertTrue(snapshot.isParentOf(left, bottom));
+        assertFalse(snapshot.isParentOf(bottom, top));
+        assertFalse(snapshot.isParentOf(left, right));
+        assertFalse(snapshot.isParentOf(bottom, bottom));
+        assertFalse(snapshot.isParentOf(top, other));
+    }
+
+    @Test
+    public void testGroupIds() {
+        assertEquals(new HashSet<>(Arrays.asList(right, other)), snapshot.getDirectGroupIds(bob));
+        assertEquals(new HashSet<>(Arrays.asList(top, left, right, bottom)),
+                     snapshot.withParentIds(snapshot.getDirectGroupIds(alice)));
+        UUID unknown = UUID.randomUUID();
+        assertEquals(new HashSet<>(Arrays.asList(top, right, unknown)),
+                     snapshot.withParentIds(Arrays.asList(right, unknown)));
+        assertEquals(5, snapshot.getGroupCount());
+        assertEquals(2, snapshot.getEPersonCount());
+    }
+
+    /**
+     * Test method for {@link GroupMembershipSnapshot#withMemberships(java.util.Collection, java.util.Collection)}.
+     */
+    @Test
+    public void testWithMemberships() {
+        Pair<UUID, UUID> aliceOther = new ImmutablePair<>(alice, other);
+        Pair<UUID, UUID> bobRight = new ImmutablePair<>(bob, right);
+        Pair<UUID, UUID> bobOther = new ImmutablePair<>(bob, other);
+        GroupMembershipSnapshot patched = snapshot.withMemberships(Collections.singletonList(aliceOther),
+                                                                   Arrays.asList(bobRight, bobOther));
+
+        assertTrue(patched.isMember(alice, other));
+        assertTrue(patched.isMember(alice, top));
+        assertFalse(patched.isMember(bob, top));
+        assertFalse(patched.isMember(bob, other));
+        assertEquals(1, patched.getEPersonCount());
+        assertEquals(42, patched.getCreated());
+
+        // the original is unchanged
+        assertFalse(snapshot.isMember(alice, other));
+        assertTrue(snapshot.isMember(bob, top));
+
+        assertNull("unknown group must force a new snapshot", snapshot.withMemberships(
+            Collections.singletonList(new ImmutablePair<>(alice, UUID.randomUUID())), Collections.emptyList()));
+    }
+}
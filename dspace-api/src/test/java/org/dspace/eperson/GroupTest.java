@@ -16,10 +16,16 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.dspace.AbstractUnitTest;
@@ -622,6 +628,106 @@ public class GroupTest extends AbstractUnitTest {
     }
 
 
+    /**
+     * Change a synthetic deep and wide hierarchy and compare the group cache to the expected ancestors after every
+     * change, then check a full rebuild gives the same result.
+     */
+    @Test
+    public void groupCacheHierarchy() throws SQLException, AuthorizeException, IOException {
+        List<Group> groups = new ArrayList<>();
+        Map<Group, Set<Group>> relations = new HashMap<>();
+        try {
+            context.turnOffAuthorisationSystem();
+            // a chain of 8 groups, the third having 8 member groups which all contain the sixth
+            List<Group> chain = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                chain.add(createGroup("chain" + i));
+                if (i > 0) {
+                    addRelation(relations, chain.get(i - 1), chain.get(i));
+                }
+            }
+            List<Group> wide = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                wide.add(createGroup("wide" + i));
+                addRelation(relations, chain.get(2), wide.get(i));
+                addRelation(relations, wide.get(i), chain.get(5));
+            }
+            groups.addAll(chain);
+            groups.addAll(wide);
+            long start = System.currentTimeMillis();
+            for (Group group : groups) {
+                groupService.update(context, group);
+            }
+            log.info("Group cache updated incrementally in " + (System.currentTimeMillis() - start) + " ms");
+            assertGroupCache(groups, relations);
+
+            // the wide groups still connect the top of the chain to the bottom
+            removeRelation(relations, chain.get(3), chain.get(4));
+            groupService.update(context, chain.get(3));
+            assertGroupCache(groups, relations);
+
+            removeRelation(relations, chain.get(4), chain.get(5));
+            removeRelation(relations, wide.get(0), chain.get(5));
+            groupService.update(context, chain.get(5));
+            assertGroupCache(groups, relations);
+
+            // deleting a group only removes the paths through it
+            Group deleted = wide.get(1);
+            groups.remove(deleted);
+            relations.remove(deleted);
+            for (Set<Group> children : relations.values()) {
+                children.remove(deleted);
+            }
+            groupService.delete(context, deleted);
+            assertGroupCache(groups, relations);
+
+            // added and removed again before the update
+            groupService.addMember(context, chain.get(7), wide.get(2));
+            groupService.removeMember(context, chain.get(7), wide.get(2));
+            addRelation(relations, chain.get(4), chain.get(0));
+            groupService.update(context, chain.get(7));
+            groupService.update(context, chain.get(4));
+            assertGroupCache(groups, relations);
+
+            start = System.currentTimeMillis();
+            groupService.rebuildGroupCache(context);
+            log.info("Group cache rebuilt in " + (System.currentTimeMillis() - start) + " ms");
+            assertGroupCache(groups, relations);
+        } finally {
+            for (Group group : groups) {
+                groupService.delete(context, group);
+            }
+            context.restoreAuthSystemState();
+        }
+    }
+
+    private void addRelation(Map<Group, Set<Group>> relations, Group parent, Group child) throws SQLException {
+        groupService.addMember(context, parent, child);
+        relations.computeIfAbsent(parent, group -> new HashSet<>()).add(child);
+    }
+
+    private void removeRelation(Map<Group, Set<Group>> relations, Group parent, Group child) throws SQLException {
+        groupService.removeMember(context, parent, child);
+        relations.get(parent).remove(child);
+    }
+
+    private void assertGroupCache(List<Group> groups, Map<Group, Set<Group>> relations) throws SQLException {
+        for (Group parent : groups) {
+            Set<Group> expected = new HashSet<>();
+            Deque<Group> toVisit = new ArrayDeque<>(relations.getOrDefault(parent, Collections.emptySet()));
+            while (!toVisit.isEmpty()) {
+                Group child = toVisit.poll();
+                if (expected.add(child)) {
+                    toVisit.addAll(relations.getOrDefault(child, Collections.emptySet()));
+                }
+            }
+            for (Group child : groups) {
+                assertEquals(parent.getName() + " parent of " + child.getName(), expected.contains(child),
+                             groupService.isParentOf(context, parent, child));
+            }
+        }
+    }
+
     protected Group createGroup(String name) throws SQLException, AuthorizeException {
         context.turnOffAuthorisationSystem();
         Group group = groupService.create(context);
@@ -0,0 +1,186 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.harvest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.ItemService;
+import org.dspace.harvest.factory.HarvestServiceFactory;
+import org.dspace.harvest.service.HarvestedCollectionService;
+import org.dspace.harvest.service.HarvestedItemService;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Harvests a collection from a stub OAI-PMH provider serving two pages of records.
+ */
+public class OAIHarvesterTest extends AbstractUnitTest {
+
+    private static final int RECORDS = 5;
+    private static final int PAGE_SIZE = 3;
+
+    private CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    private CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    private ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+    private HarvestedCollectionService harvestedCollectionService =
+        HarvestServiceFactory.getInstance().getHarvestedCollectionService();
+    private HarvestedItemService harvestedItemService = HarvestServiceFactory.getInstance().getHarvestedItemService();
+    private ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    private HttpServer server;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private Community community;
+    private Collection collection;
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/oai", this::respond);
+            server.start();
+
+            context.turnOffAuthorisationSystem();
+            community = communityService.create(null, context);
+            collection = collectionService.create(context, community);
+            HarvestedCollection hc = harvestedCollectionService.create(context, collection);
+            hc.setHarvestParams(HarvestedCollection.TYPE_DMD,
+                                "http://localhost:" + server.getAddress().getPort() + "/oai", "all", "dc");
+            hc.setHarvestStatus(HarvestedCollection.STATUS_READY);
+            harvestedCollectionService.update(context, hc);
+            context.restoreAuthSystemState();
+            context.commit();
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+        configurationService.setProperty("oai.harvester.ingestThreads", 2);
+        configurationService.setProperty("oai.harvester.commitBatchSize", 2);
+    }
+
+    @After
+    @Override
+    public void destroy() {
+        configurationService.setProperty("oai.harvester.ingestThreads", null);
+        configurationService.setProperty("oai.harvester.commitBatchSize", null);
+        try {
+            context.turnOffAuthorisationSystem();
+            communityService.delete(context, context.reloadEntity(community));
+            context.restoreAuthSystemState();
+            context.commit();
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            server.stop(0);
+            super.destroy();
+        }
+    }
+
+    @Test
+    public void testRunHarvest() throws Exception {
+        collection = context.reloadEntity(collection);
+        HarvestedCollection hc = harvestedCollectionService.find(context, collection);
+        new OAIHarvester(context, collection, hc).runHarvest();
+        context.commit();
+
+        collection = context.reloadEntity(collection);
+        hc = harvestedCollectionService.find(context, collection);
+        assertEquals(hc.getHarvestMessage(), HarvestedCollection.STATUS_READY, hc.getHarvestStatus());
+
+        int count = 0;
+        Iterator<Item> items = itemService.findAllByCollection(context, collection);
+        while (items.hasNext()) {
+            Item item = items.next();
+            HarvestedItem hi = harvestedItemService.find(context, item);
+            assertNotNull(hi);
+            assertEquals("Record " + hi.getOaiID().substring("oai:stub:".length()),
+                         itemService.getMetadataFirstValue(item, "dc", "title", null, Item.ANY));
+            count++;
+        }
+        assertEquals(RECORDS, count);
+
+        List<String> listRecords = new ArrayList<>();
+        for (String request : requests) {
+            if (request.contains("verb=ListRecords")) {
+                listRecords.add(request);
+            }
+        }
+        assertEquals(2, listRecords.size());
+        assertTrue(listRecords.get(1).contains("resumptionToken=" + PAGE_SIZE));
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        requests.add(query);
+        StringBuilder body = new StringBuilder();
+        body.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+            .append("<OAI-PMH xmlns=\"http://www.openarchives.org/OAI/2.0/\"")
+            .append(" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"")
+            .append(" xsi:schemaLocation=\"http://www.openarchives.org/OAI/2.0/")
+            .append(" http://www.openarchives.org/OAI/2.0/OAI-PMH.xsd\">")
+            .append("<responseDate>2018-01-01T00:00:00Z</responseDate>")
+            .append("<request>http://localhost/oai</request>");
+        if (query.contains("verb=Identify")) {
+            body.append("<Identify><repositoryName>Stub</repositoryName><baseURL>http://localhost/oai</baseURL>")
+                .append("<protocolVersion>2.0</protocolVersion><adminEmail>stub@example.com</adminEmail>")
+                .append("<earliestDatestamp>2000-01-01T00:00:00Z</earliestDatestamp>")
+                .append("<deletedRecord>persistent</deletedRecord>")
+                .append("<granularity>YYYY-MM-DDThh:mm:ssZ</granularity></Identify>");
+        } else if (query.contains("verb=ListMetadataFormats")) {
+            body.append("<ListMetadataFormats><metadataFormat><metadataPrefix>oai_dc</metadataPrefix>")
+                .append("<schema>http://www.openarchives.org/OAI/2.0/oai_dc.xsd</schema>")
+                .append("<metadataNamespace>http://www.openarchives.org/OAI/2.0/oai_dc/</metadataNamespace>")
+                .append("</metadataFormat></ListMetadataFormats>");
+        } else if (query.contains("verb=ListRecords")) {
+            int offset = query.contains("resumptionToken=") ? PAGE_SIZE : 0;
+            body.append("<ListRecords>");
+            for (int i = offset; i < Math.min(offset + PAGE_SIZE, RECORDS); i++) {
+                body.append("<record><header><identifier>oai:stub:").append(i).append("</identifier>")
+                    .append("<datestamp>2018-01-01T00:00:00Z</datestamp></header><metadata>")
+                    .append("<oai_dc:dc xmlns:oai_dc=\"http://www.openarchives.org/OAI/2.0/oai_dc/\"")
+                    .append(" xmlns:dc=\"http://purl.org/dc/elements/1.1/\">")
+                    .append("<dc:title>Record ").append(i).append("</dc:title>")
+                    .append("</oai_dc:dc></metadata></record>");
+            }
+            body.append("<resumptionToken completeListSize=\"").append(RECORDS).append("\">")
+                .append(offset == 0 ? String.valueOf(PAGE_SIZE) : "").append("</resumptionToken>");
+            body.append("</ListRecords>");
+        }
+        body.append("</OAI-PMH>");
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
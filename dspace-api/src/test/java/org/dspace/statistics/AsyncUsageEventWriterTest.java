@@ -0,0 +1,146 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AsyncUsageEventWriter}.
+ */
+public class AsyncUsageEventWriterTest {
+
+    private final List<SolrInputDocument> written = Collections.synchronizedList(new ArrayList<>());
+
+    private AsyncUsageEventWriter writer;
+
+    @After
+    public void destroy() {
+        if (writer != null) {
+            writer.shutdown(1000);
+        }
+    }
+
+    private SolrServer mockSolr(CountDownLatch gate) throws Exception {
+        SolrServer solr = mock(SolrServer.class);
+        doAnswer(invocation -> {
+            gate.await(10, TimeUnit.SECONDS);
+            written.addAll((Collection<SolrInputDocument>) invocation.getArguments()[0]);
+            return null;
+        }).when(solr).add(anyCollectionOf(SolrInputDocument.class));
+        return solr;
+    }
+
+    private static SolrInputDocument event(int number) {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField("ip", "10.0.0." + number);
+        return doc;
+    }
+
+    /**
+     * Queued events are enriched and written.
+     */
+    @Test
+    public void testWrite() throws Exception {
+        writer = new AsyncUsageEventWriter(mockSolr(new CountDownLatch(0)), doc -> {
+            doc.addField("dns", "enriched");
+            return true;
+        }, 100, 10, 2, false);
+        for (int i = 0; i < 25; i++) {
+            assertTrue(writer.enqueue(event(i)));
+        }
+        assertTrue("events not written in time", writer.flush(10000));
+
+        assertEquals(25, written.size());
+        for (SolrInputDocument doc : written) {
+            assertEquals("enriched", doc.getFieldValue("dns"));
+        }
+        assertEquals(25, writer.getQueuedCount());
+        assertEquals(25, writer.getWrittenCount());
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(0, writer.getQueueDepth());
+    }
+
+    /**
+     * Events the enricher rejects are not written.
+     */
+    @Test
+    public void testDiscard() throws Exception {
+        Predicate<SolrInputDocument> enricher = doc -> !"10.0.0.1".equals(doc.getFieldValue("ip"));
+        writer = new AsyncUsageEventWriter(mockSolr(new CountDownLatch(0)), enricher, 100, 10, 1, false);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(writer.enqueue(event(i)));
+        }
+        assertTrue("events not written in time", writer.flush(10000));
+
+        assertEquals(2, written.size());
+        assertEquals(2, writer.getWrittenCount());
+        assertEquals(1, writer.getDiscardedCount());
+    }
+
+    /**
+     * With the drop policy, events arriving while the queue is full are dropped and counted.
+     */
+    @Test
+    public void testDropWhenFull() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        writer = new AsyncUsageEventWriter(mockSolr(gate), doc -> true, 5, 1, 1, false);
+
+        // the worker takes the first event and waits in Solr, the next five fill the queue
+        assertTrue(writer.enqueue(event(0)));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (writer.queue.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(writer.enqueue(event(i)));
+        }
+        assertFalse(writer.enqueue(event(6)));
+        assertFalse(writer.enqueue(event(7)));
+        assertEquals(2, writer.getDroppedCount());
+        assertEquals(6, writer.getQueueDepth());
+
+        gate.countDown();
+        assertTrue("events not written in time", writer.flush(10000));
+        assertEquals(6, written.size());
+        assertEquals(6, writer.getWrittenCount());
+    }
+
+    /**
+     * Events still queued on shutdown are written.
+     */
+    @Test
+    public void testShutdownWritesQueue() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        writer = new AsyncUsageEventWriter(mockSolr(gate), doc -> true, 100, 100, 1, true);
+        for (int i = 0; i < 10; i++) {
+            writer.enqueue(event(i));
+        }
+        gate.countDown();
+        writer.shutdown(10000);
+        writer = null;
+        assertEquals(10, written.size());
+    }
+}
@@ -7,6 +7,7 @@
  */
 package org.dspace.statistics;
 
+import org.apache.solr.client.solrj.SolrServer;
 import org.dspace.services.ConfigurationService;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,4 +28,13 @@ public class MockSolrLoggerServiceImpl extends SolrLoggerServiceImpl implements
         useProxies = configurationService.getBooleanProperty("useProxies");
     }
 
+    /**
+     * Serve the statistics queries from the given server.
+     *
+     * @param solr the statistics core, null for none
+     */
+    public void setSolr(SolrServer solr) {
+        this.solr = solr;
+    }
+
 }
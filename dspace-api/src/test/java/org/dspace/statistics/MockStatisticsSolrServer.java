@@ -0,0 +1,128 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ * Statistics core answering queries over a few documents held in memory, recording the requests it gets.
+ * <p>
+ * Only what the statistics reports use is supported: queries and facet queries made of "field:value" terms joined
+ * by AND, possibly in parentheses, and facet fields sorted by count. Filter queries are ignored.
+ */
+public class MockStatisticsSolrServer extends SolrServer {
+
+    private final List<Map<String, String>> documents = new ArrayList<>();
+    private final List<SolrParams> requests = new ArrayList<>();
+
+    /**
+     * Add a document.
+     *
+     * @param fields names and values of the fields of the document, in turn
+     */
+    public void addDocument(String... fields) {
+        Map<String, String> document = new HashMap<>();
+        for (int i = 0; i < fields.length; i += 2) {
+            document.put(fields[i], fields[i + 1]);
+        }
+        documents.add(document);
+    }
+
+    /**
+     * @return the parameters of the requests received so far
+     */
+    public List<SolrParams> getRequests() {
+        return requests;
+    }
+
+    @Override
+    public NamedList<Object> request(SolrRequest request) {
+        SolrParams params = request.getParams();
+        requests.add(params);
+
+        List<Map<String, String>> matches = new ArrayList<>();
+        for (Map<String, String> document : documents) {
+            if (matches(params.get("q"), document)) {
+                matches.add(document);
+            }
+        }
+
+        NamedList<Object> facets = new NamedList<>();
+        NamedList<Integer> facetQueries = new NamedList<>();
+        String[] queries = params.getParams("facet.query");
+        for (String query : queries == null ? new String[0] : queries) {
+            int count = 0;
+            for (Map<String, String> document : matches) {
+                count += matches(query, document) ? 1 : 0;
+            }
+            facetQueries.add(query, count);
+        }
+        facets.add("facet_queries", facetQueries);
+
+        NamedList<NamedList<Number>> facetFields = new NamedList<>();
+        String[] fields = params.getParams("facet.field");
+        for (String field : fields == null ? new String[0] : fields) {
+            facetFields.add(field, facetField(field, matches, params.getInt("facet.limit", 100)));
+        }
+        facets.add("facet_fields", facetFields);
+
+        SolrDocumentList results = new SolrDocumentList();
+        results.setNumFound(matches.size());
+        NamedList<Object> response = new NamedList<>();
+        response.add("response", results);
+        response.add("facet_counts", facets);
+        return response;
+    }
+
+    private static NamedList<Number> facetField(String field, List<Map<String, String>> documents, int limit) {
+        final Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map<String, String> document : documents) {
+            String value = document.get(field);
+            if (value != null) {
+                counts.put(value, counts.containsKey(value) ? counts.get(value) + 1 : 1);
+            }
+        }
+        List<String> values = new ArrayList<>(counts.keySet());
+        Collections.sort(values, (a, b) -> counts.get(b) - counts.get(a));
+
+        NamedList<Number> facet = new NamedList<>();
+        for (String value : values.subList(0, Math.min(limit, values.size()))) {
+            facet.add(value, counts.get(value));
+        }
+        return facet;
+    }
+
+    private static boolean matches(String query, Map<String, String> document) {
+        if (query == null || query.trim().isEmpty() || "*:*".equals(query)) {
+            return true;
+        }
+        for (String term : query.replace("(", "").replace(")", "").split(" AND ")) {
+            int colon = term.indexOf(':');
+            String value = term.substring(colon + 1).trim().replace("\\", "");
+            if (!value.equals(document.get(term.substring(0, colon).trim()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import javax.servlet.http.HttpServletRequest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.dspace.AbstractDSpaceTest;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.dspace.statistics.factory.StatisticsServiceFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SolrLoggerServiceImpl}: the spider check, done while the event is recorded when usage events
+ * are written synchronously, left to the writer threads when they are written asynchronously, and the cache of
+ * query responses.
+ */
+public class SolrLoggerServiceImplTest extends AbstractDSpaceTest {
+
+    private static final String NOT_A_BOT_ADDRESS = "192.168.0.1";
+
+    private final ConfigurationService configurationService
+        = DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    private SolrLoggerServiceImpl solrLoggerService;
+    private Cache<String, String> dnsCache;
+    private Object logBots;
+    private Cache<String, QueryResponse> queryCache;
+
+    @Before
+    public void init() {
+        solrLoggerService = (SolrLoggerServiceImpl) StatisticsServiceFactory.getInstance().getSolrLoggerService();
+        dnsCache = solrLoggerService.dnsCache;
+        // no DNS lookups
+        solrLoggerService.dnsCache = CacheBuilder.newBuilder().build();
+        solrLoggerService.dnsCache.put(NOT_A_BOT_ADDRESS, "");
+        logBots = configurationService.getProperty("usage-statistics.logBots");
+        configurationService.setProperty("usage-statistics.logBots", false);
+        queryCache = solrLoggerService.queryCache;
+    }
+
+    @After
+    public void destroy() {
+        solrLoggerService.usageEventWriter = null;
+        solrLoggerService.dnsCache = dnsCache;
+        configurationService.setProperty("usage-statistics.logBots", logBots);
+        solrLoggerService.queryCache = queryCache;
+        solrLoggerService.solr = null;
+    }
+
+    private static HttpServletRequest request(String agent) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRemoteAddr()).thenReturn(NOT_A_BOT_ADDRESS);
+        when(request.getRemoteHost()).thenReturn(NOT_A_BOT_ADDRESS);
+        when(request.getHeader("User-Agent")).thenReturn(agent);
+        return request;
+    }
+
+    @Test
+    public void testSpiderCheckedWhenRecorded() throws Exception {
+        assertNull(solrLoggerService.getCommonSolrDoc(null, request("msnbot is watching you"), null));
+
+        SolrInputDocument doc = solrLoggerService.getCommonSolrDoc(null, request("Firefox"), null);
+        assertEquals(false, doc.getFieldValue("isBot"));
+        assertFalse(doc.containsKey(SolrLoggerServiceImpl.SPIDER_IP_FIELD));
+    }
+
+    @Test
+    public void testSpiderCheckedByTheWriter() throws Exception {
+        solrLoggerService.usageEventWriter = mock(AsyncUsageEventWriter.class);
+
+        SolrInputDocument spider = solrLoggerService.getCommonSolrDoc(null, request("msnbot is watching you"), null);
+        assertNotNull("not checked while recorded", spider);
+        assertFalse(spider.containsKey("isBot"));
+        assertFalse("discarded by the writer", solrLoggerService.enrich(spider));
+
+        SolrInputDocument doc = solrLoggerService.getCommonSolrDoc(null, request("Firefox"), null);
+        assertTrue(solrLoggerService.enrich(doc));
+        assertEquals(false, doc.getFieldValue("isBot"));
+        assertFalse(doc.containsKey(SolrLoggerServiceImpl.SPIDER_IP_FIELD));
+        assertFalse(doc.containsKey(SolrLoggerServiceImpl.SPIDER_AGENT_FIELD));
+        assertEquals(NOT_A_BOT_ADDRESS, doc.getFieldValue("ip"));
+    }
+
+    @Test
+    public void testSpiderIpCheckedByTheWriter() throws Exception {
+        solrLoggerService.usageEventWriter = mock(AsyncUsageEventWriter.class);
+
+        SolrInputDocument spider = solrLoggerService.getCommonSolrDoc(null, "192.168.2.1", null, null, null);
+        assertNotNull("not checked while recorded", spider);
+        assertFalse("discarded by the writer", solrLoggerService.enrich(spider));
+
+        SolrInputDocument doc = solrLoggerService.getCommonSolrDoc(null, NOT_A_BOT_ADDRESS, null, null, null);
+        assertTrue(solrLoggerService.enrich(doc));
+        assertFalse(doc.containsKey(SolrLoggerServiceImpl.SPIDER_IP_FIELD));
+    }
+
+    @Test
+    public void testQueryCacheKeyedOnAllParameters() throws Exception {
+        MockStatisticsSolrServer solr = new MockStatisticsSolrServer();
+        solr.addDocument("countryCode", "BE", "continent", "EU");
+        solrLoggerService.solr = solr;
+        solrLoggerService.queryCache = CacheBuilder.newBuilder().build();
+
+        assertEquals(Integer.valueOf(1), solrLoggerService.queryFacetQuery("*:*", "type:2", Collections.singletonList(
+            "countryCode:BE")).get("countryCode:BE"));
+        solrLoggerService.queryFacetQuery("*:*", "type:2", Collections.singletonList("countryCode:BE"));
+        assertEquals("answered from the cache", 1, solr.getRequests().size());
+
+        solrLoggerService.queryFacetQuery("*:*", "type:2", Arrays.asList("countryCode:BE", "continent:EU"));
+        assertEquals("other facet queries", 2, solr.getRequests().size());
+        solrLoggerService.queryFacetQuery("*:*", "type:0", Collections.singletonList("countryCode:BE"));
+        assertEquals("other filter", 3, solr.getRequests().size());
+        solrLoggerService.queryFacetQuery("countryCode:BE", "type:2", Collections.singletonList("countryCode:BE"));
+        assertEquals("other query", 4, solr.getRequests().size());
+        solrLoggerService.query("*:*", "type:2", null, 0, -1, "DAY", "-6", "+1", null, null, false);
+        solrLoggerService.query("*:*", "type:2", null, 0, -1, "DAY", "-7", "+1", null, null, false);
+        assertEquals("other dates", 6, solr.getRequests().size());
+        solrLoggerService.query("*:*", "type:2", null, 0, -1, "DAY", "-7", "+1", null, null, false);
+        assertEquals(6, solr.getRequests().size());
+    }
+
+    @Test
+    public void testQueryCacheDisabled() throws Exception {
+        MockStatisticsSolrServer solr = new MockStatisticsSolrServer();
+        solrLoggerService.solr = solr;
+        solrLoggerService.queryCache = null;
+
+        solrLoggerService.queryFacetQuery("*:*", "type:2", Collections.singletonList("countryCode:BE"));
+        solrLoggerService.queryFacetQuery("*:*", "type:2", Collections.singletonList("countryCode:BE"));
+        assertEquals(2, solr.getRequests().size());
+    }
+}
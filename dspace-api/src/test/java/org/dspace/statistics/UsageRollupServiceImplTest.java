@@ -0,0 +1,140 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.TimeZone;
+
+import org.apache.solr.client.solrj.response.PivotField;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Community;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CommunityService;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.dspace.statistics.factory.StatisticsServiceFactory;
+import org.dspace.statistics.service.SolrLoggerService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Rolls up three days of views of a community, served by a mocked statistics core.
+ */
+public class UsageRollupServiceImplTest extends AbstractUnitTest {
+
+    private CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    private ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    private UsageRollupServiceImpl usageRollupService;
+    private SolrLoggerService solrLoggerService;
+    private Community community;
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        try {
+            context.turnOffAuthorisationSystem();
+            community = communityService.create(null, context);
+            context.restoreAuthSystemState();
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+        usageRollupService = (UsageRollupServiceImpl) StatisticsServiceFactory.getInstance().getUsageRollupService();
+        solrLoggerService = usageRollupService.solrLoggerService;
+        usageRollupService.solrLoggerService = mock(SolrLoggerService.class, (Answer<Object>) invocation -> {
+            Object[] args = invocation.getArguments();
+            switch (invocation.getMethod().getName()) {
+                case "query":
+                    // The first view was three days ago, there were no views today
+                    return (Integer) args[3] == 1 ? firstView() : null;
+                case "queryFacetPivot":
+                    // Two views of the community from Belgium every day
+                    return "type:4".equals(args[0]) ? Collections.singletonList(
+                        new PivotField("id", community.getID().toString(), 2, Collections.singletonList(
+                            new PivotField("countryCode", "BE", 2, null)))) : Collections.emptyList();
+                case "queryFacetField":
+                    return new ObjectCount[0];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @After
+    @Override
+    public void destroy() {
+        usageRollupService.solrLoggerService = solrLoggerService;
+        configurationService.setProperty("solr-statistics.rollup.daily.months", null);
+        try {
+            for (UsageRollup rollup : usageRollupService.usageRollupDAO.findAll(context, UsageRollup.class)) {
+                usageRollupService.usageRollupDAO.delete(context, rollup);
+            }
+            context.turnOffAuthorisationSystem();
+            communityService.delete(context, context.reloadEntity(community));
+            context.restoreAuthSystemState();
+            context.commit();
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+        super.destroy();
+    }
+
+    private QueryResponse firstView() {
+        Calendar time = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        time.add(Calendar.DAY_OF_MONTH, -3);
+        SolrDocument view = new SolrDocument();
+        view.setField("time", time.getTime());
+        SolrDocumentList views = new SolrDocumentList();
+        views.add(view);
+        return mock(QueryResponse.class, (Answer<Object>) invocation -> views);
+    }
+
+    @Test
+    public void testRollup() throws Exception {
+        usageRollupService.rollup(context);
+        community = context.reloadEntity(community);
+
+        ObjectCount[] days = usageRollupService.queryFacetDate(context, community, "*:*", "*:*", "DAY", "-6", "+1",
+                                                               true);
+        assertEquals(4, days.length);
+        assertEquals(Arrays.asList(2L, 2L, 2L, 6L), Arrays.asList(days[0].getCount(), days[1].getCount(),
+                                                                  days[2].getCount(), days[3].getCount()));
+
+        ObjectCount[] ids = usageRollupService.queryFacetField(context, community, "*:*", "*:*", "id", -1);
+        assertEquals(1, ids.length);
+        assertEquals(community.getID().toString(), ids[0].getValue());
+        assertEquals(6, ids[0].getCount());
+
+        ObjectCount[] countries = usageRollupService.queryFacetField(context, community, "*:*", "*:*",
+                                                                     "countryCode", 10);
+        assertEquals(1, countries.length);
+        assertEquals("BE", countries[0].getValue());
+        assertEquals(6, countries[0].getCount());
+
+        // Fold every day, then the days cannot be told apart anymore
+        configurationService.setProperty("solr-statistics.rollup.daily.months", -1);
+        usageRollupService.rollup(context);
+        assertNull(usageRollupService.queryFacetDate(context, community, "*:*", "*:*", "DAY", "-6", "+1", false));
+        ObjectCount[] months = usageRollupService.queryFacetDate(context, community, "*:*", "*:*", "MONTH", "-1",
+                                                                 "+1", true);
+        assertEquals(6, months[months.length - 1].getCount());
+        assertEquals(6, usageRollupService.queryFacetField(context, community, "*:*", "*:*", "id", -1)[0].getCount());
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.Constants;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+import org.dspace.statistics.Dataset;
+import org.dspace.statistics.MockSolrLoggerServiceImpl;
+import org.dspace.statistics.MockStatisticsSolrServer;
+import org.dspace.statistics.ObjectCount;
+import org.dspace.statistics.factory.StatisticsServiceFactory;
+import org.dspace.statistics.service.SolrLoggerService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StatisticsDataVisits}, served by a statistics core held in memory.
+ */
+public class StatisticsDataVisitsTest extends AbstractUnitTest {
+
+    private final SolrLoggerService solrLoggerService = StatisticsServiceFactory.getInstance().getSolrLoggerService();
+    private final MockStatisticsSolrServer solr = new MockStatisticsSolrServer();
+    private final ConfigurationService configurationService
+        = DSpaceServicesFactory.getInstance().getConfigurationService();
+    private Object rollup;
+
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        String[][] views = {{"BE", "EU", "3"}, {"NL", "EU", "2"}, {"FR", "EU", "1"}, {"US", "NA", "4"},
+            {"CA", "NA", "1"}};
+        for (String[] view : views) {
+            for (int i = 0; i < Integer.parseInt(view[2]); i++) {
+                solr.addDocument("countryCode", view[0], "continent", view[1], "type", "2");
+            }
+        }
+        ((MockSolrLoggerServiceImpl) solrLoggerService).setSolr(solr);
+        rollup = configurationService.getProperty("solr-statistics.rollup.enabled");
+        configurationService.setProperty("solr-statistics.rollup.enabled", true);
+    }
+
+    @After
+    @Override
+    public void destroy() {
+        ((MockSolrLoggerServiceImpl) solrLoggerService).setSolr(null);
+        configurationService.setProperty("solr-statistics.rollup.enabled", rollup);
+        super.destroy();
+    }
+
+    private static DatasetTypeGenerator axis(String field) {
+        DatasetTypeGenerator axis = new DatasetTypeGenerator();
+        axis.setType(field);
+        axis.setMax(10);
+        return axis;
+    }
+
+    /**
+     * The counts of two axes are read with a single request for the whole matrix, they must be those of the
+     * request per column made before.
+     */
+    @Test
+    public void testMatrixMatchesPerValueQueries() throws Exception {
+        StatisticsDataVisits statistics = new StatisticsDataVisits();
+        statistics.addDatasetGenerator(axis("countryCode"));
+        statistics.addDatasetGenerator(axis("continent"));
+        Dataset dataset = statistics.createDataset(context);
+
+        assertEquals("two facet field requests and one for the matrix", 3, solr.getRequests().size());
+
+        ObjectCount[] countries = solrLoggerService.queryFacetField("", null, "countryCode", 10, false, null);
+        ObjectCount[] continents = solrLoggerService.queryFacetField("", null, "continent", 10, false, null);
+        assertEquals(5, dataset.getNbCols());
+        assertEquals(2, dataset.getNbRows());
+        List<String> facetQueries = new ArrayList<>();
+        for (ObjectCount continent : continents) {
+            facetQueries.add("continent:" + ClientUtils.escapeQueryChars(continent.getValue()));
+        }
+        for (int i = 0; i < countries.length; i++) {
+            Map<String, Integer> counts = solrLoggerService.queryFacetQuery(
+                "countryCode:" + ClientUtils.escapeQueryChars(countries[i].getValue()), null, facetQueries);
+            for (int j = 0; j < continents.length; j++) {
+                assertEquals(countries[i].getValue() + " in " + continents[j].getValue(),
+                             String.valueOf(counts.get(facetQueries.get(j))), dataset.getMatrix()[j][i]);
+            }
+        }
+        assertEquals("4", dataset.getMatrix()[1][0]);
+        assertEquals("0", dataset.getMatrix()[0][0]);
+    }
+
+    /**
+     * The rollups are kept by the type of the object, so a query for the views of the object recorded with
+     * another type must go to Solr.
+     */
+    @Test
+    public void testRolledUpOnlyForTheTypeOfTheObject() {
+        DSpaceObject dso = mock(DSpaceObject.class);
+        when(dso.getType()).thenReturn(Constants.ITEM);
+        StatisticsDataVisits statistics = new StatisticsDataVisits(dso);
+
+        StatisticsDataVisits.Query query = statistics.new Query();
+        query.setDso(dso, Constants.ITEM);
+        assertTrue(statistics.isRolledUp(query));
+        query.setDso(dso, Constants.BITSTREAM);
+        assertFalse(statistics.isRolledUp(query));
+        query.setDso(dso, -1);
+        assertFalse(statistics.isRolledUp(query));
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link IPTable}.
+ */
+public class IPTableTest {
+
+    /**
+     * Test method for {@link IPTable#contains(String)} with the entry formats of the spider lists.
+     */
+    @Test
+    public void testContainsSubnetAndRange() throws Exception {
+        IPTable table = new IPTable();
+        table.add("12.34.56.78");
+        table.add("10.1.2");
+        table.add("192.168.1.10 - 192.168.1.20");
+
+        assertTrue(table.contains("12.34.56.78"));
+        assertFalse(table.contains("12.34.56.79"));
+        assertTrue(table.contains("10.1.2.0"));
+        assertTrue(table.contains("10.1.2.255"));
+        assertFalse(table.contains("10.1.3.0"));
+        assertTrue(table.contains("192.168.1.10"));
+        assertTrue(table.contains("192.168.1.20"));
+        assertFalse(table.contains("192.168.1.9"));
+        assertFalse(table.contains("192.168.1.21"));
+    }
+
+    /**
+     * Test method for {@link IPTable#contains(String)} with CIDR entries and ranges across subnets.
+     */
+    @Test
+    public void testContainsCidr() throws Exception {
+        IPTable table = new IPTable();
+        table.add("66.249.64.0/19");
+        table.add("172.16.0.0/255.255.0.0");
+        table.add("10.0.0.250 - 10.0.1.5");
+        table.add("2001:4860:4801::/48");
+
+        assertTrue(table.contains("66.249.64.0"));
+        assertTrue(table.contains("66.249.95.255"));
+        assertFalse(table.contains("66.249.96.0"));
+        assertTrue(table.contains("172.16.200.1"));
+        assertFalse(table.contains("172.17.0.1"));
+        assertTrue(table.contains("10.0.0.255"));
+        assertTrue(table.contains("10.0.1.5"));
+        assertFalse(table.contains("10.0.1.6"));
+        assertTrue(table.contains("2001:4860:4801:12::1"));
+        assertTrue(table.contains("[2001:4860:4801:ffff:ffff:ffff:ffff:ffff]"));
+        assertFalse(table.contains("2001:4860:4802::"));
+        assertTrue("IPv4-mapped address not matched", table.contains("::ffff:66.249.70.1"));
+        assertFalse(table.contains("::ffff:66.250.70.1"));
+    }
+
+    /**
+     * Test method for {@link IPTable#add(String)}, overlapping and adjacent entries are merged.
+     */
+    @Test
+    public void testAddMerges() throws Exception {
+        IPTable table = new IPTable();
+        table.add("10.0.0.5");
+        table.add("10.0.0.7");
+        table.add("10.0.0.6");
+        table.add("10.0.0.1 - 10.0.0.4");
+        table.add("10.0.0.0 - 10.0.0.2");
+
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i <= 7; i++) {
+            expected.add("10.0.0." + i);
+            assertTrue(table.contains("10.0.0." + i));
+        }
+        assertFalse(table.contains("10.0.0.8"));
+        assertEquals(expected, table.toSet());
+
+        table.add("10.0.0");
+        table.add("2001:db8::/127");
+        Set<String> subnets = new HashSet<>();
+        subnets.add("10.0.0");
+        subnets.add("2001:db8:0:0:0:0:0:0/127");
+        assertEquals(subnets, table.toSet());
+    }
+
+    @Test(expected = IPTable.IPFormatException.class)
+    public void testAddTooShort() throws Exception {
+        new IPTable().add("10.1");
+    }
+
+    @Test(expected = IPTable.IPFormatException.class)
+    public void testAddBadPrefix() throws Exception {
+        new IPTable().add("10.1.2.0/33");
+    }
+
+    @Test(expected = IPTable.IPFormatException.class)
+    public void testAddBadNetmask() throws Exception {
+        new IPTable().add("10.1.2.0/255.0.255.0");
+    }
+
+    @Test(expected = IPTable.IPFormatException.class)
+    public void testAddReversedRange() throws Exception {
+        new IPTable().add("10.1.2.9 - 10.1.2.1");
+    }
+
+    @Test(expected = IPTable.IPFormatException.class)
+    public void testContainsPartial() throws Exception {
+        new IPTable().contains("10.1.2");
+    }
+
+    @Test(expected = IPTable.IPFormatException.class)
+    public void testContainsMalformedIPv6() throws Exception {
+        new IPTable().contains("2001:db8::1::2");
+    }
+
+    /**
+     * Test method for {@link IPTable#highBits(String)} and {@link IPTable#lowBits(String)}.
+     */
+    @Test
+    public void testBits() throws Exception {
+        assertEquals(0L, IPTable.highBits("1.2.3.4"));
+        assertEquals(0x01020304L, IPTable.lowBits("1.2.3.4"));
+        assertEquals(0x20010db800000000L, IPTable.highBits("2001:db8::1"));
+        assertEquals(1L, IPTable.lowBits("2001:db8::1"));
+        assertEquals(0L, IPTable.highBits("::"));
+        assertEquals(0x0000ffff01020304L, IPTable.lowBits("::ffff:1.2.3.4"));
+        assertEquals(0xfe80000000000000L, IPTable.highBits("fe80::1%eth0"));
+        assertEquals(0x0001000200030004L, IPTable.highBits("1:2:3:4:5:6:7:8"));
+        assertEquals(0x0005000600070008L, IPTable.lowBits("1:2:3:4:5:6:7:8"));
+    }
+
+    /**
+     * Load the bundled spider lists and check every plain address in them, as the spider detection does for
+     * each usage event.
+     */
+    @Test
+    public void testBundledSpiderLists() throws Exception {
+        File spidersDir = new File("../dspace/config/spiders");
+        if (!spidersDir.isDirectory()) {
+            return;
+        }
+        IPTable table = new IPTable();
+        Set<String> addresses = new HashSet<>();
+        for (File file : spidersDir.listFiles()) {
+            if (file.isFile()) {
+                for (String line : Files.readAllLines(file.toPath())) {
+                    String ip = line.trim();
+                    if (!ip.isEmpty() && Character.isDigit(ip.charAt(0))) {
+                        table.add(ip);
+                        if (ip.split("\\.").length == 4) {
+                            addresses.add(ip);
+                        }
+                    }
+                }
+            }
+        }
+        for (String ip : addresses) {
+            assertTrue(ip + " not found", table.contains(ip));
+        }
+        assertFalse(table.contains("192.168.0.1"));
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MultiPatternMatcher}.
+ */
+public class MultiPatternMatcherTest {
+
+    /**
+     * Test method for {@link MultiPatternMatcher#requiredText(String)}.
+     */
+    @Test
+    public void testRequiredText() {
+        assertEquals("Googlebot", MultiPatternMatcher.requiredText("Googlebot"));
+        assertEquals("msnbot", MultiPatternMatcher.requiredText("^msnbot"));
+        assertEquals(".crawl.baidu.com", MultiPatternMatcher.requiredText("^baiduspider-.*\\.crawl\\.baidu\\.com"));
+        assertEquals("Request", MultiPatternMatcher.requiredText("Fetch(\\s|\\+)API(\\s|\\+)Request"));
+        assertEquals("Brutus/AET", MultiPatternMatcher.requiredText("Brutus\\/AET"));
+        assertEquals("DataCha0s/2.0", MultiPatternMatcher.requiredText("DataCha0s\\/2\\.0"));
+        assertEquals("Mozilla", MultiPatternMatcher.requiredText("Mozilla[0-9]?"));
+        assertEquals("abc", MultiPatternMatcher.requiredText("abcd?e*f{2}"));
+        assertEquals("ab", MultiPatternMatcher.requiredText("ab+c"));
+        assertNull(MultiPatternMatcher.requiredText("foo|barbaz"));
+        assertNull(MultiPatternMatcher.requiredText("(?i)googlebot"));
+        assertNull(MultiPatternMatcher.requiredText("\\Qa.b\\E"));
+        assertNull(MultiPatternMatcher.requiredText(".*"));
+    }
+
+    /**
+     * Test method for {@link MultiPatternMatcher#find(CharSequence)}.
+     */
+    @Test
+    public void testFind() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList(
+            "^msnbot", "Googlebot", "bot\\d", "crawler|spider", "he", "she", "hers", "[unclosed"));
+
+        assertEquals(7, matcher.size());
+        assertTrue(matcher.find("msnbot is watching you"));
+        assertFalse(matcher.find("not msnbot"));
+        assertTrue(matcher.find("Mozilla/5.0 (compatible; Googlebot/2.1)"));
+        assertTrue(matcher.find("robot9"));
+        assertFalse(matcher.find("robot"));
+        assertTrue(matcher.find("some spider"));
+        assertTrue(matcher.find("ushers"));
+        assertFalse(matcher.find("Firefox"));
+        assertFalse(matcher.find(""));
+    }
+
+    /**
+     * Compare the matcher to evaluating every bundled agent pattern in turn.
+     */
+    @Test
+    public void testBundledAgents() throws Exception {
+        File agentsDir = new File("../dspace/config/spiders/agents");
+        if (!agentsDir.isDirectory()) {
+            return;
+        }
+        List<String> regexes = new ArrayList<>();
+        for (File file : agentsDir.listFiles()) {
+            for (String line : Files.readAllLines(file.toPath())) {
+                if (!line.startsWith("#") && !line.trim().isEmpty()) {
+                    regexes.add(line.trim());
+                }
+            }
+        }
+        List<Pattern> patterns = new ArrayList<>();
+        for (String regex : regexes) {
+            patterns.add(Pattern.compile(regex));
+        }
+        MultiPatternMatcher matcher = new MultiPatternMatcher(regexes);
+
+        List<String> agents = new ArrayList<>(Arrays.asList(
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:62.0) Gecko/20100101 Firefox/62.0",
+            "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+            "Mozilla/5.0 (compatible; bingbot/2.0; +http://www.bing.com/bingbot.htm)",
+            "curl/7.58.0", "Wget/1.19.4 (linux-gnu)", "python-requests/2.19.1", ""));
+        for (String regex : regexes) {
+            String text = MultiPatternMatcher.plainText(regex);
+            if (text != null) {
+                agents.add("prefix " + text + " suffix");
+            }
+        }
+        for (String agent : agents) {
+            boolean expected = false;
+            for (Pattern pattern : patterns) {
+                expected |= pattern.matcher(agent).find();
+            }
+            assertEquals(agent, expected, matcher.find(agent));
+        }
+    }
+}
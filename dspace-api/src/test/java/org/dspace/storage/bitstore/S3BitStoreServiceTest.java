@@ -0,0 +1,216 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.bitstore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.dspace.content.Bitstream;
+import org.dspace.core.Utils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Tests for {@link S3BitStoreService}, with S3 replaced by a mock: which objects use the shared part buffers, and
+ * the checksum stored with the objects and read back by about().
+ */
+public class S3BitStoreServiceTest {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    private final AmazonS3 s3 = mock(AmazonS3.class);
+    private final S3BitStoreService store = new S3BitStoreService();
+    private final Bitstream bitstream = mock(Bitstream.class);
+
+    /**
+     * Content of the parts uploaded, by part number
+     */
+    private final Map<Integer, byte[]> parts = new HashMap<>();
+
+    @Before
+    public void init() throws Exception {
+        store.setS3Service(s3);
+        store.setBucketName("bucket");
+        store.setPartSize(PART_SIZE);
+        store.setUploadThreads(1);
+        store.init();
+        when(bitstream.getInternalId()).thenReturn("123");
+
+        InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+        initiated.setUploadId("upload");
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiated);
+        when(s3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = (UploadPartRequest) invocation.getArguments()[0];
+            synchronized (parts) {
+                parts.put(request.getPartNumber(), read(request.getInputStream()));
+            }
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag" + request.getPartNumber());
+            return result;
+        });
+    }
+
+    @Test
+    public void testSmallObjectDoesNotWaitForPartBuffers() throws Exception {
+        byte[] content = content(1000);
+        // every part buffer is in use by other uploads
+        store.buffers.take();
+        store.buffers.take();
+
+        store.put(bitstream, new ByteArrayInputStream(content));
+
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3).putObject(request.capture());
+        assertEquals(content.length, request.getValue().getMetadata().getContentLength());
+        assertEquals(md5(content), request.getValue().getMetadata().getUserMetaDataOf(
+            S3BitStoreService.CHECKSUM_METADATA));
+        verify(bitstream).setSizeBytes(content.length);
+        verify(bitstream).setChecksum(md5(content));
+    }
+
+    @Test
+    public void testObjectSmallerThanAPartIsSentInASingleRequest() throws Exception {
+        byte[] content = content(3 * 1024 * 1024);
+
+        store.put(bitstream, new ByteArrayInputStream(content));
+
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3).putObject(request.capture());
+        assertArrayEquals(content, read(request.getValue().getInputStream()));
+        assertEquals(md5(content), request.getValue().getMetadata().getUserMetaDataOf(
+            S3BitStoreService.CHECKSUM_METADATA));
+        verify(s3, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        verify(bitstream).setChecksum(md5(content));
+    }
+
+    @Test
+    public void testMultipartUploadStoresTheChecksum() throws Exception {
+        byte[] content = content(2 * PART_SIZE + 1000);
+
+        store.put(bitstream, new ByteArrayInputStream(content));
+
+        verify(s3, times(3)).uploadPart(any(UploadPartRequest.class));
+        ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        for (int part = 1; part <= 3; part++) {
+            uploaded.write(parts.get(part));
+        }
+        assertArrayEquals(content, uploaded.toByteArray());
+        verify(s3).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+
+        ArgumentCaptor<CopyObjectRequest> copy = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(s3).copyObject(copy.capture());
+        assertEquals(copy.getValue().getSourceKey(), copy.getValue().getDestinationKey());
+        assertEquals(md5(content), copy.getValue().getNewObjectMetadata().getUserMetaDataOf(
+            S3BitStoreService.CHECKSUM_METADATA));
+        verify(bitstream).setSizeBytes(content.length);
+        verify(bitstream).setChecksum(md5(content));
+    }
+
+    @Test
+    public void testStreamClosed() throws Exception {
+        InputStream small = spy(new ByteArrayInputStream(content(1000)));
+        store.put(bitstream, small);
+        verify(small).close();
+
+        InputStream multipart = spy(new ByteArrayInputStream(content(PART_SIZE + 1000)));
+        store.put(bitstream, multipart);
+        verify(multipart).close();
+
+        when(s3.putObject(any(PutObjectRequest.class))).thenThrow(new AmazonS3Exception("Unavailable"));
+        InputStream failed = spy(new ByteArrayInputStream(content(1000)));
+        try {
+            store.put(bitstream, failed);
+            fail("The upload should fail");
+        } catch (IOException e) {
+            verify(failed).close();
+        }
+    }
+
+    @Test
+    public void testAboutReadsTheStoredChecksum() throws Exception {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "etag-3");
+        metadata.addUserMetadata(S3BitStoreService.CHECKSUM_METADATA, "stored");
+        when(s3.getObjectMetadata("bucket", "123")).thenReturn(metadata);
+
+        Map<String, Object> attrs = new HashMap<>();
+        attrs.put("checksum", null);
+        store.about(bitstream, attrs);
+
+        assertEquals("stored", attrs.get("checksum"));
+        verify(s3, never()).getObject(any(GetObjectRequest.class));
+    }
+
+    @Test
+    public void testAboutReadsMultipartObjectWithoutChecksum() throws Exception {
+        byte[] content = content(1000);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "etag-3");
+        when(s3.getObjectMetadata("bucket", "123")).thenReturn(metadata);
+        S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(content));
+        when(s3.getObject(any(GetObjectRequest.class))).thenReturn(object);
+
+        Map<String, Object> attrs = new HashMap<>();
+        attrs.put("checksum", null);
+        store.about(bitstream, attrs);
+
+        assertEquals(md5(content), attrs.get("checksum"));
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private static String md5(byte[] content) throws Exception {
+        return Utils.toHex(MessageDigest.getInstance("MD5").digest(content));
+    }
+
+    private static byte[] read(InputStream in) throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            content.write(buffer, 0, count);
+        }
+        return content.toByteArray();
+    }
+}
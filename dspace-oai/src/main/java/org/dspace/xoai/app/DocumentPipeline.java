@@ -0,0 +1,279 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.xoai.app;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * Pipeline used by {@link XOAI} to index items: the calling thread queues item IDs, a number of threads build
+ * their documents, each with a {@link Builder} of its own, and another thread sends the documents to Solr in
+ * batches. The queues between them are bounded, so memory use does not depend on the number of items.
+ * <p>
+ * An item whose document cannot be built is counted as failed and skipped. Any other error fails the pipeline:
+ * every thread then stops waiting on the others, and the items still queued are dropped.
+ */
+public class DocumentPipeline {
+    private static Logger log = LogManager.getLogger(DocumentPipeline.class);
+
+    /**
+     * Marks the end of the work for the document building threads and the Solr writer
+     */
+    private static final UUID END_OF_ITEMS = new UUID(0, 0);
+    private static final SolrInputDocument END_OF_DOCUMENTS = new SolrInputDocument();
+
+    /**
+     * Builds the documents of the items taken by one thread.
+     */
+    public interface Builder {
+        /**
+         * @param id ID of the item
+         * @return the document of the item, null if it no longer exists
+         * @throws Exception if the document could not be built, the item is then counted as failed
+         */
+        SolrInputDocument build(UUID id) throws Exception;
+
+        /**
+         * Release the resources of this builder, called once its thread is done.
+         */
+        void close();
+    }
+
+    /**
+     * Creates the builder of each document building thread.
+     */
+    public interface BuilderFactory {
+        Builder create() throws Exception;
+    }
+
+    private final SolrServer server;
+    private final int threads;
+    private final int batchSize;
+    private final BuilderFactory builderFactory;
+
+    private final BlockingQueue<UUID> items;
+    private final BlockingQueue<SolrInputDocument> documents;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private ExecutorService executor;
+    private List<Future<?>> builders;
+    private Future<Integer> writer;
+    private long start;
+
+    /**
+     * @param server         the OAI Solr server
+     * @param threads        number of threads building documents
+     * @param batchSize      number of documents sent to Solr at once
+     * @param builderFactory creates the builder of each document building thread
+     */
+    public DocumentPipeline(SolrServer server, int threads, int batchSize, BuilderFactory builderFactory) {
+        this.server = server;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.builderFactory = builderFactory;
+        this.items = new ArrayBlockingQueue<>(threads * batchSize);
+        this.documents = new ArrayBlockingQueue<>(threads * batchSize);
+    }
+
+    /**
+     * Start the document building threads and the Solr writer.
+     */
+    public void start() {
+        start = System.currentTimeMillis();
+        executor = Executors.newFixedThreadPool(threads + 1);
+        builders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            builders.add(executor.submit(this::buildDocuments));
+        }
+        writer = executor.submit(this::writeDocuments);
+    }
+
+    /**
+     * Queue an item, waiting while the queue is full. Nothing is queued once the pipeline failed.
+     *
+     * @param id ID of the item
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void add(UUID id) throws InterruptedException {
+        put(items, id);
+    }
+
+    /**
+     * Fail the pipeline, the threads stop as soon as possible.
+     *
+     * @param ex the cause
+     */
+    public void fail(Exception ex) {
+        failure.compareAndSet(null, ex);
+    }
+
+    /**
+     * @return the first error which failed the pipeline, null if it did not fail
+     */
+    public Exception getFailure() {
+        return failure.get();
+    }
+
+    /**
+     * @return the number of items whose document could not be built
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Tell the threads that all items are queued, wait for them to end and commit what was sent to Solr, even
+     * after a failure, so a resumed import does not index it again.
+     *
+     * @return the number of documents sent to Solr
+     */
+    public int finish() {
+        for (int t = 0; t < threads; t++) {
+            try {
+                put(items, END_OF_ITEMS);
+            } catch (InterruptedException ex) {
+                fail(ex);
+            }
+        }
+
+        int written = 0;
+        try {
+            for (Future<?> builder : builders) {
+                builder.get();
+            }
+            written = writer.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            fail(ex);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try {
+            server.commit();
+        } catch (SolrServerException | IOException ex) {
+            fail(ex);
+        }
+        return written;
+    }
+
+    /**
+     * Put an element in a queue, waiting while it is full unless the pipeline failed. Once the pipeline failed the
+     * threads taking from the queue stop, so the element is dropped.
+     */
+    private <T> void put(BlockingQueue<T> queue, T element) throws InterruptedException {
+        while (failure.get() == null) {
+            if (queue.offer(element, 1, TimeUnit.SECONDS)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Take an element from a queue, waiting while it is empty.
+     *
+     * @return the element, or null once the queue is empty and the pipeline failed
+     */
+    private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+        T element = queue.poll(1, TimeUnit.SECONDS);
+        while (element == null && failure.get() == null) {
+            element = queue.poll(1, TimeUnit.SECONDS);
+        }
+        return element;
+    }
+
+    /**
+     * Build the documents of the queued items until the end marker is taken.
+     */
+    private void buildDocuments() {
+        Builder builder = null;
+        try {
+            builder = builderFactory.create();
+            UUID id = take(items);
+            while (id != null && !END_OF_ITEMS.equals(id)) {
+                if (failure.get() == null) {
+                    try {
+                        SolrInputDocument doc = builder.build(id);
+                        if (doc != null) {
+                            put(documents, doc);
+                        }
+                    } catch (InterruptedException ex) {
+                        throw ex;
+                    } catch (Exception ex) {
+                        log.error("Unable to index item " + id + ": " + ex.getMessage(), ex);
+                        failed.incrementAndGet();
+                    }
+                }
+                id = take(items);
+            }
+        } catch (Exception ex) {
+            fail(ex);
+        } finally {
+            if (builder != null) {
+                builder.close();
+            }
+            try {
+                put(documents, END_OF_DOCUMENTS);
+            } catch (InterruptedException ex) {
+                fail(ex);
+            }
+        }
+    }
+
+    /**
+     * Send the built documents to Solr in batches until all document building threads ended.
+     *
+     * @return the number of documents sent
+     */
+    private int writeDocuments() {
+        int written = 0;
+        int ended = 0;
+        List<SolrInputDocument> batch = new ArrayList<>(batchSize);
+        try {
+            while (ended < threads) {
+                SolrInputDocument doc = take(documents);
+                if (doc == null) {
+                    // the pipeline failed, the document building threads stop without waiting for this one
+                    break;
+                }
+                if (doc == END_OF_DOCUMENTS) {
+                    ended++;
+                } else if (failure.get() == null) {
+                    batch.add(doc);
+                }
+                if (batch.size() >= batchSize || ended == threads && !batch.isEmpty()) {
+                    server.add(batch);
+                    written += batch.size();
+                    batch.clear();
+                    long seconds = Math.max(1, (System.currentTimeMillis() - start) / 1000);
+                    System.out.println(written + " items imported so far, " + written / seconds + " items/s");
+                }
+            }
+        } catch (Exception ex) {
+            fail(ex);
+        }
+        return written;
+    }
+}
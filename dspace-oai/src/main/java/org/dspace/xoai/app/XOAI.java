@@ -17,9 +17,15 @@ import java.sql.SQLException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import javax.xml.stream.XMLStreamException;
 
 import com.lyncode.xoai.dataprovider.exceptions.ConfigurationException;
@@ -36,6 +42,7 @@ import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrQuery.ORDER;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.dspace.authorize.factory.AuthorizeServiceFactory;
@@ -76,6 +83,9 @@ public class XOAI {
     private boolean optimize;
     private final boolean verbose;
     private boolean clean;
+    private boolean resume;
+    private int threads = ConfigurationManager.getIntProperty("oai", "import.threads", 1);
+    private int batchSize = ConfigurationManager.getIntProperty("oai", "import.batchSize", 100);
 
     @Autowired
     private SolrServerResolver solrServerResolver;
@@ -90,7 +100,7 @@ public class XOAI {
     private final ItemService itemService;
 
 
-    private List<String> getFileFormats(Item item) {
+    private List<String> getFileFormats(Context context, Item item) {
         List<String> formats = new ArrayList<>();
         try {
             for (Bundle b : itemService.getBundles(item, "ORIGINAL")) {
@@ -130,11 +140,36 @@ public class XOAI {
         System.out.println(line);
     }
 
+    /**
+     * @param resume re-index all items except those already indexed with their current last modification date,
+     *               instead of clearing the index or only indexing items modified after the last indexed one
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * @param threads number of threads building documents in parallel, each with a Context of its own
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param batchSize number of documents sent to Solr at once
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
     public int index() throws DSpaceSolrIndexerException {
         int result = 0;
         try {
 
-            if (clean) {
+            if (resume) {
+                System.out.println("Resuming full import, skipping items which are already indexed.");
+                result = this.indexAll();
+            } else if (clean) {
                 clearIndex();
                 System.out.println("Using full import.");
                 result = this.indexAll();
@@ -197,41 +232,128 @@ public class XOAI {
         }
     }
 
+    /**
+     * Index items in a {@link DocumentPipeline}: this thread reads the items from the database, a number of threads
+     * build their documents, each with a Context of its own, and another thread sends the documents to Solr in
+     * batches.
+     *
+     * @param iterator the items to index
+     * @return the number of items indexed
+     * @throws DSpaceSolrIndexerException if the documents could not be sent to Solr
+     */
     private int index(Iterator<Item> iterator)
         throws DSpaceSolrIndexerException {
+        SolrServer server;
         try {
-            int i = 0;
-            SolrServer server = solrServerResolver.getServer();
-            while (iterator.hasNext()) {
-                try {
-                    Item item = iterator.next();
-                    server.add(this.index(item));
+            server = solrServerResolver.getServer();
+        } catch (SolrServerException ex) {
+            throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+        }
+        System.out.println("Building documents in " + threads + " threads, sending them in batches of "
+                               + batchSize);
 
-                    //Uncache the item to keep memory consumption low
-                    context.uncacheEntity(item);
+        DocumentPipeline pipeline = new DocumentPipeline(server, threads, batchSize, ItemDocumentBuilder::new);
+        pipeline.start();
+        long start = System.currentTimeMillis();
 
-                } catch (SQLException | MetadataBindException | ParseException
-                    | XMLStreamException | WritingXmlException ex) {
-                    log.error(ex.getMessage(), ex);
-                }
-                i++;
-                if (i % 100 == 0) {
-                    System.out.println(i + " items imported so far...");
+        int skipped = 0;
+        try {
+            Map<UUID, Date> chunk = new LinkedHashMap<>();
+            while (iterator.hasNext() && pipeline.getFailure() == null) {
+                Item item = iterator.next();
+                chunk.put(item.getID(), item.getLastModified());
+                //Uncache the item to keep memory consumption low
+                context.uncacheEntity(item);
+                if (chunk.size() >= batchSize || !iterator.hasNext()) {
+                    Set<UUID> indexed = resume ? findIndexed(server, chunk) : Collections.<UUID>emptySet();
+                    skipped += indexed.size();
+                    for (UUID id : chunk.keySet()) {
+                        if (!indexed.contains(id)) {
+                            pipeline.add(id);
+                        }
+                    }
+                    chunk.clear();
                 }
             }
-            System.out.println("Total: " + i + " items");
-            server.commit();
-            return i;
-        } catch (SolrServerException | IOException ex) {
-            throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+        } catch (Exception ex) {
+            // the other threads must still be told to end
+            pipeline.fail(ex);
+        }
+
+        int written = pipeline.finish();
+        Exception failure = pipeline.getFailure();
+        if (failure != null) {
+            System.out.println("Import failed after " + written + " items, run it again with -r to resume");
+            throw new DSpaceSolrIndexerException(failure.getMessage(), failure);
+        }
+        int failed = pipeline.getFailed();
+        System.out.println("Total: " + (written + failed) + " items, " + written + " indexed, "
+                               + failed + " failed" + (resume ? ", " + skipped + " already indexed" : "")
+                               + " in " + (System.currentTimeMillis() - start) / 1000 + " seconds");
+        return written;
+    }
+
+    /**
+     * Find which items are already indexed with the given last modification date.
+     *
+     * @param server the OAI Solr server
+     * @param chunk  item IDs and their last modification date
+     * @return the IDs of the items which need not be indexed again
+     */
+    private Set<UUID> findIndexed(SolrServer server, Map<UUID, Date> chunk) throws SolrServerException {
+        StringBuilder query = new StringBuilder("item.id:(");
+        for (UUID id : chunk.keySet()) {
+            query.append(query.length() > 9 ? " OR \"" : "\"").append(id).append('"');
+        }
+        query.append(')');
+        SolrQuery solrParams = new SolrQuery(query.toString())
+            .addField("item.id")
+            .addField("item.lastmodified")
+            .setRows(chunk.size());
+        Set<UUID> indexed = new HashSet<>();
+        for (SolrDocument doc : server.query(solrParams).getResults()) {
+            UUID id = UUID.fromString(String.valueOf(doc.getFieldValue("item.id")));
+            Date lastModified = chunk.get(id);
+            Object indexedLastModified = doc.getFieldValue("item.lastmodified");
+            if (lastModified != null && indexedLastModified instanceof Date
+                && lastModified.getTime() == ((Date) indexedLastModified).getTime()) {
+                indexed.add(id);
+            }
+        }
+        return indexed;
+    }
+
+    /**
+     * Builds the documents of one pipeline thread, using a Context of its own.
+     */
+    private class ItemDocumentBuilder implements DocumentPipeline.Builder {
+        private final Context workerContext = new Context(Context.Mode.READ_ONLY);
+
+        @Override
+        public SolrInputDocument build(UUID id) throws Exception {
+            Item item = itemService.find(workerContext, id);
+            if (item == null) {
+                return null;
+            }
+            SolrInputDocument doc = index(workerContext, item);
+            //Uncache the item to keep memory consumption low
+            workerContext.uncacheEntity(item);
+            return doc;
+        }
+
+        @Override
+        public void close() {
+            if (workerContext.isValid()) {
+                workerContext.abort();
+            }
         }
     }
 
-    private SolrInputDocument index(Item item)
+    private SolrInputDocument index(Context context, Item item)
         throws SQLException, MetadataBindException, ParseException, XMLStreamException, WritingXmlException {
         SolrInputDocument doc = new SolrInputDocument();
         doc.addField("item.id", item.getID());
-        boolean pub = this.isPublic(item);
+        boolean pub = this.isPublic(context, item);
         doc.addField("item.public", pub);
         String handle = item.getHandle();
         doc.addField("item.handle", handle);
@@ -266,7 +388,7 @@ public class XOAI {
             }
         }
 
-        for (String f : getFileFormats(item)) {
+        for (String f : getFileFormats(context, item)) {
             doc.addField("metadata.dc.format.mimetype", f);
         }
 
@@ -284,7 +406,7 @@ public class XOAI {
         return doc;
     }
 
-    private boolean isPublic(Item item) {
+    private boolean isPublic(Context context, Item item) {
         boolean pub = false;
         try {
             //Check if READ access allowed on this Item
@@ -362,6 +484,10 @@ public class XOAI {
             options.addOption("v", "verbose", false, "Verbose output");
             options.addOption("h", "help", false, "Shows some help");
             options.addOption("n", "number", true, "FOR DEVELOPMENT MUST DELETE");
+            options.addOption("r", "resume", false,
+                              "Resume a failed import: index all items not yet indexed or changed since");
+            options.addOption("t", "threads", true, "Number of threads building documents");
+            options.addOption("b", "batch", true, "Number of documents sent to Solr at once");
             CommandLine line = parser.parse(options, argv);
 
             String[] validSolrCommands = {COMMAND_IMPORT, COMMAND_CLEAN_CACHE};
@@ -399,6 +525,13 @@ public class XOAI {
                                             line.hasOption('v'));
 
                     applicationContext.getAutowireCapableBeanFactory().autowireBean(indexer);
+                    indexer.setResume(line.hasOption('r'));
+                    if (line.hasOption('t')) {
+                        indexer.setThreads(Integer.parseInt(line.getOptionValue('t')));
+                    }
+                    if (line.hasOption('b')) {
+                        indexer.setBatchSize(Integer.parseInt(line.getOptionValue('b')));
+                    }
 
                     int imported = indexer.index();
                     if (imported > 0) {
@@ -485,6 +618,12 @@ public class XOAI {
             System.out.println("> Parameters:");
             System.out.println("     -o Optimize index after indexing (" + COMMAND_IMPORT + " only)");
             System.out.println("     -c Clear index (" + COMMAND_IMPORT + " only)");
+            System.out.println("     -r Resume a failed import, skipping items already indexed (" + COMMAND_IMPORT
+                                   + " only)");
+            System.out.println("     -t <threads> Number of threads building documents (" + COMMAND_IMPORT
+                                   + " only)");
+            System.out.println("     -b <size> Number of documents sent to Solr at once (" + COMMAND_IMPORT
+                                   + " only)");
             System.out.println("     -v Verbose output");
             System.out.println("     -h Shows this text");
         } else {
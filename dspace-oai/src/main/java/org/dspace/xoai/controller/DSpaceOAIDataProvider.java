@@ -28,9 +28,13 @@ import com.lyncode.xoai.dataprovider.core.XOAIManager;
 import com.lyncode.xoai.dataprovider.exceptions.InvalidContextException;
 import com.lyncode.xoai.dataprovider.exceptions.OAIException;
 import com.lyncode.xoai.dataprovider.exceptions.WritingXmlException;
+import com.lyncode.xoai.dataprovider.services.api.ItemRepository;
 import org.apache.log4j.Logger;
 import org.dspace.core.Context;
+import org.dspace.xoai.services.api.CollectionsService;
+import org.dspace.xoai.services.api.HandleResolver;
 import org.dspace.xoai.services.api.cache.XOAICacheService;
+import org.dspace.xoai.services.api.config.ConfigurationService;
 import org.dspace.xoai.services.api.config.XOAIManagerResolver;
 import org.dspace.xoai.services.api.config.XOAIManagerResolverException;
 import org.dspace.xoai.services.api.context.ContextService;
@@ -38,6 +42,8 @@ import org.dspace.xoai.services.api.context.ContextServiceException;
 import org.dspace.xoai.services.api.xoai.IdentifyResolver;
 import org.dspace.xoai.services.api.xoai.ItemRepositoryResolver;
 import org.dspace.xoai.services.api.xoai.SetRepositoryResolver;
+import org.dspace.xoai.services.impl.xoai.DSpaceItemSolrRepository;
+import org.dspace.xoai.services.impl.xoai.DSpaceListRecordsWriter;
 import org.dspace.xoai.services.impl.xoai.DSpaceResumptionTokenFormatter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -64,6 +70,12 @@ public class DSpaceOAIDataProvider {
     IdentifyResolver identifyResolver;
     @Autowired
     SetRepositoryResolver setRepositoryResolver;
+    @Autowired
+    ConfigurationService configurationService;
+    @Autowired
+    CollectionsService collectionsService;
+    @Autowired
+    HandleResolver handleResolver;
 
     private DSpaceResumptionTokenFormatter resumptionTokenFormat = new DSpaceResumptionTokenFormatter();
 
@@ -89,11 +101,12 @@ public class DSpaceOAIDataProvider {
             context = contextService.getContext();
 
             XOAIManager manager = xoaiManagerResolver.getManager();
+            ItemRepository itemRepository = itemRepositoryResolver.getItemRepository();
 
             OAIDataProvider dataProvider = new OAIDataProvider(manager, xoaiContext,
                                                                identifyResolver.getIdentify(),
                                                                setRepositoryResolver.getSetRepository(),
-                                                               itemRepositoryResolver.getItemRepository(),
+                                                               itemRepository,
                                                                resumptionTokenFormat);
 
             OutputStream out = response.getOutputStream();
@@ -104,7 +117,22 @@ public class DSpaceOAIDataProvider {
 
             String identification = xoaiContext + parameters.requestID();
 
-            if (cacheService.isActive()) {
+            // ListRecords responses are written while the records are read, they are not cached
+            boolean streamed = false;
+            if (configurationService.getBooleanProperty("oai", "streaming.enabled", false)
+                && itemRepository instanceof DSpaceItemSolrRepository) {
+                DSpaceListRecordsWriter writer = new DSpaceListRecordsWriter(manager, xoaiContext,
+                                                                             identifyResolver.getIdentify(),
+                                                                             setRepositoryResolver.getSetRepository(),
+                                                                             (DSpaceItemSolrRepository) itemRepository,
+                                                                             collectionsService, handleResolver,
+                                                                             resumptionTokenFormat);
+                streamed = writer.write(parameters, out);
+            }
+
+            if (streamed) {
+                log.debug("Streamed " + identification);
+            } else if (cacheService.isActive()) {
                 if (!cacheService.hasCache(identification)) {
                     cacheService.store(identification, dataProvider.handle(parameters));
                 }
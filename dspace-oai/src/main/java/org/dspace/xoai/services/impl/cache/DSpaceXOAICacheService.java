@@ -9,43 +9,92 @@ package org.dspace.xoai.services.impl.cache;
 
 import static com.lyncode.xoai.dataprovider.core.Granularity.Second;
 import static org.apache.commons.io.FileUtils.deleteDirectory;
-import static org.apache.commons.io.IOUtils.copy;
 import static org.apache.commons.io.IOUtils.write;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.xml.stream.XMLStreamException;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lyncode.xoai.dataprovider.core.XOAIManager;
 import com.lyncode.xoai.dataprovider.exceptions.WritingXmlException;
 import com.lyncode.xoai.dataprovider.xml.XmlOutputContext;
 import com.lyncode.xoai.dataprovider.xml.oaipmh.OAIPMH;
-import com.lyncode.xoai.util.Base64Utils;
 import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.xoai.services.api.cache.XOAICacheService;
+import org.dspace.xoai.services.api.cache.XOAILastCompilationCacheService;
 import org.dspace.xoai.services.api.config.ConfigurationService;
 import org.dspace.xoai.util.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
-
+/**
+ * Caches OAI-PMH responses (without their response date) in two bounded tiers: the most recently used ones in
+ * memory, up to <code>oai.cache.memory.size</code> megabytes, and all of them on disk, up to
+ * <code>oai.cache.disk.size</code> megabytes. On disk every response is a file named by the SHA-1 hash of its
+ * request, spread over two levels of subdirectories so no directory grows large however many resumption tokens
+ * are harvested. The file starts with the time the response was stored, its modification time is the last time
+ * it was used. When the disk tier is full the least recently used responses are removed in the background.
+ * <p>
+ * Responses stored before the last <code>oai import</code>, <code>compile-items</code> or <code>clean-cache</code>
+ * are never served, also not by web applications which did not delete them themselves, and responses older than
+ * <code>oai.cache.ttl</code> seconds (if set) neither.
+ */
 public class DSpaceXOAICacheService implements XOAICacheService {
+    private static final Logger log = Logger.getLogger(DSpaceXOAICacheService.class);
+
     private static final String REQUEST_DIR = File.separator + "requests";
-    private static String baseDir;
-    private static String staticHead;
+    private static final String CLEARED_FILE = File.separator + "requests.cleared";
+    private static final String TEMP_SUFFIX = ".tmp";
 
-    private static String getBaseDir() {
-        if (baseDir == null) {
-            String dir = ConfigurationManager.getProperty("oai", "cache.dir") + REQUEST_DIR;
-            baseDir = dir;
-        }
-        return baseDir;
-    }
+    /**
+     * Length of the time the response was stored, at the start of a file of the disk tier.
+     */
+    private static final int HEADER_LENGTH = Long.BYTES;
+
+    /**
+     * How often the last use of a response served from memory is recorded on disk.
+     */
+    private static final long TOUCH_INTERVAL_MILLIS = 60 * 1000;
+
+    /**
+     * How often to check whether the cache was cleared or the items compiled by another process.
+     */
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Log the hit rates after this many lookups.
+     */
+    private static final long STATISTICS_INTERVAL = 10000;
+
+    /**
+     * Removing responses from a full disk tier stops once it is this full.
+     */
+    private static final double SWEEP_TARGET = 0.9;
+
+    private static String staticHead;
 
     private static String getStaticHead(XOAIManager manager, Date date) {
         if (staticHead == null) {
@@ -61,23 +110,101 @@ public class DSpaceXOAICacheService implements XOAICacheService {
         return staticHead + "<responseDate>" + DateUtils.format(date) + "</responseDate>";
     }
 
+    /**
+     * A cached response.
+     */
+    private static final class Response {
+        private final String requestID;
+        private final byte[] body;
+        private final long stored;
+
+        /**
+         * Last use recorded on disk
+         */
+        private volatile long touched;
+
+        private Response(String requestID, byte[] body, long stored, long touched) {
+            this.requestID = requestID;
+            this.body = body;
+            this.stored = stored;
+            this.touched = touched;
+        }
+    }
+
     @Autowired
     ConfigurationService configurationService;
 
+    @Autowired
+    XOAILastCompilationCacheService lastCompilationCacheService;
+
     private XOAIManager manager;
 
+    private final String cacheDir;
+    private final String requestDir;
+    private final Cache<String, Response> memory;
+    private final long maxDiskBytes;
+    private final long ttlMillis;
+
+    /**
+     * Responses stored before this time are not served anymore.
+     */
+    private volatile long validSince = 0;
+    private volatile long nextCheck = 0;
+
+    /**
+     * Bytes in the disk tier, -1 until it was first scanned
+     */
+    private final AtomicLong diskBytes = new AtomicLong(-1);
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+    private final ExecutorService sweeper = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("oai-cache-sweeper").setDaemon(true).build());
+
+    /**
+     * The response found by {@link #hasCache(String)} or stored by {@link #store(String, OAIPMH)}, served by the
+     * following {@link #handle(String, OutputStream)} even if it was evicted meanwhile.
+     */
+    private final ThreadLocal<Response> current = new ThreadLocal<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
     public DSpaceXOAICacheService(XOAIManager manager) {
-        this.manager = manager;
+        this(manager, ConfigurationManager.getProperty("oai", "cache.dir"),
+             ConfigurationManager.getLongProperty("oai", "cache.memory.size", 32) * 1024 * 1024,
+             ConfigurationManager.getLongProperty("oai", "cache.disk.size", 1024) * 1024 * 1024,
+             ConfigurationManager.getLongProperty("oai", "cache.ttl", 0) * 1000);
     }
 
-    private File getCacheFile(String id) {
-        File dir = new File(getBaseDir());
-        if (!dir.exists()) {
-            dir.mkdirs();
-        }
+    /**
+     * @param manager      the XOAI manager
+     * @param cacheDir     the cache directory, shared by all processes serving OAI-PMH
+     * @param memoryBytes  size of the memory tier
+     * @param maxDiskBytes size of the disk tier
+     * @param ttlMillis    how long responses are served, 0 for as long as they are valid
+     */
+    public DSpaceXOAICacheService(XOAIManager manager, String cacheDir, long memoryBytes, long maxDiskBytes,
+                                  long ttlMillis) {
+        this.manager = manager;
+        this.cacheDir = cacheDir;
+        this.requestDir = cacheDir + REQUEST_DIR;
+        memory = CacheBuilder.newBuilder()
+                             .maximumWeight(memoryBytes)
+                             .weigher((String id, Response response) -> response.body.length + id.length() * 2)
+                             .build();
+        this.maxDiskBytes = maxDiskBytes;
+        this.ttlMillis = ttlMillis;
+    }
 
-        String name = File.separator + Base64Utils.encode(id);
-        return new File(getBaseDir() + name);
+    /**
+     * @param id the request
+     * @return the file of the disk tier holding the response to the request
+     */
+    public File getCacheFile(String id) {
+        String hash = Hashing.sha1().hashString(id, StandardCharsets.UTF_8).toString();
+        return new File(requestDir + File.separator + hash.substring(0, 2) + File.separator
+                            + hash.substring(2, 4) + File.separator + hash);
     }
 
     @Override
@@ -87,15 +214,23 @@ public class DSpaceXOAICacheService implements XOAICacheService {
 
     @Override
     public boolean hasCache(String requestID) {
-        return this.getCacheFile(requestID).exists();
+        Response response = lookup(requestID);
+        current.set(response);
+        return response != null;
     }
 
     @Override
     public void handle(String requestID, OutputStream out) throws IOException {
-        InputStream in = new FileInputStream(this.getCacheFile(requestID));
+        Response response = current.get();
+        current.remove();
+        if (response == null || !response.requestID.equals(requestID)) {
+            response = lookup(requestID);
+        }
+        if (response == null) {
+            throw new IOException("No cached response for " + requestID);
+        }
         write(getStaticHead(manager, new Date()), out);
-        copy(in, out);
-        in.close();
+        out.write(response.body);
     }
 
     @Override
@@ -107,7 +242,7 @@ public class DSpaceXOAICacheService implements XOAICacheService {
             context.getWriter().flush();
             context.getWriter().close();
 
-            String xoaiResponse = output.toString();
+            String xoaiResponse = output.toString("UTF-8");
 
             // Cutting the header (to allow one to change the response time)
             String end = "</responseDate>";
@@ -116,7 +251,12 @@ public class DSpaceXOAICacheService implements XOAICacheService {
                 xoaiResponse = xoaiResponse.substring(pos + (end.length()));
             }
 
-            FileUtils.write(this.getCacheFile(requestID), xoaiResponse);
+            byte[] body = xoaiResponse.getBytes(StandardCharsets.UTF_8);
+            long stored = System.currentTimeMillis();
+            Response cached = new Response(requestID, body, stored, stored);
+            current.set(cached);
+            memory.put(requestID, cached);
+            writeFile(getCacheFile(requestID), body, stored);
         } catch (XMLStreamException e) {
             throw new IOException(e);
         } catch (WritingXmlException e) {
@@ -126,12 +266,249 @@ public class DSpaceXOAICacheService implements XOAICacheService {
 
     @Override
     public void delete(String requestID) {
-        this.getCacheFile(requestID).delete();
+        memory.invalidate(requestID);
+        File file = getCacheFile(requestID);
+        long length = file.length();
+        if (file.delete()) {
+            diskBytes.addAndGet(-length);
+        }
     }
 
     @Override
     public void deleteAll() throws IOException {
-        deleteDirectory(new File(getBaseDir()));
+        memory.invalidateAll();
+        deleteDirectory(new File(requestDir));
+        diskBytes.set(0);
+        // tell the other processes sharing the directory
+        File cleared = new File(cacheDir + CLEARED_FILE);
+        FileUtils.touch(cleared);
+        validSince = cleared.lastModified();
     }
 
+    /**
+     * Find a valid cached response, in memory first and on disk next.
+     *
+     * @param requestID the request
+     * @return the response, or null if there is none
+     */
+    private Response lookup(String requestID) {
+        checkValidity();
+        Response response = memory.getIfPresent(requestID);
+        if (response != null && !isValid(response.stored)) {
+            memory.invalidate(requestID);
+            response = null;
+        }
+        if (response != null) {
+            if (System.currentTimeMillis() - response.touched > TOUCH_INTERVAL_MILLIS) {
+                // so the disk tier does not evict it while it is in use
+                touch(response);
+            }
+            count(memoryHits);
+            return response;
+        }
+        File file = getCacheFile(requestID);
+        try {
+            byte[] content = file.exists() ? Files.readAllBytes(file.toPath()) : null;
+            long stored = content != null && content.length >= HEADER_LENGTH
+                ? ByteBuffer.wrap(content).getLong() : 0;
+            // a time to come is no stored time, but the start of a response cached by an older version
+            if (content != null && (stored > System.currentTimeMillis() || !isValid(stored))) {
+                delete(requestID);
+            } else if (content != null) {
+                response = new Response(requestID, Arrays.copyOfRange(content, HEADER_LENGTH, content.length),
+                                        stored, 0);
+                touch(response);
+                memory.put(requestID, response);
+                count(diskHits);
+                return response;
+            }
+        } catch (NoSuchFileException e) {
+            // removed by the sweeper meanwhile
+        } catch (IOException e) {
+            log.warn("Could not read cached OAI response " + file + ": " + e.getMessage());
+        }
+        count(misses);
+        return null;
+    }
+
+    /**
+     * Record the use of a response on disk, as the modification time of its file.
+     */
+    private void touch(Response response) {
+        long now = System.currentTimeMillis();
+        response.touched = now;
+        try {
+            Files.setLastModifiedTime(getCacheFile(response.requestID).toPath(), FileTime.fromMillis(now));
+        } catch (NoSuchFileException e) {
+            // evicted from the disk tier, it stays in memory until evicted from there too
+        } catch (IOException e) {
+            log.warn("Could not record the use of cached OAI response " + response.requestID + ": "
+                         + e.getMessage());
+        }
+    }
+
+    private boolean isValid(long stored) {
+        return stored >= validSince && (ttlMillis <= 0 || System.currentTimeMillis() - stored < ttlMillis);
+    }
+
+    /**
+     * Pick up a compilation or clearing of the cache by another process, at most once a second.
+     */
+    private void checkValidity() {
+        long now = System.currentTimeMillis();
+        if (now < nextCheck) {
+            return;
+        }
+        nextCheck = now + CHECK_INTERVAL_MILLIS;
+        long since = new File(cacheDir + CLEARED_FILE).lastModified();
+        try {
+            if (lastCompilationCacheService.hasCache()) {
+                since = Math.max(since, lastCompilationCacheService.get().getTime());
+            }
+        } catch (IOException e) {
+            log.warn("Could not read the last compilation date: " + e.getMessage());
+        }
+        if (since > validSince) {
+            validSince = since;
+            memory.invalidateAll();
+            if (diskBytes.get() != 0) {
+                sweep();
+            }
+        }
+    }
+
+    /**
+     * Write a response to the disk tier, preceded by the time it was stored. It is written to a temporary file first,
+     * so it is never read before it is complete.
+     */
+    private void writeFile(File file, byte[] body, long stored) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File temp = File.createTempFile(file.getName(), TEMP_SUFFIX, dir);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+                out.write(ByteBuffer.allocate(HEADER_LENGTH).putLong(stored).array());
+                out.write(body);
+            }
+            Files.setLastModifiedTime(temp.toPath(), FileTime.fromMillis(stored));
+            long previous = file.length();
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            long total = diskBytes.get() < 0 ? -1 : diskBytes.addAndGet(HEADER_LENGTH + body.length - previous);
+            if (total < 0 || total > maxDiskBytes) {
+                sweep();
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    private void count(AtomicLong counter) {
+        counter.incrementAndGet();
+        long lookups = memoryHits.get() + diskHits.get() + misses.get();
+        if (lookups % STATISTICS_INTERVAL == 0 && log.isInfoEnabled()) {
+            log.info(String.format("OAI response cache: %d lookups, %.1f%% from memory, %.1f%% from disk, "
+                                       + "%d responses (%d MB) in memory, %d MB on disk, %d evicted from disk",
+                                   lookups, 100.0 * memoryHits.get() / lookups, 100.0 * diskHits.get() / lookups,
+                                   memory.size(), memoryWeight() / (1024 * 1024),
+                                   Math.max(0, diskBytes.get()) / (1024 * 1024), evictions.get()));
+        }
+    }
+
+    private long memoryWeight() {
+        long weight = 0;
+        for (Response response : memory.asMap().values()) {
+            weight += response.body.length;
+        }
+        return weight;
+    }
+
+    /**
+     * Remove invalid responses from the disk tier in the background, and the least recently used ones too while
+     * it is full. A response last used before it became invalid is invalid too; the others are checked when they
+     * are read.
+     */
+    private void sweep() {
+        if (sweeping.compareAndSet(false, true)) {
+            sweeper.execute(() -> {
+                try {
+                    sweepFiles();
+                } catch (IOException | RuntimeException e) {
+                    log.error("Could not sweep the OAI response cache", e);
+                } finally {
+                    sweeping.set(false);
+                }
+            });
+        }
+    }
+
+    private void sweepFiles() throws IOException {
+        Path dir = new File(requestDir).toPath();
+        if (!Files.isDirectory(dir)) {
+            diskBytes.set(0);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        // the last use in seconds and size of every file, packed so they sort least recently used first
+        long[][] files = {new long[1024]};
+        int[] count = {0};
+        long[] total = {0};
+        long[] removed = {0};
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                long modified = attrs.lastModifiedTime().toMillis();
+                boolean temp = file.getFileName().toString().endsWith(TEMP_SUFFIX);
+                if (temp ? start - modified > 3600 * 1000 : !isValid(modified)) {
+                    Files.deleteIfExists(file);
+                    removed[0]++;
+                } else if (!temp) {
+                    if (count[0] == files[0].length) {
+                        files[0] = Arrays.copyOf(files[0], count[0] * 2);
+                    }
+                    files[0][count[0]++] = (modified / 1000) << 31 | Math.min(attrs.size(), Integer.MAX_VALUE);
+                    total[0] += attrs.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        if (total[0] > maxDiskBytes) {
+            long[] sorted = Arrays.copyOf(files[0], count[0]);
+            Arrays.sort(sorted);
+            long target = (long) (maxDiskBytes * SWEEP_TARGET);
+            long remaining = total[0];
+            long cutoff = -1;
+            for (int i = 0; i < sorted.length && remaining > target; i++) {
+                remaining -= sorted[i] & Integer.MAX_VALUE;
+                cutoff = sorted[i] >>> 31;
+            }
+            long cutoffMillis = (cutoff + 1) * 1000;
+            long[] evicted = {0};
+            total[0] = 0;
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (!file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                        if (attrs.lastModifiedTime().toMillis() < cutoffMillis) {
+                            Files.deleteIfExists(file);
+                            evicted[0]++;
+                        } else {
+                            total[0] += attrs.size();
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            evictions.addAndGet(evicted[0]);
+            removed[0] += evicted[0];
+        }
+        diskBytes.set(total[0]);
+        if (log.isDebugEnabled()) {
+            log.debug("Swept the OAI response cache in " + (System.currentTimeMillis() - start) + " ms, removed "
+                          + removed[0] + " responses, " + total[0] / (1024 * 1024) + " MB left");
+        }
+    }
 }
@@ -9,6 +9,7 @@ package org.dspace.xoai.services.impl.xoai;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import com.google.common.base.Function;
@@ -23,6 +24,7 @@ import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.StreamingResponseCallback;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.dspace.xoai.data.DSpaceSolrItem;
@@ -110,6 +112,48 @@ public class DSpaceItemSolrRepository extends DSpaceItemRepository {
                                (int) solrDocuments.getNumFound());
     }
 
+    /**
+     * Pass the items matching the filters to a consumer as Solr returns them, so only one of them is held in
+     * memory at a time.
+     *
+     * @param filters  the filters
+     * @param offset   the number of matching items to skip
+     * @param length   the maximum number of items to pass
+     * @param consumer receives the items
+     * @return the number of matching items
+     * @throws DSpaceSolrException if Solr could not be queried
+     */
+    public long streamItems(List<ScopedFilter> filters, int offset, int length, final Consumer<Item> consumer)
+        throws DSpaceSolrException {
+        SolrQuery params = new SolrQuery(solrQueryResolver.buildQuery(filters))
+            .setRows(length)
+            .setStart(offset);
+        final long[] total = {0};
+        DSpaceSolrSearch.stream(server, params, new StreamingResponseCallback() {
+            @Override
+            public void streamSolrDocument(SolrDocument doc) {
+                consumer.accept(new DSpaceSolrItem(doc));
+            }
+
+            @Override
+            public void streamDocListInfo(long numFound, long start, Float maxScore) {
+                total[0] = numFound;
+            }
+        });
+        return total[0];
+    }
+
+    /**
+     * @param filters the filters
+     * @return the number of items matching the filters
+     * @throws DSpaceSolrException if Solr could not be queried
+     */
+    public long countItems(List<ScopedFilter> filters) throws DSpaceSolrException {
+        SolrQuery params = new SolrQuery(solrQueryResolver.buildQuery(filters))
+            .setRows(0);
+        return DSpaceSolrSearch.query(server, params).getNumFound();
+    }
+
     private class QueryResult {
         private List<Item> results;
         private boolean hasMore;
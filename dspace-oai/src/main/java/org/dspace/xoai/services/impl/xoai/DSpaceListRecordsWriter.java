@@ -0,0 +1,367 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.xoai.services.impl.xoai;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+
+import com.lyncode.xoai.dataprovider.OAIRequestParameters;
+import com.lyncode.xoai.dataprovider.core.ListItemIdentifiersResult;
+import com.lyncode.xoai.dataprovider.core.ListItemsResults;
+import com.lyncode.xoai.dataprovider.core.OAIParameters;
+import com.lyncode.xoai.dataprovider.core.ReferenceSet;
+import com.lyncode.xoai.dataprovider.core.ResumptionToken;
+import com.lyncode.xoai.dataprovider.core.XOAIContext;
+import com.lyncode.xoai.dataprovider.core.XOAIManager;
+import com.lyncode.xoai.dataprovider.data.About;
+import com.lyncode.xoai.dataprovider.data.Item;
+import com.lyncode.xoai.dataprovider.data.ItemIdentifier;
+import com.lyncode.xoai.dataprovider.data.internal.ItemHelper;
+import com.lyncode.xoai.dataprovider.data.internal.ItemRepositoryHelper;
+import com.lyncode.xoai.dataprovider.data.internal.MetadataFormat;
+import com.lyncode.xoai.dataprovider.data.internal.SetRepositoryHelper;
+import com.lyncode.xoai.dataprovider.exceptions.BadArgumentException;
+import com.lyncode.xoai.dataprovider.exceptions.HandlerException;
+import com.lyncode.xoai.dataprovider.exceptions.IdDoesNotExistException;
+import com.lyncode.xoai.dataprovider.exceptions.InvalidContextException;
+import com.lyncode.xoai.dataprovider.exceptions.OAIException;
+import com.lyncode.xoai.dataprovider.exceptions.WritingXmlException;
+import com.lyncode.xoai.dataprovider.filter.ScopedFilter;
+import com.lyncode.xoai.dataprovider.services.api.DateProvider;
+import com.lyncode.xoai.dataprovider.services.api.RepositoryConfiguration;
+import com.lyncode.xoai.dataprovider.services.api.ResumptionTokenFormatter;
+import com.lyncode.xoai.dataprovider.services.api.SetRepository;
+import com.lyncode.xoai.dataprovider.services.impl.BaseDateProvider;
+import com.lyncode.xoai.dataprovider.xml.XmlOutputContext;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.AboutType;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.HeaderType;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.ListRecordsType;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.MetadataType;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.OAIPMH;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.OAIPMHtype;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.RecordType;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.RequestType;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.ResumptionTokenType;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.StatusType;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.VerbType;
+import com.lyncode.xoai.util.XSLPipeline;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.dspace.xoai.services.api.CollectionsService;
+import org.dspace.xoai.services.api.HandleResolver;
+import org.dspace.xoai.solr.exceptions.DSpaceSolrException;
+
+/**
+ * Writes ListRecords responses while the records are read from the OAI Solr core, instead of building the whole
+ * response in memory first as {@link com.lyncode.xoai.dataprovider.OAIDataProvider} does. Each record's compiled
+ * metadata (<code>item.compile</code>) is transformed and written as soon as Solr returns it, so neither the time
+ * to the first byte nor the memory used depend on the number of records per page.
+ * <p>
+ * The response is the same as the one of the data provider. Requests which are not ListRecords requests or which
+ * result in an OAI-PMH error (bad arguments, unknown formats or sets, no matching records) are not written and
+ * left to the data provider.
+ */
+public class DSpaceListRecordsWriter {
+    private static final Logger log = LogManager.getLogger(DSpaceListRecordsWriter.class);
+
+    private static final DateProvider formatter = new BaseDateProvider();
+
+    private final XOAIManager manager;
+    private final XOAIContext context;
+    private final RepositoryConfiguration identify;
+    private final SetRepositoryHelper setRepository;
+    private final DSpaceItemSolrRepository itemRepository;
+    private final CollectionsService collectionsService;
+    private final HandleResolver handleResolver;
+    private final ResumptionTokenFormatter resumptionTokenFormat;
+
+    public DSpaceListRecordsWriter(XOAIManager manager, String xoaiContext, RepositoryConfiguration identify,
+                                   SetRepository setRepository, DSpaceItemSolrRepository itemRepository,
+                                   CollectionsService collectionsService, HandleResolver handleResolver,
+                                   ResumptionTokenFormatter resumptionTokenFormat) throws InvalidContextException {
+        this.manager = manager;
+        this.context = manager.getContextManager().getOAIContext(xoaiContext);
+        if (this.context == null) {
+            throw new InvalidContextException("ContextConfiguration \"" + xoaiContext + "\" does not exist");
+        }
+        this.identify = identify;
+        this.setRepository = new SetRepositoryHelper(setRepository);
+        this.itemRepository = itemRepository;
+        this.collectionsService = collectionsService;
+        this.handleResolver = handleResolver;
+        this.resumptionTokenFormat = resumptionTokenFormat;
+    }
+
+    /**
+     * Write the response to a ListRecords request.
+     *
+     * @param parameters the request
+     * @param out        receives the response
+     * @return false if nothing was written because the request is to be handled by the data provider
+     * @throws OAIException        if a record could not be read or transformed
+     * @throws XMLStreamException  if the response could not be written
+     * @throws WritingXmlException if the response could not be written
+     */
+    public boolean write(OAIRequestParameters parameters, OutputStream out)
+        throws OAIException, XMLStreamException, WritingXmlException {
+        OAIParameters params;
+        MetadataFormat format;
+        List<ScopedFilter> filters;
+        RequestType request;
+        try {
+            params = new OAIParameters(parameters, resumptionTokenFormat);
+            if (params.getVerb() != VerbType.LIST_RECORDS) {
+                return false;
+            }
+            if (params.hasSet() && (!setRepository.supportSets() || !setRepository.exists(context, params.getSet()))) {
+                return false;
+            }
+            format = context.getFormatByPrefix(params.getMetadataPrefix());
+            filters = getFilters(params);
+            request = getRequest(parameters, params);
+        } catch (HandlerException | ParseException e) {
+            log.debug(e.getMessage(), e);
+            return false;
+        }
+
+        int offset = params.getResumptionToken().getOffset();
+        try {
+            if (itemRepository.countItems(filters) <= offset) {
+                // noRecordsMatch
+                return false;
+            }
+        } catch (DSpaceSolrException e) {
+            throw new OAIException(e);
+        }
+
+        OAIPMH response = new OAIPMH(manager);
+        OAIPMHtype info = new OAIPMHtype();
+        response.setInfo(info);
+        info.setRequest(request);
+        info.setResponseDate(formatter.now());
+        info.setListRecords(new StreamedListRecords(params, format, filters, offset));
+
+        XmlOutputContext xml = XmlOutputContext.emptyContext(out);
+        xml.getWriter().writeStartDocument();
+        try {
+            response.write(xml);
+        } catch (RecordException e) {
+            if (e.getCause() instanceof XMLStreamException) {
+                throw (XMLStreamException) e.getCause();
+            } else if (e.getCause() instanceof WritingXmlException) {
+                throw (WritingXmlException) e.getCause();
+            }
+            throw (OAIException) e.getCause();
+        }
+        xml.getWriter().writeEndDocument();
+        xml.getWriter().flush();
+        xml.getWriter().close();
+        return true;
+    }
+
+    /**
+     * The filters of the context, the metadata format and the request, as the data provider builds them.
+     */
+    private List<ScopedFilter> getFilters(OAIParameters params) throws HandlerException, OAIException {
+        FilterCollector collector = new FilterCollector(collectionsService, handleResolver);
+        ItemRepositoryHelper helper = new ItemRepositoryHelper(collector);
+        int offset = params.getResumptionToken().getOffset();
+        int length = manager.getMaxListRecordsSize();
+        String prefix = params.getMetadataPrefix();
+        if (!params.hasSet()) {
+            if (params.hasFrom() && !params.hasUntil()) {
+                helper.getItems(context, offset, length, prefix, params.getFrom());
+            } else if (!params.hasFrom() && params.hasUntil()) {
+                helper.getItemsUntil(context, offset, length, prefix, params.getUntil());
+            } else if (params.hasFrom() && params.hasUntil()) {
+                helper.getItems(context, offset, length, prefix, params.getFrom(), params.getUntil());
+            } else {
+                helper.getItems(context, offset, length, prefix);
+            }
+        } else {
+            String set = params.getSet();
+            if (params.hasFrom() && !params.hasUntil()) {
+                helper.getItems(context, offset, length, prefix, set, params.getFrom());
+            } else if (!params.hasFrom() && params.hasUntil()) {
+                helper.getItemsUntil(context, offset, length, prefix, set, params.getUntil());
+            } else if (params.hasFrom() && params.hasUntil()) {
+                helper.getItems(context, offset, length, prefix, set, params.getFrom(), params.getUntil());
+            } else {
+                helper.getItems(context, offset, length, prefix, set);
+            }
+        }
+        return collector.filters;
+    }
+
+    private RequestType getRequest(OAIRequestParameters parameters, OAIParameters params)
+        throws HandlerException, ParseException {
+        RequestType request = new RequestType();
+        request.setValue(identify.getBaseUrl());
+        request.setVerb(params.getVerb());
+        if (parameters.getResumptionToken() != null) {
+            request.setResumptionToken(parameters.getResumptionToken());
+        }
+        if (parameters.getFrom() != null) {
+            request.setFrom(formatter.parse(parameters.getFrom()));
+        }
+        if (parameters.getMetadataPrefix() != null) {
+            request.setMetadataPrefix(parameters.getMetadataPrefix());
+        }
+        if (parameters.getSet() != null) {
+            request.setSet(parameters.getSet());
+        }
+        if (parameters.getUntil() != null) {
+            request.setUntil(formatter.parse(parameters.getUntil()));
+        }
+        return request;
+    }
+
+    private RecordType createRecord(MetadataFormat format, Item item) throws OAIException {
+        RecordType record = new RecordType();
+        HeaderType header = new HeaderType();
+        header.setIdentifier(item.getIdentifier());
+        ItemHelper itemHelper = new ItemHelper(item);
+        header.setDatestamp(formatter.format(item.getDatestamp(), identify.getGranularity()));
+        for (ReferenceSet set : itemHelper.getSets(context)) {
+            header.getSetSpec().add(set.getSetSpec());
+        }
+        if (item.isDeleted()) {
+            header.setStatus(StatusType.DELETED);
+        }
+        record.setHeader(header);
+
+        if (!item.isDeleted()) {
+            try {
+                XSLPipeline pipeline = itemHelper.toPipeline(true);
+                if (context.getTransformer().hasTransformer()) {
+                    pipeline = pipeline.apply((Transformer) context.getTransformer().getXslTransformer().getValue());
+                }
+                record.setMetadata(new MetadataType(pipeline.apply(format.getTransformer()).getTransformed()));
+            } catch (WritingXmlException | XMLStreamException | TransformerException | IOException e) {
+                throw new OAIException(e);
+            }
+            if (item.getAbout() != null) {
+                for (About about : item.getAbout()) {
+                    AboutType aboutType = new AboutType();
+                    aboutType.setAny(about.getXML());
+                    record.getAbout().add(aboutType);
+                }
+            }
+        }
+        return record;
+    }
+
+    /**
+     * The ListRecords element, written while the records are read from Solr.
+     */
+    private class StreamedListRecords extends ListRecordsType {
+        private final OAIParameters params;
+        private final MetadataFormat format;
+        private final List<ScopedFilter> filters;
+        private final int offset;
+
+        private StreamedListRecords(OAIParameters params, MetadataFormat format, List<ScopedFilter> filters,
+                                    int offset) {
+            this.params = params;
+            this.format = format;
+            this.filters = filters;
+            this.offset = offset;
+        }
+
+        @Override
+        public void write(XmlOutputContext xml) throws WritingXmlException {
+            int length = manager.getMaxListRecordsSize();
+            long total;
+            try {
+                total = itemRepository.streamItems(filters, offset, length, item -> writeRecord(xml, item));
+            } catch (DSpaceSolrException e) {
+                throw new RecordException(new OAIException(e));
+            } catch (RuntimeException e) {
+                // the Solr client may wrap what the callback throws
+                for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof RecordException) {
+                        throw (RecordException) cause;
+                    }
+                }
+                throw e;
+            }
+
+            try {
+                ResumptionToken token = total > offset + length
+                    ? new ResumptionToken(offset + length, params) : new ResumptionToken();
+                if (params.hasResumptionToken() || !token.isEmpty()) {
+                    ResumptionTokenType resumptionToken = new ResumptionTokenType();
+                    if (!token.isEmpty()) {
+                        resumptionToken.setValue(resumptionTokenFormat.format(token));
+                    }
+                    resumptionToken.setCursor(token.getOffset() / length);
+                    resumptionToken.setCompleteListSize(total);
+                    xml.getWriter().writeStartElement("resumptionToken");
+                    resumptionToken.write(xml);
+                    xml.getWriter().writeEndElement();
+                }
+            } catch (BadArgumentException | XMLStreamException e) {
+                throw new WritingXmlException(e);
+            }
+        }
+
+        private void writeRecord(XmlOutputContext xml, Item item) {
+            try {
+                RecordType record = createRecord(format, item);
+                xml.getWriter().writeStartElement("record");
+                record.write(xml);
+                xml.getWriter().writeEndElement();
+            } catch (OAIException | WritingXmlException | XMLStreamException e) {
+                throw new RecordException(e);
+            }
+        }
+    }
+
+    /**
+     * Carries the checked exceptions of writing a record through the Solr callback.
+     */
+    private static class RecordException extends RuntimeException {
+        private RecordException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Only collects the filters the data provider would query the items with.
+     */
+    private static class FilterCollector extends DSpaceItemRepository {
+        private List<ScopedFilter> filters;
+
+        private FilterCollector(CollectionsService collectionsService, HandleResolver handleResolver) {
+            super(collectionsService, handleResolver);
+        }
+
+        @Override
+        public Item getItem(String identifier) throws IdDoesNotExistException {
+            throw new IdDoesNotExistException();
+        }
+
+        @Override
+        public ListItemIdentifiersResult getItemIdentifiers(List<ScopedFilter> filters, int offset, int length) {
+            this.filters = filters;
+            return new ListItemIdentifiersResult(false, new ArrayList<ItemIdentifier>());
+        }
+
+        @Override
+        public ListItemsResults getItems(List<ScopedFilter> filters, int offset, int length) {
+            this.filters = filters;
+            return new ListItemsResults(false, new ArrayList<Item>());
+        }
+    }
+}
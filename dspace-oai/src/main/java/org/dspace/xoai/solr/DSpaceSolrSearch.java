@@ -8,10 +8,13 @@
 
 package org.dspace.xoai.solr;
 
+import java.io.IOException;
+
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrQuery.ORDER;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.StreamingResponseCallback;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
@@ -39,6 +42,24 @@ public class DSpaceSolrSearch {
         }
     }
 
+    /**
+     * Query Solr, passing every document to the callback while the response is read instead of collecting them.
+     *
+     * @param server     the Solr server
+     * @param solrParams the query
+     * @param callback   receives the number of matching documents, then the documents
+     * @throws DSpaceSolrException if the query failed
+     */
+    public static void stream(SolrServer server, SolrQuery solrParams, StreamingResponseCallback callback)
+        throws DSpaceSolrException {
+        try {
+            solrParams.addSortField("item.id", ORDER.asc);
+            server.queryAndStreamResponse(solrParams, callback);
+        } catch (SolrServerException | IOException ex) {
+            throw new DSpaceSolrException(ex.getMessage(), ex);
+        }
+    }
+
     public static SolrDocument querySingle(SolrServer server, SolrQuery solrParams)
         throws SolrSearchEmptyException {
         try {
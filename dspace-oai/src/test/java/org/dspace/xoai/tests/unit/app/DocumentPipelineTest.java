@@ -0,0 +1,192 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.xoai.tests.unit.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.dspace.xoai.app.DocumentPipeline;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DocumentPipeline}, with Solr replaced by a stub recording the documents sent. Whatever fails,
+ * the pipeline must end instead of leaving a thread waiting for another one.
+ */
+public class DocumentPipelineTest {
+
+    private static final int THREADS = 3;
+    private static final int BATCH_SIZE = 2;
+
+    /**
+     * Many more items than the queues can hold
+     */
+    private static final int ITEMS = 100;
+
+    private final StubbedSolrServer server = new StubbedSolrServer();
+
+    @Test(timeout = 30000)
+    public void testAllDocumentsAreSent() throws Exception {
+        List<UUID> ids = ids();
+        DocumentPipeline pipeline = new DocumentPipeline(server, THREADS, BATCH_SIZE, () -> new TestBuilder(null));
+        int written = run(pipeline, ids);
+
+        assertNull(pipeline.getFailure());
+        assertEquals(ITEMS, written);
+        assertEquals(0, pipeline.getFailed());
+        assertEquals(new HashSet<>(ids), server.sent());
+        assertEquals(1, server.commits);
+    }
+
+    @Test(timeout = 30000)
+    public void testFailingItemsAreSkipped() throws Exception {
+        List<UUID> ids = ids();
+        Set<UUID> failing = new HashSet<>(ids.subList(0, 10));
+        DocumentPipeline pipeline = new DocumentPipeline(server, THREADS, BATCH_SIZE, () -> new TestBuilder(failing));
+        int written = run(pipeline, ids);
+
+        assertNull(pipeline.getFailure());
+        assertEquals(ITEMS - failing.size(), written);
+        assertEquals(failing.size(), pipeline.getFailed());
+        Set<UUID> expected = new HashSet<>(ids);
+        expected.removeAll(failing);
+        assertEquals(expected, server.sent());
+    }
+
+    @Test(timeout = 30000)
+    public void testSolrFailureEndsThePipeline() throws Exception {
+        server.failing = true;
+        DocumentPipeline pipeline = new DocumentPipeline(server, THREADS, BATCH_SIZE, () -> new TestBuilder(null));
+        run(pipeline, ids());
+
+        assertTrue(pipeline.getFailure() instanceof SolrServerException);
+        assertTrue(server.sent().isEmpty());
+        assertEquals("what was sent is still committed", 1, server.commits);
+    }
+
+    @Test(timeout = 30000)
+    public void testBuilderFailureEndsThePipeline() throws Exception {
+        DocumentPipeline pipeline = new DocumentPipeline(server, THREADS, BATCH_SIZE, () -> {
+            throw new IllegalStateException("No database");
+        });
+        int written = run(pipeline, ids());
+
+        assertNotNull(pipeline.getFailure());
+        assertEquals(0, written);
+        assertTrue(server.sent().isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testFailFromTheCallerEndsThePipeline() throws Exception {
+        DocumentPipeline pipeline = new DocumentPipeline(server, THREADS, BATCH_SIZE, () -> new TestBuilder(null));
+        pipeline.start();
+        for (UUID id : ids()) {
+            pipeline.add(id);
+        }
+        Exception failure = new IOException("Unable to read the items");
+        pipeline.fail(failure);
+        // no more items are taken by the builders once failed, adding must not block
+        for (UUID id : ids()) {
+            pipeline.add(id);
+        }
+        pipeline.finish();
+
+        assertEquals(failure, pipeline.getFailure());
+        assertEquals(1, server.commits);
+    }
+
+    private int run(DocumentPipeline pipeline, List<UUID> ids) throws InterruptedException {
+        pipeline.start();
+        for (UUID id : ids) {
+            pipeline.add(id);
+        }
+        return pipeline.finish();
+    }
+
+    private static List<UUID> ids() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return ids;
+    }
+
+    private static class TestBuilder implements DocumentPipeline.Builder {
+        private final Set<UUID> failing;
+
+        TestBuilder(Set<UUID> failing) {
+            this.failing = failing == null ? Collections.<UUID>emptySet() : failing;
+        }
+
+        @Override
+        public SolrInputDocument build(UUID id) {
+            if (failing.contains(id)) {
+                throw new IllegalArgumentException("Broken item " + id);
+            }
+            SolrInputDocument doc = new SolrInputDocument();
+            doc.addField("item.id", id.toString());
+            return doc;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Records the documents added and the commits, or fails every add.
+     */
+    private static class StubbedSolrServer extends SolrServer {
+        private final List<SolrInputDocument> documents = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean failing;
+        private volatile int commits;
+
+        @Override
+        public NamedList<Object> request(SolrRequest request) throws SolrServerException, IOException {
+            UpdateRequest update = (UpdateRequest) request;
+            if (update.getDocuments() != null) {
+                if (failing) {
+                    throw new SolrServerException("Solr is down");
+                }
+                documents.addAll(update.getDocuments());
+            } else {
+                commits++;
+            }
+            return new NamedList<>();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        Set<UUID> sent() {
+            Set<UUID> ids = new HashSet<>();
+            synchronized (documents) {
+                for (SolrInputDocument doc : documents) {
+                    ids.add(UUID.fromString((String) doc.getFieldValue("item.id")));
+                }
+            }
+            return ids;
+        }
+    }
+}
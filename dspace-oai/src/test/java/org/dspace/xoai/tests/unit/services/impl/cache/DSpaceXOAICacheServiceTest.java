@@ -0,0 +1,150 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.xoai.tests.unit.services.impl.cache;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.google.common.base.Strings;
+import com.lyncode.xoai.dataprovider.core.XOAIManager;
+import com.lyncode.xoai.dataprovider.xml.XmlOutputContext;
+import com.lyncode.xoai.dataprovider.xml.oaipmh.OAIPMH;
+import org.dspace.xoai.services.api.cache.XOAILastCompilationCacheService;
+import org.dspace.xoai.services.api.config.ConfigurationService;
+import org.dspace.xoai.services.impl.cache.DSpaceXOAICacheService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Tests for the disk tier of {@link DSpaceXOAICacheService}, with responses of about a kilobyte in a disk tier
+ * of three.
+ */
+public class DSpaceXOAICacheServiceTest {
+
+    private static final long MAX_DISK_BYTES = 3500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final XOAIManager manager = mock(XOAIManager.class);
+    private AnnotationConfigApplicationContext applicationContext;
+
+    @Before
+    public void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("configurationService",
+                                                              mock(ConfigurationService.class));
+        applicationContext.getBeanFactory().registerSingleton("lastCompilationCacheService",
+                                                              mock(XOAILastCompilationCacheService.class));
+        applicationContext.refresh();
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    private DSpaceXOAICacheService cacheService() {
+        DSpaceXOAICacheService cacheService
+            = new DSpaceXOAICacheService(manager, folder.getRoot().getPath(), 0, MAX_DISK_BYTES, 0);
+        applicationContext.getAutowireCapableBeanFactory().autowireBean(cacheService);
+        return cacheService;
+    }
+
+    private static OAIPMH response(String body) throws Exception {
+        OAIPMH response = mock(OAIPMH.class);
+        doAnswer(invocation -> {
+            XMLStreamWriter writer = ((XmlOutputContext) invocation.getArguments()[0]).getWriter();
+            writer.writeStartElement("OAI-PMH");
+            writer.writeStartElement("responseDate");
+            writer.writeCharacters("2018-01-01T00:00:00Z");
+            writer.writeEndElement();
+            writer.writeStartElement("body");
+            writer.writeCharacters(body);
+            writer.writeEndElement();
+            writer.writeEndElement();
+            return null;
+        }).when(response).write(any(XmlOutputContext.class));
+        return response;
+    }
+
+    private static String body(char c) {
+        return Strings.repeat(String.valueOf(c), 1000);
+    }
+
+    private static void setLastUse(File file, long millis) throws Exception {
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(millis));
+    }
+
+    @Test
+    public void testServedFromDiskByAnotherProcess() throws Exception {
+        cacheService().store("a", response(body('a')));
+
+        DSpaceXOAICacheService other = cacheService();
+        assertTrue(other.hasCache("a"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        other.handle("a", out);
+        assertThat(out.toString("UTF-8"), containsString("<body>" + body('a') + "</body>"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        DSpaceXOAICacheService first = cacheService();
+        long now = System.currentTimeMillis();
+        first.store("a", response(body('a')));
+        first.store("b", response(body('b')));
+        first.store("c", response(body('c')));
+        setLastUse(first.getCacheFile("a"), now - 300 * 1000);
+        setLastUse(first.getCacheFile("b"), now - 200 * 1000);
+        setLastUse(first.getCacheFile("c"), now - 100 * 1000);
+
+        DSpaceXOAICacheService second = cacheService();
+        assertTrue("the oldest response, used again", second.hasCache("a"));
+        second.store("d", response(body('d')));
+
+        File evicted = second.getCacheFile("b");
+        long deadline = System.currentTimeMillis() + 10000;
+        while (evicted.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse("least recently used", evicted.exists());
+        assertTrue(second.getCacheFile("a").exists());
+        assertTrue(second.getCacheFile("c").exists());
+        assertTrue(second.getCacheFile("d").exists());
+        assertTrue(second.hasCache("a"));
+        assertFalse(second.hasCache("b"));
+    }
+
+    @Test
+    public void testResponseWithoutStoredTimeNotServed() throws Exception {
+        DSpaceXOAICacheService cacheService = cacheService();
+        File file = cacheService.getCacheFile("old");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), ("<?xml version=\"1.0\"?><body>" + body('o') + "</body>")
+            .getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(cacheService.hasCache("old"));
+        assertFalse(file.exists());
+    }
+}
@@ -278,7 +278,10 @@ public class BitstreamResource extends Resource {
      *                      The header "rest-dspace-token" with the token passed
      *                      from the login method must be set.
      * @param request       Servlet's HTTP request object.
-     * @return Returns response with data with file content type. It can
+     * @return Returns response with data with file content type. A request with
+     * a single "bytes=" Range header gets the PARTIAL_CONTENT(206) response with
+     * only the requested bytes, which are read from the assetstore without
+     * reading the bytes before them; such a request is not logged as a view. It can
      * return the NOT_FOUND(404) response code in case of wrong bitstream
      * id. Or response code UNAUTHORIZED(401) if user is not
      * allowed to read bitstream.
@@ -299,17 +302,34 @@ public class BitstreamResource extends Resource {
         InputStream inputStream = null;
         String type = null;
         String name = null;
+        long size = 0;
+        long[] range = null;
 
         try {
             context = createContext();
             org.dspace.content.Bitstream dspaceBitstream = findBitstream(context, bitstreamId,
                                                                          org.dspace.core.Constants.READ);
 
-            writeStats(dspaceBitstream, UsageEvent.Action.VIEW, user_ip, user_agent, xforwardedfor, headers,
-                       request, context);
+            size = dspaceBitstream.getSize();
+            range = parseRange(headers.getHeaderString("Range"), size);
+            if (range != null && range[0] >= size) {
+                context.abort();
+                return Response.status(416).header("Content-Range", "bytes */" + size).build();
+            }
+
+            if (range == null) {
+                // Only a request for the whole bitstream is logged as a view: players and download managers
+                // follow it with Range requests for the same bitstream, which would count it again.
+                writeStats(dspaceBitstream, UsageEvent.Action.VIEW, user_ip, user_agent, xforwardedfor, headers,
+                           request, context);
+            }
 
             log.trace("Bitstream(id=" + bitstreamId + ") data was successfully read.");
-            inputStream = bitstreamService.retrieve(context, dspaceBitstream);
+            if (range != null) {
+                inputStream = bitstreamService.retrieve(context, dspaceBitstream, range[0], range[1] - range[0] + 1);
+            } else {
+                inputStream = bitstreamService.retrieve(context, dspaceBitstream);
+            }
             type = dspaceBitstream.getFormat(context).getMIMEType();
             name = dspaceBitstream.getName();
 
@@ -333,11 +353,61 @@ public class BitstreamResource extends Resource {
             processFinally(context);
         }
 
+        if (range != null) {
+            return Response.status(Response.Status.PARTIAL_CONTENT).entity(inputStream).type(type)
+                           .header("Content-Disposition", "attachment; filename=\"" + name + "\"")
+                           .header("Accept-Ranges", "bytes")
+                           .header("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size)
+                           .header("Content-Length", range[1] - range[0] + 1)
+                           .build();
+        }
         return Response.ok(inputStream).type(type)
                        .header("Content-Disposition", "attachment; filename=\"" + name + "\"")
+                       .header("Accept-Ranges", "bytes")
                        .build();
     }
 
+    /**
+     * Parse a Range header with a single byte range.
+     *
+     * @param header value of the Range header, may be null.
+     * @param size   Size of the bitstream in bytes.
+     * @return Returns the first and last byte of the range (the first byte is
+     * not less than size when the range can not be satisfied), or null if the
+     * whole bitstream should be sent: there is no Range header, or it is not a
+     * single byte range, which servers are free to ignore.
+     */
+    protected static long[] parseRange(String header, long size) {
+        if (header == null || !header.matches("^bytes=(\\d+-\\d*|-\\d+)$")) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length());
+        int dash = spec.indexOf('-');
+        try {
+            if (dash == 0) {
+                // suffix range, the last n bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix == 0) {
+                    return new long[] {size, size};
+                }
+                return new long[] {Math.max(0, size - suffix), size - 1};
+            }
+            long first = Long.parseLong(spec.substring(0, dash));
+            if (dash == spec.length() - 1) {
+                return new long[] {first, size - 1};
+            }
+            long last = Long.parseLong(spec.substring(dash + 1));
+            if (last < first) {
+                // syntactically invalid, ignored
+                return null;
+            }
+            return new long[] {first, Math.min(last, size - 1)};
+        } catch (NumberFormatException e) {
+            // too large to be a valid position
+            return null;
+        }
+    }
+
     /**
      * Add bitstream policy to all bundles containing the bitstream.
      *
@@ -12,6 +12,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -228,6 +229,9 @@ public class CollectionsResource extends Resource {
      * @param limit         Limit value for items in array. Default value is 100.
      * @param offset        Offset of start index in array of items of collection. Default
      *                      value is 0.
+     * @param after         Id of the item after which the array will start, items are sorted
+     *                      by id. The offset is ignored when it is given, so deep pages cost
+     *                      the same as the first one.
      * @param user_ip       User's IP address.
      * @param user_agent    User agent string (specifies browser used and its version).
      * @param xforwardedfor When accessed via a reverse proxy, the application sees the proxy's IP as the
@@ -254,6 +258,7 @@ public class CollectionsResource extends Resource {
                                                             @QueryParam("expand") String expand,
                                                             @QueryParam("limit") @DefaultValue("100") Integer limit,
                                                             @QueryParam("offset") @DefaultValue("0") Integer offset,
+                                                            @QueryParam("after") String after,
                                                             @QueryParam("userIP") String user_ip,
                                                             @QueryParam("userAgent") String user_agent,
                                                             @QueryParam("xforwardedfor") String xforwardedfor,
@@ -264,6 +269,7 @@ public class CollectionsResource extends Resource {
         log.info("Reading collection(id=" + collectionId + ") items.");
         org.dspace.core.Context context = null;
         List<Item> items = null;
+        UUID afterId = parseAfter(after);
 
         try {
             context = createContext();
@@ -274,16 +280,16 @@ public class CollectionsResource extends Resource {
                        headers, request, context);
 
             items = new ArrayList<Item>();
-            Iterator<org.dspace.content.Item> dspaceItems = itemService.findByCollection(context, dspaceCollection);
-            for (int i = 0; (dspaceItems.hasNext()) && (i < (limit + offset)); i++) {
+            // Only the items of the page are read from the database
+            Iterator<org.dspace.content.Item> dspaceItems = itemService
+                .findByCollection(context, dspaceCollection, afterId, limit, afterId == null ? offset : null);
+            while (dspaceItems.hasNext()) {
                 org.dspace.content.Item dspaceItem = dspaceItems.next();
 
-                if (i >= offset) {
-                    if (itemService.isItemListedForUser(context, dspaceItem)) {
-                        items.add(new Item(dspaceItem, servletContext, expand, context));
-                        writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwardedfor,
-                                   headers, request, context);
-                    }
+                if (itemService.isItemListedForUser(context, dspaceItem)) {
+                    items.add(new Item(dspaceItem, servletContext, expand, context));
+                    writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwardedfor,
+                               headers, request, context);
                 }
             }
 
@@ -10,7 +10,10 @@ package org.dspace.rest;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -26,8 +29,13 @@ import org.dspace.authorize.factory.AuthorizeServiceFactory;
 import org.dspace.authorize.service.AuthorizeService;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
+import org.dspace.content.CommunityHierarchy;
+import org.dspace.content.CommunityHierarchySnapshot;
+import org.dspace.content.CommunityHierarchySnapshot.Node;
+import org.dspace.content.DSpaceObject;
 import org.dspace.content.Site;
 import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.CollectionService;
 import org.dspace.content.service.CommunityService;
 import org.dspace.content.service.SiteService;
 import org.dspace.rest.common.HierarchyCollection;
@@ -48,6 +56,8 @@ public class HierarchyResource extends Resource {
     private static Logger log = Logger.getLogger(HierarchyResource.class);
     protected SiteService siteService = ContentServiceFactory.getInstance().getSiteService();
     protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    protected CommunityHierarchy communityHierarchy = ContentServiceFactory.getInstance().getCommunityHierarchy();
     protected AuthorizeService authorizeService = AuthorizeServiceFactory.getInstance().getAuthorizeService();
     protected ConfigurationService configurationService = DSpaceServicesFactory.getInstance().getConfigurationService();
 
@@ -89,8 +99,13 @@ public class HierarchyResource extends Resource {
             repo.setId(site.getID().toString());
             repo.setName(site.getName());
             repo.setHandle(site.getHandle());
-            List<Community> dspaceCommunities = communityService.findAllTop(context);
-            processCommunity(context, repo, dspaceCommunities);
+            CommunityHierarchySnapshot snapshot = communityHierarchy.getSnapshot(context);
+            if (snapshot != null) {
+                processNodes(context, snapshot, repo, snapshot.getTopCommunities(), readableObjects(context));
+            } else {
+                List<Community> dspaceCommunities = communityService.findAllTop(context);
+                processCommunity(context, repo, dspaceCommunities);
+            }
         } catch (Exception e) {
             processException(e.getMessage(), context);
         } finally {
@@ -140,4 +155,64 @@ public class HierarchyResource extends Resource {
         }
 
     }
+
+    /**
+     * Load all communities and collections at once for the READ checks of the snapshot nodes.
+     *
+     * @return the communities and collections by ID, or null if authorization is not checked
+     */
+    private Map<UUID, DSpaceObject> readableObjects(org.dspace.core.Context context) throws SQLException {
+        if (context.ignoreAuthorization()) {
+            return null;
+        }
+        Map<UUID, DSpaceObject> objects = new HashMap<UUID, DSpaceObject>();
+        for (Community comm : communityService.findAll(context)) {
+            objects.put(comm.getID(), comm);
+        }
+        for (Collection coll : collectionService.findAll(context)) {
+            objects.put(coll.getID(), coll);
+        }
+        return objects;
+    }
+
+    private boolean canRead(org.dspace.core.Context context, Map<UUID, DSpaceObject> objects, Node node)
+        throws SQLException {
+        if (objects == null) {
+            return true;
+        }
+        DSpaceObject dso = objects.get(node.getID());
+        return dso != null && authorizeService.authorizeActionBoolean(context, dso, org.dspace.core.Constants.READ);
+    }
+
+    private void processNodes(org.dspace.core.Context context, CommunityHierarchySnapshot snapshot,
+                              HierarchyCommunity parent, List<Node> communities, Map<UUID, DSpaceObject> objects)
+        throws SQLException {
+        if (communities.size() == 0) {
+            return;
+        }
+        List<HierarchyCommunity> parentComms = new ArrayList<HierarchyCommunity>();
+        parent.setCommunities(parentComms);
+        for (Node comm : communities) {
+            if (!canRead(context, objects, comm)) {
+                continue;
+            }
+            HierarchyCommunity mycomm = new HierarchyCommunity(comm.getID().toString(), comm.getName(),
+                                                               comm.getHandle());
+            parentComms.add(mycomm);
+            List<Node> colls = snapshot.getCollections(comm.getID());
+            if (colls.size() > 0) {
+                List<HierarchyCollection> myColls = new ArrayList<HierarchyCollection>();
+                mycomm.setCollections(myColls);
+                for (Node coll : colls) {
+                    if (!canRead(context, objects, coll)) {
+                        continue;
+                    }
+                    HierarchyCollection mycoll = new HierarchyCollection(coll.getID().toString(), coll.getName(),
+                                                                         coll.getHandle());
+                    myColls.add(mycoll);
+                }
+            }
+            processNodes(context, snapshot, mycomm, snapshot.getSubcommunities(comm.getID()), objects);
+        }
+    }
 }
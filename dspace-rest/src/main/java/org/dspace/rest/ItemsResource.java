@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -139,8 +140,9 @@ public class ItemsResource extends Resource {
 
     /**
      * It returns an array of items in DSpace. You can define how many items in
-     * list will be and from which index will start. Items in list are sorted by
-     * handle, not by id.
+     * list will be and from which index or item will start. Items in list are
+     * sorted by id. To read deep pages, pass the id of the last item of the
+     * previous page as after instead of an offset: every page then costs the same.
      *
      * @param expand        String which define, what additional properties will be in
      *                      returned item. Options are separeted by commas and are: "all",
@@ -148,6 +150,8 @@ public class ItemsResource extends Resource {
      *                      "parentCommunityList" and "bitstreams".
      * @param limit         How many items in array will be. Default value is 100.
      * @param offset        On which index will array start. Default value is 0.
+     * @param after         Id of the item after which the array will start. The offset
+     *                      is ignored when it is given.
      * @param user_ip       User's IP address.
      * @param user_agent    User agent string (specifies browser used and its version).
      * @param xforwardedfor When accessed via a reverse proxy, the application sees the proxy's IP as the
@@ -168,36 +172,38 @@ public class ItemsResource extends Resource {
     @Produces( {MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
     public Item[] getItems(@QueryParam("expand") String expand, @QueryParam("limit") @DefaultValue("100") Integer limit,
                            @QueryParam("offset") @DefaultValue("0") Integer offset,
+                           @QueryParam("after") String after,
                            @QueryParam("userIP") String user_ip,
                            @QueryParam("userAgent") String user_agent,
                            @QueryParam("xforwardedfor") String xforwardedfor,
                            @Context HttpHeaders headers, @Context HttpServletRequest request)
         throws WebApplicationException {
 
-        log.info("Reading items.(offset=" + offset + ",limit=" + limit + ").");
+        log.info("Reading items.(offset=" + offset + ",limit=" + limit + ",after=" + after + ").");
         org.dspace.core.Context context = null;
         List<Item> items = null;
+        UUID afterId = parseAfter(after);
 
         try {
             context = createContext();
 
-            Iterator<org.dspace.content.Item> dspaceItems = itemService.findAllUnfiltered(context);
-            items = new ArrayList<Item>();
-
             if (!((limit != null) && (limit >= 0) && (offset != null) && (offset >= 0))) {
                 log.warn("Paging was badly set, using default values.");
                 limit = 100;
                 offset = 0;
             }
 
-            for (int i = 0; (dspaceItems.hasNext()) && (i < (limit + offset)); i++) {
+            // Only the items of the page are read from the database
+            Iterator<org.dspace.content.Item> dspaceItems = itemService
+                .findAllUnfiltered(context, afterId, limit, afterId == null ? offset : null);
+            items = new ArrayList<Item>();
+
+            while (dspaceItems.hasNext()) {
                 org.dspace.content.Item dspaceItem = dspaceItems.next();
-                if (i >= offset) {
-                    if (itemService.isItemListedForUser(context, dspaceItem)) {
-                        items.add(new Item(dspaceItem, servletContext, expand, context));
-                        writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwardedfor,
-                                   headers, request, context);
-                    }
+                if (itemService.isItemListedForUser(context, dspaceItem)) {
+                    items.add(new Item(dspaceItem, servletContext, expand, context));
+                    writeStats(dspaceItem, UsageEvent.Action.VIEW, user_ip, user_agent, xforwardedfor,
+                               headers, request, context);
                 }
             }
             context.complete();
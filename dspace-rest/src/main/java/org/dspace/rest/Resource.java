@@ -10,12 +10,14 @@ package org.dspace.rest;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.UUID;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.content.DSpaceObject;
 import org.dspace.core.Context;
@@ -152,6 +154,27 @@ public class Resource {
         }
     }
 
+    /**
+     * Parse the ID of the last item of the previous page, which is used instead of an
+     * offset to page through items: every page then costs the same to read.
+     *
+     * @param after ID of the last item of the previous page, may be empty.
+     * @return The ID, or null when none was given.
+     * @throws WebApplicationException It is thrown with status code BAD_REQUEST(400) when the ID
+     *                                 is not a UUID.
+     */
+    protected static UUID parseAfter(String after) throws WebApplicationException {
+        if (StringUtils.isBlank(after)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(after);
+        } catch (IllegalArgumentException e) {
+            log.warn("Paging was badly set, after(" + after + ") is not a UUID.");
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+    }
+
     /**
      * Split string with regex ".".
      *
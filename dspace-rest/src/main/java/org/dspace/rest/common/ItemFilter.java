@@ -18,6 +18,7 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import org.apache.log4j.Logger;
+import org.dspace.content.ItemBitstreamCriteria;
 import org.dspace.core.Context;
 import org.dspace.core.factory.CoreServiceFactory;
 import org.dspace.rest.filter.ItemFilterDefs;
@@ -154,6 +155,33 @@ public class ItemFilter {
         return false;
     }
 
+    /**
+     * Get the query form of the test of the filter, see {@link ItemFilterTest#getQueryCriteria}.
+     *
+     * @return the criteria, or null when the filter can only be evaluated item by item
+     */
+    public ItemBitstreamCriteria queryCriteria() {
+        if (itemFilterTest == null) {
+            return null;
+        }
+        return itemFilterTest.getQueryCriteria();
+    }
+
+    /**
+     * Record an item the query form of the test of the filter was evaluated for by the database.
+     *
+     * @param matches  whether the item matched the query
+     * @param restItem REST representation of the item, only used when the items are saved
+     * @return whether the item matched the query
+     */
+    public boolean testItem(boolean matches, org.dspace.rest.common.Item restItem) {
+        initCount();
+        if (matches) {
+            addItem(restItem);
+        }
+        return matches;
+    }
+
     @XmlAttribute(name = "filter-name")
     public String getFilterName() {
         return filterName;
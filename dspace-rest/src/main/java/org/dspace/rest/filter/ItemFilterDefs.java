@@ -7,7 +7,12 @@
  */
 package org.dspace.rest.filter;
 
+import static org.dspace.content.ItemBitstreamCriteria.Operator.EQUAL;
+import static org.dspace.content.ItemBitstreamCriteria.Operator.GREATER;
+import static org.dspace.content.ItemBitstreamCriteria.where;
+
 import org.dspace.content.Item;
+import org.dspace.content.ItemBitstreamCriteria;
 import org.dspace.core.Context;
 
 /**
@@ -55,27 +60,48 @@ public class ItemFilterDefs implements ItemFilterList {
             public boolean testItem(Context context, Item item) {
                 return ItemFilterUtil.countOriginalBitstream(item) > 1;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.countOriginal(), GREATER, 1);
+            }
         },
         has_no_originals("Item has No Original Bitstreams", null, CAT_BASIC) {
             public boolean testItem(Context context, Item item) {
                 return ItemFilterUtil.countOriginalBitstream(item) == 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.countOriginal(), EQUAL, 0);
+            }
         },
         has_one_original("Item has One Original Bitstream", null, CAT_BASIC) {
             public boolean testItem(Context context, Item item) {
                 return ItemFilterUtil.countOriginalBitstream(item) == 1;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.countOriginal(), EQUAL, 1);
+            }
         },
         has_doc_original("Item has a Doc Original Bitstream (PDF, Office, Text, HTML, XML, etc)", null, CAT_MIME) {
             public boolean testItem(Context context, Item item) {
                 return ItemFilterUtil
                     .countOriginalBitstreamMime(context, item, ItemFilterUtil.getDocumentMimeTypes()) > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.countOriginal().withMimeTypes(
+                    ItemFilterUtil.mimeTypes(ItemFilterUtil.getDocumentMimeTypes())), GREATER, 0);
+            }
         },
         has_image_original("Item has an Image Original Bitstream", null, CAT_MIME) {
             public boolean testItem(Context context, Item item) {
                 return ItemFilterUtil.countOriginalBitstreamMimeStartsWith(context, item, "image") > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.countOriginal().withMimeTypePrefix("image"), GREATER, 0);
+            }
         },
         has_unsupp_type("Has Other Bitstream Types (not Doc or Image)", null, ItemFilterDefs.CAT_MIME) {
             public boolean testItem(Context context, Item item) {
@@ -88,6 +114,14 @@ public class ItemFilterDefs implements ItemFilterList {
                 int imgCount = ItemFilterUtil.countOriginalBitstreamMimeStartsWith(context, item, "image");
                 return (bitCount - docCount - imgCount) > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                // the same arithmetic as testItem, which does not assume documents and images are distinct
+                return where(ItemFilterUtil.countOriginal(), GREATER,
+                             ItemFilterUtil.countOriginal().withMimeTypes(
+                                 ItemFilterUtil.mimeTypes(ItemFilterUtil.getDocumentMimeTypes())),
+                             ItemFilterUtil.countOriginal().withMimeTypePrefix("image"));
+            }
         },
         has_mixed_original("Item has multiple types of Original Bitstreams (Doc, Image, Other)", null, CAT_MIME) {
             public boolean testItem(Context context, Item item) {
@@ -111,11 +145,21 @@ public class ItemFilterDefs implements ItemFilterList {
             public boolean testItem(Context context, Item item) {
                 return ItemFilterUtil.countOriginalBitstreamMime(context, item, MIMES_PDF) > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.countOriginal().withMimeTypes(ItemFilterUtil.mimeTypes(MIMES_PDF)),
+                             GREATER, 0);
+            }
         },
         has_jpg_original("Item has JPG Original Bitstream", null, CAT_MIME) {
             public boolean testItem(Context context, Item item) {
                 return ItemFilterUtil.countOriginalBitstreamMime(context, item, MIMES_JPG) > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.countOriginal().withMimeTypes(ItemFilterUtil.mimeTypes(MIMES_JPG)),
+                             GREATER, 0);
+            }
         },;
 
         private String title = null;
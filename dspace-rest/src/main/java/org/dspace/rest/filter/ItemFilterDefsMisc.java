@@ -7,9 +7,14 @@
  */
 package org.dspace.rest.filter;
 
+import static org.dspace.content.ItemBitstreamCriteria.Operator.EQUAL;
+import static org.dspace.content.ItemBitstreamCriteria.Operator.GREATER;
+import static org.dspace.content.ItemBitstreamCriteria.where;
+
 import java.util.List;
 
 import org.dspace.content.Item;
+import org.dspace.content.ItemBitstreamCriteria;
 import org.dspace.core.Context;
 import org.dspace.rest.filter.ItemFilterUtil.BundleName;
 import org.dspace.services.factory.DSpaceServicesFactory;
@@ -35,6 +40,13 @@ public class ItemFilterDefsMisc implements ItemFilterList {
                     .countOriginalBitstreamMime(context, item, ItemFilterUtil.getSupportedImageMimeTypes());
                 return (imageCount == suppImageCount);
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                ItemBitstreamCriteria.Count imageCount = ItemFilterUtil.countOriginal().withMimeTypePrefix("image/");
+                return where(imageCount, GREATER, 0)
+                    .and(imageCount, EQUAL, ItemFilterUtil.countOriginal().withMimeTypes(
+                        ItemFilterUtil.mimeTypes(ItemFilterUtil.getSupportedImageMimeTypes())));
+            }
         },
         has_unsupp_image_type("Item has Image Bitstream that is Unsupported", null, CAT_MIME_SUPP) {
             public boolean testItem(Context context, Item item) {
@@ -46,6 +58,12 @@ public class ItemFilterDefsMisc implements ItemFilterList {
                     .countOriginalBitstreamMime(context, item, ItemFilterUtil.getSupportedImageMimeTypes());
                 return (imageCount - suppImageCount) > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.countOriginal().withMimeTypePrefix("image/"), GREATER,
+                             ItemFilterUtil.countOriginal().withMimeTypes(
+                                 ItemFilterUtil.mimeTypes(ItemFilterUtil.getSupportedImageMimeTypes())));
+            }
         },
         has_only_supp_doc_type("Item Document Bitstreams are Supported", null, CAT_MIME_SUPP) {
             public boolean testItem(Context context, Item item) {
@@ -58,6 +76,14 @@ public class ItemFilterDefsMisc implements ItemFilterList {
                     .countOriginalBitstreamMime(context, item, ItemFilterUtil.getSupportedDocumentMimeTypes());
                 return docCount == suppDocCount;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                ItemBitstreamCriteria.Count docCount = ItemFilterUtil.countOriginal().withMimeTypes(
+                    ItemFilterUtil.mimeTypes(ItemFilterUtil.getDocumentMimeTypes()));
+                return where(docCount, GREATER, 0)
+                    .and(docCount, EQUAL, ItemFilterUtil.countOriginal().withMimeTypes(
+                        ItemFilterUtil.mimeTypes(ItemFilterUtil.getSupportedDocumentMimeTypes())));
+            }
         },
         has_unsupp_doc_type("Item has Document Bitstream that is Unsupported", null, CAT_MIME_SUPP) {
             public boolean testItem(Context context, Item item) {
@@ -70,6 +96,13 @@ public class ItemFilterDefsMisc implements ItemFilterList {
                     .countOriginalBitstreamMime(context, item, ItemFilterUtil.getSupportedDocumentMimeTypes());
                 return (docCount - suppDocCount) > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.countOriginal().withMimeTypes(
+                                 ItemFilterUtil.mimeTypes(ItemFilterUtil.getDocumentMimeTypes())), GREATER,
+                             ItemFilterUtil.countOriginal().withMimeTypes(
+                                 ItemFilterUtil.mimeTypes(ItemFilterUtil.getSupportedDocumentMimeTypes())));
+            }
         },
         has_small_pdf("Has unusually small PDF", null, ItemFilterDefs.CAT_MIME) {
             public boolean testItem(Context context, Item item) {
@@ -77,6 +110,13 @@ public class ItemFilterDefsMisc implements ItemFilterList {
                     .countBitstreamSmallerThanMinSize(context, BundleName.ORIGINAL, item, ItemFilterDefs.MIMES_PDF,
                                                       "rest.report-pdf-min-size") > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                long size = DSpaceServicesFactory.getInstance().getConfigurationService()
+                                                 .getLongProperty("rest.report-pdf-min-size");
+                return where(ItemFilterUtil.countOriginal().withMimeTypes(
+                    ItemFilterUtil.mimeTypes(ItemFilterDefs.MIMES_PDF)).smallerThan(size), GREATER, 0);
+            }
         },
         has_large_pdf("Has unusually large PDF", null, ItemFilterDefs.CAT_MIME) {
             public boolean testItem(Context context, Item item) {
@@ -84,6 +124,13 @@ public class ItemFilterDefsMisc implements ItemFilterList {
                     .countBitstreamLargerThanMaxSize(context, BundleName.ORIGINAL, item, ItemFilterDefs.MIMES_PDF,
                                                      "rest.report-pdf-max-size") > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                long size = DSpaceServicesFactory.getInstance().getConfigurationService()
+                                                 .getLongProperty("rest.report-pdf-max-size");
+                return where(ItemFilterUtil.countOriginal().withMimeTypes(
+                    ItemFilterUtil.mimeTypes(ItemFilterDefs.MIMES_PDF)).largerThan(size), GREATER, 0);
+            }
         },
         has_unsupported_bundle("Has bitstream in an unsuppored bundle", null, CAT_MISC) {
             public boolean testItem(Context context, Item item) {
@@ -98,6 +145,13 @@ public class ItemFilterDefsMisc implements ItemFilterList {
                     .countBitstreamSmallerThanMinSize(context, BundleName.THUMBNAIL, item, ItemFilterDefs.MIMES_JPG,
                                                       "rest.report-thumbnail-min-size") > 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                long size = DSpaceServicesFactory.getInstance().getConfigurationService()
+                                                 .getLongProperty("rest.report-thumbnail-min-size");
+                return where(ItemFilterUtil.count(BundleName.THUMBNAIL).withMimeTypes(
+                    ItemFilterUtil.mimeTypes(ItemFilterDefs.MIMES_JPG)).smallerThan(size), GREATER, 0);
+            }
         },
         has_doc_without_text("Has document bitstream without TEXT item", null, ItemFilterDefs.CAT_MIME) {
             public boolean testItem(Context context, Item item) {
@@ -109,6 +163,12 @@ public class ItemFilterDefsMisc implements ItemFilterList {
                 int countText = ItemFilterUtil.countBitstream(BundleName.TEXT, item);
                 return countDoc > countText;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                ItemBitstreamCriteria.Count docCount = ItemFilterUtil.countOriginal().withMimeTypes(
+                    ItemFilterUtil.mimeTypes(ItemFilterUtil.getDocumentMimeTypes()));
+                return where(docCount, GREATER, 0).and(docCount, GREATER, ItemFilterUtil.count(BundleName.TEXT));
+            }
         },
         has_original_without_thumbnail("Has original bitstream without thumbnail", null, CAT_MISC) {
             public boolean testItem(Context context, Item item) {
@@ -119,6 +179,12 @@ public class ItemFilterDefsMisc implements ItemFilterList {
                 int countThumb = ItemFilterUtil.countBitstream(BundleName.THUMBNAIL, item);
                 return countBit > countThumb;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                ItemBitstreamCriteria.Count originalCount = ItemFilterUtil.countOriginal();
+                return where(originalCount, GREATER, 0)
+                    .and(originalCount, GREATER, ItemFilterUtil.count(BundleName.THUMBNAIL));
+            }
         },
         has_invalid_thumbnail_name("Has invalid thumbnail name (assumes one thumbnail for each original)", null,
                                    CAT_MISC) {
@@ -152,6 +218,10 @@ public class ItemFilterDefsMisc implements ItemFilterList {
             public boolean testItem(Context context, Item item) {
                 return ItemFilterUtil.countBitstream(BundleName.LICENSE, item) == 0;
             }
+
+            public ItemBitstreamCriteria getQueryCriteria() {
+                return where(ItemFilterUtil.count(BundleName.LICENSE), EQUAL, 0);
+            }
         },
         has_license_documentation("Has documentation in the license bundle", null, CAT_MISC) {
             public boolean testItem(Context context, Item item) {
@@ -9,14 +9,23 @@ package org.dspace.rest.filter;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import javax.servlet.ServletContext;
 import javax.ws.rs.WebApplicationException;
 
 import org.apache.log4j.Logger;
 import org.dspace.authorize.factory.AuthorizeServiceFactory;
 import org.dspace.authorize.service.AuthorizeService;
+import org.dspace.content.ItemBitstreamCriteria;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.ItemService;
 import org.dspace.core.Context;
 import org.dspace.rest.common.Item;
 import org.dspace.rest.common.ItemFilter;
@@ -28,10 +37,18 @@ import org.dspace.rest.common.ItemFilter;
  */
 public class ItemFilterSet {
     protected AuthorizeService authorizeService = AuthorizeServiceFactory.getInstance().getAuthorizeService();
+    protected ItemService itemService = ContentServiceFactory.getInstance().getItemService();
     static Logger log = Logger.getLogger(ItemFilterSet.class);
 
+    /**
+     * Number of items evaluated together, the filters with a query form are evaluated once per batch.
+     * Kept below the 1000 values Oracle allows in an IN list.
+     */
+    protected static final int BATCH_SIZE = 500;
+
     private List<ItemFilter> itemFilters;
     private ItemFilter allFiltersFilter;
+    private boolean reportItems;
 
     /**
      * Construct a set of Item Filters identified by a list string.
@@ -42,6 +59,7 @@ public class ItemFilterSet {
      */
     public ItemFilterSet(String filterList, boolean reportItems) {
         log.debug(String.format("Create ItemFilterSet: %s", filterList));
+        this.reportItems = reportItems;
         itemFilters = ItemFilter.getItemFilters(filterList, reportItems);
         allFiltersFilter = ItemFilter.getAllFiltersFilter(itemFilters);
     }
@@ -65,10 +83,29 @@ public class ItemFilterSet {
      * @param restItem REST representation of the DSpace Object being evaluated
      */
     public void testItem(Context context, org.dspace.content.Item item, Item restItem) {
+        testItem(context, item, restItem, Collections.<ItemFilter, Set<UUID>>emptyMap());
+    }
+
+    /**
+     * Evaluate an item against the use cases in the Item Filter Set, using the results of the filters that
+     * were already evaluated by the database.
+     *
+     * @param context  Active DSpace Context
+     * @param item     DSpace Object to evaluate
+     * @param restItem REST representation of the DSpace Object being evaluated
+     * @param matches  IDs of the items matching the filters evaluated by the database
+     */
+    protected void testItem(Context context, org.dspace.content.Item item, Item restItem,
+                            Map<ItemFilter, Set<UUID>> matches) {
         boolean bAllTrue = true;
         for (ItemFilter itemFilter : itemFilters) {
             if (itemFilter.hasItemTest()) {
-                bAllTrue &= itemFilter.testItem(context, item, restItem);
+                Set<UUID> matchingIds = matches.get(itemFilter);
+                if (matchingIds != null) {
+                    bAllTrue &= itemFilter.testItem(matchingIds.contains(item.getID()), restItem);
+                } else {
+                    bAllTrue &= itemFilter.testItem(context, item, restItem);
+                }
             }
         }
         if (bAllTrue && allFiltersFilter != null) {
@@ -108,6 +145,9 @@ public class ItemFilterSet {
     /**
      * Evaluate a set of Items against the Item Filters in the Item Filter Set
      *
+     * The items are evaluated in batches, the filters with a query form are evaluated by the database once for
+     * every batch, the other filters item by item.
+     *
      * @param context        Current DSpace Context
      * @param servletContext Context of the servlet container.
      * @param childItems     Collection of Items to Evaluate
@@ -123,21 +163,63 @@ public class ItemFilterSet {
                                 Iterator<org.dspace.content.Item> childItems, List<Item> items, boolean save,
                                 String expand) throws WebApplicationException, SQLException {
         int count = 0;
+        List<org.dspace.content.Item> batch = new ArrayList<org.dspace.content.Item>();
         while (childItems.hasNext()) {
             count++;
-            org.dspace.content.Item item = childItems.next();
+            batch.add(childItems.next());
+            if (batch.size() == BATCH_SIZE || !childItems.hasNext()) {
+                processSaveBatch(context, servletContext, batch, items, save, expand);
+                batch.clear();
+            }
+        }
+        return count;
+    }
+
+    protected void processSaveBatch(Context context, ServletContext servletContext,
+                                    List<org.dspace.content.Item> batch, List<Item> items, boolean save,
+                                    String expand) throws WebApplicationException, SQLException {
+        Map<ItemFilter, Set<UUID>> matches = queryItems(context, batch);
+        for (org.dspace.content.Item item : batch) {
             log.debug(item.getHandle() + " evaluate.");
             if (authorizeService.authorizeActionBoolean(context, item, org.dspace.core.Constants.READ)) {
-                Item restItem = new Item(item, servletContext, expand, context);
+                // Only build the details of the item when they are reported, counts do not need them
+                Item restItem = null;
+                if (save || reportItems) {
+                    restItem = new Item(item, servletContext, expand, context);
+                }
                 if (save) {
                     items.add(restItem);
                 }
-                testItem(context, item, restItem);
+                testItem(context, item, restItem, matches);
             } else {
                 log.debug(item.getHandle() + " not authorized - not included in result set.");
             }
         }
-        return count;
+    }
+
+    /**
+     * Evaluate the Item Filters that have a query form against a batch of items, with one query per filter.
+     *
+     * @param context Current DSpace Context
+     * @param batch   the items to evaluate
+     * @return the IDs of the items matching each of these filters
+     * @throws SQLException An exception that provides information on a database access error or other errors.
+     */
+    protected Map<ItemFilter, Set<UUID>> queryItems(Context context, List<org.dspace.content.Item> batch)
+        throws SQLException {
+        List<UUID> ids = new ArrayList<UUID>();
+        for (org.dspace.content.Item item : batch) {
+            ids.add(item.getID());
+        }
+        Map<ItemFilter, Set<UUID>> matches = new HashMap<ItemFilter, Set<UUID>>();
+        for (ItemFilter itemFilter : itemFilters) {
+            ItemBitstreamCriteria criteria = itemFilter.queryCriteria();
+            if (criteria != null) {
+                log.debug(String.format("Query filter %s for %d items", itemFilter.getFilterName(), ids.size()));
+                matches.put(itemFilter, new HashSet<UUID>(itemService.findIdsMatching(context, ids, criteria)));
+            }
+        }
+        return matches;
     }
 
 }
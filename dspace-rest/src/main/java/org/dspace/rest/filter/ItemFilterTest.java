@@ -8,6 +8,7 @@
 package org.dspace.rest.filter;
 
 import org.dspace.content.Item;
+import org.dspace.content.ItemBitstreamCriteria;
 import org.dspace.core.Context;
 
 /**
@@ -26,4 +27,14 @@ public interface ItemFilterTest {
     public String getCategory();
 
     public boolean testItem(Context context, Item i);
+
+    /**
+     * Get the optional query form of the test, so it is evaluated by the database for a whole page of items
+     * instead of walking the bundles and bitstreams of every item.
+     *
+     * @return criteria equivalent to {@link #testItem}, or null when the test can only be evaluated item by item
+     */
+    public default ItemBitstreamCriteria getQueryCriteria() {
+        return null;
+    }
 }
@@ -17,6 +17,7 @@ import org.apache.log4j.Logger;
 import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
 import org.dspace.content.Item;
+import org.dspace.content.ItemBitstreamCriteria.Count;
 import org.dspace.content.MetadataValue;
 import org.dspace.content.factory.ContentServiceFactory;
 import org.dspace.content.service.ItemService;
@@ -49,6 +50,33 @@ public class ItemFilterUtil {
                                     .getArrayProperty("rest.report-mime-document-image");
     }
 
+    /**
+     * Get the bitstreams of a bundle counted by the query form of a filter, see
+     * {@link ItemFilterTest#getQueryCriteria}, the counterpart of {@link #countBitstream}.
+     *
+     * @param bundleName the bundle to count the bitstreams of
+     * @return the count, to restrict to some MIME types or sizes
+     */
+    static Count count(BundleName bundleName) {
+        return new Count(bundleName.name());
+    }
+
+    static Count countOriginal() {
+        return count(BundleName.ORIGINAL);
+    }
+
+    /**
+     * @param mimeList MIME types from the configuration
+     * @return the trimmed MIME types
+     */
+    static List<String> mimeTypes(String[] mimeList) {
+        List<String> mimes = new ArrayList<String>();
+        for (String mime : mimeList) {
+            mimes.add(mime.trim());
+        }
+        return mimes;
+    }
+
     static int countOriginalBitstream(Item item) {
         return countBitstream(BundleName.ORIGINAL, item);
     }
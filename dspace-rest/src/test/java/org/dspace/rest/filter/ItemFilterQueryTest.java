@@ -0,0 +1,216 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.rest.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.Item;
+import org.dspace.content.ItemBitstreamCriteria;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.BitstreamFormatService;
+import org.dspace.content.service.BitstreamService;
+import org.dspace.content.service.BundleService;
+import org.dspace.content.service.CollectionService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.InstallItemService;
+import org.dspace.content.service.ItemService;
+import org.dspace.content.service.WorkspaceItemService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit Tests for the query form of the item filters, which must select the same items as the filters do.
+ */
+public class ItemFilterQueryTest extends AbstractUnitTest {
+
+    /**
+     * log4j category
+     */
+    private static final Logger log = Logger.getLogger(ItemFilterQueryTest.class);
+
+    private static final String PDF = "application/pdf";
+    private static final String JPG = "image/jpeg";
+
+    protected CommunityService communityService = ContentServiceFactory.getInstance().getCommunityService();
+    protected CollectionService collectionService = ContentServiceFactory.getInstance().getCollectionService();
+    protected WorkspaceItemService workspaceItemService = ContentServiceFactory.getInstance()
+                                                                               .getWorkspaceItemService();
+    protected InstallItemService installItemService = ContentServiceFactory.getInstance().getInstallItemService();
+    protected ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+    protected BundleService bundleService = ContentServiceFactory.getInstance().getBundleService();
+    protected BitstreamService bitstreamService = ContentServiceFactory.getInstance().getBitstreamService();
+    protected BitstreamFormatService bitstreamFormatService = ContentServiceFactory.getInstance()
+                                                                                   .getBitstreamFormatService();
+
+    private Community owningCommunity;
+    private Collection collection;
+    private List<Item> items;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     *
+     * Other methods can be annotated with @Before here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @Before
+    @Override
+    public void init() {
+        super.init();
+        try {
+            context.turnOffAuthorisationSystem();
+            owningCommunity = communityService.create(null, context);
+            collection = collectionService.create(context, owningCommunity);
+            items = new ArrayList<>();
+
+            // no bundles at all
+            createItem();
+
+            // a document with its text, thumbnail and license
+            Item item = createItem();
+            addBitstream(item, "ORIGINAL", PDF, 100000);
+            addBitstream(item, "TEXT", "text/plain", 1000);
+            addBitstream(item, "THUMBNAIL", JPG, 5000);
+            addBitstream(item, "LICENSE", "text/plain", 1000);
+
+            // a small document only
+            item = createItem();
+            addBitstream(item, "ORIGINAL", PDF, 1000);
+
+            // supported and unsupported images, one with a small thumbnail
+            item = createItem();
+            addBitstream(item, "ORIGINAL", JPG, 50000);
+            addBitstream(item, "ORIGINAL", "image/png", 50000);
+            addBitstream(item, "THUMBNAIL", JPG, 100);
+            addBitstream(item, "THUMBNAIL", JPG, 5000);
+            addBitstream(item, "LICENSE", "text/plain", 1000);
+
+            // supported images only
+            item = createItem();
+            addBitstream(item, "ORIGINAL", JPG, 50000);
+            addBitstream(item, "ORIGINAL", JPG, 60000);
+            addBitstream(item, "THUMBNAIL", JPG, 5000);
+            addBitstream(item, "THUMBNAIL", JPG, 5000);
+            addBitstream(item, "LICENSE", "text/plain", 1000);
+
+            // an unsupported document only
+            item = createItem();
+            addBitstream(item, "ORIGINAL", "text/html", 1000);
+
+            // a large document, an unsupported document, an unsupported image and an unknown type
+            item = createItem();
+            addBitstream(item, "ORIGINAL", PDF, 30000000);
+            addBitstream(item, "ORIGINAL", "text/plain", 1000);
+            addBitstream(item, "ORIGINAL", "image/gif", 1000);
+            addBitstream(item, "ORIGINAL", "application/octet-stream", 1000);
+            addBitstream(item, "TEXT", "text/plain", 1000);
+            addBitstream(item, "THUMBNAIL", JPG, 5000);
+            context.restoreAuthSystemState();
+        } catch (Exception ex) {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     *
+     * Other methods can be annotated with @After here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @After
+    @Override
+    public void destroy() {
+        context.turnOffAuthorisationSystem();
+        try {
+            communityService.delete(context, owningCommunity);
+        } catch (Exception e) {
+            log.error("Error in destroy", e);
+        }
+        context.restoreAuthSystemState();
+        owningCommunity = null;
+        collection = null;
+        items = null;
+        super.destroy();
+    }
+
+    private Item createItem() throws SQLException, AuthorizeException {
+        WorkspaceItem workspaceItem = workspaceItemService.create(context, collection, false);
+        Item item = installItemService.installItem(context, workspaceItem);
+        items.add(item);
+        return item;
+    }
+
+    private void addBitstream(Item item, String bundleName, String mimeType, long size) throws Exception {
+        List<Bundle> bundles = itemService.getBundles(item, bundleName);
+        Bundle bundle = bundles.isEmpty() ? bundleService.create(context, item, bundleName) : bundles.get(0);
+        Bitstream bitstream = bitstreamService.create(context, bundle, new ByteArrayInputStream(new byte[] {1}));
+        bitstream.setFormat(context, bitstreamFormatService.findByMIMEType(context, mimeType));
+        bitstream.setSizeBytes(size);
+        bitstreamService.update(context, bitstream);
+    }
+
+    /**
+     * Test that the query form of each filter selects the items the filter selects.
+     */
+    @Test
+    public void testQueryCriteria() throws Exception {
+        List<ItemFilterTest> filters = new ArrayList<>();
+        for (ItemFilterTest filter : new ItemFilterDefs().getFilters()) {
+            filters.add(filter);
+        }
+        for (ItemFilterTest filter : new ItemFilterDefsMisc().getFilters()) {
+            filters.add(filter);
+        }
+
+        List<UUID> ids = new ArrayList<>();
+        for (Item item : items) {
+            ids.add(item.getID());
+        }
+        int tested = 0;
+        for (ItemFilterTest filter : filters) {
+            ItemBitstreamCriteria criteria = filter.getQueryCriteria();
+            if (criteria == null) {
+                continue;
+            }
+            Set<UUID> expected = new HashSet<>();
+            for (Item item : items) {
+                if (filter.testItem(context, item)) {
+                    expected.add(item.getID());
+                }
+            }
+            // the items must tell the items the filter selects from the others
+            assertFalse(filter.getName() + " selects no item", expected.isEmpty());
+            assertFalse(filter.getName() + " selects every item", expected.size() == items.size());
+            assertEquals(filter.getName(), expected,
+                         new HashSet<>(itemService.findIdsMatching(context, ids, criteria)));
+            tested++;
+        }
+        assertEquals("testQueryCriteria filters", 18, tested);
+    }
+}
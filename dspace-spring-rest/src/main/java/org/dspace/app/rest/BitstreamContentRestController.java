@@ -30,6 +30,7 @@ import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.disseminate.service.CitationDocumentService;
 import org.dspace.services.EventService;
+import org.dspace.storage.bitstore.service.BitstreamStorageService;
 import org.dspace.usage.UsageEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -65,6 +66,9 @@ public class BitstreamContentRestController {
     @Autowired
     private BitstreamService bitstreamService;
 
+    @Autowired
+    private BitstreamStorageService bitstreamStorageService;
+
     @Autowired
     private EventService eventService;
 
@@ -92,15 +96,24 @@ public class BitstreamContentRestController {
         String mimetype = format.getMIMEType();
         String name = getBitstreamName(bit, format);
 
-        Pair<InputStream, Long> bitstreamTuple = getBitstreamInputStreamAndSize(context, bit);
+        Pair<InputStream, Long> citationTuple = null;
+        if (citationDocumentService.isCitationEnabledForBitstream(bit, context)) {
+            citationTuple = generateBitstreamWithCitation(context, bit);
+        }
 
         // Pipe the bits
-        try (InputStream is = bitstreamTuple.getLeft()) {
-            MultipartFileSender sender = MultipartFileSender
-                    .fromInputStream(is)
+        try (InputStream is = citationTuple != null ? citationTuple.getLeft() : null) {
+            MultipartFileSender sender;
+            if (citationTuple != null) {
+                sender = MultipartFileSender.fromInputStream(is).withLength(citationTuple.getRight());
+            } else {
+                //Only read the requested ranges from the assetstore instead of skipping through the whole file
+                sender = MultipartFileSender.fromRangeSource((offset, length) -> retrieveRange(bit, offset, length))
+                                            .withLength(bit.getSize());
+            }
+            sender = sender
                     .withBufferSize(BUFFER_SIZE)
                     .withFileName(name)
-                    .withLength(bitstreamTuple.getRight())
                     .withChecksum(bit.getChecksum())
                     .withMimetype(mimetype)
                     .withLastModified(lastModified)
@@ -133,13 +146,12 @@ public class BitstreamContentRestController {
         }
     }
 
-    private Pair<InputStream, Long> getBitstreamInputStreamAndSize(Context context, Bitstream bit)
-        throws SQLException, IOException, AuthorizeException {
-
-        if (citationDocumentService.isCitationEnabledForBitstream(bit, context)) {
-            return generateBitstreamWithCitation(context, bit);
-        } else {
-            return Pair.of(bitstreamService.retrieve(context, bit),bit.getSize());
+    private InputStream retrieveRange(Bitstream bit, long offset, long length) throws IOException {
+        //READ rights were checked when the bitstream was looked up, the context is already closed at this point
+        try {
+            return bitstreamStorageService.retrieve(null, bit, offset, length);
+        } catch (SQLException e) {
+            throw new IOException(e);
         }
     }
 
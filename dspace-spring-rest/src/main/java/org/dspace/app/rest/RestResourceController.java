@@ -33,6 +33,7 @@ import org.dspace.app.rest.exception.RepositoryNotFoundException;
 import org.dspace.app.rest.exception.RepositorySearchMethodNotFoundException;
 import org.dspace.app.rest.exception.RepositorySearchNotFoundException;
 import org.dspace.app.rest.link.HalLinkService;
+import org.dspace.app.rest.model.BaseObjectRest;
 import org.dspace.app.rest.model.LinkRest;
 import org.dspace.app.rest.model.RestAddressableModel;
 import org.dspace.app.rest.model.RestModel;
@@ -49,6 +50,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.rest.webmvc.ControllerUtils;
 import org.springframework.data.rest.webmvc.PersistentEntityResourceAssembler;
@@ -58,6 +60,7 @@ import org.springframework.hateoas.Link;
 import org.springframework.hateoas.PagedResources;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceSupport;
+import org.springframework.hateoas.Resources;
 import org.springframework.hateoas.UriTemplate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -71,6 +74,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
  * This is the main entry point of the new REST API. Its responsibility is to
@@ -831,7 +835,9 @@ public class RestResourceController implements InitializingBean {
 
         returnPage = searchMethod.getReturnType().isAssignableFrom(Page.class);
         ResourceSupport result = null;
-        if (returnPage) {
+        if (Slice.class.equals(searchMethod.getReturnType())) {
+            result = toKeysetResource(((Slice<T>) searchResult).map(repository::wrapResource), link);
+        } else if (returnPage) {
             Page<DSpaceResource<T>> resources = ((Page<T>) searchResult).map(repository::wrapResource);
             resources.forEach(linkService::addLinks);
             result = assembler.toResource(resources, link);
@@ -843,6 +849,30 @@ public class RestResourceController implements InitializingBean {
         return result;
     }
 
+    /**
+     * Wrap a slice returned by a search method paginated by keyset: the method takes the ID of the last element of
+     * the previous slice as its "after" parameter. The next link repeats the request with that parameter set to the
+     * ID of the last element of this slice. There is no total count and no last link, which would take counting
+     * every element.
+     *
+     * @param slice the elements of the slice
+     * @param link  the self link
+     * @return the resource
+     */
+    private <T extends RestAddressableModel> ResourceSupport toKeysetResource(Slice<DSpaceResource<T>> slice,
+                                                                              Link link) {
+        slice.forEach(linkService::addLinks);
+        Resources<DSpaceResource<T>> result = new Resources<>(slice.getContent(), link);
+        if (slice.hasNext()) {
+            List<DSpaceResource<T>> content = slice.getContent();
+            Object last = ((BaseObjectRest<?>) content.get(content.size() - 1).getContent()).getId();
+            result.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest()
+                                                           .replaceQueryParam("after", last)
+                                                           .toUriString(), Link.REL_NEXT));
+        }
+        return result;
+    }
+
     /**
      * Sets the location header pointing to the resource representing the given instance. Will make sure we properly
      * expand the URI template potentially created as self link.
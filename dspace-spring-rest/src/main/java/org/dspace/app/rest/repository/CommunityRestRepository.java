@@ -17,6 +17,9 @@ import org.dspace.app.rest.converter.CommunityConverter;
 import org.dspace.app.rest.model.CommunityRest;
 import org.dspace.app.rest.model.hateoas.CommunityResource;
 import org.dspace.content.Community;
+import org.dspace.content.CommunityHierarchy;
+import org.dspace.content.CommunityHierarchySnapshot;
+import org.dspace.content.CommunityHierarchySnapshot.Node;
 import org.dspace.content.service.CommunityService;
 import org.dspace.core.Context;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,6 +42,9 @@ public class CommunityRestRepository extends DSpaceRestRepository<CommunityRest,
     @Autowired
     CommunityService cs;
 
+    @Autowired
+    CommunityHierarchy communityHierarchy;
+
     @Autowired
     CommunityConverter converter;
 
@@ -99,6 +105,13 @@ public class CommunityRestRepository extends DSpaceRestRepository<CommunityRest,
         Context context = obtainContext();
         List<Community> subCommunities = new ArrayList<Community>();
         try {
+            CommunityHierarchySnapshot snapshot = communityHierarchy.getSnapshot(context);
+            if (snapshot != null && snapshot.getNode(parentCommunity) != null) {
+                // only the communities of the requested page are loaded
+                Page<Node> nodes = utils.getPage(snapshot.getSubcommunities(parentCommunity), pageable);
+                return new PageImpl<Community>(findCommunities(context, nodes.getContent()), pageable,
+                                               nodes.getTotalElements()).map(converter);
+            }
             Community community = cs.find(context, parentCommunity);
             if (community == null) {
                 throw new ResourceNotFoundException(
@@ -112,6 +125,38 @@ public class CommunityRestRepository extends DSpaceRestRepository<CommunityRest,
         return page;
     }
 
+    /**
+     * Find the communities containing a community or collection, the top community first, to show as breadcrumbs.
+     * Where an object has several parents the first by name is followed.
+     */
+    @SearchRestMethod(name = "parentPath")
+    public Page<CommunityRest> findParentPath(@Param(value = "id") UUID id, Pageable pageable) {
+        Context context = obtainContext();
+        List<Community> path;
+        try {
+            path = communityHierarchy.getParentPath(context, id);
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        if (path == null) {
+            throw new ResourceNotFoundException(
+                CommunityRest.CATEGORY + "." + CommunityRest.NAME + " with id: " + id + " not found");
+        }
+        Page<CommunityRest> page = utils.getPage(path, pageable).map(converter);
+        return page;
+    }
+
+    private List<Community> findCommunities(Context context, List<Node> nodes) throws SQLException {
+        List<Community> communities = new ArrayList<Community>();
+        for (Node node : nodes) {
+            Community community = cs.find(context, node.getID());
+            if (community != null) {
+                communities.add(community);
+            }
+        }
+        return communities;
+    }
+
     @Override
     public Class<CommunityRest> getDomainClass() {
         return CommunityRest.class;
@@ -13,6 +13,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
+import org.dspace.app.rest.SearchRestMethod;
 import org.dspace.app.rest.converter.ItemConverter;
 import org.dspace.app.rest.model.ItemRest;
 import org.dspace.app.rest.model.hateoas.ItemResource;
@@ -23,6 +24,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Component;
 
 /**
@@ -78,6 +82,31 @@ public class ItemRestRepository extends DSpaceRestRepository<ItemRest, UUID> {
         return page;
     }
 
+    /**
+     * Find the slice of items following the given item in ID order. Pass the UUID of the last item of a slice to
+     * get the next one, every slice costs the same however deep it is. Only the page size of the pageable is used.
+     * The items are not counted: the slice only tells whether more items follow it.
+     */
+    @SearchRestMethod(name = "findAllAfter")
+    public Slice<ItemRest> findAllAfter(@Param(value = "after") UUID after, Pageable pageable) {
+        Context context = obtainContext();
+        List<Item> items = new ArrayList<Item>();
+        try {
+            // one more item than the page size tells whether there is a next slice
+            Iterator<Item> it = is.findAll(context, after, pageable.getPageSize() + 1);
+            while (it.hasNext()) {
+                items.add(it.next());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        boolean hasNext = items.size() > pageable.getPageSize();
+        if (hasNext) {
+            items.remove(items.size() - 1);
+        }
+        return new SliceImpl<Item>(items, pageable, hasNext).map(converter);
+    }
+
     @Override
     public Class<ItemRest> getDomainClass() {
         return ItemRest.class;
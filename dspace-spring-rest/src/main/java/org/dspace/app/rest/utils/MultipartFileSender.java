@@ -74,6 +74,7 @@ public class MultipartFileSender {
     private static final String CACHE_CONTROL_SETTING = "private,no-cache";
 
     private BufferedInputStream inputStream;
+    private RangeSource rangeSource;
     private HttpServletRequest request;
     private HttpServletResponse response;
     private String contentType;
@@ -89,10 +90,25 @@ public class MultipartFileSender {
     }
 
 
+    public MultipartFileSender(final RangeSource rangeSource) {
+        this.rangeSource = rangeSource;
+    }
+
     public static MultipartFileSender fromInputStream(InputStream inputStream) {
         return new MultipartFileSender(inputStream);
     }
 
+    /**
+     * Send content which can be read from any offset. Every requested range is opened at its own offset, so
+     * serving a range near the end of a large file does not read the bytes before it.
+     *
+     * @param rangeSource opens the byte ranges of the content
+     * @return the sender
+     */
+    public static MultipartFileSender fromRangeSource(RangeSource rangeSource) {
+        return new MultipartFileSender(rangeSource);
+    }
+
     public MultipartFileSender with(HttpServletRequest httpRequest) {
         request = httpRequest;
         return this;
@@ -193,7 +209,7 @@ public class MultipartFileSender {
                 log.debug("Return full file");
                 response.setContentType(contentType);
                 response.setHeader(CONTENT_LENGTH, String.valueOf(length));
-                Range.copy(inputStream, output, length, 0, length, bufferSize);
+                copy(output, full);
 
             } else if (ranges.size() == 1) {
 
@@ -206,7 +222,7 @@ public class MultipartFileSender {
                 response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
 
                 // Copy single part range.
-                Range.copy(inputStream, output, length, r.start, r.length, bufferSize);
+                copy(output, r);
 
             } else {
 
@@ -225,11 +241,15 @@ public class MultipartFileSender {
                     sos.println(CONTENT_TYPE + ": " + contentType);
                     sos.println(CONTENT_RANGE + ": " + String.format(BYTES_RANGE_FORMAT, r.start, r.end, r.total));
 
-                    //Mark position of inputstream so we can return to it later
-                    inputStream.mark(0);
+                    if (rangeSource == null) {
+                        //Mark position of inputstream so we can return to it later
+                        inputStream.mark(0);
+                    }
                     // Copy single part range of multi part range.
-                    Range.copy(inputStream, output, length, r.start, r.length, bufferSize);
-                    inputStream.reset();
+                    copy(output, r);
+                    if (rangeSource == null) {
+                        inputStream.reset();
+                    }
 
                     sos.println();
                 }
@@ -242,12 +262,22 @@ public class MultipartFileSender {
 
     }
 
+    private void copy(OutputStream output, Range r) throws IOException {
+        if (rangeSource != null) {
+            try (InputStream rangeStream = rangeSource.open(r.start, r.length)) {
+                Range.copy(rangeStream, output, r.length, 0, r.length, bufferSize);
+            }
+        } else {
+            Range.copy(inputStream, output, length, r.start, r.length, bufferSize);
+        }
+    }
+
     public boolean isValid() throws IOException {
         if (response == null || request == null) {
             return false;
         }
 
-        if (inputStream == null) {
+        if (inputStream == null && rangeSource == null) {
             log.error("Input stream has no content");
             response.sendError(HttpServletResponse.SC_NOT_FOUND);
             return false;
@@ -462,6 +492,20 @@ public class MultipartFileSender {
         }
     }
 
+    /**
+     * Source of content which can be read starting at any offset.
+     */
+    public interface RangeSource {
+
+        /**
+         * @param offset position of the first byte to read
+         * @param length number of bytes to read
+         * @return a stream of (at least) the bytes of the range, closed by the sender
+         * @throws IOException if the content could not be opened
+         */
+        InputStream open(long offset, long length) throws IOException;
+    }
+
     private static boolean accepts(String acceptHeader, String toAccept) {
         String[] acceptValues = acceptHeader.split("\\s*(,|;)\\s*");
         Arrays.sort(acceptValues);
@@ -21,6 +21,7 @@ import org.dspace.app.rest.matcher.CommunityMatcher;
 import org.dspace.app.rest.test.AbstractControllerIntegrationTest;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
+import org.dspace.content.factory.ContentServiceFactory;
 import org.hamcrest.Matchers;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -404,6 +405,58 @@ public class CommunityRestRepositoryIT extends AbstractControllerIntegrationTest
     }
 
 
+    @Test
+    public void findParentPath() throws Exception {
+        context.turnOffAuthorisationSystem();
+
+        //** GIVEN **
+        //1. Two top communities, "Beta" with sub-community "Sub" holding a collection, also mapped into "alpha"
+        parentCommunity = CommunityBuilder.createCommunity(context)
+                                          .withName("Beta")
+                                          .build();
+        Community alpha = CommunityBuilder.createCommunity(context)
+                                          .withName("alpha")
+                                          .build();
+        Community sub = CommunityBuilder.createSubCommunity(context, parentCommunity)
+                                        .withName("Sub")
+                                        .build();
+        Collection col1 = CollectionBuilder.createCollection(context, sub).withName("Collection 1").build();
+        Collection col2 = CollectionBuilder.createCollection(context, sub).withName("Collection 2").build();
+        ContentServiceFactory.getInstance().getCommunityService().addCollection(context, alpha, col2);
+        context.dispatchEvents();
+
+        getClient().perform(get("/api/core/communities/search/parentPath")
+                .param("id", col1.getID().toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(contentType))
+                //The top community comes first
+                .andExpect(jsonPath("$._embedded.communities", Matchers.contains(
+                        CommunityMatcher.matchCommunityEntry(parentCommunity.getName(),
+                                                             parentCommunity.getID(),
+                                                             parentCommunity.getHandle()),
+                        CommunityMatcher.matchCommunityEntry(sub.getName(), sub.getID(), sub.getHandle())
+                )))
+                .andExpect(jsonPath("$.page.totalElements", is(2)));
+
+        //The first parent by name is followed
+        getClient().perform(get("/api/core/communities/search/parentPath")
+                .param("id", col2.getID().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.communities", Matchers.contains(
+                        CommunityMatcher.matchCommunityEntry(alpha.getName(), alpha.getID(), alpha.getHandle())
+                )))
+                .andExpect(jsonPath("$.page.totalElements", is(1)));
+
+        getClient().perform(get("/api/core/communities/search/parentPath")
+                .param("id", parentCommunity.getID().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.page.totalElements", is(0)));
+
+        getClient().perform(get("/api/core/communities/search/parentPath")
+                .param("id", UUID.randomUUID().toString()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void findOneTestWrongUUID() throws Exception {
         //We turn off the authorization system in order to create the structure as defined below
@@ -7,6 +7,7 @@
  */
 package org.dspace.app.rest;
 
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
@@ -14,8 +15,11 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
+import com.jayway.jsonpath.JsonPath;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.CharEncoding;
 import org.dspace.app.rest.builder.BitstreamBuilder;
@@ -311,4 +315,49 @@ public class ItemRestRepositoryIT extends AbstractControllerIntegrationTest {
         ;
     }
 
+    @Test
+    public void findAllAfterTest() throws Exception {
+        context.turnOffAuthorisationSystem();
+
+        //** GIVEN **
+        //1. A community-collection structure with one parent community and one collection.
+        parentCommunity = CommunityBuilder.createCommunity(context)
+                                          .withName("Parent Community")
+                                          .build();
+        Collection col1 = CollectionBuilder.createCollection(context, parentCommunity).withName("Collection 1").build();
+
+        //2. Three public items
+        Item publicItem1 = ItemBuilder.createItem(context, col1).withTitle("Public item 1").build();
+        Item publicItem2 = ItemBuilder.createItem(context, col1).withTitle("Public item 2").build();
+        Item publicItem3 = ItemBuilder.createItem(context, col1).withTitle("Public item 3").build();
+
+        //** WHEN **
+        //The first slice of two items has a next link following its last item, and no count nor last link
+        String first = getClient().perform(get("/api/core/items/search/findAllAfter")
+                                               .param("size", "2"))
+                                  .andExpect(status().isOk())
+                                  .andExpect(jsonPath("$._embedded.items", Matchers.hasSize(2)))
+                                  .andExpect(jsonPath("$.page").doesNotExist())
+                                  .andExpect(jsonPath("$._links.last").doesNotExist())
+                                  .andExpect(jsonPath("$._links.next.href",
+                                                      Matchers.containsString("/api/core/items/search/findAllAfter")))
+                                  .andReturn().getResponse().getContentAsString();
+        List<String> uuids = new ArrayList<>(JsonPath.<List<String>>read(first, "$._embedded.items[*].uuid"));
+        String next = JsonPath.read(first, "$._links.next.href");
+        assertThat(next, Matchers.containsString("after=" + uuids.get(1)));
+
+        //The next slice holds the last item and has no next link
+        String second = getClient().perform(get(next))
+                                   .andExpect(status().isOk())
+                                   .andExpect(jsonPath("$._embedded.items", Matchers.hasSize(1)))
+                                   .andExpect(jsonPath("$._links.next").doesNotExist())
+                                   .andReturn().getResponse().getContentAsString();
+        uuids.addAll(JsonPath.<List<String>>read(second, "$._embedded.items[*].uuid"));
+
+        //** THEN **
+        assertThat(uuids, Matchers.containsInAnyOrder(publicItem1.getID().toString(),
+                                                      publicItem2.getID().toString(),
+                                                      publicItem3.getID().toString()));
+    }
+
 }
@@ -15,7 +15,10 @@ import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -133,6 +136,37 @@ public class MultipartFileSenderTest {
         assertEquals("123", content);
     }
 
+    /**
+     * Test if a range is read from its offset when the content comes from a range source
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRangeHeaderWithRangeSource() throws Exception {
+        final String content = IOUtils.toString(is, CharEncoding.UTF_8);
+        final List<String> opened = new ArrayList<>();
+        MultipartFileSender multipartFileSender = MultipartFileSender
+            .fromRangeSource((offset, rangeLength) -> {
+                opened.add(offset + "-" + rangeLength);
+                return IOUtils.toInputStream(content.substring((int) offset, (int) (offset + rangeLength)),
+                                             CharEncoding.UTF_8);
+            })
+            .with(requestWrapper)
+            .with(responseWrapper)
+            .withFileName(fileName)
+            .withChecksum(checksum)
+            .withMimetype(mimeType)
+            .withLength(length);
+
+        when(request.getHeader(eq("If-Range"))).thenReturn("not_file_to_serve.txt");
+        when(request.getHeader(eq("Range"))).thenReturn("bytes=6-8");
+
+        multipartFileSender.serveResource();
+
+        assertEquals("678", new String(responseWrapper.getContentAsByteArray(), CharEncoding.UTF_8));
+        assertEquals(Collections.singletonList("6-3"), opened);
+    }
+
     /**
      * Test if we can just request the full file without ranges
      *